@@ -21,6 +21,7 @@ val twelveMonkeysVersion = "3.11.0"
 val javacppVersion = "1.5.10"
 val ffmpegVersion = "6.1.1-$javacppVersion"
 val flatlafVersion = "3.5.1"
+val jmhVersion = "1.37"
 
 // Versions of custom-built native libraries; upon updating, rebuild them following MAINTENANCE.md:
 val skiaVersion = "e2ea2eb" // head of branch chrome/m124
@@ -48,6 +49,10 @@ sourceSets {
         compileClasspath += sourceSets.main.get().output
         runtimeClasspath += sourceSets.main.get().output
     }
+    register("jmh") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
 }
 
 
@@ -61,6 +66,8 @@ val natives = Platform.values().associateWith { platform ->
 
 val demoImplementation by configurations.getting { extendsFrom(configurations.implementation.get()) }
 val demoRuntimeOnly by configurations.getting { extendsFrom(configurations.runtimeOnly.get()) }
+val jmhImplementation by configurations.getting { extendsFrom(configurations.implementation.get()) }
+val jmhRuntimeOnly by configurations.getting { extendsFrom(configurations.runtimeOnly.get()) }
 
 repositories {
     mavenCentral()
@@ -115,6 +122,10 @@ dependencies {
 
     // Testing
     testImplementation("org.junit.jupiter", "junit-jupiter", "5.11.0")
+
+    // Benchmarking
+    jmhImplementation("org.openjdk.jmh", "jmh-core", jmhVersion)
+    jmhImplementation("org.openjdk.jmh", "jmh-generator-bytecode", jmhVersion)
 }
 
 configurations.configureEach {
@@ -250,6 +261,54 @@ for (platform in Platform.values()) {
 }
 
 
+// JMH's annotation processor doesn't see Kotlin sources, so we instead generate the benchmark harness from the compiled
+// benchmark classes, and then compile that harness separately.
+val jmhGeneratedSrcDir = layout.buildDirectory.dir("generated/jmh/sources")
+val jmhGeneratedResDir = layout.buildDirectory.dir("generated/jmh/resources")
+val generateJmhHarness by tasks.registering(JavaExec::class) {
+    val jmhSourceSet = sourceSets.named("jmh")
+    dependsOn(tasks.named("jmhClasses"))
+    inputs.files(jmhSourceSet.map { it.output.classesDirs })
+    outputs.dirs(jmhGeneratedSrcDir, jmhGeneratedResDir)
+    classpath(jmhSourceSet.map { it.runtimeClasspath })
+    mainClass = "org.openjdk.jmh.generators.bytecode.JmhBytecodeGenerator"
+    argumentProviders += CommandLineArgumentProvider {
+        listOf(
+            layout.buildDirectory.dir("classes/kotlin/jmh").get().asFile.path,
+            jmhGeneratedSrcDir.get().asFile.path,
+            jmhGeneratedResDir.get().asFile.path,
+            "default"
+        )
+    }
+    doFirst { delete(jmhGeneratedSrcDir, jmhGeneratedResDir) }
+}
+val compileJmhHarness by tasks.registering(JavaCompile::class) {
+    val jmhSourceSet = sourceSets.named("jmh")
+    dependsOn(generateJmhHarness)
+    source(jmhGeneratedSrcDir)
+    classpath = files(jmhSourceSet.map { it.runtimeClasspath })
+    destinationDirectory = layout.buildDirectory.dir("classes/java/jmhHarness")
+}
+
+for (platform in Platform.values()) {
+    tasks.register<JavaExec>("runBenchmarksOn${platform.label.capitalized()}") {
+        group = "Execution"
+        description = "Runs the JMH benchmarks on ${platform.label.capitalized()}. " +
+                "Pass JMH options like a benchmark filter via --args."
+        dependsOn(platformNativesTasks.getValue(platform), compileJmhHarness)
+        classpath(sourceSets.named("jmh").map { it.runtimeClasspath }, compileJmhHarness, jmhGeneratedResDir)
+        mainClass = "org.openjdk.jmh.Main"
+        // The benchmarks fork their own JVMs, which need the same arguments as the program.
+        val forkJvmArgs = listOf(
+            "-Djava.library.path=${platformNativesTasks.getValue(platform).get().destinationDir}",
+            "-Djava.awt.headless=true",
+            "--add-modules", addModules.joinToString(",")
+        ) + addOpens.flatMap { listOf("--add-opens", "$it=ALL-UNNAMED") } + javaOptions.split(" ")
+        args("-jvmArgsAppend", forkJvmArgs.joinToString(" "))
+    }
+}
+
+
 val drawOSImagesTasks = Platform.OS.values().associateWith { os ->
     // Draw the images that are needed for the OS.
     tasks.register<DrawImages>("draw${os.slug.capitalized()}Images") {
@@ -0,0 +1,68 @@
+package com.loadingbyte.cinecred.benchmarks
+
+import com.loadingbyte.cinecred.common.Resolution
+import com.loadingbyte.cinecred.imaging.Bitmap
+import com.loadingbyte.cinecred.imaging.Bitmap.YUVCoefficients.Companion.BT709_NCL
+import com.loadingbyte.cinecred.imaging.BitmapConverter
+import com.loadingbyte.cinecred.imaging.ColorSpace
+import org.bytedeco.ffmpeg.global.avutil.*
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+open class BitmapConverterBenchmark {
+
+    @Param("CANVAS_TO_YUV422P10", "CANVAS_TO_YUV420P", "CANVAS_TO_RGB48", "RGBA8_TO_CANVAS")
+    var conversion = ""
+
+    @Param("1", "4")
+    var threads = 1
+
+    private lateinit var src: Bitmap
+    private lateinit var dst: Bitmap
+    private lateinit var converter: BitmapConverter
+
+    @Setup
+    fun setup() {
+        loadNatives()
+        val res = Resolution(3840, 2160)
+        val canvasSpec = Bitmap.Spec(res, CANVAS_REPRESENTATION)
+        val (srcSpec, dstSpec) = when (conversion) {
+            "CANVAS_TO_YUV422P10" -> Pair(canvasSpec, Bitmap.Spec(res, yuv(AV_PIX_FMT_YUV422P10LE)))
+            "CANVAS_TO_YUV420P" -> Pair(canvasSpec, Bitmap.Spec(res, yuv(AV_PIX_FMT_YUV420P)))
+            "CANVAS_TO_RGB48" -> Pair(canvasSpec, Bitmap.Spec(res, rgb(AV_PIX_FMT_RGB48LE, Bitmap.Alpha.OPAQUE)))
+            "RGBA8_TO_CANVAS" -> Pair(Bitmap.Spec(res, rgb(AV_PIX_FMT_RGBA, Bitmap.Alpha.STRAIGHT)), canvasSpec)
+            else -> throw IllegalArgumentException(conversion)
+        }
+        src = Bitmap.allocate(srcSpec).fillRandomly()
+        dst = Bitmap.allocate(dstSpec)
+        converter = BitmapConverter(srcSpec, dstSpec, threads = threads)
+    }
+
+    @TearDown
+    fun tearDown() {
+        converter.close()
+        src.close()
+        dst.close()
+    }
+
+    @Benchmark
+    fun convert() {
+        converter.convert(src, dst)
+    }
+
+    private fun yuv(pixelFormatCode: Int) = Bitmap.Representation(
+        Bitmap.PixelFormat.of(pixelFormatCode), Bitmap.Range.LIMITED, ColorSpace.BT709, BT709_NCL,
+        AVCHROMA_LOC_LEFT, Bitmap.Alpha.OPAQUE
+    )
+
+    private fun rgb(pixelFormatCode: Int, alpha: Bitmap.Alpha) =
+        Bitmap.Representation(Bitmap.PixelFormat.of(pixelFormatCode), ColorSpace.SRGB, alpha)
+
+}
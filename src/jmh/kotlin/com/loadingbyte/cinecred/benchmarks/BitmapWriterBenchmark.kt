@@ -0,0 +1,85 @@
+package com.loadingbyte.cinecred.benchmarks
+
+import com.loadingbyte.cinecred.common.Resolution
+import com.loadingbyte.cinecred.imaging.Bitmap
+import com.loadingbyte.cinecred.imaging.Bitmap.PixelFormat.Family.RGB
+import com.loadingbyte.cinecred.imaging.BitmapConverter
+import com.loadingbyte.cinecred.imaging.BitmapWriter
+import com.loadingbyte.cinecred.imaging.Canvas
+import com.loadingbyte.cinecred.imaging.ColorSpace
+import com.loadingbyte.cinecred.imaging.DeferredImage
+import org.openjdk.jmh.annotations.*
+import java.nio.file.Path
+import java.util.concurrent.TimeUnit
+import kotlin.io.path.createTempFile
+import kotlin.io.path.deleteIfExists
+
+
+// Same as for whole page deliveries.
+private const val BAND_HEIGHT = 512
+
+
+/**
+ * Encodes a frame of rendered text, which compresses like real credits do, unlike noise or a blank frame. Apart from
+ * encoding into memory, the frame is also written to a file, both at once and in bands like whole pages are.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+open class BitmapWriterBenchmark {
+
+    @Param("EXR_ZIP", "EXR_NONE", "DPX_10", "DPX_16_RLE", "PNG_8", "PNG_16")
+    var format = ""
+
+    private lateinit var writer: BitmapWriter
+    private lateinit var bitmap: Bitmap
+    private lateinit var file: Path
+
+    @Setup
+    fun setup() {
+        loadNatives()
+        writer = when (format) {
+            "EXR_ZIP" -> BitmapWriter.EXR(RGB, true, ColorSpace.Primaries.BT709, 16, BitmapWriter.EXR.Compression.ZIP)
+            "EXR_NONE" -> BitmapWriter.EXR(RGB, true, ColorSpace.Primaries.BT709, 16, BitmapWriter.EXR.Compression.NONE)
+            "DPX_10" -> BitmapWriter.DPX(RGB, false, ColorSpace.SRGB, 10, BitmapWriter.DPX.Compression.NONE)
+            "DPX_16_RLE" -> BitmapWriter.DPX(RGB, true, ColorSpace.SRGB, 16, BitmapWriter.DPX.Compression.RLE)
+            "PNG_8" -> BitmapWriter.PNG(RGB, true, ColorSpace.SRGB, 8)
+            "PNG_16" -> BitmapWriter.PNG(RGB, true, ColorSpace.SRGB, 16)
+            else -> throw IllegalArgumentException(format)
+        }
+        val res = Resolution(3840, 2160)
+        Bitmap.allocate(Bitmap.Spec(res, CANVAS_REPRESENTATION)).zero().use { canvasBitmap ->
+            Canvas.forBitmap(canvasBitmap).use { canvas ->
+                makeTallPage(res.widthPx.toDouble(), 40).materialize(canvas, null, listOf(DeferredImage.STATIC))
+            }
+            bitmap = Bitmap.allocate(Bitmap.Spec(res, writer.representation))
+            BitmapConverter.convert(canvasBitmap, bitmap)
+        }
+        file = createTempFile("cinecred-benchmark-", ".img")
+    }
+
+    @TearDown
+    fun tearDown() {
+        bitmap.close()
+        file.deleteIfExists()
+    }
+
+    @Benchmark
+    fun write(): ByteArray = writer.write(bitmap)
+
+    @Benchmark
+    fun writeToFile() {
+        writer.write(bitmap, file)
+    }
+
+    /** The bands are views into the prepared frame, so only the writer's own work is measured. */
+    @Benchmark
+    fun writeBanded() {
+        val res = bitmap.spec.resolution
+        writer.writeBanded(res, file, BAND_HEIGHT) { y, height -> bitmap.view(0, y, res.widthPx, height, 1) }
+    }
+
+}
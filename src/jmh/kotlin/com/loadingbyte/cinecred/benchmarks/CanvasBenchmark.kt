@@ -0,0 +1,50 @@
+package com.loadingbyte.cinecred.benchmarks
+
+import com.loadingbyte.cinecred.common.REF_FRC
+import com.loadingbyte.cinecred.common.Resolution
+import com.loadingbyte.cinecred.imaging.Bitmap
+import com.loadingbyte.cinecred.imaging.Canvas
+import com.loadingbyte.cinecred.imaging.Color4f
+import org.openjdk.jmh.annotations.*
+import java.awt.Shape
+import java.awt.geom.AffineTransform
+import java.util.concurrent.TimeUnit
+
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+open class CanvasBenchmark {
+
+    @Param("24", "96", "400")
+    var fontSize = 0f
+
+    private lateinit var bitmap: Bitmap
+    private lateinit var canvas: Canvas
+    private lateinit var textOutline: Shape
+    private val shader = Canvas.Shader.Solid(Color4f.WHITE)
+    private val transform = AffineTransform.getTranslateInstance(100.0, 1000.0)
+
+    @Setup
+    fun setup() {
+        loadNatives()
+        bitmap = Bitmap.allocate(Bitmap.Spec(Resolution(3840, 2160), CANVAS_REPRESENTATION)).zero()
+        canvas = Canvas.forBitmap(bitmap)
+        textOutline = BENCHMARK_AWT_FONT.deriveFont(fontSize).createGlyphVector(REF_FRC, LOREM_IPSUM).outline
+    }
+
+    @TearDown
+    fun tearDown() {
+        canvas.close()
+        bitmap.close()
+    }
+
+    @Benchmark
+    fun fillTextOutline() {
+        canvas.fillShape(textOutline, shader, transform = transform)
+    }
+
+}
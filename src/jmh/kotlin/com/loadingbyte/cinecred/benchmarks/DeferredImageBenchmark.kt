@@ -0,0 +1,53 @@
+package com.loadingbyte.cinecred.benchmarks
+
+import com.loadingbyte.cinecred.common.Resolution
+import com.loadingbyte.cinecred.imaging.Bitmap
+import com.loadingbyte.cinecred.imaging.Canvas
+import com.loadingbyte.cinecred.imaging.Color4f
+import com.loadingbyte.cinecred.imaging.DeferredImage
+import com.loadingbyte.cinecred.imaging.Y.Companion.toY
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+
+/** Materializes a screen-sized window in the middle of a synthetic tall page, as is done for every scrolling frame. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+open class DeferredImageBenchmark {
+
+    @Param("200", "5000")
+    var numLines = 0
+
+    private lateinit var bitmap: Bitmap
+    private lateinit var canvas: Canvas
+    private lateinit var window: DeferredImage
+    private val background = Canvas.Shader.Solid(Color4f.BLACK)
+
+    @Setup
+    fun setup() {
+        loadNatives()
+        val res = Resolution(1920, 1080)
+        val page = makeTallPage(res.widthPx.toDouble(), numLines)
+        window = DeferredImage(res.widthPx.toDouble(), res.heightPx.toDouble().toY())
+        window.drawDeferredImage(page, y = (res.heightPx / 2.0 - page.height.resolve() / 2.0).toY())
+        bitmap = Bitmap.allocate(Bitmap.Spec(res, CANVAS_REPRESENTATION))
+        canvas = Canvas.forBitmap(bitmap)
+    }
+
+    @TearDown
+    fun tearDown() {
+        canvas.close()
+        bitmap.close()
+    }
+
+    @Benchmark
+    fun materializeWindow() {
+        canvas.fill(background)
+        window.materialize(canvas, null, listOf(DeferredImage.STATIC))
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.loadingbyte.cinecred.benchmarks
+
+import com.loadingbyte.cinecred.common.FPS
+import com.loadingbyte.cinecred.common.Resolution
+import com.loadingbyte.cinecred.imaging.Bitmap
+import com.loadingbyte.cinecred.imaging.Bitmap.YUVCoefficients.Companion.BT709_NCL
+import com.loadingbyte.cinecred.imaging.Color4f
+import com.loadingbyte.cinecred.imaging.ColorSpace
+import com.loadingbyte.cinecred.imaging.DeferredImage
+import com.loadingbyte.cinecred.imaging.DeferredVideo
+import org.bytedeco.ffmpeg.global.avutil.AVCHROMA_LOC_LEFT
+import org.bytedeco.ffmpeg.global.avutil.AV_PIX_FMT_YUV422P10LE
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+
+/** Materializes consecutive frames of a video that consists of a single phase, just like a video export does. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+open class DeferredVideoBenchmark {
+
+    @Param("STATIC", "FADE", "SCROLL")
+    var phase = ""
+
+    @Param("1", "4")
+    var parallelism = 1
+
+    private lateinit var video: DeferredVideo
+    private lateinit var userSpec: Bitmap.Spec
+    private var backend: DeferredVideo.BitmapBackend? = null
+    private var frameIdx = 0
+
+    @Setup
+    fun setup() {
+        loadNatives()
+        val res = Resolution(1920, 1080)
+        val numFrames = 10_000
+        video = DeferredVideo(res, FPS(25, 1))
+        when (phase) {
+            "STATIC" -> video.playStatic(makeTallPage(res.widthPx.toDouble(), 20), numFrames, 0.0, 1.0)
+            "FADE" -> video.playFade(makeTallPage(res.widthPx.toDouble(), 20), numFrames, 0.0, 0.0, 1.0)
+            "SCROLL" -> {
+                val page = makeTallPage(res.widthPx.toDouble(), 2000)
+                val speed = page.height.resolve() / numFrames
+                video.playScroll(page, numFrames, speed, 0.0, page.height.resolve(), 1.0)
+            }
+            else -> throw IllegalArgumentException(phase)
+        }
+        userSpec = Bitmap.Spec(
+            res, Bitmap.Representation(
+                Bitmap.PixelFormat.of(AV_PIX_FMT_YUV422P10LE), Bitmap.Range.LIMITED, ColorSpace.BT709, BT709_NCL,
+                AVCHROMA_LOC_LEFT, Bitmap.Alpha.OPAQUE
+            )
+        )
+    }
+
+    @TearDown
+    fun tearDown() {
+        backend?.close()
+    }
+
+    @Benchmark
+    fun materializeFrame() {
+        // The backend only supports ascending frame indices, so start over once we reach the end of the video.
+        var backend = this.backend
+        if (backend == null || frameIdx == video.numFrames) {
+            backend?.close()
+            backend = DeferredVideo.BitmapBackend(
+                video, listOf(DeferredImage.STATIC), emptyList(), Color4f.BLACK, userSpec, parallelism = parallelism
+            )
+            this.backend = backend
+            frameIdx = 0
+        }
+        backend.materializeFrame(frameIdx++)!!.close()
+    }
+
+}
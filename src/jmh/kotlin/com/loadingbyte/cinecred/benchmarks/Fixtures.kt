@@ -0,0 +1,93 @@
+package com.loadingbyte.cinecred.benchmarks
+
+import com.loadingbyte.cinecred.common.useResourceStream
+import com.loadingbyte.cinecred.imaging.Bitmap
+import com.loadingbyte.cinecred.imaging.Canvas
+import com.loadingbyte.cinecred.imaging.Color4f
+import com.loadingbyte.cinecred.imaging.ColorSpace
+import com.loadingbyte.cinecred.imaging.DeferredImage
+import com.loadingbyte.cinecred.imaging.FormattedString
+import com.loadingbyte.cinecred.imaging.Y.Companion.toY
+import org.bytedeco.ffmpeg.global.avcodec
+import org.bytedeco.ffmpeg.global.avformat
+import org.bytedeco.ffmpeg.global.avutil
+import org.bytedeco.ffmpeg.global.swscale
+import org.bytedeco.javacpp.Loader
+import java.lang.foreign.MemorySegment
+import java.util.*
+import kotlin.random.Random
+
+
+/** Loads the same native libraries as the regular entry point does. Must be called at the start of every benchmark. */
+fun loadNatives() {
+    nativesLoaded
+}
+
+private val nativesLoaded: Unit by lazy {
+    System.loadLibrary("skia")
+    System.loadLibrary("skiacapi")
+    System.loadLibrary("harfbuzz")
+    System.loadLibrary("zimg")
+    System.setProperty("org.bytedeco.javacpp.cacheLibraries", "false")
+    System.setProperty("org.bytedeco.javacpp.logger", "slf4j")
+    Loader.load(avutil::class.java)
+    Loader.load(avcodec::class.java)
+    Loader.load(avformat::class.java)
+    Loader.load(swscale::class.java)
+}
+
+
+val CANVAS_REPRESENTATION: Bitmap.Representation =
+    Canvas.compatibleRepresentation(ColorSpace.of(ColorSpace.Primaries.BT709, ColorSpace.Transfer.BLENDING))
+
+val BENCHMARK_AWT_FONT: java.awt.Font by lazy {
+    useResourceStream("/fonts/ArchivoNarrow-Regular.ttf") { java.awt.Font.createFont(java.awt.Font.TRUETYPE_FONT, it) }
+}
+
+const val LOREM_IPSUM = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt"
+
+
+/** Fills all planes of the bitmap with random bytes, which is enough to defeat shortcuts for uniform content. */
+fun Bitmap.fillRandomly(seed: Int = 0): Bitmap {
+    val random = Random(seed)
+    val pixelFormat = spec.representation.pixelFormat
+    for (plane in 0..<pixelFormat.planes) {
+        val seg = memorySegment(plane)
+        val bytes = ByteArray(seg.byteSize().toInt()).also(random::nextBytes)
+        // For float bitmaps, random bytes would yield NaNs and infinities, so pin the (little-endian) most significant
+        // byte of each float such that all values are small and finite.
+        if (pixelFormat.isFloat) {
+            val elemBytes = pixelFormat.depth / 8
+            for (i in elemBytes - 1..<bytes.size step elemBytes)
+                bytes[i] = 0x3E
+        }
+        seg.copyFrom(MemorySegment.ofArray(bytes))
+    }
+    return this
+}
+
+
+fun makeAttribute(fontHeightPx: Double): FormattedString.Attribute {
+    val font = FormattedString.Font(BENCHMARK_AWT_FONT.deriveFont(12f), fontHeightPx, kerning = true, ligatures = true)
+    val layer = FormattedString.Layer(
+        FormattedString.Layer.Coloring.Plain(Color4f.WHITE), FormattedString.Layer.Shape.Text
+    )
+    return FormattedString.Attribute(font, FormattedString.Design(font, listOf(layer)))
+}
+
+fun makeFormattedString(text: String, attr: FormattedString.Attribute): FormattedString =
+    FormattedString.Builder(Locale.ENGLISH).apply { append(text, attr) }.build()
+
+/** Builds a page in the style of end credits: [numLines] centered lines of text with a gap between every 8 lines. */
+fun makeTallPage(width: Double, numLines: Int): DeferredImage {
+    val page = DeferredImage(width)
+    val attr = makeAttribute(32.0)
+    var y = 0.0
+    for (line in 0..<numLines) {
+        val fmtStr = makeFormattedString("$line ${LOREM_IPSUM.take(20 + line % 40)}", attr)
+        fmtStr.drawTo(page, (width - fmtStr.width) / 2.0, (y + fmtStr.heightAboveBaseline).toY(), DeferredImage.STATIC)
+        y += fmtStr.height * 1.2 + if (line % 8 == 7) 64.0 else 0.0
+    }
+    page.height = y.toY()
+    return page
+}
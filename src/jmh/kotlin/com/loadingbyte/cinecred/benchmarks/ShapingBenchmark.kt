@@ -0,0 +1,38 @@
+package com.loadingbyte.cinecred.benchmarks
+
+import com.loadingbyte.cinecred.imaging.FormattedString
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+
+/**
+ * Lays out a line of text, which goes through our HarfBuzz-based layout engine. When [cached] is false, every string
+ * is new, so each invocation also misses the shaping cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+open class ShapingBenchmark {
+
+    @Param("true", "false")
+    var cached = false
+
+    private var counter = 0
+    private lateinit var attr: FormattedString.Attribute
+
+    @Setup
+    fun setup() {
+        loadNatives()
+        attr = makeAttribute(48.0)
+    }
+
+    @Benchmark
+    fun layoutLine(): Double {
+        val text = if (cached) LOREM_IPSUM else "$LOREM_IPSUM ${counter++}"
+        return makeFormattedString(text, attr).width
+    }
+
+}
@@ -21,10 +21,10 @@ import static java.lang.foreign.ValueLayout.*;
 public class Path {
 
     public static MemoryLayout $LAYOUT() {
-        return constants$0.const$87;
+        return constants$0.const$88;
     }
     public static VarHandle verbs$VH() {
-        return constants$0.const$88;
+        return constants$0.const$89;
     }
     /**
      * Getter for field:
@@ -33,7 +33,7 @@ public class Path {
      * }
      */
     public static MemorySegment verbs$get(MemorySegment seg) {
-        return (java.lang.foreign.MemorySegment)constants$0.const$88.get(seg);
+        return (java.lang.foreign.MemorySegment)constants$0.const$89.get(seg);
     }
     /**
      * Setter for field:
@@ -42,16 +42,16 @@ public class Path {
      * }
      */
     public static void verbs$set(MemorySegment seg, MemorySegment x) {
-        constants$0.const$88.set(seg, x);
+        constants$0.const$89.set(seg, x);
     }
     public static MemorySegment verbs$get(MemorySegment seg, long index) {
-        return (java.lang.foreign.MemorySegment)constants$0.const$88.get(seg.asSlice(index*sizeof()));
+        return (java.lang.foreign.MemorySegment)constants$0.const$89.get(seg.asSlice(index*sizeof()));
     }
     public static void verbs$set(MemorySegment seg, long index, MemorySegment x) {
-        constants$0.const$88.set(seg.asSlice(index*sizeof()), x);
+        constants$0.const$89.set(seg.asSlice(index*sizeof()), x);
     }
     public static VarHandle verbCount$VH() {
-        return constants$0.const$89;
+        return constants$0.const$90;
     }
     /**
      * Getter for field:
@@ -60,7 +60,7 @@ public class Path {
      * }
      */
     public static int verbCount$get(MemorySegment seg) {
-        return (int)constants$0.const$89.get(seg);
+        return (int)constants$0.const$90.get(seg);
     }
     /**
      * Setter for field:
@@ -69,16 +69,16 @@ public class Path {
      * }
      */
     public static void verbCount$set(MemorySegment seg, int x) {
-        constants$0.const$89.set(seg, x);
+        constants$0.const$90.set(seg, x);
     }
     public static int verbCount$get(MemorySegment seg, long index) {
-        return (int)constants$0.const$89.get(seg.asSlice(index*sizeof()));
+        return (int)constants$0.const$90.get(seg.asSlice(index*sizeof()));
     }
     public static void verbCount$set(MemorySegment seg, long index, int x) {
-        constants$0.const$89.set(seg.asSlice(index*sizeof()), x);
+        constants$0.const$90.set(seg.asSlice(index*sizeof()), x);
     }
     public static VarHandle points$VH() {
-        return constants$0.const$90;
+        return constants$0.const$91;
     }
     /**
      * Getter for field:
@@ -87,7 +87,7 @@ public class Path {
      * }
      */
     public static MemorySegment points$get(MemorySegment seg) {
-        return (java.lang.foreign.MemorySegment)constants$0.const$90.get(seg);
+        return (java.lang.foreign.MemorySegment)constants$0.const$91.get(seg);
     }
     /**
      * Setter for field:
@@ -96,16 +96,16 @@ public class Path {
      * }
      */
     public static void points$set(MemorySegment seg, MemorySegment x) {
-        constants$0.const$90.set(seg, x);
+        constants$0.const$91.set(seg, x);
     }
     public static MemorySegment points$get(MemorySegment seg, long index) {
-        return (java.lang.foreign.MemorySegment)constants$0.const$90.get(seg.asSlice(index*sizeof()));
+        return (java.lang.foreign.MemorySegment)constants$0.const$91.get(seg.asSlice(index*sizeof()));
     }
     public static void points$set(MemorySegment seg, long index, MemorySegment x) {
-        constants$0.const$90.set(seg.asSlice(index*sizeof()), x);
+        constants$0.const$91.set(seg.asSlice(index*sizeof()), x);
     }
     public static VarHandle pointCount$VH() {
-        return constants$0.const$91;
+        return constants$0.const$92;
     }
     /**
      * Getter for field:
@@ -114,7 +114,7 @@ public class Path {
      * }
      */
     public static int pointCount$get(MemorySegment seg) {
-        return (int)constants$0.const$91.get(seg);
+        return (int)constants$0.const$92.get(seg);
     }
     /**
      * Setter for field:
@@ -123,16 +123,16 @@ public class Path {
      * }
      */
     public static void pointCount$set(MemorySegment seg, int x) {
-        constants$0.const$91.set(seg, x);
+        constants$0.const$92.set(seg, x);
     }
     public static int pointCount$get(MemorySegment seg, long index) {
-        return (int)constants$0.const$91.get(seg.asSlice(index*sizeof()));
+        return (int)constants$0.const$92.get(seg.asSlice(index*sizeof()));
     }
     public static void pointCount$set(MemorySegment seg, long index, int x) {
-        constants$0.const$91.set(seg.asSlice(index*sizeof()), x);
+        constants$0.const$92.set(seg.asSlice(index*sizeof()), x);
     }
     public static VarHandle isEvenOdd$VH() {
-        return constants$0.const$92;
+        return constants$0.const$93;
     }
     /**
      * Getter for field:
@@ -141,7 +141,7 @@ public class Path {
      * }
      */
     public static boolean isEvenOdd$get(MemorySegment seg) {
-        return (boolean)constants$0.const$92.get(seg);
+        return (boolean)constants$0.const$93.get(seg);
     }
     /**
      * Setter for field:
@@ -150,13 +150,13 @@ public class Path {
      * }
      */
     public static void isEvenOdd$set(MemorySegment seg, boolean x) {
-        constants$0.const$92.set(seg, x);
+        constants$0.const$93.set(seg, x);
     }
     public static boolean isEvenOdd$get(MemorySegment seg, long index) {
-        return (boolean)constants$0.const$92.get(seg.asSlice(index*sizeof()));
+        return (boolean)constants$0.const$93.get(seg.asSlice(index*sizeof()));
     }
     public static void isEvenOdd$set(MemorySegment seg, long index, boolean x) {
-        constants$0.const$92.set(seg.asSlice(index*sizeof()), x);
+        constants$0.const$93.set(seg.asSlice(index*sizeof()), x);
     }
     public static long sizeof() { return $LAYOUT().byteSize(); }
     public static MemorySegment allocate(SegmentAllocator allocator) { return allocator.allocate($LAYOUT()); }
@@ -17,280 +17,284 @@ final class constants$0 {
         constants$0.const$0
     );
     static final MethodHandle const$2 = RuntimeHelper.downcallHandle(
-        "SkColorType_A16_unorm",
+        "SkColorType_RGBA_F16",
         constants$0.const$0
     );
     static final MethodHandle const$3 = RuntimeHelper.downcallHandle(
-        "SkAlphaType_Opaque",
+        "SkColorType_A16_unorm",
         constants$0.const$0
     );
     static final MethodHandle const$4 = RuntimeHelper.downcallHandle(
-        "SkAlphaType_Premul",
+        "SkAlphaType_Opaque",
         constants$0.const$0
     );
     static final MethodHandle const$5 = RuntimeHelper.downcallHandle(
-        "SkAlphaType_Unpremul",
+        "SkAlphaType_Premul",
         constants$0.const$0
     );
     static final MethodHandle const$6 = RuntimeHelper.downcallHandle(
-        "SkTileMode_Clamp",
+        "SkAlphaType_Unpremul",
         constants$0.const$0
     );
     static final MethodHandle const$7 = RuntimeHelper.downcallHandle(
-        "SkTileMode_Decal",
+        "SkTileMode_Clamp",
         constants$0.const$0
     );
     static final MethodHandle const$8 = RuntimeHelper.downcallHandle(
-        "SkFilterMode_Nearest",
+        "SkTileMode_Decal",
         constants$0.const$0
     );
     static final MethodHandle const$9 = RuntimeHelper.downcallHandle(
-        "SkFilterMode_Linear",
+        "SkFilterMode_Nearest",
         constants$0.const$0
     );
     static final MethodHandle const$10 = RuntimeHelper.downcallHandle(
-        "SkPathVerb_Move",
+        "SkFilterMode_Linear",
         constants$0.const$0
     );
     static final MethodHandle const$11 = RuntimeHelper.downcallHandle(
-        "SkPathVerb_Line",
+        "SkPathVerb_Move",
         constants$0.const$0
     );
     static final MethodHandle const$12 = RuntimeHelper.downcallHandle(
-        "SkPathVerb_Quad",
+        "SkPathVerb_Line",
         constants$0.const$0
     );
     static final MethodHandle const$13 = RuntimeHelper.downcallHandle(
-        "SkPathVerb_Cubic",
+        "SkPathVerb_Quad",
         constants$0.const$0
     );
     static final MethodHandle const$14 = RuntimeHelper.downcallHandle(
-        "SkPathVerb_Close",
+        "SkPathVerb_Cubic",
         constants$0.const$0
     );
     static final MethodHandle const$15 = RuntimeHelper.downcallHandle(
-        "SkPaintCap_Butt",
+        "SkPathVerb_Close",
         constants$0.const$0
     );
     static final MethodHandle const$16 = RuntimeHelper.downcallHandle(
-        "SkPaintCap_Round",
+        "SkPaintCap_Butt",
         constants$0.const$0
     );
     static final MethodHandle const$17 = RuntimeHelper.downcallHandle(
-        "SkPaintCap_Square",
+        "SkPaintCap_Round",
         constants$0.const$0
     );
     static final MethodHandle const$18 = RuntimeHelper.downcallHandle(
-        "SkPaintJoin_Miter",
+        "SkPaintCap_Square",
         constants$0.const$0
     );
     static final MethodHandle const$19 = RuntimeHelper.downcallHandle(
-        "SkPaintJoin_Round",
+        "SkPaintJoin_Miter",
         constants$0.const$0
     );
     static final MethodHandle const$20 = RuntimeHelper.downcallHandle(
-        "SkPaintJoin_Bevel",
+        "SkPaintJoin_Round",
         constants$0.const$0
     );
     static final MethodHandle const$21 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_Clear",
+        "SkPaintJoin_Bevel",
         constants$0.const$0
     );
     static final MethodHandle const$22 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_Src",
+        "SkBlendMode_Clear",
         constants$0.const$0
     );
     static final MethodHandle const$23 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_Dst",
+        "SkBlendMode_Src",
         constants$0.const$0
     );
     static final MethodHandle const$24 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_SrcOver",
+        "SkBlendMode_Dst",
         constants$0.const$0
     );
     static final MethodHandle const$25 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_DstOver",
+        "SkBlendMode_SrcOver",
         constants$0.const$0
     );
     static final MethodHandle const$26 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_SrcIn",
+        "SkBlendMode_DstOver",
         constants$0.const$0
     );
     static final MethodHandle const$27 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_DstIn",
+        "SkBlendMode_SrcIn",
         constants$0.const$0
     );
     static final MethodHandle const$28 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_SrcOut",
+        "SkBlendMode_DstIn",
         constants$0.const$0
     );
     static final MethodHandle const$29 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_DstOut",
+        "SkBlendMode_SrcOut",
         constants$0.const$0
     );
     static final MethodHandle const$30 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_SrcATop",
+        "SkBlendMode_DstOut",
         constants$0.const$0
     );
     static final MethodHandle const$31 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_DstATop",
+        "SkBlendMode_SrcATop",
         constants$0.const$0
     );
     static final MethodHandle const$32 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_Xor",
+        "SkBlendMode_DstATop",
         constants$0.const$0
     );
     static final MethodHandle const$33 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_Plus",
+        "SkBlendMode_Xor",
         constants$0.const$0
     );
     static final MethodHandle const$34 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_Modulate",
+        "SkBlendMode_Plus",
         constants$0.const$0
     );
     static final MethodHandle const$35 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_Screen",
+        "SkBlendMode_Modulate",
         constants$0.const$0
     );
     static final MethodHandle const$36 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_Overlay",
+        "SkBlendMode_Screen",
         constants$0.const$0
     );
     static final MethodHandle const$37 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_Darken",
+        "SkBlendMode_Overlay",
         constants$0.const$0
     );
     static final MethodHandle const$38 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_Lighten",
+        "SkBlendMode_Darken",
         constants$0.const$0
     );
     static final MethodHandle const$39 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_ColorDodge",
+        "SkBlendMode_Lighten",
         constants$0.const$0
     );
     static final MethodHandle const$40 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_ColorBurn",
+        "SkBlendMode_ColorDodge",
         constants$0.const$0
     );
     static final MethodHandle const$41 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_HardLight",
+        "SkBlendMode_ColorBurn",
         constants$0.const$0
     );
     static final MethodHandle const$42 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_SoftLight",
+        "SkBlendMode_HardLight",
         constants$0.const$0
     );
     static final MethodHandle const$43 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_Difference",
+        "SkBlendMode_SoftLight",
         constants$0.const$0
     );
     static final MethodHandle const$44 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_Exclusion",
+        "SkBlendMode_Difference",
         constants$0.const$0
     );
     static final MethodHandle const$45 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_Multiply",
+        "SkBlendMode_Exclusion",
         constants$0.const$0
     );
     static final MethodHandle const$46 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_Hue",
+        "SkBlendMode_Multiply",
         constants$0.const$0
     );
     static final MethodHandle const$47 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_Saturation",
+        "SkBlendMode_Hue",
         constants$0.const$0
     );
     static final MethodHandle const$48 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_Color",
+        "SkBlendMode_Saturation",
         constants$0.const$0
     );
     static final MethodHandle const$49 = RuntimeHelper.downcallHandle(
-        "SkBlendMode_Luminosity",
+        "SkBlendMode_Color",
         constants$0.const$0
     );
     static final MethodHandle const$50 = RuntimeHelper.downcallHandle(
-        "SkGradientShaderInterpolationColorSpace_Destination",
+        "SkBlendMode_Luminosity",
         constants$0.const$0
     );
     static final MethodHandle const$51 = RuntimeHelper.downcallHandle(
-        "SkGradientShaderInterpolationColorSpace_OKLab",
+        "SkGradientShaderInterpolationColorSpace_Destination",
         constants$0.const$0
     );
     static final MethodHandle const$52 = RuntimeHelper.downcallHandle(
+        "SkGradientShaderInterpolationColorSpace_OKLab",
+        constants$0.const$0
+    );
+    static final MethodHandle const$53 = RuntimeHelper.downcallHandle(
         "SkGradientShaderInterpolationColorSpace_SRGB",
         constants$0.const$0
     );
-    static final FunctionDescriptor const$53 = FunctionDescriptor.of(RuntimeHelper.POINTER);
-    static final MethodHandle const$54 = RuntimeHelper.downcallHandle(
+    static final FunctionDescriptor const$54 = FunctionDescriptor.of(RuntimeHelper.POINTER);
+    static final MethodHandle const$55 = RuntimeHelper.downcallHandle(
         "SkNamedTransferFn_SRGB",
-        constants$0.const$53
+        constants$0.const$54
     );
-    static final MethodHandle const$55 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$56 = RuntimeHelper.downcallHandle(
         "SkNamedTransferFn_Rec2020",
-        constants$0.const$53
+        constants$0.const$54
     );
-    static final MethodHandle const$56 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$57 = RuntimeHelper.downcallHandle(
         "SkNamedTransferFn_PQ",
-        constants$0.const$53
+        constants$0.const$54
     );
-    static final MethodHandle const$57 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$58 = RuntimeHelper.downcallHandle(
         "SkNamedTransferFn_HLG",
-        constants$0.const$53
+        constants$0.const$54
     );
-    static final MethodHandle const$58 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$59 = RuntimeHelper.downcallHandle(
         "SkNamedGamut_SRGB",
-        constants$0.const$53
+        constants$0.const$54
     );
-    static final MethodHandle const$59 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$60 = RuntimeHelper.downcallHandle(
         "SkNamedGamut_AdobeRGB",
-        constants$0.const$53
+        constants$0.const$54
     );
-    static final MethodHandle const$60 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$61 = RuntimeHelper.downcallHandle(
         "SkNamedGamut_DisplayP3",
-        constants$0.const$53
+        constants$0.const$54
     );
-    static final MethodHandle const$61 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$62 = RuntimeHelper.downcallHandle(
         "SkNamedGamut_Rec2020",
-        constants$0.const$53
+        constants$0.const$54
     );
-    static final FunctionDescriptor const$62 = FunctionDescriptor.ofVoid(
+    static final FunctionDescriptor const$63 = FunctionDescriptor.ofVoid(
         RuntimeHelper.POINTER
     );
-    static final MethodHandle const$63 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$64 = RuntimeHelper.downcallHandle(
         "SkRefCnt_unref",
-        constants$0.const$62
+        constants$0.const$63
     );
-    static final MethodHandle const$64 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$65 = RuntimeHelper.downcallHandle(
         "SkData_unref",
-        constants$0.const$62
+        constants$0.const$63
     );
-    static final FunctionDescriptor const$65 = FunctionDescriptor.of(JAVA_LONG,
+    static final FunctionDescriptor const$66 = FunctionDescriptor.of(JAVA_LONG,
         RuntimeHelper.POINTER
     );
-    static final MethodHandle const$66 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$67 = RuntimeHelper.downcallHandle(
         "SkData_size",
-        constants$0.const$65
+        constants$0.const$66
     );
-    static final FunctionDescriptor const$67 = FunctionDescriptor.of(RuntimeHelper.POINTER,
+    static final FunctionDescriptor const$68 = FunctionDescriptor.of(RuntimeHelper.POINTER,
         RuntimeHelper.POINTER
     );
-    static final MethodHandle const$68 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$69 = RuntimeHelper.downcallHandle(
         "SkData_data",
-        constants$0.const$67
+        constants$0.const$68
     );
-    static final MethodHandle const$69 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$70 = RuntimeHelper.downcallHandle(
         "SkDynamicMemoryWStream_New",
-        constants$0.const$53
+        constants$0.const$54
     );
-    static final MethodHandle const$70 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$71 = RuntimeHelper.downcallHandle(
         "SkDynamicMemoryWStream_delete",
-        constants$0.const$62
+        constants$0.const$63
     );
-    static final MethodHandle const$71 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$72 = RuntimeHelper.downcallHandle(
         "SkDynamicMemoryWStream_detachAsData",
-        constants$0.const$67
+        constants$0.const$68
     );
-    static final FunctionDescriptor const$72 = FunctionDescriptor.of(RuntimeHelper.POINTER,
+    static final FunctionDescriptor const$73 = FunctionDescriptor.of(RuntimeHelper.POINTER,
         JAVA_FLOAT,
         JAVA_FLOAT,
         JAVA_FLOAT,
@@ -308,15 +312,15 @@ final class constants$0 {
         JAVA_FLOAT,
         JAVA_FLOAT
     );
-    static final MethodHandle const$73 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$74 = RuntimeHelper.downcallHandle(
         "SkColorSpace_MakeRGB",
-        constants$0.const$72
+        constants$0.const$73
     );
-    static final MethodHandle const$74 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$75 = RuntimeHelper.downcallHandle(
         "SkICC_SkWriteICCProfile",
-        constants$0.const$72
+        constants$0.const$73
     );
-    static final FunctionDescriptor const$75 = FunctionDescriptor.of(JAVA_BOOLEAN,
+    static final FunctionDescriptor const$76 = FunctionDescriptor.of(JAVA_BOOLEAN,
         RuntimeHelper.POINTER,
         RuntimeHelper.POINTER,
         RuntimeHelper.POINTER,
@@ -328,49 +332,49 @@ final class constants$0 {
         RuntimeHelper.POINTER,
         RuntimeHelper.POINTER
     );
-    static final MethodHandle const$76 = RuntimeHelper.upcallHandle(loadImage_t.class, "apply", constants$0.const$75);
-    static final MethodHandle const$77 = RuntimeHelper.downcallHandle(
-        constants$0.const$75
+    static final MethodHandle const$77 = RuntimeHelper.upcallHandle(loadImage_t.class, "apply", constants$0.const$76);
+    static final MethodHandle const$78 = RuntimeHelper.downcallHandle(
+        constants$0.const$76
     );
-    static final FunctionDescriptor const$78 = FunctionDescriptor.of(RuntimeHelper.POINTER,
+    static final FunctionDescriptor const$79 = FunctionDescriptor.of(RuntimeHelper.POINTER,
         RuntimeHelper.POINTER,
         JAVA_LONG,
         RuntimeHelper.POINTER
     );
-    static final MethodHandle const$79 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$80 = RuntimeHelper.downcallHandle(
         "SkSVGDOM_Make",
-        constants$0.const$78
+        constants$0.const$79
     );
-    static final FunctionDescriptor const$80 = FunctionDescriptor.ofVoid(
+    static final FunctionDescriptor const$81 = FunctionDescriptor.ofVoid(
         RuntimeHelper.POINTER,
         RuntimeHelper.POINTER
     );
-    static final MethodHandle const$81 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$82 = RuntimeHelper.downcallHandle(
         "SkSVGDOM_containerSize",
-        constants$0.const$80
+        constants$0.const$81
     );
-    static final FunctionDescriptor const$82 = FunctionDescriptor.ofVoid(
+    static final FunctionDescriptor const$83 = FunctionDescriptor.ofVoid(
         RuntimeHelper.POINTER,
         JAVA_FLOAT,
         JAVA_FLOAT
     );
-    static final MethodHandle const$83 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$84 = RuntimeHelper.downcallHandle(
         "SkSVGDOM_setContainerSize",
-        constants$0.const$82
+        constants$0.const$83
     );
-    static final FunctionDescriptor const$84 = FunctionDescriptor.of(JAVA_BOOLEAN,
+    static final FunctionDescriptor const$85 = FunctionDescriptor.of(JAVA_BOOLEAN,
         RuntimeHelper.POINTER,
         RuntimeHelper.POINTER
     );
-    static final MethodHandle const$85 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$86 = RuntimeHelper.downcallHandle(
         "SkSVGDOM_getViewBox",
-        constants$0.const$84
+        constants$0.const$85
     );
-    static final MethodHandle const$86 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$87 = RuntimeHelper.downcallHandle(
         "SkSVGDOM_render",
-        constants$0.const$80
+        constants$0.const$81
     );
-    static final StructLayout const$87 = MemoryLayout.structLayout(
+    static final StructLayout const$88 = MemoryLayout.structLayout(
         RuntimeHelper.POINTER.withName("verbs"),
         JAVA_INT.withName("verbCount"),
         MemoryLayout.paddingLayout(4),
@@ -379,12 +383,20 @@ final class constants$0 {
         JAVA_BOOLEAN.withName("isEvenOdd"),
         MemoryLayout.paddingLayout(3)
     ).withName("Path");
-    static final VarHandle const$88 = constants$0.const$87.varHandle(MemoryLayout.PathElement.groupElement("verbs"));
-    static final VarHandle const$89 = constants$0.const$87.varHandle(MemoryLayout.PathElement.groupElement("verbCount"));
-    static final VarHandle const$90 = constants$0.const$87.varHandle(MemoryLayout.PathElement.groupElement("points"));
-    static final VarHandle const$91 = constants$0.const$87.varHandle(MemoryLayout.PathElement.groupElement("pointCount"));
-    static final VarHandle const$92 = constants$0.const$87.varHandle(MemoryLayout.PathElement.groupElement("isEvenOdd"));
-    static final FunctionDescriptor const$93 = FunctionDescriptor.of(RuntimeHelper.POINTER,
+    static final VarHandle const$89 = constants$0.const$88.varHandle(MemoryLayout.PathElement.groupElement("verbs"));
+    static final VarHandle const$90 = constants$0.const$88.varHandle(MemoryLayout.PathElement.groupElement("verbCount"));
+    static final VarHandle const$91 = constants$0.const$88.varHandle(MemoryLayout.PathElement.groupElement("points"));
+    static final VarHandle const$92 = constants$0.const$88.varHandle(MemoryLayout.PathElement.groupElement("pointCount"));
+    static final VarHandle const$93 = constants$0.const$88.varHandle(MemoryLayout.PathElement.groupElement("isEvenOdd"));
+    static final MethodHandle const$94 = RuntimeHelper.downcallHandle(
+        "SkPath_Make",
+        constants$0.const$68
+    );
+    static final MethodHandle const$95 = RuntimeHelper.downcallHandle(
+        "SkPath_delete",
+        constants$0.const$63
+    );
+    static final FunctionDescriptor const$96 = FunctionDescriptor.of(RuntimeHelper.POINTER,
         JAVA_INT,
         JAVA_INT,
         JAVA_BYTE,
@@ -393,47 +405,47 @@ final class constants$0 {
         RuntimeHelper.POINTER,
         JAVA_LONG
     );
-    static final MethodHandle const$94 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$97 = RuntimeHelper.downcallHandle(
         "SkCanvas_MakeRasterDirect",
-        constants$0.const$93
+        constants$0.const$96
     );
-    static final FunctionDescriptor const$95 = FunctionDescriptor.of(RuntimeHelper.POINTER,
+    static final FunctionDescriptor const$98 = FunctionDescriptor.of(RuntimeHelper.POINTER,
         RuntimeHelper.POINTER,
         JAVA_FLOAT,
         JAVA_FLOAT,
         JAVA_FLOAT,
         JAVA_FLOAT
     );
-    static final MethodHandle const$96 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$99 = RuntimeHelper.downcallHandle(
         "SkSVGCanvas_Make",
-        constants$0.const$95
+        constants$0.const$98
     );
-    static final MethodHandle const$97 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$100 = RuntimeHelper.downcallHandle(
         "SkCanvas_delete",
-        constants$0.const$62
+        constants$0.const$63
     );
-    static final MethodHandle const$98 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$101 = RuntimeHelper.downcallHandle(
         "SkPDF_MakeDocument",
-        constants$0.const$67
+        constants$0.const$68
     );
-    static final FunctionDescriptor const$99 = FunctionDescriptor.of(RuntimeHelper.POINTER,
+    static final FunctionDescriptor const$102 = FunctionDescriptor.of(RuntimeHelper.POINTER,
         RuntimeHelper.POINTER,
         JAVA_FLOAT,
         JAVA_FLOAT
     );
-    static final MethodHandle const$100 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$103 = RuntimeHelper.downcallHandle(
         "SkDocument_beginPage",
-        constants$0.const$99
+        constants$0.const$102
     );
-    static final MethodHandle const$101 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$104 = RuntimeHelper.downcallHandle(
         "SkDocument_endPage",
-        constants$0.const$62
+        constants$0.const$63
     );
-    static final MethodHandle const$102 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$105 = RuntimeHelper.downcallHandle(
         "SkCanvas_save",
-        constants$0.const$62
+        constants$0.const$63
     );
-    static final FunctionDescriptor const$103 = FunctionDescriptor.ofVoid(
+    static final FunctionDescriptor const$106 = FunctionDescriptor.ofVoid(
         RuntimeHelper.POINTER,
         JAVA_BOOLEAN,
         JAVA_FLOAT,
@@ -442,15 +454,15 @@ final class constants$0 {
         JAVA_FLOAT,
         RuntimeHelper.POINTER
     );
-    static final MethodHandle const$104 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$107 = RuntimeHelper.downcallHandle(
         "SkCanvas_saveLayer",
-        constants$0.const$103
+        constants$0.const$106
     );
-    static final MethodHandle const$105 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$108 = RuntimeHelper.downcallHandle(
         "SkCanvas_restore",
-        constants$0.const$62
+        constants$0.const$63
     );
-    static final FunctionDescriptor const$106 = FunctionDescriptor.ofVoid(
+    static final FunctionDescriptor const$109 = FunctionDescriptor.ofVoid(
         RuntimeHelper.POINTER,
         JAVA_FLOAT,
         JAVA_FLOAT,
@@ -459,11 +471,11 @@ final class constants$0 {
         JAVA_FLOAT,
         JAVA_FLOAT
     );
-    static final MethodHandle const$107 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$110 = RuntimeHelper.downcallHandle(
         "SkCanvas_setMatrix",
-        constants$0.const$106
+        constants$0.const$109
     );
-    static final FunctionDescriptor const$108 = FunctionDescriptor.ofVoid(
+    static final FunctionDescriptor const$111 = FunctionDescriptor.ofVoid(
         RuntimeHelper.POINTER,
         JAVA_FLOAT,
         JAVA_FLOAT,
@@ -471,29 +483,33 @@ final class constants$0 {
         JAVA_FLOAT,
         JAVA_BOOLEAN
     );
-    static final MethodHandle const$109 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$112 = RuntimeHelper.downcallHandle(
         "SkCanvas_clipRect",
-        constants$0.const$108
+        constants$0.const$111
     );
-    static final FunctionDescriptor const$110 = FunctionDescriptor.ofVoid(
+    static final FunctionDescriptor const$113 = FunctionDescriptor.ofVoid(
         RuntimeHelper.POINTER,
         RuntimeHelper.POINTER,
         JAVA_BOOLEAN
     );
-    static final MethodHandle const$111 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$114 = RuntimeHelper.downcallHandle(
         "SkCanvas_clipPath",
-        constants$0.const$110
+        constants$0.const$113
     );
-    static final FunctionDescriptor const$112 = FunctionDescriptor.ofVoid(
+    static final FunctionDescriptor const$115 = FunctionDescriptor.ofVoid(
         RuntimeHelper.POINTER,
         RuntimeHelper.POINTER,
         RuntimeHelper.POINTER
     );
-    static final MethodHandle const$113 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$116 = RuntimeHelper.downcallHandle(
         "SkCanvas_drawPath",
-        constants$0.const$112
+        constants$0.const$115
+    );
+    static final MethodHandle const$117 = RuntimeHelper.downcallHandle(
+        "SkCanvas_drawSkPath",
+        constants$0.const$115
     );
-    static final FunctionDescriptor const$114 = FunctionDescriptor.ofVoid(
+    static final FunctionDescriptor const$118 = FunctionDescriptor.ofVoid(
         RuntimeHelper.POINTER,
         JAVA_INT,
         JAVA_INT,
@@ -507,42 +523,42 @@ final class constants$0 {
         JAVA_BYTE,
         RuntimeHelper.POINTER
     );
-    static final MethodHandle const$115 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$119 = RuntimeHelper.downcallHandle(
         "SkCanvas_drawImage",
-        constants$0.const$114
+        constants$0.const$118
     );
-    static final MethodHandle const$116 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$120 = RuntimeHelper.downcallHandle(
         "SkPaint_New",
-        constants$0.const$53
+        constants$0.const$54
     );
-    static final MethodHandle const$117 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$121 = RuntimeHelper.downcallHandle(
         "SkPaint_delete",
-        constants$0.const$62
+        constants$0.const$63
     );
-    static final FunctionDescriptor const$118 = FunctionDescriptor.ofVoid(
+    static final FunctionDescriptor const$122 = FunctionDescriptor.ofVoid(
         RuntimeHelper.POINTER,
         JAVA_BOOLEAN
     );
-    static final MethodHandle const$119 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$123 = RuntimeHelper.downcallHandle(
         "SkPaint_setAntiAlias",
-        constants$0.const$118
+        constants$0.const$122
     );
-    static final MethodHandle const$120 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$124 = RuntimeHelper.downcallHandle(
         "SkPaint_setStroke",
-        constants$0.const$118
+        constants$0.const$122
     );
-    static final FunctionDescriptor const$121 = FunctionDescriptor.ofVoid(
+    static final FunctionDescriptor const$125 = FunctionDescriptor.ofVoid(
         RuntimeHelper.POINTER,
         JAVA_FLOAT,
         JAVA_BYTE,
         JAVA_BYTE,
         JAVA_FLOAT
     );
-    static final MethodHandle const$122 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$126 = RuntimeHelper.downcallHandle(
         "SkPaint_setStrokeProperties",
-        constants$0.const$121
+        constants$0.const$125
     );
-    static final FunctionDescriptor const$123 = FunctionDescriptor.ofVoid(
+    static final FunctionDescriptor const$127 = FunctionDescriptor.ofVoid(
         RuntimeHelper.POINTER,
         JAVA_FLOAT,
         JAVA_FLOAT,
@@ -550,49 +566,49 @@ final class constants$0 {
         JAVA_FLOAT,
         RuntimeHelper.POINTER
     );
-    static final MethodHandle const$124 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$128 = RuntimeHelper.downcallHandle(
         "SkPaint_setColor",
-        constants$0.const$123
+        constants$0.const$127
     );
-    static final FunctionDescriptor const$125 = FunctionDescriptor.ofVoid(
+    static final FunctionDescriptor const$129 = FunctionDescriptor.ofVoid(
         RuntimeHelper.POINTER,
         JAVA_FLOAT
     );
-    static final MethodHandle const$126 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$130 = RuntimeHelper.downcallHandle(
         "SkPaint_setAlpha",
-        constants$0.const$125
+        constants$0.const$129
     );
-    static final FunctionDescriptor const$127 = FunctionDescriptor.ofVoid(
+    static final FunctionDescriptor const$131 = FunctionDescriptor.ofVoid(
         RuntimeHelper.POINTER,
         JAVA_BYTE
     );
-    static final MethodHandle const$128 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$132 = RuntimeHelper.downcallHandle(
         "SkPaint_setBlendMode",
-        constants$0.const$127
+        constants$0.const$131
     );
-    static final FunctionDescriptor const$129 = FunctionDescriptor.ofVoid(
+    static final FunctionDescriptor const$133 = FunctionDescriptor.ofVoid(
         RuntimeHelper.POINTER,
         RuntimeHelper.POINTER,
         JAVA_INT,
         JAVA_FLOAT
     );
-    static final MethodHandle const$130 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$134 = RuntimeHelper.downcallHandle(
         "SkPaint_setDashPathEffect",
-        constants$0.const$129
+        constants$0.const$133
     );
-    static final MethodHandle const$131 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$135 = RuntimeHelper.downcallHandle(
         "SkPaint_setShaderMaskFilter",
-        constants$0.const$80
+        constants$0.const$81
     );
-    static final MethodHandle const$132 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$136 = RuntimeHelper.downcallHandle(
         "SkPaint_setShader",
-        constants$0.const$80
+        constants$0.const$81
     );
-    static final MethodHandle const$133 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$137 = RuntimeHelper.downcallHandle(
         "SkPaint_setBlurImageFilter",
-        constants$0.const$82
+        constants$0.const$83
     );
-    static final FunctionDescriptor const$134 = FunctionDescriptor.of(RuntimeHelper.POINTER,
+    static final FunctionDescriptor const$138 = FunctionDescriptor.of(RuntimeHelper.POINTER,
         JAVA_FLOAT,
         JAVA_FLOAT,
         JAVA_FLOAT,
@@ -604,11 +620,11 @@ final class constants$0 {
         JAVA_BYTE,
         JAVA_BYTE
     );
-    static final MethodHandle const$135 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$139 = RuntimeHelper.downcallHandle(
         "SkGradientShader_MakeLinear",
-        constants$0.const$134
+        constants$0.const$138
     );
-    static final FunctionDescriptor const$136 = FunctionDescriptor.of(RuntimeHelper.POINTER,
+    static final FunctionDescriptor const$140 = FunctionDescriptor.of(RuntimeHelper.POINTER,
         JAVA_INT,
         JAVA_INT,
         JAVA_BYTE,
@@ -626,9 +642,9 @@ final class constants$0 {
         JAVA_FLOAT,
         JAVA_FLOAT
     );
-    static final MethodHandle const$137 = RuntimeHelper.downcallHandle(
+    static final MethodHandle const$141 = RuntimeHelper.downcallHandle(
         "SkImage_makeShader",
-        constants$0.const$136
+        constants$0.const$140
     );
 }
 
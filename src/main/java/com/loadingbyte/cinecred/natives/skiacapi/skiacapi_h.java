@@ -57,8 +57,24 @@ public class skiacapi_h  {
             throw new AssertionError("should not reach here", ex$);
         }
     }
+    public static MethodHandle SkColorType_RGBA_F16$MH() {
+        return RuntimeHelper.requireNonNull(constants$0.const$2,"SkColorType_RGBA_F16");
+    }
+    /**
+     * {@snippet :
+     * unsigned char SkColorType_RGBA_F16();
+     * }
+     */
+    public static byte SkColorType_RGBA_F16() {
+        var mh$ = SkColorType_RGBA_F16$MH();
+        try {
+            return (byte)mh$.invokeExact();
+        } catch (Throwable ex$) {
+            throw new AssertionError("should not reach here", ex$);
+        }
+    }
     public static MethodHandle SkColorType_A16_unorm$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$2,"SkColorType_A16_unorm");
+        return RuntimeHelper.requireNonNull(constants$0.const$3,"SkColorType_A16_unorm");
     }
     /**
      * {@snippet :
@@ -74,7 +90,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkAlphaType_Opaque$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$3,"SkAlphaType_Opaque");
+        return RuntimeHelper.requireNonNull(constants$0.const$4,"SkAlphaType_Opaque");
     }
     /**
      * {@snippet :
@@ -90,7 +106,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkAlphaType_Premul$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$4,"SkAlphaType_Premul");
+        return RuntimeHelper.requireNonNull(constants$0.const$5,"SkAlphaType_Premul");
     }
     /**
      * {@snippet :
@@ -106,7 +122,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkAlphaType_Unpremul$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$5,"SkAlphaType_Unpremul");
+        return RuntimeHelper.requireNonNull(constants$0.const$6,"SkAlphaType_Unpremul");
     }
     /**
      * {@snippet :
@@ -122,7 +138,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkTileMode_Clamp$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$6,"SkTileMode_Clamp");
+        return RuntimeHelper.requireNonNull(constants$0.const$7,"SkTileMode_Clamp");
     }
     /**
      * {@snippet :
@@ -138,7 +154,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkTileMode_Decal$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$7,"SkTileMode_Decal");
+        return RuntimeHelper.requireNonNull(constants$0.const$8,"SkTileMode_Decal");
     }
     /**
      * {@snippet :
@@ -154,7 +170,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkFilterMode_Nearest$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$8,"SkFilterMode_Nearest");
+        return RuntimeHelper.requireNonNull(constants$0.const$9,"SkFilterMode_Nearest");
     }
     /**
      * {@snippet :
@@ -170,7 +186,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkFilterMode_Linear$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$9,"SkFilterMode_Linear");
+        return RuntimeHelper.requireNonNull(constants$0.const$10,"SkFilterMode_Linear");
     }
     /**
      * {@snippet :
@@ -186,7 +202,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPathVerb_Move$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$10,"SkPathVerb_Move");
+        return RuntimeHelper.requireNonNull(constants$0.const$11,"SkPathVerb_Move");
     }
     /**
      * {@snippet :
@@ -202,7 +218,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPathVerb_Line$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$11,"SkPathVerb_Line");
+        return RuntimeHelper.requireNonNull(constants$0.const$12,"SkPathVerb_Line");
     }
     /**
      * {@snippet :
@@ -218,7 +234,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPathVerb_Quad$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$12,"SkPathVerb_Quad");
+        return RuntimeHelper.requireNonNull(constants$0.const$13,"SkPathVerb_Quad");
     }
     /**
      * {@snippet :
@@ -234,7 +250,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPathVerb_Cubic$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$13,"SkPathVerb_Cubic");
+        return RuntimeHelper.requireNonNull(constants$0.const$14,"SkPathVerb_Cubic");
     }
     /**
      * {@snippet :
@@ -250,7 +266,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPathVerb_Close$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$14,"SkPathVerb_Close");
+        return RuntimeHelper.requireNonNull(constants$0.const$15,"SkPathVerb_Close");
     }
     /**
      * {@snippet :
@@ -266,7 +282,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPaintCap_Butt$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$15,"SkPaintCap_Butt");
+        return RuntimeHelper.requireNonNull(constants$0.const$16,"SkPaintCap_Butt");
     }
     /**
      * {@snippet :
@@ -282,7 +298,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPaintCap_Round$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$16,"SkPaintCap_Round");
+        return RuntimeHelper.requireNonNull(constants$0.const$17,"SkPaintCap_Round");
     }
     /**
      * {@snippet :
@@ -298,7 +314,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPaintCap_Square$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$17,"SkPaintCap_Square");
+        return RuntimeHelper.requireNonNull(constants$0.const$18,"SkPaintCap_Square");
     }
     /**
      * {@snippet :
@@ -314,7 +330,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPaintJoin_Miter$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$18,"SkPaintJoin_Miter");
+        return RuntimeHelper.requireNonNull(constants$0.const$19,"SkPaintJoin_Miter");
     }
     /**
      * {@snippet :
@@ -330,7 +346,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPaintJoin_Round$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$19,"SkPaintJoin_Round");
+        return RuntimeHelper.requireNonNull(constants$0.const$20,"SkPaintJoin_Round");
     }
     /**
      * {@snippet :
@@ -346,7 +362,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPaintJoin_Bevel$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$20,"SkPaintJoin_Bevel");
+        return RuntimeHelper.requireNonNull(constants$0.const$21,"SkPaintJoin_Bevel");
     }
     /**
      * {@snippet :
@@ -362,7 +378,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_Clear$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$21,"SkBlendMode_Clear");
+        return RuntimeHelper.requireNonNull(constants$0.const$22,"SkBlendMode_Clear");
     }
     /**
      * {@snippet :
@@ -378,7 +394,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_Src$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$22,"SkBlendMode_Src");
+        return RuntimeHelper.requireNonNull(constants$0.const$23,"SkBlendMode_Src");
     }
     /**
      * {@snippet :
@@ -394,7 +410,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_Dst$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$23,"SkBlendMode_Dst");
+        return RuntimeHelper.requireNonNull(constants$0.const$24,"SkBlendMode_Dst");
     }
     /**
      * {@snippet :
@@ -410,7 +426,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_SrcOver$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$24,"SkBlendMode_SrcOver");
+        return RuntimeHelper.requireNonNull(constants$0.const$25,"SkBlendMode_SrcOver");
     }
     /**
      * {@snippet :
@@ -426,7 +442,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_DstOver$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$25,"SkBlendMode_DstOver");
+        return RuntimeHelper.requireNonNull(constants$0.const$26,"SkBlendMode_DstOver");
     }
     /**
      * {@snippet :
@@ -442,7 +458,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_SrcIn$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$26,"SkBlendMode_SrcIn");
+        return RuntimeHelper.requireNonNull(constants$0.const$27,"SkBlendMode_SrcIn");
     }
     /**
      * {@snippet :
@@ -458,7 +474,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_DstIn$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$27,"SkBlendMode_DstIn");
+        return RuntimeHelper.requireNonNull(constants$0.const$28,"SkBlendMode_DstIn");
     }
     /**
      * {@snippet :
@@ -474,7 +490,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_SrcOut$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$28,"SkBlendMode_SrcOut");
+        return RuntimeHelper.requireNonNull(constants$0.const$29,"SkBlendMode_SrcOut");
     }
     /**
      * {@snippet :
@@ -490,7 +506,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_DstOut$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$29,"SkBlendMode_DstOut");
+        return RuntimeHelper.requireNonNull(constants$0.const$30,"SkBlendMode_DstOut");
     }
     /**
      * {@snippet :
@@ -506,7 +522,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_SrcATop$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$30,"SkBlendMode_SrcATop");
+        return RuntimeHelper.requireNonNull(constants$0.const$31,"SkBlendMode_SrcATop");
     }
     /**
      * {@snippet :
@@ -522,7 +538,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_DstATop$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$31,"SkBlendMode_DstATop");
+        return RuntimeHelper.requireNonNull(constants$0.const$32,"SkBlendMode_DstATop");
     }
     /**
      * {@snippet :
@@ -538,7 +554,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_Xor$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$32,"SkBlendMode_Xor");
+        return RuntimeHelper.requireNonNull(constants$0.const$33,"SkBlendMode_Xor");
     }
     /**
      * {@snippet :
@@ -554,7 +570,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_Plus$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$33,"SkBlendMode_Plus");
+        return RuntimeHelper.requireNonNull(constants$0.const$34,"SkBlendMode_Plus");
     }
     /**
      * {@snippet :
@@ -570,7 +586,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_Modulate$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$34,"SkBlendMode_Modulate");
+        return RuntimeHelper.requireNonNull(constants$0.const$35,"SkBlendMode_Modulate");
     }
     /**
      * {@snippet :
@@ -586,7 +602,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_Screen$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$35,"SkBlendMode_Screen");
+        return RuntimeHelper.requireNonNull(constants$0.const$36,"SkBlendMode_Screen");
     }
     /**
      * {@snippet :
@@ -602,7 +618,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_Overlay$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$36,"SkBlendMode_Overlay");
+        return RuntimeHelper.requireNonNull(constants$0.const$37,"SkBlendMode_Overlay");
     }
     /**
      * {@snippet :
@@ -618,7 +634,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_Darken$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$37,"SkBlendMode_Darken");
+        return RuntimeHelper.requireNonNull(constants$0.const$38,"SkBlendMode_Darken");
     }
     /**
      * {@snippet :
@@ -634,7 +650,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_Lighten$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$38,"SkBlendMode_Lighten");
+        return RuntimeHelper.requireNonNull(constants$0.const$39,"SkBlendMode_Lighten");
     }
     /**
      * {@snippet :
@@ -650,7 +666,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_ColorDodge$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$39,"SkBlendMode_ColorDodge");
+        return RuntimeHelper.requireNonNull(constants$0.const$40,"SkBlendMode_ColorDodge");
     }
     /**
      * {@snippet :
@@ -666,7 +682,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_ColorBurn$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$40,"SkBlendMode_ColorBurn");
+        return RuntimeHelper.requireNonNull(constants$0.const$41,"SkBlendMode_ColorBurn");
     }
     /**
      * {@snippet :
@@ -682,7 +698,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_HardLight$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$41,"SkBlendMode_HardLight");
+        return RuntimeHelper.requireNonNull(constants$0.const$42,"SkBlendMode_HardLight");
     }
     /**
      * {@snippet :
@@ -698,7 +714,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_SoftLight$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$42,"SkBlendMode_SoftLight");
+        return RuntimeHelper.requireNonNull(constants$0.const$43,"SkBlendMode_SoftLight");
     }
     /**
      * {@snippet :
@@ -714,7 +730,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_Difference$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$43,"SkBlendMode_Difference");
+        return RuntimeHelper.requireNonNull(constants$0.const$44,"SkBlendMode_Difference");
     }
     /**
      * {@snippet :
@@ -730,7 +746,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_Exclusion$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$44,"SkBlendMode_Exclusion");
+        return RuntimeHelper.requireNonNull(constants$0.const$45,"SkBlendMode_Exclusion");
     }
     /**
      * {@snippet :
@@ -746,7 +762,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_Multiply$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$45,"SkBlendMode_Multiply");
+        return RuntimeHelper.requireNonNull(constants$0.const$46,"SkBlendMode_Multiply");
     }
     /**
      * {@snippet :
@@ -762,7 +778,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_Hue$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$46,"SkBlendMode_Hue");
+        return RuntimeHelper.requireNonNull(constants$0.const$47,"SkBlendMode_Hue");
     }
     /**
      * {@snippet :
@@ -778,7 +794,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_Saturation$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$47,"SkBlendMode_Saturation");
+        return RuntimeHelper.requireNonNull(constants$0.const$48,"SkBlendMode_Saturation");
     }
     /**
      * {@snippet :
@@ -794,7 +810,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_Color$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$48,"SkBlendMode_Color");
+        return RuntimeHelper.requireNonNull(constants$0.const$49,"SkBlendMode_Color");
     }
     /**
      * {@snippet :
@@ -810,7 +826,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkBlendMode_Luminosity$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$49,"SkBlendMode_Luminosity");
+        return RuntimeHelper.requireNonNull(constants$0.const$50,"SkBlendMode_Luminosity");
     }
     /**
      * {@snippet :
@@ -826,7 +842,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkGradientShaderInterpolationColorSpace_Destination$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$50,"SkGradientShaderInterpolationColorSpace_Destination");
+        return RuntimeHelper.requireNonNull(constants$0.const$51,"SkGradientShaderInterpolationColorSpace_Destination");
     }
     /**
      * {@snippet :
@@ -842,7 +858,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkGradientShaderInterpolationColorSpace_OKLab$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$51,"SkGradientShaderInterpolationColorSpace_OKLab");
+        return RuntimeHelper.requireNonNull(constants$0.const$52,"SkGradientShaderInterpolationColorSpace_OKLab");
     }
     /**
      * {@snippet :
@@ -858,7 +874,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkGradientShaderInterpolationColorSpace_SRGB$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$52,"SkGradientShaderInterpolationColorSpace_SRGB");
+        return RuntimeHelper.requireNonNull(constants$0.const$53,"SkGradientShaderInterpolationColorSpace_SRGB");
     }
     /**
      * {@snippet :
@@ -874,7 +890,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkNamedTransferFn_SRGB$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$54,"SkNamedTransferFn_SRGB");
+        return RuntimeHelper.requireNonNull(constants$0.const$55,"SkNamedTransferFn_SRGB");
     }
     /**
      * {@snippet :
@@ -890,7 +906,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkNamedTransferFn_Rec2020$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$55,"SkNamedTransferFn_Rec2020");
+        return RuntimeHelper.requireNonNull(constants$0.const$56,"SkNamedTransferFn_Rec2020");
     }
     /**
      * {@snippet :
@@ -906,7 +922,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkNamedTransferFn_PQ$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$56,"SkNamedTransferFn_PQ");
+        return RuntimeHelper.requireNonNull(constants$0.const$57,"SkNamedTransferFn_PQ");
     }
     /**
      * {@snippet :
@@ -922,7 +938,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkNamedTransferFn_HLG$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$57,"SkNamedTransferFn_HLG");
+        return RuntimeHelper.requireNonNull(constants$0.const$58,"SkNamedTransferFn_HLG");
     }
     /**
      * {@snippet :
@@ -938,7 +954,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkNamedGamut_SRGB$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$58,"SkNamedGamut_SRGB");
+        return RuntimeHelper.requireNonNull(constants$0.const$59,"SkNamedGamut_SRGB");
     }
     /**
      * {@snippet :
@@ -954,7 +970,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkNamedGamut_AdobeRGB$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$59,"SkNamedGamut_AdobeRGB");
+        return RuntimeHelper.requireNonNull(constants$0.const$60,"SkNamedGamut_AdobeRGB");
     }
     /**
      * {@snippet :
@@ -970,7 +986,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkNamedGamut_DisplayP3$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$60,"SkNamedGamut_DisplayP3");
+        return RuntimeHelper.requireNonNull(constants$0.const$61,"SkNamedGamut_DisplayP3");
     }
     /**
      * {@snippet :
@@ -986,7 +1002,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkNamedGamut_Rec2020$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$61,"SkNamedGamut_Rec2020");
+        return RuntimeHelper.requireNonNull(constants$0.const$62,"SkNamedGamut_Rec2020");
     }
     /**
      * {@snippet :
@@ -1002,7 +1018,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkRefCnt_unref$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$63,"SkRefCnt_unref");
+        return RuntimeHelper.requireNonNull(constants$0.const$64,"SkRefCnt_unref");
     }
     /**
      * {@snippet :
@@ -1018,7 +1034,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkData_unref$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$64,"SkData_unref");
+        return RuntimeHelper.requireNonNull(constants$0.const$65,"SkData_unref");
     }
     /**
      * {@snippet :
@@ -1034,7 +1050,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkData_size$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$66,"SkData_size");
+        return RuntimeHelper.requireNonNull(constants$0.const$67,"SkData_size");
     }
     /**
      * {@snippet :
@@ -1050,7 +1066,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkData_data$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$68,"SkData_data");
+        return RuntimeHelper.requireNonNull(constants$0.const$69,"SkData_data");
     }
     /**
      * {@snippet :
@@ -1066,7 +1082,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkDynamicMemoryWStream_New$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$69,"SkDynamicMemoryWStream_New");
+        return RuntimeHelper.requireNonNull(constants$0.const$70,"SkDynamicMemoryWStream_New");
     }
     /**
      * {@snippet :
@@ -1082,7 +1098,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkDynamicMemoryWStream_delete$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$70,"SkDynamicMemoryWStream_delete");
+        return RuntimeHelper.requireNonNull(constants$0.const$71,"SkDynamicMemoryWStream_delete");
     }
     /**
      * {@snippet :
@@ -1098,7 +1114,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkDynamicMemoryWStream_detachAsData$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$71,"SkDynamicMemoryWStream_detachAsData");
+        return RuntimeHelper.requireNonNull(constants$0.const$72,"SkDynamicMemoryWStream_detachAsData");
     }
     /**
      * {@snippet :
@@ -1114,7 +1130,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkColorSpace_MakeRGB$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$73,"SkColorSpace_MakeRGB");
+        return RuntimeHelper.requireNonNull(constants$0.const$74,"SkColorSpace_MakeRGB");
     }
     /**
      * {@snippet :
@@ -1130,7 +1146,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkICC_SkWriteICCProfile$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$74,"SkICC_SkWriteICCProfile");
+        return RuntimeHelper.requireNonNull(constants$0.const$75,"SkICC_SkWriteICCProfile");
     }
     /**
      * {@snippet :
@@ -1146,7 +1162,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkSVGDOM_Make$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$79,"SkSVGDOM_Make");
+        return RuntimeHelper.requireNonNull(constants$0.const$80,"SkSVGDOM_Make");
     }
     /**
      * {@snippet :
@@ -1162,7 +1178,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkSVGDOM_containerSize$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$81,"SkSVGDOM_containerSize");
+        return RuntimeHelper.requireNonNull(constants$0.const$82,"SkSVGDOM_containerSize");
     }
     /**
      * {@snippet :
@@ -1178,7 +1194,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkSVGDOM_setContainerSize$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$83,"SkSVGDOM_setContainerSize");
+        return RuntimeHelper.requireNonNull(constants$0.const$84,"SkSVGDOM_setContainerSize");
     }
     /**
      * {@snippet :
@@ -1194,7 +1210,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkSVGDOM_getViewBox$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$85,"SkSVGDOM_getViewBox");
+        return RuntimeHelper.requireNonNull(constants$0.const$86,"SkSVGDOM_getViewBox");
     }
     /**
      * {@snippet :
@@ -1210,7 +1226,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkSVGDOM_render$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$86,"SkSVGDOM_render");
+        return RuntimeHelper.requireNonNull(constants$0.const$87,"SkSVGDOM_render");
     }
     /**
      * {@snippet :
@@ -1225,8 +1241,40 @@ public class skiacapi_h  {
             throw new AssertionError("should not reach here", ex$);
         }
     }
+    public static MethodHandle SkPath_Make$MH() {
+        return RuntimeHelper.requireNonNull(constants$0.const$94,"SkPath_Make");
+    }
+    /**
+     * {@snippet :
+     * SkPath* SkPath_Make(Path* path);
+     * }
+     */
+    public static MemorySegment SkPath_Make(MemorySegment path) {
+        var mh$ = SkPath_Make$MH();
+        try {
+            return (java.lang.foreign.MemorySegment)mh$.invokeExact(path);
+        } catch (Throwable ex$) {
+            throw new AssertionError("should not reach here", ex$);
+        }
+    }
+    public static MethodHandle SkPath_delete$MH() {
+        return RuntimeHelper.requireNonNull(constants$0.const$95,"SkPath_delete");
+    }
+    /**
+     * {@snippet :
+     * void SkPath_delete(SkPath* path);
+     * }
+     */
+    public static void SkPath_delete(MemorySegment path) {
+        var mh$ = SkPath_delete$MH();
+        try {
+            mh$.invokeExact(path);
+        } catch (Throwable ex$) {
+            throw new AssertionError("should not reach here", ex$);
+        }
+    }
     public static MethodHandle SkCanvas_MakeRasterDirect$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$94,"SkCanvas_MakeRasterDirect");
+        return RuntimeHelper.requireNonNull(constants$0.const$97,"SkCanvas_MakeRasterDirect");
     }
     /**
      * {@snippet :
@@ -1242,7 +1290,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkSVGCanvas_Make$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$96,"SkSVGCanvas_Make");
+        return RuntimeHelper.requireNonNull(constants$0.const$99,"SkSVGCanvas_Make");
     }
     /**
      * {@snippet :
@@ -1258,7 +1306,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkCanvas_delete$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$97,"SkCanvas_delete");
+        return RuntimeHelper.requireNonNull(constants$0.const$100,"SkCanvas_delete");
     }
     /**
      * {@snippet :
@@ -1274,7 +1322,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPDF_MakeDocument$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$98,"SkPDF_MakeDocument");
+        return RuntimeHelper.requireNonNull(constants$0.const$101,"SkPDF_MakeDocument");
     }
     /**
      * {@snippet :
@@ -1290,7 +1338,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkDocument_beginPage$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$100,"SkDocument_beginPage");
+        return RuntimeHelper.requireNonNull(constants$0.const$103,"SkDocument_beginPage");
     }
     /**
      * {@snippet :
@@ -1306,7 +1354,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkDocument_endPage$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$101,"SkDocument_endPage");
+        return RuntimeHelper.requireNonNull(constants$0.const$104,"SkDocument_endPage");
     }
     /**
      * {@snippet :
@@ -1322,7 +1370,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkCanvas_save$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$102,"SkCanvas_save");
+        return RuntimeHelper.requireNonNull(constants$0.const$105,"SkCanvas_save");
     }
     /**
      * {@snippet :
@@ -1338,7 +1386,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkCanvas_saveLayer$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$104,"SkCanvas_saveLayer");
+        return RuntimeHelper.requireNonNull(constants$0.const$107,"SkCanvas_saveLayer");
     }
     /**
      * {@snippet :
@@ -1354,7 +1402,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkCanvas_restore$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$105,"SkCanvas_restore");
+        return RuntimeHelper.requireNonNull(constants$0.const$108,"SkCanvas_restore");
     }
     /**
      * {@snippet :
@@ -1370,7 +1418,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkCanvas_setMatrix$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$107,"SkCanvas_setMatrix");
+        return RuntimeHelper.requireNonNull(constants$0.const$110,"SkCanvas_setMatrix");
     }
     /**
      * {@snippet :
@@ -1386,7 +1434,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkCanvas_clipRect$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$109,"SkCanvas_clipRect");
+        return RuntimeHelper.requireNonNull(constants$0.const$112,"SkCanvas_clipRect");
     }
     /**
      * {@snippet :
@@ -1402,7 +1450,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkCanvas_clipPath$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$111,"SkCanvas_clipPath");
+        return RuntimeHelper.requireNonNull(constants$0.const$114,"SkCanvas_clipPath");
     }
     /**
      * {@snippet :
@@ -1418,7 +1466,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkCanvas_drawPath$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$113,"SkCanvas_drawPath");
+        return RuntimeHelper.requireNonNull(constants$0.const$116,"SkCanvas_drawPath");
     }
     /**
      * {@snippet :
@@ -1433,8 +1481,24 @@ public class skiacapi_h  {
             throw new AssertionError("should not reach here", ex$);
         }
     }
+    public static MethodHandle SkCanvas_drawSkPath$MH() {
+        return RuntimeHelper.requireNonNull(constants$0.const$117,"SkCanvas_drawSkPath");
+    }
+    /**
+     * {@snippet :
+     * void SkCanvas_drawSkPath(SkCanvas* canvas, SkPath* path, SkPaint* paint);
+     * }
+     */
+    public static void SkCanvas_drawSkPath(MemorySegment canvas, MemorySegment path, MemorySegment paint) {
+        var mh$ = SkCanvas_drawSkPath$MH();
+        try {
+            mh$.invokeExact(canvas, path, paint);
+        } catch (Throwable ex$) {
+            throw new AssertionError("should not reach here", ex$);
+        }
+    }
     public static MethodHandle SkCanvas_drawImage$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$115,"SkCanvas_drawImage");
+        return RuntimeHelper.requireNonNull(constants$0.const$119,"SkCanvas_drawImage");
     }
     /**
      * {@snippet :
@@ -1450,7 +1514,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPaint_New$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$116,"SkPaint_New");
+        return RuntimeHelper.requireNonNull(constants$0.const$120,"SkPaint_New");
     }
     /**
      * {@snippet :
@@ -1466,7 +1530,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPaint_delete$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$117,"SkPaint_delete");
+        return RuntimeHelper.requireNonNull(constants$0.const$121,"SkPaint_delete");
     }
     /**
      * {@snippet :
@@ -1482,7 +1546,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPaint_setAntiAlias$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$119,"SkPaint_setAntiAlias");
+        return RuntimeHelper.requireNonNull(constants$0.const$123,"SkPaint_setAntiAlias");
     }
     /**
      * {@snippet :
@@ -1498,7 +1562,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPaint_setStroke$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$120,"SkPaint_setStroke");
+        return RuntimeHelper.requireNonNull(constants$0.const$124,"SkPaint_setStroke");
     }
     /**
      * {@snippet :
@@ -1514,7 +1578,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPaint_setStrokeProperties$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$122,"SkPaint_setStrokeProperties");
+        return RuntimeHelper.requireNonNull(constants$0.const$126,"SkPaint_setStrokeProperties");
     }
     /**
      * {@snippet :
@@ -1530,7 +1594,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPaint_setColor$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$124,"SkPaint_setColor");
+        return RuntimeHelper.requireNonNull(constants$0.const$128,"SkPaint_setColor");
     }
     /**
      * {@snippet :
@@ -1546,7 +1610,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPaint_setAlpha$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$126,"SkPaint_setAlpha");
+        return RuntimeHelper.requireNonNull(constants$0.const$130,"SkPaint_setAlpha");
     }
     /**
      * {@snippet :
@@ -1562,7 +1626,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPaint_setBlendMode$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$128,"SkPaint_setBlendMode");
+        return RuntimeHelper.requireNonNull(constants$0.const$132,"SkPaint_setBlendMode");
     }
     /**
      * {@snippet :
@@ -1578,7 +1642,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPaint_setDashPathEffect$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$130,"SkPaint_setDashPathEffect");
+        return RuntimeHelper.requireNonNull(constants$0.const$134,"SkPaint_setDashPathEffect");
     }
     /**
      * {@snippet :
@@ -1594,7 +1658,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPaint_setShaderMaskFilter$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$131,"SkPaint_setShaderMaskFilter");
+        return RuntimeHelper.requireNonNull(constants$0.const$135,"SkPaint_setShaderMaskFilter");
     }
     /**
      * {@snippet :
@@ -1610,7 +1674,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPaint_setShader$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$132,"SkPaint_setShader");
+        return RuntimeHelper.requireNonNull(constants$0.const$136,"SkPaint_setShader");
     }
     /**
      * {@snippet :
@@ -1626,7 +1690,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkPaint_setBlurImageFilter$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$133,"SkPaint_setBlurImageFilter");
+        return RuntimeHelper.requireNonNull(constants$0.const$137,"SkPaint_setBlurImageFilter");
     }
     /**
      * {@snippet :
@@ -1642,7 +1706,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkGradientShader_MakeLinear$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$135,"SkGradientShader_MakeLinear");
+        return RuntimeHelper.requireNonNull(constants$0.const$139,"SkGradientShader_MakeLinear");
     }
     /**
      * {@snippet :
@@ -1658,7 +1722,7 @@ public class skiacapi_h  {
         }
     }
     public static MethodHandle SkImage_makeShader$MH() {
-        return RuntimeHelper.requireNonNull(constants$0.const$137,"SkImage_makeShader");
+        return RuntimeHelper.requireNonNull(constants$0.const$141,"SkImage_makeShader");
     }
     /**
      * {@snippet :
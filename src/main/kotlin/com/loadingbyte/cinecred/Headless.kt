@@ -0,0 +1,408 @@
+package com.loadingbyte.cinecred
+
+import com.loadingbyte.cinecred.common.Severity.ERROR
+import com.loadingbyte.cinecred.common.parallelMap
+import com.loadingbyte.cinecred.common.readToml
+import com.loadingbyte.cinecred.common.toPathSafely
+import com.loadingbyte.cinecred.delivery.*
+import com.loadingbyte.cinecred.delivery.RenderFormat.Config
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.CINEFORM_PROFILE
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.DEPTH
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.DNXHR_PROFILE
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.DPX_COMPRESSION
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.EXR_COMPRESSION
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.FPS_SCALING
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.HDR
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.PDF_PROFILE
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.PRIMARIES
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.PRORES_PROFILE
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.RESOLUTION_SCALING_LOG2
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.SCAN
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.SEGMENTED
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.TIFF_COMPRESSION
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.TRANSFER
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.TRANSPARENCY
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.YUV
+import com.loadingbyte.cinecred.drawer.DrawnCredits
+import com.loadingbyte.cinecred.drawer.DrawnProject
+import com.loadingbyte.cinecred.drawer.drawPages
+import com.loadingbyte.cinecred.drawer.drawVideo
+import com.loadingbyte.cinecred.imaging.Tape
+import com.loadingbyte.cinecred.project.Credits
+import com.loadingbyte.cinecred.project.Project
+import com.loadingbyte.cinecred.project.verifyConstraints
+import com.loadingbyte.cinecred.projectio.*
+import kotlinx.collections.immutable.toPersistentList
+import java.awt.Font
+import java.io.IOException
+import java.nio.file.Path
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReference
+import kotlin.io.path.absolute
+import kotlin.io.path.isDirectory
+import kotlin.io.path.name
+
+
+const val HEADLESS_RENDER_ARG = "--render"
+
+private const val EXIT_OK = 0
+const val EXIT_JOB_FAILED = 1
+private const val EXIT_USAGE = 2
+private const val EXIT_PROJECT = 3
+
+private val HEADLESS_PROPERTIES: Map<String, Property<*>> = mapOf(
+    "transparency" to TRANSPARENCY,
+    "resolutionScalingLog2" to RESOLUTION_SCALING_LOG2,
+    "fpsScaling" to FPS_SCALING,
+    "primaries" to PRIMARIES,
+    "transfer" to TRANSFER,
+    "yuv" to YUV,
+    "hdr" to HDR,
+    "segmented" to SEGMENTED,
+    "depth" to DEPTH,
+    "scan" to SCAN,
+    "tiffCompression" to TIFF_COMPRESSION,
+    "dpxCompression" to DPX_COMPRESSION,
+    "exrCompression" to EXR_COMPRESSION,
+    "proresProfile" to PRORES_PROFILE,
+    "dnxhrProfile" to DNXHR_PROFILE,
+    "cineformProfile" to CINEFORM_PROFILE,
+    "pdfProfile" to PDF_PROFILE
+)
+
+private val HEADLESS_FORMAT_KINDS: Map<String, List<RenderFormat>> = mapOf(
+    "video" to VideoContainerRenderJob.FORMATS + ImageSequenceRenderJob.FORMATS,
+    "page" to WholePageSequenceRenderJob.FORMATS + WholePagePDFRenderJob.FORMATS,
+    "timeline" to TapeTimelineRenderJob.FORMATS
+)
+
+private val USAGE = """Usage: cinecred --render <project dir> [--jobs <file.toml>] [--workers <n>] [job options]
+
+  --workers <n>             Render up to n jobs at the same time, each in a separate worker process.
+
+Job options (each job in the TOML file is a [[job]] table with the same keys):
+  --output <file or dir>    Required. The file to render to, or the folder for file sequences.
+  --format <label>          Required. For example: ProRes, H.264, PNG, PDF, EDL.
+  --kind <kind>             One of: video (default), page, timeline.
+  --spreadsheet <name>      The credits spreadsheet to render. Defaults to the first one.
+  --pages <first>-<last>    The range of pages to render (1-based). Defaults to all pages.
+  --<property> <value>      Any of: ${HEADLESS_PROPERTIES.keys.joinToString()}
+
+Progress and results are printed to stdout as one JSON object per line.
+Exit codes: 0 = success, 1 = a job failed, 2 = invalid usage, 3 = the project could not be loaded."""
+
+
+private class HeadlessUsageException(message: String) : Exception(message)
+
+private class HeadlessJobSpec(
+    val options: Map<String, String>,
+    val format: RenderFormat,
+    val config: Config,
+    val output: Path,
+    val spreadsheet: String?,
+    val pages: IntRange?
+)
+
+
+/**
+ * Renders a project without opening any windows, which is used to batch-render deliverables on headless machines.
+ * The AWT headless mode must already be enabled when calling this function.
+ *
+ * @return The exit code of the process.
+ */
+fun mainHeadless(args: List<String>): Int {
+    val (projectDir, jobSpecs, workers) = try {
+        parseHeadlessArgs(args)
+    } catch (e: HeadlessUsageException) {
+        System.err.println(e.message)
+        System.err.println()
+        System.err.println(USAGE)
+        return EXIT_USAGE
+    }
+
+    if (workers != null)
+        return renderOnFarm(projectDir, jobSpecs, workers)
+
+    val drawnProject = try {
+        loadAndDrawProject(projectDir)
+    } catch (e: HeadlessProjectException) {
+        emit("\"event\":\"projectFailed\",\"error\":${jsonString(e.message!!)}")
+        return EXIT_PROJECT
+    }
+
+    var exitCode = EXIT_OK
+    for ((jobIdx, spec) in jobSpecs.withIndex()) {
+        val jobNo = jobIdx + 1
+        val renderJob = try {
+            createHeadlessRenderJob(spec, drawnProject)
+        } catch (e: HeadlessUsageException) {
+            emit("\"event\":\"failed\",\"job\":$jobNo,\"error\":${jsonString(e.message!!)}")
+            exitCode = EXIT_JOB_FAILED
+            continue
+        }
+        // Submit the job to the regular render queue, in a category of its own, and wait for it to finish.
+        val finished = CountDownLatch(1)
+        val error = AtomicReference<Exception?>()
+        val lastProgress = AtomicInteger(-1)
+        val category = Any()
+        RenderQueue.submitJob(category, renderJob, progressCallback = { progress ->
+            // Progress is reported in tenths of a percent, so skip repeated values to not flood the output.
+            if (lastProgress.getAndSet(progress) != progress)
+                emit("\"event\":\"progress\",\"job\":$jobNo,\"progress\":${progress / MAX_RENDER_PROGRESS.toDouble()}")
+        }, finishCallback = { e ->
+            error.set(e)
+            finished.countDown()
+        })
+        emit("\"event\":\"started\",\"job\":$jobNo,\"format\":${jsonString(spec.format.label)}," +
+                "\"output\":${jsonString(spec.output.toString())}")
+        RenderQueue.setPaused(category, false)
+        finished.await()
+        when (val e = error.get()) {
+            null -> emit("\"event\":\"done\",\"job\":$jobNo")
+            else -> {
+                emit("\"event\":\"failed\",\"job\":$jobNo,\"error\":${jsonString(e.toString())}")
+                exitCode = EXIT_JOB_FAILED
+            }
+        }
+    }
+    return exitCode
+}
+
+
+private fun parseHeadlessArgs(args: List<String>): Triple<Path, List<HeadlessJobSpec>, Int?> {
+    val projectDir = args.firstOrNull()?.takeUnless { it.startsWith("--") }?.toPathSafely()?.absolute()
+        ?: throw HeadlessUsageException("No project folder has been specified.")
+    if (!projectDir.isDirectory())
+        throw HeadlessUsageException("The project folder '$projectDir' doesn't exist.")
+
+    val cliOptions = HashMap<String, String>()
+    var jobsFile: Path? = null
+    var workers: Int? = null
+    var argIdx = 1
+    while (argIdx < args.size) {
+        val key = args[argIdx++]
+        if (!key.startsWith("--") || argIdx == args.size)
+            throw HeadlessUsageException("Expected an option followed by a value, but got '$key'.")
+        val value = args[argIdx++]
+        if (key == "--jobs")
+            jobsFile = value.toPathSafely() ?: throw HeadlessUsageException("Invalid jobs file path '$value'.")
+        else if (key == "--workers")
+            workers = value.toIntOrNull()?.takeIf { it >= 1 }
+                ?: throw HeadlessUsageException("Invalid number of workers '$value'.")
+        else
+            cliOptions[key.removePrefix("--")] = value
+    }
+
+    val jobOptions = mutableListOf<Map<String, String>>()
+    if (jobsFile != null) {
+        val toml = try {
+            readToml(jobsFile)
+        } catch (e: IOException) {
+            throw HeadlessUsageException("Cannot read the jobs file '$jobsFile': $e")
+        }
+        val tomlJobs = toml["job"] as? List<*> ?: throw HeadlessUsageException("The jobs file has no [[job]] tables.")
+        // Options given on the command line apply to all jobs in the file, unless a job overrides them.
+        for (tomlJob in tomlJobs) {
+            val tomlJobMap = tomlJob as? Map<*, *> ?: throw HeadlessUsageException("Malformed [[job]] table.")
+            jobOptions += cliOptions + tomlJobMap.entries.associate { (k, v) -> k.toString() to v.toString() }
+        }
+    } else
+        jobOptions += cliOptions
+
+    return Triple(projectDir, jobOptions.map(::parseHeadlessJobSpec), workers)
+}
+
+/**
+ * Instead of rendering the jobs in this process, hands each one to a worker process, which loads the project on its
+ * own and renders just that job. The workers report back to us, and we report to stdout just like when rendering here.
+ */
+private fun renderOnFarm(projectDir: Path, jobSpecs: List<HeadlessJobSpec>, workers: Int): Int {
+    RenderQueue.setFarmWorkers(workers)
+    val category = Any()
+    val finished = CountDownLatch(jobSpecs.size)
+    val failed = AtomicBoolean()
+    for ((jobIdx, spec) in jobSpecs.withIndex()) {
+        val jobNo = jobIdx + 1
+        val lastProgress = AtomicInteger(-1)
+        // Each worker only needs to know about its own job, so it doesn't get the jobs file.
+        val renderJob = FarmRenderJob(projectDir, spec.options, spec.output)
+        RenderQueue.submitJob(category, renderJob, progressCallback = { progress ->
+            if (progress == 0)
+                emit("\"event\":\"started\",\"job\":$jobNo,\"format\":${jsonString(spec.format.label)}," +
+                        "\"output\":${jsonString(spec.output.toString())}")
+            if (lastProgress.getAndSet(progress) != progress)
+                emit("\"event\":\"progress\",\"job\":$jobNo,\"progress\":${progress / MAX_RENDER_PROGRESS.toDouble()}")
+        }, finishCallback = { e ->
+            if (e == null)
+                emit("\"event\":\"done\",\"job\":$jobNo")
+            else {
+                emit("\"event\":\"failed\",\"job\":$jobNo,\"error\":${jsonString(e.message ?: e.toString())}")
+                failed.set(true)
+            }
+            finished.countDown()
+        })
+    }
+    RenderQueue.setPaused(category, false)
+    finished.await()
+    return if (failed.get()) EXIT_JOB_FAILED else EXIT_OK
+}
+
+private fun parseHeadlessJobSpec(options: Map<String, String>): HeadlessJobSpec {
+    val kind = options["kind"] ?: "video"
+    val formats = HEADLESS_FORMAT_KINDS[kind] ?: throw HeadlessUsageException("Unknown kind '$kind'.")
+    val formatLabel = options["format"] ?: throw HeadlessUsageException("No format has been specified.")
+    val format = formats.find { it.label.equals(formatLabel, ignoreCase = true) }
+        ?: throw HeadlessUsageException(
+            "Unknown $kind format '$formatLabel'. Available are: ${formats.joinToString { it.label }}."
+        )
+    val output = options["output"]?.toPathSafely()?.absolute()?.normalize()
+        ?: throw HeadlessUsageException("No valid output path has been specified.")
+
+    val lookup = Config.Lookup()
+    for ((key, value) in options) {
+        if (key in arrayOf("kind", "format", "output", "spreadsheet", "pages"))
+            continue
+        val property = HEADLESS_PROPERTIES[key] ?: throw HeadlessUsageException("Unknown option '$key'.")
+        lookup.setParsed(property, value)
+    }
+    val config = lookup.findConfig(format)
+        ?: throw HeadlessUsageException("The format '${format.label}' doesn't support the requested options.")
+
+    val pages = options["pages"]?.let { str ->
+        val parts = str.split('-').map { it.trim().toIntOrNull() }
+        val first = parts.getOrNull(0)
+        val last = if (parts.size == 1) first else parts.getOrNull(1)
+        if (parts.size > 2 || first == null || last == null || first < 1 || last < first)
+            throw HeadlessUsageException("Invalid page range '$str'.")
+        (first - 1)..(last - 1)
+    }
+
+    return HeadlessJobSpec(options, format, config, output, options["spreadsheet"], pages)
+}
+
+private fun <T> Config.Lookup.setParsed(property: Property<T>, value: String) {
+    val option = property.standardOptions.find { it.toString().equals(value, ignoreCase = true) }
+        ?: throw HeadlessUsageException(
+            "Invalid value '$value'. Available are: ${property.standardOptions.joinToString()}."
+        )
+    this[property] = option
+}
+
+
+private class HeadlessProjectException(message: String) : Exception(message)
+
+private fun loadAndDrawProject(projectDir: Path): DrawnProject {
+    // The intake pushes the auxiliary files right away, but the credits spreadsheets only later from its own thread.
+    val projectFontsRef = AtomicReference<Collection<Font>>()
+    val pictureLoadersRef = AtomicReference<Collection<PictureLoader>>()
+    val tapesRef = AtomicReference<Collection<Tape>>()
+    val spreadsheetsRef = AtomicReference<Pair<List<Spreadsheet>, List<ParserMsg>>>()
+    val spreadsheetsArrived = CountDownLatch(1)
+    val intake = ProjectIntake(projectDir, object : ProjectIntake.Callbacks {
+        override fun creditsPolling(possible: Boolean) {}
+        override fun pushProjectFonts(projectFonts: Collection<Font>) = projectFontsRef.set(projectFonts)
+        override fun pushPictureLoaders(pictureLoaders: Collection<PictureLoader>) =
+            pictureLoadersRef.set(pictureLoaders)
+        override fun pushTapes(tapes: Collection<Tape>) = tapesRef.set(tapes)
+        override fun pushCreditsSpreadsheets(creditsSpreadsheets: List<Spreadsheet>, log: List<ParserMsg>) {
+            if (spreadsheetsRef.compareAndSet(null, Pair(creditsSpreadsheets, log)))
+                spreadsheetsArrived.countDown()
+        }
+    })
+
+    try {
+        val styling = try {
+            readStyling(projectDir.resolve(STYLING_FILE_NAME), projectFontsRef.get())
+        } catch (e: IOException) {
+            throw HeadlessProjectException("Cannot read the styling: $e")
+        }
+        if (verifyConstraints(styling).any { it.severity == ERROR })
+            throw HeadlessProjectException("The styling is erroneous. Open the project in the GUI to fix it.")
+
+        // Linked online spreadsheets may take a while to arrive.
+        if (!spreadsheetsArrived.await(5, TimeUnit.MINUTES))
+            throw HeadlessProjectException("Timed out while waiting for the credits spreadsheet.")
+        val (creditsSpreadsheets, ioLog) = spreadsheetsRef.get()
+        val log = ioLog.toMutableList()
+        val credits = mutableListOf<Credits>()
+        for ((curCredits, curLog) in creditsSpreadsheets.parallelMap { spreadsheet ->
+            readCredits(spreadsheet, styling, pictureLoadersRef.get(), tapesRef.get())
+        }) {
+            credits += curCredits
+            log += curLog
+        }
+        for (msg in log)
+            emit(
+                "\"event\":\"log\",\"severity\":\"${msg.severity}\",\"spreadsheet\":${jsonString(msg.spreadsheetName)}," +
+                        "\"record\":${msg.recordNo},\"message\":${jsonString(msg.msg)}"
+            )
+        if (credits.isEmpty() || log.any { it.severity == ERROR })
+            throw HeadlessProjectException("The credits spreadsheet could not be read without errors.")
+
+        val project = Project(styling, credits.toPersistentList())
+        val drawnCredits = credits.parallelMap { curCredits ->
+            val drawnPages = drawPages(project, curCredits)
+            // Limit each page's height to prevent the program from crashing due to misconfiguration.
+            if (drawnPages.any { it.defImage.height.resolve() > 1_000_000.0 })
+                return@parallelMap null
+            DrawnCredits(curCredits, drawnPages.toPersistentList(), drawVideo(project, drawnPages))
+        }.mapIndexed { idx, curDrawnCredits ->
+            curDrawnCredits
+                ?: throw HeadlessProjectException("A page in '${credits[idx].spreadsheetName}' is excessively tall.")
+        }
+        return DrawnProject(project, drawnCredits.toPersistentList())
+    } finally {
+        intake.close()
+    }
+}
+
+private fun createHeadlessRenderJob(spec: HeadlessJobSpec, drawnProject: DrawnProject): RenderJob {
+    val drawnCredits = drawnProject.drawnCredits
+    val curDrawnCredits = if (spec.spreadsheet == null) drawnCredits.first() else
+        drawnCredits.find { it.credits.spreadsheetName == spec.spreadsheet }
+            ?: throw HeadlessUsageException("There is no credits spreadsheet called '${spec.spreadsheet}'.")
+    val drawnPages = curDrawnCredits.drawnPages
+    val pageIndices = spec.pages ?: drawnPages.indices
+    if (pageIndices.last > drawnPages.lastIndex)
+        throw HeadlessUsageException("The credits only have ${drawnPages.size} pages.")
+    val pageDefImages = drawnPages.slice(pageIndices).map { it.defImage }
+    val wholePage = spec.format in HEADLESS_FORMAT_KINDS.getValue("page")
+    // Just like in the GUI, retain the surrounding black frames if the first respectively last page is included.
+    val video = if (wholePage) null else curDrawnCredits.video.sub(
+        if (pageIndices.first == 0) null else pageDefImages.first(),
+        if (pageIndices.last == drawnPages.lastIndex) null else pageDefImages.last()
+    )
+    val filenamePattern = if (!spec.format.fileSeq) null else
+        "${spec.output.name}.%07d.${spec.format.defaultFileExt}"
+    return spec.format.createRenderJob(
+        spec.config, drawnProject.project.styling, pageDefImages, video, spec.output, filenamePattern
+    )
+}
+
+
+private fun emit(jsonMembers: String) {
+    // Synchronize on stdout to keep lines from different threads intact.
+    synchronized(System.out) {
+        println("{$jsonMembers}")
+        System.out.flush()
+    }
+}
+
+private fun jsonString(str: String?): String {
+    if (str == null)
+        return "null"
+    val sb = StringBuilder(str.length + 2).append('"')
+    for (c in str)
+        when {
+            c == '"' -> sb.append("\\\"")
+            c == '\\' -> sb.append("\\\\")
+            c == '\n' -> sb.append("\\n")
+            c < ' ' -> sb.append("\\u%04x".format(c.code))
+            else -> sb.append(c)
+        }
+    return sb.append('"').toString()
+}
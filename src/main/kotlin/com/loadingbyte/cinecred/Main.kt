@@ -41,6 +41,7 @@ import javax.swing.*
 import kotlin.concurrent.schedule
 import kotlin.io.path.absolute
 import kotlin.io.path.absolutePathString
+import kotlin.system.exitProcess
 
 
 private const val SINGLETON_APP_ID = "com.loadingbyte.cinecred"
@@ -52,15 +53,28 @@ private val hasCrashed = AtomicBoolean()
 
 
 fun main(args: Array<String>) {
-    // Cinecred is a singleton application. When the application is launched a second time, we just simulate
-    // a second application instance in the same VM.
-    if (Singleton.invoke(SINGLETON_APP_ID, args))
-        return
-    Singleton.start({ otherArgs -> SwingUtilities.invokeLater { openUI(otherArgs) } }, SINGLETON_APP_ID)
+    // In headless render mode, we neither open any windows nor interfere with a running GUI instance. Enable AWT's
+    // headless mode right away, before anything gets a chance to initialize AWT.
+    val headless = args.firstOrNull() == HEADLESS_RENDER_ARG
+    if (headless) {
+        System.setProperty("java.awt.headless", "true")
+        // There is no user to inform about a crash, so just log it and signal the failure via the exit code, as
+        // otherwise, a crashed non-daemon thread could leave the process hanging or let it exit with success.
+        Thread.setDefaultUncaughtExceptionHandler { _, e ->
+            LOGGER.error("Uncaught exception. Will terminate the program.", e)
+            exitProcess(EXIT_JOB_FAILED)
+        }
+    } else {
+        // Cinecred is a singleton application. When the application is launched a second time, we just simulate
+        // a second application instance in the same VM.
+        if (Singleton.invoke(SINGLETON_APP_ID, args))
+            return
+        Singleton.start({ otherArgs -> SwingUtilities.invokeLater { openUI(otherArgs) } }, SINGLETON_APP_ID)
 
-    // If an unexpected exception reaches the top of a thread's stack, we want to terminate the program in a
-    // controlled fashion and inform the user. We also ask whether to send a crash report.
-    Thread.setDefaultUncaughtExceptionHandler(UncaughtHandler)
+        // If an unexpected exception reaches the top of a thread's stack, we want to terminate the program in a
+        // controlled fashion and inform the user. We also ask whether to send a crash report.
+        Thread.setDefaultUncaughtExceptionHandler(UncaughtHandler)
+    }
 
     // Remove all existing handlers from the root logger.
     val rootLogger = Logger.getLogger("")
@@ -75,8 +89,10 @@ fun main(args: Array<String>) {
     System.loadLibrary("skiacapi")
     System.loadLibrary("harfbuzz")
     System.loadLibrary("zimg")
-    System.loadLibrary("nfd")
-    System.loadLibrary("decklinkcapi")
+    if (!headless) {
+        System.loadLibrary("nfd")
+        System.loadLibrary("decklinkcapi")
+    }
 
     // Make JavaCPP and FlatLaf load their native libraries from java.library.path.
     System.setProperty("org.bytedeco.javacpp.cacheLibraries", "false")
@@ -96,6 +112,9 @@ fun main(args: Array<String>) {
     // Make PDFBox store its font cache in our config directory.
     System.setProperty("pdfbox.fontcache", CONFIG_DIR.absolutePathString())
 
+    if (headless)
+        exitProcess(mainHeadless(args.drop(1)))
+
     // Already load the currently connected DeckLink devices so that they can be later passed to clients all in one go.
     // This is important because one client preselects the last selected device from the first device list it gets.
     DeckLink.preload()
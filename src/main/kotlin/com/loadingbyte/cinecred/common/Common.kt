@@ -30,6 +30,8 @@ import java.util.*
 import java.util.concurrent.Callable
 import java.util.concurrent.ExecutorService
 import java.util.concurrent.Executors
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinTask
 import javax.swing.JComponent
 import javax.swing.UIManager
 import kotlin.io.path.*
@@ -49,6 +51,30 @@ val GLOBAL_THREAD_POOL: ExecutorService = Executors.newCachedThreadPool { runnab
     Thread(runnable, "GlobalThreadPool").apply { isDaemon = true }
 }
 
+// The parallelism of this pool can be lowered with the system property "cinecred.drawingParallelism". As it's a
+// fork-join pool, parallelMap() can be nested without risking a deadlock.
+private val DRAWING_POOL = ForkJoinPool(
+    (System.getProperty("cinecred.drawingParallelism")?.toIntOrNull() ?: Runtime.getRuntime().availableProcessors())
+        .coerceIn(1, Runtime.getRuntime().availableProcessors()),
+    { pool -> ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool).apply { name = "DrawingThread" } },
+    null, false
+)
+
+/**
+ * Like [map], but executes the [transform] for all elements in parallel on a bounded pool of drawing threads. The
+ * result is always in the same order as the input, and the first exception thrown by any transform is rethrown.
+ */
+fun <T, R> List<T>.parallelMap(transform: (T) -> R): List<R> {
+    if (size <= 1 || DRAWING_POOL.parallelism == 1)
+        return map(transform)
+    val tasks = map { elem -> ForkJoinTask.adapt(Callable { transform(elem) }) }
+    if (ForkJoinTask.getPool() === DRAWING_POOL)
+        ForkJoinTask.invokeAll(tasks)
+    else
+        DRAWING_POOL.invoke(ForkJoinTask.adapt { ForkJoinTask.invokeAll(tasks) })
+    return tasks.map { it.join() }
+}
+
 
 enum class Severity { INFO, WARN, MIGRATE, ERROR }
 
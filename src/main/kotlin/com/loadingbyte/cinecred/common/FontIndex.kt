@@ -0,0 +1,145 @@
+package com.loadingbyte.cinecred.common
+
+import java.awt.Font
+import java.io.*
+import java.nio.file.Files
+import java.nio.file.NoSuchFileException
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption.ATOMIC_MOVE
+import java.nio.file.StandardCopyOption.REPLACE_EXISTING
+import java.util.*
+import kotlin.io.path.*
+
+
+/**
+ * Persists the names and styles of the system fonts across sessions, so that startup doesn't need to parse every single
+ * font file again. Entries are keyed by the font file's path and are only trusted as long as the file's size and
+ * modification time haven't changed.
+ */
+internal class FontIndex private constructor(private val entries: Map<Path, Entry>) {
+
+    class Entry(val size: Long, val lastModified: Long, val fonts: List<IndexedFont>)
+
+    class IndexedFont(
+        val indexInFile: Int,
+        val fontName: String,
+        val strings: FontStrings,
+        val weight: Int,
+        val width: Int,
+        val italic: Boolean
+    ) {
+        companion object {
+            fun of(font: Font, indexInFile: Int) = IndexedFont(
+                indexInFile, font.getFontName(Locale.ROOT), font.getStrings(),
+                font.getWeight(), font.getWidth(), font.isItalic2D()
+            )
+        }
+    }
+
+    /** Returns the entry of the [file] if it's still up-to-date, or null otherwise. */
+    fun get(file: Path, size: Long, lastModified: Long): Entry? =
+        entries[file]?.takeIf { it.size == size && it.lastModified == lastModified }
+
+    /** Returns whether saving [newEntries] would write the same index again. */
+    fun isEquivalentTo(newEntries: Map<Path, Entry>): Boolean =
+        entries.size == newEntries.size && newEntries.all { (file, entry) -> entries[file] === entry }
+
+
+    companion object {
+
+        private const val MAGIC = 0x43434649  // "CCFI"
+        private const val VERSION = 1
+
+        private val FILE = CONFIG_DIR.resolve("fontindex.bin")
+
+        /** Returns an empty index if none has been saved yet or it cannot be read. */
+        fun load(): FontIndex {
+            val entries = HashMap<Path, Entry>()
+            try {
+                DataInputStream(FILE.inputStream().buffered()).use { inp ->
+                    if (inp.readInt() != MAGIC || inp.readInt() != VERSION)
+                        return FontIndex(emptyMap())
+                    repeat(inp.readInt()) {
+                        val file = Path(inp.readUTF())
+                        val size = inp.readLong()
+                        val lastModified = inp.readLong()
+                        val fonts = List(inp.readInt()) {
+                            val indexInFile = inp.readInt()
+                            val fontName = inp.readUTF()
+                            val strings = FontStrings(
+                                readStringMap(inp), readStringMap(inp), readStringMap(inp),
+                                readStringMap(inp), readStringMap(inp), readStringMap(inp)
+                            )
+                            IndexedFont(indexInFile, fontName, strings, inp.readInt(), inp.readInt(), inp.readBoolean())
+                        }
+                        entries[file] = Entry(size, lastModified, fonts)
+                    }
+                }
+            } catch (_: NoSuchFileException) {
+                // The index has not been saved yet.
+            } catch (e: Exception) {
+                LOGGER.warn("Cannot read the font index; all system fonts will be indexed anew.", e)
+                return FontIndex(emptyMap())
+            }
+            return FontIndex(entries)
+        }
+
+        fun save(entries: Map<Path, Entry>) {
+            try {
+                FILE.parent.createDirectories()
+                // Write to a temporary file first so that an interrupted write never leaves behind a corrupt index.
+                val tmpFile = Files.createTempFile(FILE.parent, "fontindex-", ".tmp")
+                try {
+                    DataOutputStream(tmpFile.outputStream().buffered()).use { out ->
+                        out.writeInt(MAGIC)
+                        out.writeInt(VERSION)
+                        out.writeInt(entries.size)
+                        for ((file, entry) in entries) {
+                            out.writeUTF(file.pathString)
+                            out.writeLong(entry.size)
+                            out.writeLong(entry.lastModified)
+                            out.writeInt(entry.fonts.size)
+                            for (font in entry.fonts) {
+                                out.writeInt(font.indexInFile)
+                                out.writeUTF(font.fontName)
+                                val s = font.strings
+                                for (map in arrayOf(
+                                    s.family, s.subfamily, s.fullName,
+                                    s.typographicFamily, s.typographicSubfamily, s.sampleText
+                                ))
+                                    writeStringMap(out, map)
+                                out.writeInt(font.weight)
+                                out.writeInt(font.width)
+                                out.writeBoolean(font.italic)
+                            }
+                        }
+                    }
+                    tmpFile.moveTo(FILE, ATOMIC_MOVE, REPLACE_EXISTING)
+                } finally {
+                    tmpFile.deleteIfExists()
+                }
+            } catch (e: IOException) {
+                LOGGER.warn("Cannot save the font index.", e)
+            }
+        }
+
+        private fun readStringMap(inp: DataInput): Map<Locale, String> {
+            val count = inp.readInt()
+            if (count == 0)
+                return emptyMap()
+            return HashMap<Locale, String>(count * 2).apply {
+                repeat(count) { put(Locale.forLanguageTag(inp.readUTF()), inp.readUTF()) }
+            }
+        }
+
+        private fun writeStringMap(out: DataOutput, map: Map<Locale, String>) {
+            out.writeInt(map.size)
+            for ((locale, string) in map) {
+                out.writeUTF(locale.toLanguageTag())
+                out.writeUTF(string)
+            }
+        }
+
+    }
+
+}
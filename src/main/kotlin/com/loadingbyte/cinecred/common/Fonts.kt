@@ -3,8 +3,11 @@ package com.loadingbyte.cinecred.common
 import com.formdev.flatlaf.util.SystemInfo
 import java.awt.Font
 import java.awt.GraphicsEnvironment
+import java.io.IOException
 import java.nio.file.Path
+import java.nio.file.attribute.BasicFileAttributes
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
 import kotlin.io.path.*
 
 
@@ -18,15 +21,44 @@ val BUNDLED_FONTS: List<Font> = useResourcePath("/fonts") { fontsDir ->
     }
 }
 
+/**
+ * A TrueType/OpenType font installed on the system. Its names and style are known from the [FontIndex], so the font
+ * file only needs to be opened once the actual [font] is requested.
+ */
+class SystemFont internal constructor(private val file: Path, indexed: FontIndex.IndexedFont, preloaded: Font?) {
+
+    val fontName: String = indexed.fontName
+    val strings: FontStrings = indexed.strings
+    val weight: Int = indexed.weight
+    val width: Int = indexed.width
+    val italic: Boolean = indexed.italic
+    private val indexInFile = indexed.indexInFile
+
+    /** Null if the font file has vanished or changed since it was indexed. */
+    val font: Font? by lazy {
+        preloaded ?: loadSystemFontFile(file).getOrNull(indexInFile)?.takeIf { it.getFontName(Locale.ROOT) == fontName }
+    }
+
+}
+
+
+private val loadedSystemFontFiles = ConcurrentHashMap<Path, List<Font>>()
+
 // Load the fonts that are present on the system. We only want to include TrueType/OpenType fonts, because:
 //   - Logical fonts (e.g., "Dialog" and "Serif") and system-native fonts differ unpredictably between systems.
 //   - At various points in the code, notably ReflectionExt and PDF font embedding, we only support TTF/OTF.
-val SYSTEM_FONTS: List<Font> =
+// The names and styles of the fonts are taken from the persistent font index wherever its entries are still up-to-date,
+// so only new or changed font files need to be parsed.
+val SYSTEM_FONTS: List<SystemFont> = run {
+    val oldIndex = FontIndex.load()
+    val newEntries = HashMap<Path, FontIndex.Entry>()
+    val systemFonts = mutableListOf<SystemFont>()
+
     if (SystemInfo.isMacOS) {
         // On macOS, the JDK only supplies us with "CFont" implementations, which do not let us access the underlying
-        // TTF/OTF structure, and not even contain a path to the originating font file. Hence, we need to manually read
-        // in all font files from the well-known font directories.
-        sequenceOf(
+        // TTF/OTF structure, and not even contain a path to the originating font file. Hence, we need to manually find
+        // all font files in the well-known font directories.
+        val files = sequenceOf(
             Path("/System/Library/Fonts"),
             Path("/Network/Library/Fonts"),
             Path("/Library/Fonts"),
@@ -35,31 +67,78 @@ val SYSTEM_FONTS: List<Font> =
             .filter(Path::exists)
             .flatMap(Path::walkSafely)
             .filter(Path::isRegularFile)
-            // The createFonts() method can only successfully read TrueType/OpenType fonts, which is desired.
-            // If a FontFormatException or IOException occurs, just skip over the problematic font file.
-            .flatMap {
-                try {
-                    Font.createFonts(it.toFile()).asSequence()
-                } catch (_: Exception) {
-                    // This happens quite regularly on macOS, so do not log the stacktrace to not spam the log.
-                    LOGGER.warn("Skipping system font '{}' because it cannot be read.", it)
-                    emptySequence()
-                }
+        for (file in files) {
+            val (size, lastModified) = readFontFileAttrs(file) ?: continue
+            var preloaded: List<Font>? = null
+            val entry = oldIndex.get(file, size, lastModified) ?: run {
+                preloaded = loadSystemFontFile(file)
+                FontIndex.Entry(
+                    size, lastModified,
+                    preloaded!!.withIndex()
+                        // Internal macOS fonts start with a dot; we do not want to include those.
+                        .filter { (_, f) ->
+                            !f.getFamily(Locale.ROOT).startsWith('.') && !f.getFontName(Locale.ROOT).startsWith('.')
+                        }
+                        .map { (idx, f) -> FontIndex.IndexedFont.of(f, idx) }
+                )
             }
-            // Internal macOS fonts start with a dot; we do not want to include those.
-            .filter { !it.getFamily(Locale.ROOT).startsWith('.') && !it.getFontName(Locale.ROOT).startsWith('.') }
-            .toList()
-    } else
-        GraphicsEnvironment.getLocalGraphicsEnvironment().allFonts.filter(Font::isTTFOrOTF)
+            newEntries[file] = entry
+            entry.fonts.mapTo(systemFonts) { SystemFont(file, it, preloaded?.get(it.indexInFile)) }
+        }
+    } else {
+        // Elsewhere, the JDK has already opened the font files, but we still save parsing their name tables.
+        val fileToFonts = GraphicsEnvironment.getLocalGraphicsEnvironment().allFonts
+            .filter(Font::isTTFOrOTF)
+            .groupBy(Font::getFontFile)
+        for ((file, fonts) in fileToFonts) {
+            val idxToFont = fonts.associateBy(Font::getIndexInCollection)
+            val attrs = readFontFileAttrs(file)
+            val entry = attrs?.let { (size, lastModified) -> oldIndex.get(file, size, lastModified) }
+                ?.takeIf { e -> e.fonts.mapTo(HashSet()) { it.indexInFile } == idxToFont.keys }
+                ?: FontIndex.Entry(
+                    attrs?.first ?: -1L, attrs?.second ?: -1L,
+                    idxToFont.map { (idx, f) -> FontIndex.IndexedFont.of(f, idx) }
+                )
+            if (attrs != null)
+                newEntries[file] = entry
+            entry.fonts.mapTo(systemFonts) { SystemFont(file, it, idxToFont.getValue(it.indexInFile)) }
+        }
+    }
+
+    if (!oldIndex.isEquivalentTo(newEntries))
+        GLOBAL_THREAD_POOL.submit(throwableAwareTask { FontIndex.save(newEntries) })
+    systemFonts
+}
+
+private fun readFontFileAttrs(file: Path): Pair<Long, Long>? =
+    try {
+        val attrs = file.readAttributes<BasicFileAttributes>()
+        Pair(attrs.size(), attrs.lastModifiedTime().toMillis())
+    } catch (e: IOException) {
+        LOGGER.warn("Skipping system font '{}' because its attributes cannot be read.", file, e)
+        null
+    }
+
+private fun loadSystemFontFile(file: Path): List<Font> = loadedSystemFontFiles.computeIfAbsent(file) {
+    // The createFonts() method can only successfully read TrueType/OpenType fonts, which is desired.
+    // If a FontFormatException or IOException occurs, just skip over the problematic font file.
+    try {
+        Font.createFonts(file.toFile()).asList()
+    } catch (_: Exception) {
+        // This happens quite regularly on macOS, so do not log the stacktrace to not spam the log.
+        LOGGER.warn("Skipping system font '{}' because it cannot be read.", file)
+        emptyList()
+    }
+}
 
 
 private val nameToBundledFont = BUNDLED_FONTS
     .associateBy { font -> font.getFontName(Locale.ROOT) }
 private val nameToSystemFont = SYSTEM_FONTS
-    .associateBy { font -> font.getFontName(Locale.ROOT) }
+    .associateBy(SystemFont::fontName)
 
 fun getBundledFont(name: String): Font? =
     nameToBundledFont[name]
 
 fun getSystemFont(name: String): Font? =
-    nameToSystemFont[name]
+    nameToSystemFont[name]?.font
@@ -49,6 +49,16 @@ class ImageSequenceRenderJob private constructor(
     override val prefix: Path
         get() = dir
 
+    override val footprint: RenderFootprint
+        get() {
+            val scaledVideo = video.copy(2.0.pow(config[RESOLUTION_SCALING_LOG2]), config[FPS_SCALING])
+            // Mirror the backlog of frames that wait to be written in render().
+            val numCores = Runtime.getRuntime().availableProcessors()
+            val numMaterializers = (numCores / 4).coerceIn(1, 4)
+            val framesInFlight = numMaterializers + (numCores - numMaterializers).coerceAtLeast(1) * 5
+            return RenderFootprint.ofVideo(scaledVideo, framesInFlight, numBackends = 1, 1.0)
+        }
+
     override fun render(progressCallback: (Int) -> Unit) {
         if (dir.exists())
             dir.cleanDirectory()
@@ -95,11 +105,16 @@ class ImageSequenceRenderJob private constructor(
             if (scan == Bitmap.Scan.PROGRESSIVE) Bitmap.Content.PROGRESSIVE_FRAME else Bitmap.Content.INTERLEAVED_FIELDS
         )
 
+        // Split the available cores between materializing and writing frames. As writing (and especially compressing)
+        // images is typically the more expensive part, it gets the larger share.
+        val numCores = Runtime.getRuntime().availableProcessors()
+        val numMaterializers = (numCores / 4).coerceIn(1, 4)
         DeferredVideo.BitmapBackend(
-            scaledVideo, listOf(STATIC), listOf(TAPES), grounding, backendSpec, ceiling
+            scaledVideo, listOf(STATIC), listOf(TAPES), grounding, backendSpec, ceiling,
+            parallelism = numMaterializers
         ).use { backend ->
             val numFrames = scaledVideo.numFrames
-            val numWorkers = Runtime.getRuntime().availableProcessors() - 1
+            val numWorkers = (numCores - numMaterializers).coerceAtLeast(1)
             val executor = Executors.newFixedThreadPool(numWorkers) { Thread(it, "ImageSequenceWriter") }
             try {
                 val done = CountDownLatch(numFrames)
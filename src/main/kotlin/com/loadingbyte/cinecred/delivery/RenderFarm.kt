@@ -0,0 +1,177 @@
+package com.loadingbyte.cinecred.delivery
+
+import com.loadingbyte.cinecred.HEADLESS_RENDER_ARG
+import com.loadingbyte.cinecred.common.GLOBAL_THREAD_POOL
+import com.loadingbyte.cinecred.common.LOGGER
+import com.loadingbyte.cinecred.common.throwableAwareTask
+import java.io.IOException
+import java.lang.management.ManagementFactory
+import java.nio.file.Path
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicReference
+import kotlin.io.path.Path
+import kotlin.io.path.nameWithoutExtension
+import kotlin.math.roundToInt
+
+
+/**
+ * A render job that doesn't render in this process, but instead launches a worker process from the same installation
+ * which loads the project from the [projectDir] on its own and renders it in headless mode with the given job
+ * [options]. Hence, each worker has its own heap and native allocations, and a crashing worker cannot take down the
+ * rest of the queue. The worker reports its progress and result as JSON lines via its stdout pipe.
+ *
+ * The [RenderQueue] runs jobs of this kind concurrently on up to [RenderQueue.setFarmWorkers] workers.
+ *
+ * By default, workers are launched locally. To distribute them to other machines which share the project folder under
+ * the same path, the system property "cinecred.renderFarmLauncher" can specify a command that is put in front of the
+ * worker's command line, like "ssh render-node-1". That command is split into arguments like a shell would do it, so
+ * arguments with spaces can be quoted. As such a launcher typically hands the worker's command line to a remote shell,
+ * the worker's arguments are then quoted for that shell. Also, the worker receives absolute paths, as its working
+ * directory is not necessarily ours.
+ */
+class FarmRenderJob(
+    private val projectDir: Path,
+    private val options: Map<String, String>,
+    override val prefix: Path
+) : RenderJob {
+
+    override fun render(progressCallback: (Int) -> Unit) {
+        val workerOptions = options + ("output" to prefix.toAbsolutePath().toString())
+        val workerCommand = WORKER_COMMAND + HEADLESS_RENDER_ARG + projectDir.toAbsolutePath().toString() +
+                workerOptions.flatMap { (key, value) -> listOf("--$key", value) }
+        val command = if (LAUNCHER.isEmpty()) workerCommand else LAUNCHER + workerCommand.map(::quoteForShell)
+        val process = ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start()
+        val error = AtomicReference<String?>()
+
+        // Reading from the pipe cannot be interrupted, so we do it in another thread and instead wait for the process
+        // in this one, which allows the render queue to cancel the job.
+        val reader = GLOBAL_THREAD_POOL.submit(throwableAwareTask {
+            try {
+                process.inputStream.bufferedReader().forEachLine { line ->
+                    when (jsonMember(line, "event")) {
+                        "progress" -> jsonMember(line, "progress")?.toDoubleOrNull()?.let { progress ->
+                            progressCallback((progress * MAX_RENDER_PROGRESS).roundToInt())
+                        }
+                        "failed", "projectFailed" -> error.set(jsonMember(line, "error"))
+                        "log" -> LOGGER.info(
+                            "Render worker: {}: {}", jsonMember(line, "severity"), jsonMember(line, "message")
+                        )
+                    }
+                }
+            } catch (_: IOException) {
+                // The pipe is closed when the worker is destroyed.
+            }
+        })
+
+        try {
+            val exitCode = process.waitFor()
+            // The worker might have exited before the reader has seen its last lines, among them the error message, so
+            // wait for the reader to drain the pipe, which ends once the worker is gone.
+            reader.get()
+            if (exitCode != 0)
+                throw IOException(error.get() ?: "The render worker exited with code $exitCode.")
+        } catch (e: InterruptedException) {
+            // The job has been cancelled, so first ask the worker to stop, and if it doesn't, forcibly kill it.
+            process.destroy()
+            if (!process.waitFor(10, TimeUnit.SECONDS))
+                process.destroyForcibly()
+            throw e
+        }
+    }
+
+
+    companion object {
+
+        private const val MAIN_CLASS = "com.loadingbyte.cinecred.Main"
+
+        private val LAUNCHER: List<String> =
+            System.getProperty("cinecred.renderFarmLauncher")?.let(::splitCommandLine).orEmpty()
+
+        /**
+         * When the installed launcher has started us, workers can be started by the same launcher. When we instead run
+         * as a plain Java process, we have to recreate the JVM's command line with the same options and classpath.
+         */
+        private val WORKER_COMMAND: List<String> by lazy {
+            val command = ProcessHandle.current().info().command().orElse(null)
+                ?: Path(System.getProperty("java.home"), "bin", "java").toString()
+            if (!Path(command).nameWithoutExtension.equals("java", ignoreCase = true))
+                listOf(command)
+            else {
+                // Debugger agents would fight over their port, so don't pass them on.
+                val jvmArgs = ManagementFactory.getRuntimeMXBean().inputArguments
+                    .filterNot { it.startsWith("-agentlib:jdwp") || it.startsWith("-Xrunjdwp") }
+                listOf(command) + jvmArgs + listOf("-cp", System.getProperty("java.class.path"), MAIN_CLASS)
+            }
+        }
+
+        /**
+         * Splits a command line at whitespace, except for whitespace inside single or double quotes or escaped by a
+         * backslash. The quotes and backslashes themselves are removed.
+         */
+        private fun splitCommandLine(commandLine: String): List<String> {
+            val args = mutableListOf<String>()
+            val sb = StringBuilder()
+            var inArg = false
+            var quote: Char? = null
+            var idx = 0
+            while (idx < commandLine.length) {
+                val c = commandLine[idx++]
+                when {
+                    quote != null && c == quote -> quote = null
+                    quote != '\'' && c == '\\' && idx < commandLine.length -> sb.append(commandLine[idx++])
+                    quote != null -> sb.append(c)
+                    c == '\'' || c == '"' -> quote = c
+                    c.isWhitespace() -> {
+                        if (inArg)
+                            args += sb.toString()
+                        sb.setLength(0)
+                        inArg = false
+                        continue
+                    }
+                    else -> sb.append(c)
+                }
+                inArg = true
+            }
+            if (inArg)
+                args += sb.toString()
+            return args
+        }
+
+        /** Quotes an argument for a POSIX shell, which the remote end of launchers like ssh usually is. */
+        private fun quoteForShell(arg: String): String =
+            if (arg.isNotEmpty() && arg.all { it in 'a'..'z' || it in 'A'..'Z' || it in '0'..'9' || it in SHELL_SAFE })
+                arg
+            else
+                "'" + arg.replace("'", "'\\''") + "'"
+
+        private const val SHELL_SAFE = "-_./:=,+@%"
+
+        /** Extracts the value of a top-level member from a JSON object written by the headless mode. */
+        private fun jsonMember(json: String, key: String): String? {
+            val start = json.indexOf("\"$key\":").takeIf { it != -1 }?.let { it + key.length + 3 } ?: return null
+            if (start >= json.length)
+                return null
+            if (json[start] != '"')
+                return json.substring(start).takeWhile { it != ',' && it != '}' }.trim()
+            val sb = StringBuilder()
+            var idx = start + 1
+            while (idx < json.length) {
+                val c = json[idx++]
+                if (c == '"')
+                    return sb.toString()
+                if (c != '\\' || idx == json.length)
+                    sb.append(c)
+                else
+                    when (val esc = json[idx++]) {
+                        'n' -> sb.append('\n')
+                        'u' -> json.substring(idx, (idx + 4).coerceAtMost(json.length)).toIntOrNull(16)
+                            ?.let { sb.append(it.toChar()); idx += 4 }
+                        else -> sb.append(esc)
+                    }
+            }
+            return null
+        }
+
+    }
+
+}
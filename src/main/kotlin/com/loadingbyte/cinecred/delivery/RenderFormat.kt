@@ -76,6 +76,7 @@ abstract class RenderFormat(
             val TRANSFER = Property(*ColorSpace.Transfer.COMMON.toTypedArray(), default = ColorSpace.Transfer.BT1886)
             val YUV = Property(BT709_NCL, SRGB_NCL, BT2020_NCL, BT2020_CL, ICTCP, default = BT709_NCL)
             val HDR = Property(false, true, default = false)
+            val SEGMENTED = Property(false, true, default = false)
             val DEPTH = Property(8, default = 8)
             val SCAN = Property(*Bitmap.Scan.values(), default = Bitmap.Scan.PROGRESSIVE)
             val TIFF_COMPRESSION = Property(*TIFF.Compression.values(), default = TIFF.Compression.DEFLATE)
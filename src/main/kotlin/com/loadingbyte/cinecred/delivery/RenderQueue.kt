@@ -1,11 +1,19 @@
 package com.loadingbyte.cinecred.delivery
 
 import com.loadingbyte.cinecred.common.LOGGER
+import com.loadingbyte.cinecred.common.Resolution
+import com.loadingbyte.cinecred.imaging.DeferredVideo
+import com.loadingbyte.cinecred.imaging.RenderMetrics
+import java.lang.management.ManagementFactory
 import java.nio.file.Path
-import java.util.concurrent.ConcurrentHashMap
+import java.util.Locale
 import java.util.concurrent.ConcurrentLinkedQueue
 import java.util.concurrent.CopyOnWriteArrayList
-import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.FutureTask
+import java.util.concurrent.atomic.AtomicBoolean
 import java.util.concurrent.locks.ReentrantLock
 import kotlin.concurrent.withLock
 
@@ -15,100 +23,263 @@ const val MAX_RENDER_PROGRESS = 1000
 
 interface RenderJob {
     val prefix: Path
+    val footprint: RenderFootprint get() = RenderFootprint.UNKNOWN
     fun render(progressCallback: (Int) -> Unit)
 }
 
 
+/**
+ * A rough estimate of the resources a [RenderJob] occupies while rendering, which the [RenderQueue] uses to decide
+ * which jobs may render alongside each other.
+ *
+ * @param cpuShare The fraction of all cores that the job keeps busy.
+ * @param memoryBytes The memory that the job allocates on top of the already drawn project.
+ * @param work A measure of how long the job takes, which is only meaningful relative to other jobs' work.
+ */
+class RenderFootprint(val cpuShare: Double, val memoryBytes: Long, val work: Double) {
+
+    companion object {
+
+        // Assume that working canvases have four float components per pixel.
+        private const val BYTES_PER_PX = 16L
+
+        /** Jobs that don't provide an estimate could well occupy the whole machine. */
+        val UNKNOWN = RenderFootprint(1.0, 0L, 1.0)
+
+        /** The share of a job that keeps a single core busy. */
+        val SINGLE_CORE: Double get() = 1.0 / Runtime.getRuntime().availableProcessors()
+
+        /** For jobs that render [numFrames] frames of the given [resolution] and keep [framesInFlight] in memory. */
+        fun ofFrames(resolution: Resolution, numFrames: Int, framesInFlight: Int, cpuShare: Double): RenderFootprint {
+            val pixels = resolution.widthPx.toLong() * resolution.heightPx
+            return RenderFootprint(cpuShare, pixels * BYTES_PER_PX * framesInFlight, pixels.toDouble() * numFrames)
+        }
+
+        /**
+         * For jobs that render all frames of the [video], keep [framesInFlight] in memory, and materialize them with
+         * [numBackends] backends, each of which caches large rendered chunks of the pages.
+         */
+        fun ofVideo(video: DeferredVideo, framesInFlight: Int, numBackends: Int, cpuShare: Double): RenderFootprint {
+            val frames = ofFrames(video.resolution, video.numFrames, framesInFlight, cpuShare)
+            val pageCaches = numBackends * video.estimatePageCacheBytes(BYTES_PER_PX)
+            return RenderFootprint(cpuShare, frames.memoryBytes + pageCaches, frames.work)
+        }
+
+    }
+
+}
+
+
+/**
+ * Renders the submitted jobs, possibly several at the same time. Jobs are grouped into categories, which start out
+ * paused. Among the unpaused categories, those with higher priority go first, and those with equal priority take turns
+ * so that each one gets about the same amount of work done. Within a category, jobs start in the order of submission.
+ *
+ * A job only starts alongside the already running ones if their combined [RenderFootprint]s stay within the machine's
+ * cores (with a bit of headroom for lightweight jobs) and the memory budget. The memory budget defaults to half the
+ * physical memory and can be configured in megabytes with the system property "cinecred.renderMemoryBudget". If no
+ * other job is running, a job always starts, no matter how large it is.
+ */
 object RenderQueue {
 
     private class SubmittedJob(
         val category: Any,
         val job: RenderJob,
+        val footprint: RenderFootprint,
         val progressCallback: (Int) -> Unit,
         val finishCallback: (Exception?) -> Unit
     )
 
-    private val thread: Thread
+    /**
+     * When a job is cancelled before the executor gets to it, the executor never calls [runJob], so the cancellation
+     * has to finish the job instead. Whichever of the two comes first claims the job, so it is finished exactly once.
+     */
+    private class JobTask private constructor(private val job: SubmittedJob, private val claimed: AtomicBoolean) :
+        FutureTask<Unit>({ if (claimed.compareAndSet(false, true)) runJob(job) }) {
+
+        constructor(job: SubmittedJob) : this(job, AtomicBoolean())
+
+        override fun done() {
+            if (isCancelled && claimed.compareAndSet(false, true)) {
+                markFinished(job)
+                job.finishCallback(null)
+            }
+        }
+
+    }
+
+    // Lightweight jobs may oversubscribe the cores a bit, since they would otherwise wait for hours behind a long
+    // video, but two heavy jobs must not run at the same time.
+    private const val MAX_CPU_SHARE = 1.25
+    private val MEMORY_BUDGET: Long = System.getProperty("cinecred.renderMemoryBudget")?.toLongOrNull()?.shl(20)
+        ?: (ManagementFactory.getOperatingSystemMXBean() as? com.sun.management.OperatingSystemMXBean)
+            ?.totalMemorySize?.div(2)
+        ?: Runtime.getRuntime().maxMemory()
 
-    private val willPauseCategories = ConcurrentHashMap.newKeySet<Any>()
-    private val willUnpauseCategories = LinkedBlockingQueue<Any>()
-    private val queuedJobs = ConcurrentHashMap<Any, ConcurrentLinkedQueue<SubmittedJob>>()
+    private val executor = Executors.newCachedThreadPool { runnable ->
+        Thread(runnable, "RenderQueue").apply { isDaemon = true }
+    }
+
+    private val lock = ReentrantLock()
+    private val unpausedCategories = HashSet<Any>()
+    private val priorities = HashMap<Any, Int>()
+    private val queuedJobs = HashMap<Any, ConcurrentLinkedQueue<SubmittedJob>>()
+    private val runningJobs = LinkedHashMap<SubmittedJob, Future<*>>()
+    // The work each category has started so far, which lets categories with equal priority take turns.
+    private val startedWork = HashMap<Any, Double>()
 
-    private val pollJobLock = ReentrantLock()
-    private var runningJob: SubmittedJob? = null
+    // Jobs which render in worker processes don't burden this machine, but are limited by the number of workers.
+    private var farmWorkers = System.getProperty("cinecred.renderFarmWorkers")?.toIntOrNull()?.coerceAtLeast(1) ?: 2
 
     private val prefixHistory = CopyOnWriteArrayList<Path>()
 
-    init {
-        thread = Thread({
-            while (true) {
-                val category = try {
-                    willUnpauseCategories.take()
-                } catch (_: InterruptedException) {
-                    continue
-                }
+    /** Starts as many queued jobs as currently fit. Must be called while holding the lock. */
+    private fun schedule() {
+        var usedCPUShare = 0.0
+        var usedMemory = 0L
+        var numLocalJobs = 0
+        var numFarmJobs = 0
+        for (subJob in runningJobs.keys)
+            if (subJob.job is FarmRenderJob)
+                numFarmJobs++
+            else {
+                usedCPUShare += subJob.footprint.cpuShare
+                usedMemory += subJob.footprint.memoryBytes
+                numLocalJobs++
+            }
 
-                val queue = queuedJobs[category] ?: continue
-
-                while (true) {
-                    // If the category should be paused now, continue with the next unpaused category.
-                    if (category in willPauseCategories)
-                        break
-
-                    // Get the next job from the current category's queue.
-                    val job: SubmittedJob?
-                    pollJobLock.withLock {
-                        job = queue.poll()
-                        runningJob = job
-                    }
-                    // If the queue is empty, continue with the next unpaused category.
-                    if (job == null)
-                        break
-
-                    try {
-                        // Start rendering.
-                        job.progressCallback(0)
-                        job.job.render(job.progressCallback)
-                        pollJobLock.withLock { runningJob = null }
-                        job.progressCallback(MAX_RENDER_PROGRESS)
-                        job.finishCallback(null)
-                    } catch (e: Exception) {
-                        // Note that this catch also catches InterruptedExceptions,
-                        // which occurs when a job is cancelled while it is running.
-                        pollJobLock.withLock { runningJob = null }
-                        if (e !is InterruptedException)
-                            LOGGER.error("Error while rendering", e)
-                        job.finishCallback(e)
-                    }
-                }
+        while (true) {
+            val candidates = unpausedCategories
+                .filter { queuedJobs[it]?.isEmpty() == false }
+                .sortedWith(compareBy({ -priority(it) }, { startedWork[it] ?: 0.0 }))
+            // Once a local job of some priority doesn't fit, jobs of lower priority must not overtake it, as it would
+            // otherwise starve. Jobs of the same priority may still overtake it though.
+            var blockedPriority = Int.MIN_VALUE
+            val subJob = candidates.firstNotNullOfOrNull { category ->
+                val head = queuedJobs.getValue(category).peek()
+                val fits = if (head.job is FarmRenderJob) numFarmJobs < farmWorkers else
+                    priority(category) >= blockedPriority && (numLocalJobs == 0 ||
+                            usedCPUShare + head.footprint.cpuShare <= MAX_CPU_SHARE &&
+                            usedMemory + head.footprint.memoryBytes <= MEMORY_BUDGET)
+                if (!fits && head.job !is FarmRenderJob)
+                    blockedPriority = maxOf(blockedPriority, priority(category))
+                head.takeIf { fits }
+            } ?: return
+
+            queuedJobs.getValue(subJob.category).poll()
+            startedWork[subJob.category] = (startedWork[subJob.category] ?: 0.0) + subJob.footprint.work
+            if (subJob.job is FarmRenderJob)
+                numFarmJobs++
+            else {
+                usedCPUShare += subJob.footprint.cpuShare
+                usedMemory += subJob.footprint.memoryBytes
+                numLocalJobs++
             }
-        }, "RenderQueue").apply { isDaemon = true; start() }
+            val task = JobTask(subJob)
+            runningJobs[subJob] = task
+            executor.execute(task)
+        }
+    }
+
+    private fun priority(category: Any): Int = priorities[category] ?: 0
+
+    private fun runJob(job: SubmittedJob) {
+        val startTime = System.nanoTime()
+        val startMetrics = RenderMetrics.snapshot()
+        try {
+            // Start rendering.
+            job.progressCallback(0)
+            job.job.render(job.progressCallback)
+            markFinished(job)
+            logSummary(job, "Finished", startTime, startMetrics)
+            job.progressCallback(MAX_RENDER_PROGRESS)
+            job.finishCallback(null)
+        } catch (t: Throwable) {
+            // Note that this catch also catches InterruptedExceptions,
+            // which occurs when a job is cancelled while it is running.
+            // Errors like OutOfMemoryError must finish the job as well, or it would keep its slot forever.
+            markFinished(job)
+            if (t !is InterruptedException)
+                LOGGER.error("Error while rendering", t)
+            logSummary(job, if (t is InterruptedException) "Cancelled" else "Failed", startTime, startMetrics)
+            job.finishCallback(t as? Exception ?: ExecutionException(t))
+        }
+    }
+
+    private fun logSummary(job: SubmittedJob, outcome: String, startTime: Long, startMetrics: RenderMetrics.Snapshot) {
+        // Worker processes log their own summaries.
+        if (job.job is FarmRenderJob)
+            return
+        val seconds = (System.nanoTime() - startTime) / 1e9
+        // As jobs may render concurrently, the stage metrics also include the work of other jobs running meanwhile.
+        LOGGER.info(
+            "{} render job '{}' after {} s. {}.", outcome, job.job.prefix, "%.1f".format(Locale.ROOT, seconds),
+            RenderMetrics.snapshot().summarizeSince(startMetrics)
+        )
+    }
+
+    private fun markFinished(job: SubmittedJob) {
+        lock.withLock {
+            runningJobs.remove(job)
+            forgetIdleCategory(job.category)
+            schedule()
+        }
+    }
+
+    /** When a category has nothing left to do, it must not carry its past work over to its next batch of jobs. */
+    private fun forgetIdleCategory(category: Any) {
+        if (queuedJobs[category].isNullOrEmpty() && runningJobs.keys.none { it.category == category })
+            startedWork.remove(category)
+    }
+
+    /** Sets the maximum number of [FarmRenderJob]s that render concurrently, each in its own worker process. */
+    fun setFarmWorkers(workers: Int) {
+        require(workers >= 1)
+        lock.withLock {
+            farmWorkers = workers
+            schedule()
+        }
     }
 
+    /**
+     * Jobs of categories with a higher priority start before those of categories with a lower one. Categories have
+     * priority 0 by default.
+     */
+    fun setPriority(category: Any, priority: Int) {
+        lock.withLock {
+            priorities[category] = priority
+            schedule()
+        }
+    }
+
+    /** Pausing a category only prevents its queued jobs from starting; its running jobs continue. */
     fun setPaused(category: Any, paused: Boolean) {
-        if (paused) {
-            willPauseCategories.add(category)
-            willUnpauseCategories.remove(category)
-        } else {
-            // Important that we first remove the category from willPause and then add it to willUnpause.
-            // If we did it the other way around, the category could be polled from willUnpause, but then
-            // immediately discarded again as it's still in willPause.
-            willPauseCategories.remove(category)
-            willUnpauseCategories.add(category)
+        lock.withLock {
+            if (paused)
+                unpausedCategories.remove(category)
+            else {
+                unpausedCategories.add(category)
+                // A category that comes back after a pause must not be able to claim the machine until it has caught
+                // up with the work of the categories that kept running.
+                if (category !in startedWork)
+                    startedWork.values.minOrNull()?.let { startedWork[category] = it }
+                schedule()
+            }
         }
     }
 
     fun getNumberOfRemainingJobs(): Int =
-        pollJobLock.withLock {
-            var n = 0
-            if (runningJob != null) n++
+        lock.withLock {
+            var n = runningJobs.size
             for (queue in queuedJobs.values) n += queue.size
             n
         }
 
     fun isRenderedFileOfRemainingJob(file: Path): Boolean {
-        pollJobLock.withLock {
-            runningJob?.let { if (file.startsWith(it.job.prefix)) return true }
+        lock.withLock {
+            for (job in runningJobs.keys)
+                if (file.startsWith(job.job.prefix))
+                    return true
             for (queue in queuedJobs.values)
                 for (job in queue)
                     if (file.startsWith(job.job.prefix))
@@ -126,13 +297,22 @@ object RenderQueue {
         progressCallback: (Int) -> Unit,
         finishCallback: (Exception?) -> Unit
     ) {
-        val queue = queuedJobs.computeIfAbsent(category) { ConcurrentLinkedQueue() }
-        queue.add(SubmittedJob(category, job, progressCallback, finishCallback))
-        prefixHistory.add(job.prefix)
+        val footprint = try {
+            job.footprint
+        } catch (e: Exception) {
+            LOGGER.error("Cannot estimate the footprint of a render job", e)
+            RenderFootprint.UNKNOWN
+        }
+        lock.withLock {
+            val queue = queuedJobs.computeIfAbsent(category) { ConcurrentLinkedQueue() }
+            queue.add(SubmittedJob(category, job, footprint, progressCallback, finishCallback))
+            prefixHistory.add(job.prefix)
+            schedule()
+        }
     }
 
     fun cancelJob(category: Any, job: RenderJob) {
-        pollJobLock.withLock {
+        lock.withLock {
             // If the job hasn't started yet, remove it from the queue and call its finish callback.
             queuedJobs[category]?.let { queue ->
                 queue.find { it.job == job }?.let { subJob ->
@@ -140,33 +320,40 @@ object RenderQueue {
                     subJob.finishCallback(null)
                 }
             }
-            // If the job is currently running, immediately interrupt the rendering thread.
-            if (runningJob?.job == job)
-                thread.interrupt()
+            // If the job is currently running, immediately interrupt its rendering thread.
+            // Cancelling a job that hasn't got to run yet finishes it right away, so iterate over a copy.
+            for ((subJob, future) in runningJobs.entries.toList())
+                if (subJob.job == job)
+                    future.cancel(true)
+            // The removed job might have blocked others from starting.
+            schedule()
         }
     }
 
     fun cancelAllJobs(category: Any) {
-        pollJobLock.withLock {
+        lock.withLock {
             queuedJobs[category]?.let { queue ->
                 for (subJob in queue)
                     subJob.finishCallback(null)
                 queue.clear()
             }
-            if (runningJob?.category == category)
-                thread.interrupt()
+            for ((subJob, future) in runningJobs.entries.toList())
+                if (subJob.category == category)
+                    future.cancel(true)
+            forgetIdleCategory(category)
+            schedule()
         }
     }
 
     fun cancelAllJobs() {
-        pollJobLock.withLock {
+        lock.withLock {
             for (queue in queuedJobs.values) {
                 for (subJob in queue)
                     subJob.finishCallback(null)
                 queue.clear()
             }
-            if (runningJob != null)
-                thread.interrupt()
+            for (future in runningJobs.values.toList())
+                future.cancel(true)
         }
     }
 
@@ -39,6 +39,10 @@ class TapeTimelineRenderJob private constructor(
     override val prefix: Path
         get() = file
 
+    // Writing a timeline only takes a moment.
+    override val footprint: RenderFootprint
+        get() = RenderFootprint(RenderFootprint.SINGLE_CORE, 0L, 0.0)
+
     // When exporting a timeline for the interlaced case, we scale the deferred video's FPS by 2 and later divide that
     // out again. This is necessary because:
     //   - The VideoRenderJob does the same thing.
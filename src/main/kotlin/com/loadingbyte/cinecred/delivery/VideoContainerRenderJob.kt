@@ -2,6 +2,7 @@ package com.loadingbyte.cinecred.delivery
 
 import com.formdev.flatlaf.util.SystemInfo
 import com.loadingbyte.cinecred.common.LOGGER
+import com.loadingbyte.cinecred.common.cleanDirectory
 import com.loadingbyte.cinecred.common.createDirectoriesSafely
 import com.loadingbyte.cinecred.delivery.RenderFormat.CineFormProfile.*
 import com.loadingbyte.cinecred.delivery.RenderFormat.Config
@@ -17,6 +18,7 @@ import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.PRIMARI
 import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.PRORES_PROFILE
 import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.RESOLUTION_SCALING_LOG2
 import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.SCAN
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.SEGMENTED
 import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.TRANSFER
 import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.TRANSPARENCY
 import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.YUV
@@ -43,8 +45,14 @@ import com.loadingbyte.cinecred.imaging.DeferredImage.Companion.TAPES
 import com.loadingbyte.cinecred.project.Styling
 import org.bytedeco.ffmpeg.global.avcodec.*
 import org.bytedeco.ffmpeg.global.avutil.*
+import java.io.IOException
 import java.nio.file.Path
-import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.*
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.io.path.deleteIfExists
+import kotlin.io.path.exists
+import kotlin.io.path.extension
+import kotlin.io.path.name
 import kotlin.math.pow
 
 
@@ -59,6 +67,17 @@ class VideoContainerRenderJob private constructor(
     override val prefix: Path
         get() = file
 
+    override val footprint: RenderFootprint
+        get() {
+            val scaledVideo = video.copy(2.0.pow(config[RESOLUTION_SCALING_LOG2]), config[FPS_SCALING])
+            // Each segment holds the frames in its queue, plus those which are currently materialized and encoded.
+            // Each segment also has its own backend, and with it its own cache of rendered page chunks.
+            val numSegments = numSegments(scaledVideo.numFrames)
+            val framesInFlight =
+                numSegments * (segmentQueueDepth(numSegments) + materializerParallelism(numSegments) + 1)
+            return RenderFootprint.ofVideo(scaledVideo, framesInFlight, numBackends = numSegments, 1.0)
+        }
+
     override fun render(progressCallback: (Int) -> Unit) {
         // Make sure that the parent directory exists.
         file.parent.createDirectoriesSafely()
@@ -121,23 +140,146 @@ class VideoContainerRenderJob private constructor(
                 .use { BitmapConverter.convert(it, blackWriterBitmap) }
         }
 
+        try {
+            val numFrames = scaledVideo.numFrames
+            val numSegments = numSegments(numFrames)
+            if (numSegments == 1) {
+                var doneFrames = 0
+                renderSegment(
+                    file, 0..<numFrames, settings, scaledVideo, grounding, backendSpec, writerSpec, ceiling,
+                    blackWriterBitmap, segmentQueueDepth(1), materializerParallelism(1)
+                ) { progressCallback(MAX_RENDER_PROGRESS * ++doneFrames / numFrames) }
+            } else
+                renderSegmentsAndConcat(
+                    numSegments, progressCallback, settings, scaledVideo, grounding, backendSpec, writerSpec, ceiling,
+                    blackWriterBitmap
+                )
+        } finally {
+            blackWriterBitmap?.close()
+        }
+    }
+
+    private fun numSegments(numFrames: Int): Int =
+        if (!config.getOrDefault(SEGMENTED)) 1 else
+            minOf(Runtime.getRuntime().availableProcessors() / 2, MAX_SEGMENTS, numFrames / MIN_SEGMENT_FRAMES)
+                .coerceAtLeast(1)
+
+    /** The segments share the frame queue depth, so that segmenting doesn't multiply the memory consumption. */
+    private fun segmentQueueDepth(numSegments: Int): Int =
+        (QUEUE_DEPTH / numSegments).coerceAtLeast(2)
+
+    /** When there's only a single segment, let the backend materialize frames with multiple threads. */
+    private fun materializerParallelism(numSegments: Int): Int =
+        if (numSegments > 1) 1 else (Runtime.getRuntime().availableProcessors() / 2).coerceIn(1, MAX_MATERIALIZERS)
+
+    /**
+     * Splits the video into consecutive frame ranges, renders each range into its own temporary file concurrently, and
+     * then losslessly concatenates those files into the final output file. This only works for intra-only codecs.
+     */
+    private fun renderSegmentsAndConcat(
+        numSegments: Int,
+        progressCallback: (Int) -> Unit,
+        settings: VideoWriterSettings,
+        scaledVideo: DeferredVideo,
+        grounding: Color4f?,
+        backendSpec: Bitmap.Spec,
+        writerSpec: Bitmap.Spec,
+        ceiling: Float?,
+        blackWriterBitmap: Bitmap?
+    ) {
+        val numFrames = scaledVideo.numFrames
+        val segmentDir = file.resolveSibling(".${file.name}.segments")
+        val segmentFiles = List(numSegments) { segIdx -> segmentDir.resolve("$segIdx.${file.extension}") }
+        val doneFrames = AtomicInteger()
+        val executor = Executors.newFixedThreadPool(numSegments) { Thread(it, "VideoSegmentEncoder") }
+        val futures = ArrayList<Future<Unit>>(numSegments)
+        try {
+            if (segmentDir.exists())
+                segmentDir.cleanDirectory()
+            segmentDir.createDirectoriesSafely()
+            val completion = ExecutorCompletionService<Unit>(executor)
+            for ((segIdx, segmentFile) in segmentFiles.withIndex()) {
+                val frameIndices = (numFrames * segIdx / numSegments)..<(numFrames * (segIdx + 1) / numSegments)
+                futures += completion.submit {
+                    renderSegment(
+                        segmentFile, frameIndices, settings, scaledVideo, grounding, backendSpec, writerSpec, ceiling,
+                        blackWriterBitmap, segmentQueueDepth(numSegments), materializerParallelism(numSegments)
+                    ) { progressCallback(MAX_RENDER_PROGRESS * doneFrames.incrementAndGet() / numFrames) }
+                }
+            }
+            // Wait for all segments to finish. If one of them fails, rethrow its exception right away, which in turn
+            // leads to all other segments being interrupted. By rethrowing the original exception, an FFmpegException
+            // still triggers the fallback to the next VideoWriterSettings.
+            repeat(numSegments) {
+                try {
+                    completion.take().get()
+                } catch (e: ExecutionException) {
+                    throw e.cause ?: e
+                }
+            }
+            VideoConcatenator(file, emptyMap()).use { concatenator -> segmentFiles.forEach(concatenator::append) }
+        } finally {
+            executor.shutdownNow()
+            // The segment encoders must have closed their files before we delete them. As each encoder stops soon after
+            // being interrupted, wait for them even if this thread is interrupted itself, e.g., by a cancellation.
+            var interrupted = false
+            for (future in futures)
+                while (true)
+                    try {
+                        future.get()
+                        break
+                    } catch (_: InterruptedException) {
+                        interrupted = true
+                    } catch (_: ExecutionException) {
+                        break
+                    } catch (_: CancellationException) {
+                        break
+                    }
+            if (interrupted)
+                Thread.currentThread().interrupt()
+            try {
+                if (segmentDir.exists()) {
+                    segmentDir.cleanDirectory()
+                    segmentDir.deleteIfExists()
+                }
+            } catch (e: IOException) {
+                LOGGER.error("Cannot delete the temporary segment folder '{}'.", segmentDir, e)
+            }
+        }
+    }
+
+    private fun renderSegment(
+        segmentFile: Path,
+        frameIndices: IntRange,
+        settings: VideoWriterSettings,
+        scaledVideo: DeferredVideo,
+        grounding: Color4f?,
+        backendSpec: Bitmap.Spec,
+        writerSpec: Bitmap.Spec,
+        ceiling: Float?,
+        blackWriterBitmap: Bitmap?,
+        queueDepth: Int,
+        parallelism: Int,
+        frameDone: () -> Unit
+    ) {
         // We have a second thread materialize frames into a queue, and the current thread take frames from the queue
         // and submitting them to the VideoWriter. While this doesn't give us a huge performance boost over doing
         // everything sequentially in the same thread, we gain a bit when a slow encoder (like ProRes) meets an
         // expensive-to-materialize portion of the credits (like a blend).
-        val queue = LinkedBlockingQueue<Bitmap>(32)
+        val queue = LinkedBlockingQueue<Bitmap>(queueDepth)
         val materializer = Thread({
             try {
                 DeferredVideo.BitmapBackend(
-                    scaledVideo, listOf(STATIC), listOf(TAPES), grounding, backendSpec, ceiling
+                    scaledVideo, listOf(STATIC), listOf(TAPES), grounding, backendSpec, ceiling,
+                    parallelism = parallelism
                 ).use { backend ->
-                    for (frameIdx in 0..<scaledVideo.numFrames) {
+                    for (frameIdx in frameIndices) {
                         val colorBitmap = backend.materializeFrame(frameIdx)!!
-                        if (!matte)
+                        if (blackWriterBitmap == null)
                             queue.put(colorBitmap)
                         else {
                             val matteBitmap = Bitmap.allocate(writerSpec).zero()
-                            matteBitmap.blit(blackWriterBitmap!!)
+                            matteBitmap.blit(blackWriterBitmap)
                             matteBitmap.blitComponent(colorBitmap, 3, 0)
                             colorBitmap.close()
                             queue.put(matteBitmap)
@@ -151,16 +293,16 @@ class VideoContainerRenderJob private constructor(
             }
         }, "VideoFrameMaterializer")
         VideoWriter(
-            file, writerSpec, scaledVideo.fps, settings.codecName, settings.codecProfile, settings.codecOptions,
+            segmentFile, writerSpec, scaledVideo.fps, settings.codecName, settings.codecProfile, settings.codecOptions,
             emptyMap()
         ).use { videoWriter ->
             try {
                 // Start the materializer only after the VideoWriter has been successfully created, to not waste compute
                 // when the VideoWriter creation fails and we have to fall back to other VideoWriterSettings.
                 materializer.start()
-                for (frameIdx in 0..<scaledVideo.numFrames) {
+                for (frameIdx in frameIndices) {
                     queue.take().use(videoWriter::write)
-                    progressCallback(MAX_RENDER_PROGRESS * (frameIdx + 1) / scaledVideo.numFrames)
+                    frameDone()
                     if (Thread.interrupted())
                         throw InterruptedException()
                 }
@@ -170,13 +312,16 @@ class VideoContainerRenderJob private constructor(
                 while (queue.poll()?.also(Bitmap::close) != null) continue
             }
         }
-
-        blackWriterBitmap?.close()
     }
 
 
     companion object {
 
+        private const val MAX_SEGMENTS = 16
+        private const val QUEUE_DEPTH = 32
+        private const val MIN_SEGMENT_FRAMES = 250
+        private const val MAX_MATERIALIZERS = 8
+
         val H264: RenderFormat = H26XFormat(
             "H.264", AV_CODEC_ID_H264, "libx264", AV_PROFILE_H264_HIGH, AV_PROFILE_H264_HIGH_10
         )
@@ -214,7 +359,9 @@ class VideoContainerRenderJob private constructor(
         widthMod: Int = 1,
         heightMod: Int = 1,
         minWidth: Int? = null,
-        minHeight: Int? = null
+        minHeight: Int? = null,
+        /** Intra-only codecs support rendering the video in several segments in parallel and concatenating them. */
+        intraOnly: Boolean = false
     ) : RenderFormat(
         label,
         fileSeq = false,
@@ -222,7 +369,8 @@ class VideoContainerRenderJob private constructor(
             .filter { codecId in it.supportedCodecIds }
             .flatMapTo(HashSet()) { it.extensions },
         defaultFileExt,
-        configAssortment * choice(RESOLUTION_SCALING_LOG2) * choice(FPS_SCALING),
+        (configAssortment * choice(RESOLUTION_SCALING_LOG2) * choice(FPS_SCALING))
+            .let { if (intraOnly) it * choice(SEGMENTED) else it },
         widthMod, heightMod, minWidth, minHeight
     ) {
 
@@ -274,7 +422,8 @@ class VideoContainerRenderJob private constructor(
         allTransparenciesTimesColorProps() * fixed(DEPTH, 10) * choice(SCAN) * choice(PRORES_PROFILE) -
                 fixed(TRANSPARENCY, TRANSPARENT) *
                 choice(PRORES_PROFILE, PRORES_422_PROXY, PRORES_422_LT, PRORES_422, PRORES_422_HQ),
-        widthMod = 2
+        widthMod = 2,
+        intraOnly = true
     ) {
         override fun videoWriterSettings(config: Config): List<VideoWriterSettings> {
             val profile = config[PRORES_PROFILE]
@@ -311,7 +460,8 @@ class VideoContainerRenderJob private constructor(
                 (choice(DNXHR_PROFILE, DNXHR_LB, DNXHR_SQ, DNXHR_HQ) * fixed(DEPTH, 8) +
                         choice(DNXHR_PROFILE, DNXHR_HQX, DNXHR_444) * fixed(DEPTH, 10)),
         minWidth = 256,
-        minHeight = 120
+        minHeight = 120,
+        intraOnly = true
     ) {
         override fun videoWriterSettings(config: Config): List<VideoWriterSettings> {
             val profile = config[DNXHR_PROFILE]
@@ -341,7 +491,8 @@ class VideoContainerRenderJob private constructor(
                 choice(CINEFORM_PROFILE, CF_444_LOW, CF_444_MED, CF_444_HI, CF_444_FILM1, CF_444_FILM2, CF_444_FILM3),
         widthMod = 16,
         heightMod = 8,
-        minHeight = 32
+        minHeight = 32,
+        intraOnly = true
     ) {
         override fun videoWriterSettings(config: Config): List<VideoWriterSettings> {
             val profile = config[CINEFORM_PROFILE]
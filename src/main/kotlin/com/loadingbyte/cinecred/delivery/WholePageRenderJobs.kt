@@ -62,6 +62,17 @@ class WholePageSequenceRenderJob private constructor(
     override val prefix: Path
         get() = dir
 
+    // Pages are rendered one band after the other on a single thread.
+    override val footprint: RenderFootprint
+        get() {
+            val scaling = 2.0.pow(config[RESOLUTION_SCALING_LOG2])
+            val width = (pageDefImages.maxOfOrNull { it.width } ?: 0.0) * scaling
+            val height = pageDefImages.sumOf { it.height.resolve() } * scaling
+            val bandRes = Resolution(width.roundToInt(), BAND_HEIGHT)
+            val numBands = (height / BAND_HEIGHT).roundToInt()
+            return RenderFootprint.ofFrames(bandRes, numBands, framesInFlight = 2, RenderFootprint.SINGLE_CORE)
+        }
+
     override fun render(progressCallback: (Int) -> Unit) {
         if (dir.exists())
             dir.cleanDirectory()
@@ -94,20 +105,30 @@ class WholePageSequenceRenderJob private constructor(
 
             when (format) {
                 PNG, TIFF, DPX, EXR -> {
-                    val res = Resolution(pageWidth, pageHeight)
+                    // Materialize and write the page in horizontal bands so that the memory consumption doesn't
+                    // scale with the page height, which can become enormous for long scrolling pages.
                     val rep = Canvas.compatibleRepresentation(ColorSpace.of(colorSpace?.primaries ?: BT709, BLENDING))
-                    Bitmap.allocate(Bitmap.Spec(res, rep)).use { bitmap ->
-                        Canvas.forBitmap(bitmap, ceiling).use { canvas ->
-                            if (ground) canvas.fill(Canvas.Shader.Solid(global.grounding)) else bitmap.zero()
-                            pageDefImage.materialize(canvas, cache = null, layers = listOf(STATIC, TAPES))
-                        }
-                        if (!matte)
-                            bitmapWriter!!.convertAndWrite(bitmap, pageFile, promiseOpaque = !embedAlpha)
-                        else {
-                            val matteRep = Bitmap.Representation(Bitmap.PixelFormat.of(AV_PIX_FMT_GRAYF32))
-                            Bitmap.allocate(Bitmap.Spec(res, matteRep)).use { matteBitmap ->
-                                matteBitmap.blitComponent(bitmap, 3, 0)
-                                bitmapWriter!!.convertAndWrite(matteBitmap, pageFile, promiseOpaque = true)
+                    val matteRep = Bitmap.Representation(Bitmap.PixelFormat.of(AV_PIX_FMT_GRAYF32))
+                    val res = Resolution(pageWidth, pageHeight)
+                    // The bands share the native paths of the page's shapes, which are freed once the page is done.
+                    DeferredImage.CanvasMaterializationCache().use { cache ->
+                        bitmapWriter!!.writeBanded(res, pageFile, BAND_HEIGHT) { bandY, bandHeight ->
+                            val bandRes = Resolution(pageWidth, bandHeight)
+                            val bandDefImage = DeferredImage(pageDefImage.width, bandHeight.toDouble().toY()).apply {
+                                drawDeferredImage(pageDefImage, y = (-bandY).toDouble().toY())
+                            }
+                            Bitmap.allocate(Bitmap.Spec(bandRes, rep)).use { bitmap ->
+                                Canvas.forBitmap(bitmap, ceiling).use { canvas ->
+                                    if (ground) canvas.fill(Canvas.Shader.Solid(global.grounding)) else bitmap.zero()
+                                    bandDefImage.materialize(canvas, cache, layers = listOf(STATIC, TAPES))
+                                }
+                                if (!matte)
+                                    convert(bitmap, bitmapWriter, promiseOpaque = !embedAlpha)
+                                else
+                                    Bitmap.allocate(Bitmap.Spec(bandRes, matteRep)).use { matteBitmap ->
+                                        matteBitmap.blitComponent(bitmap, 3, 0)
+                                        convert(matteBitmap, bitmapWriter, promiseOpaque = true)
+                                    }
                             }
                         }
                     }
@@ -152,9 +173,23 @@ class WholePageSequenceRenderJob private constructor(
         }
     }
 
+    private fun convert(bitmap: Bitmap, writer: BitmapWriter, promiseOpaque: Boolean): Bitmap {
+        val converted = Bitmap.allocate(bitmap.spec.copy(representation = writer.representation))
+        try {
+            BitmapConverter.convert(bitmap, converted, promiseOpaque = promiseOpaque)
+        } catch (t: Throwable) {
+            converted.close()
+            throw t
+        }
+        return converted
+    }
+
 
     companion object {
 
+        /** The number of lines that are materialized at once; a multiple of [BitmapWriter.BAND_HEIGHT_MULTIPLE]. */
+        private const val BAND_HEIGHT = 512
+
         private val PNG = Format(
             "png",
             transparencyTimesColorSpace(default = SRGB) * choice(DEPTH, 8, 16)
@@ -217,6 +252,13 @@ class WholePagePDFRenderJob private constructor(
     override val prefix: Path
         get() = file
 
+    override val footprint: RenderFootprint
+        get() {
+            val scaling = 2.0.pow(config[RESOLUTION_SCALING_LOG2])
+            val pixels = pageDefImages.sumOf { it.width * it.height.resolve() } * scaling * scaling
+            return RenderFootprint(RenderFootprint.SINGLE_CORE, 0L, pixels)
+        }
+
     override fun render(progressCallback: (Int) -> Unit) {
         file.deleteIfExists()
         file.parent.createDirectoriesSafely()
@@ -39,6 +39,17 @@ fun drawBlocks(
 }
 
 
+/** Whether the head or tail of a block with this style might harmonize its width with those of other blocks. */
+fun ContentStyle.headOrTailMatchesAcrossBlocks(): Boolean =
+    headMatchesWidthAcrossBlocks() || tailMatchesWidthAcrossBlocks()
+
+private fun ContentStyle.headMatchesWidthAcrossBlocks() =
+    blockOrientation == HORIZONTAL && !headForceWidthPx.isActive && headMatchWidth == ACROSS_BLOCKS
+
+private fun ContentStyle.tailMatchesWidthAcrossBlocks() =
+    blockOrientation == HORIZONTAL && !tailForceWidthPx.isActive && tailMatchWidth == ACROSS_BLOCKS
+
+
 private fun drawHorizontalBlocks(
     out: MutableMap<Block, DrawnBlock>,
     styling: Styling,
@@ -53,10 +64,10 @@ private fun drawHorizontalBlocks(
     // width), find which styles should harmonize together.
     val cs = styling.contentStyles
     val matchHeadWidthPartitionIds = partitionToTransitiveClosures(cs, ContentStyle::headMatchWidthAcrossStyles) {
-        blockOrientation == HORIZONTAL && !headForceWidthPx.isActive && headMatchWidth == ACROSS_BLOCKS
+        headMatchesWidthAcrossBlocks()
     }
     val matchTailWidthPartitionIds = partitionToTransitiveClosures(cs, ContentStyle::tailMatchWidthAcrossStyles) {
-        blockOrientation == HORIZONTAL && !tailForceWidthPx.isActive && tailMatchWidth == ACROSS_BLOCKS
+        tailMatchesWidthAcrossBlocks()
     }
 
     // Determine the groups of blocks which should share the same head/tail width, and of course also find those widths.
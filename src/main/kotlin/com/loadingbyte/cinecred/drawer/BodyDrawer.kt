@@ -72,6 +72,24 @@ fun drawBodies(
 }
 
 
+/** Whether the body of a block with this style might harmonize some extent with the bodies of other blocks. */
+fun ContentStyle.bodyMatchesAcrossBlocks(): Boolean =
+    gridMatchesColWidthsAcrossBlocks() || gridMatchesRowHeightAcrossBlocks() ||
+            flowMatchesCellWidthAcrossBlocks() || flowMatchesCellHeightAcrossBlocks()
+
+private fun ContentStyle.gridMatchesColWidthsAcrossBlocks() =
+    bodyLayout == GRID && !gridForceColWidthPx.isActive && gridMatchColWidths == ACROSS_BLOCKS
+
+private fun ContentStyle.gridMatchesRowHeightAcrossBlocks() =
+    bodyLayout == GRID && !gridForceRowHeightPx.isActive && gridMatchRowHeight == ACROSS_BLOCKS
+
+private fun ContentStyle.flowMatchesCellWidthAcrossBlocks() =
+    bodyLayout == FLOW && !flowForceCellWidthPx.isActive && flowMatchCellWidth == ACROSS_BLOCKS
+
+private fun ContentStyle.flowMatchesCellHeightAcrossBlocks() =
+    bodyLayout == FLOW && !flowForceCellHeightPx.isActive && flowMatchCellHeight == ACROSS_BLOCKS
+
+
 private fun drawBodyImagesWithGridBodyLayout(
     out: MutableMap<Block, DrawnBody>,
     styling: Styling,
@@ -93,10 +111,10 @@ private fun drawBodyImagesWithGridBodyLayout(
     // (i.e., col widths and row height), find which styles should harmonize together.
     val cs = styling.contentStyles
     val matchColWidthsPartitionIds = partitionToTransitiveClosures(cs, ContentStyle::gridMatchColWidthsAcrossStyles) {
-        bodyLayout == GRID && !gridForceColWidthPx.isActive && gridMatchColWidths == ACROSS_BLOCKS
+        gridMatchesColWidthsAcrossBlocks()
     }
     val matchRowHeightPartitionIds = partitionToTransitiveClosures(cs, ContentStyle::gridMatchRowHeightAcrossStyles) {
-        bodyLayout == GRID && !gridForceRowHeightPx.isActive && gridMatchRowHeight == ACROSS_BLOCKS
+        gridMatchesRowHeightAcrossBlocks()
     }
 
     // Determine the groups of blocks which should share the same column widths (for simplicity of implementation, this
@@ -330,10 +348,10 @@ private fun drawBodyImagesWithFlowBodyLayout(
     // harmonized (i.e., cell width and height), find which styles should harmonize together.
     val cs = styling.contentStyles
     val matchCellWidthPartitionIds = partitionToTransitiveClosures(cs, ContentStyle::flowMatchCellWidthAcrossStyles) {
-        bodyLayout == FLOW && !flowForceCellWidthPx.isActive && flowMatchCellWidth == ACROSS_BLOCKS
+        flowMatchesCellWidthAcrossBlocks()
     }
     val matchCellHeightPartitionIds = partitionToTransitiveClosures(cs, ContentStyle::flowMatchCellHeightAcrossStyles) {
-        bodyLayout == FLOW && !flowForceCellHeightPx.isActive && flowMatchCellHeight == ACROSS_BLOCKS
+        flowMatchesCellHeightAcrossBlocks()
     }
 
     // Determine the blocks which have uniform cell width, optionally shared across multiple blocks, and then find
@@ -2,6 +2,7 @@ package com.loadingbyte.cinecred.drawer
 
 import com.loadingbyte.cinecred.common.Resolution
 import com.loadingbyte.cinecred.common.formatTimecode
+import com.loadingbyte.cinecred.common.parallelMap
 import com.loadingbyte.cinecred.imaging.DeferredImage
 import com.loadingbyte.cinecred.imaging.DeferredImage.Companion.GUIDES
 import com.loadingbyte.cinecred.imaging.FormattedString
@@ -23,7 +24,11 @@ import kotlin.math.floor
 private class StageLayout(val y: Y, val info: DrawnStageInfo)
 
 
-fun drawPages(project: Project, credits: Credits): List<DrawnPage> {
+/**
+ * @param blockMemo If given, blocks whose drawing can't have changed since the last call with the same memo are taken
+ *     over from that call instead of being drawn anew.
+ */
+fun drawPages(project: Project, credits: Credits, blockMemo: BlockDrawingMemo? = null): List<DrawnPage> {
     val styling = project.styling
     val global = styling.global
 
@@ -40,17 +45,22 @@ fun drawPages(project: Project, credits: Credits): List<DrawnPage> {
                     for (spine in compound.spines)
                         addAll(spine.blocks)
     }
-    val drawnBodies = drawBodies(styling, blocks)
-    val drawnBlocks = drawBlocks(styling, drawnBodies, blocks)
+    val drawnBlocks = if (blockMemo != null) blockMemo.draw(styling, blocks) else
+        drawBlocks(styling, drawBodies(styling, blocks), blocks)
 
     // Generate a stage image for each stage. These stage images already contain the vertical gaps between the stages.
+    // As the blocks have already been harmonized, the stages are independent and can hence be drawn in parallel.
     var drawnStages: MutableMap<Stage, DrawnStage> = HashMap()
-    for (page in pages)
-        for ((stageIdx, stage) in page.stages.withIndex()) {
-            val prevStage = page.stages.getOrNull(stageIdx - 1)
-            val nextStage = page.stages.getOrNull(stageIdx + 1)
-            drawnStages[stage] = drawStage(global.resolution, drawnBlocks, stage, prevStage, nextStage)
-        }
+    val stageNeighbors = buildList {
+        for (page in pages)
+            for ((stageIdx, stage) in page.stages.withIndex())
+                add(Triple(stage, page.stages.getOrNull(stageIdx - 1), page.stages.getOrNull(stageIdx + 1)))
+    }
+    val stageImages = stageNeighbors.parallelMap { (stage, prevStage, nextStage) ->
+        drawStage(global.resolution, drawnBlocks, stage, prevStage, nextStage)
+    }
+    for ((idx, drawnStage) in stageImages.withIndex())
+        drawnStages[stageNeighbors[idx].first] = drawnStage
 
     // If requested, adjust some vertical gaps to best match a specified runtime.
     if (runtimeGroups.isNotEmpty() || global.runtimeFrames.isActive) {
@@ -64,7 +74,7 @@ fun drawPages(project: Project, credits: Credits): List<DrawnPage> {
 
     // Finally, do the real layout pass with potentially changed stage images and combine the stage images
     // to page images.
-    return pages.map { page ->
+    return pages.parallelMap { page ->
         val (pageImageHeight, stageLayouts) = layoutStages(global.resolution, drawnStages, page)
         val pageImage = drawPage(global, drawnStages, stageLayouts, page, pageImageHeight)
         DrawnPage(page, pageImage, stageLayouts.values.map(StageLayout::info).toPersistentList())
@@ -72,6 +82,112 @@ fun drawPages(project: Project, credits: Credits): List<DrawnPage> {
 }
 
 
+/**
+ * Remembers the drawn blocks of one credits spreadsheet across calls of [drawPages]. A block is taken over when the
+ * block itself, the global settings, and all letter styles its drawing looks up by name or inherits layers from are
+ * still the very same objects. As the projectio's rebindCredits() keeps blocks whose styles are unchanged, editing one
+ * style only draws the blocks that depend on it anew. Blocks that harmonize extents with other blocks are only taken
+ * over all together, namely when none of them and none of the content styles have changed.
+ */
+class BlockDrawingMemo {
+
+    private class Entry(val deps: List<Any>, val drawnBlock: DrawnBlock)
+
+    private class Harmonized(
+        val contentStyles: List<ContentStyle>,
+        val blocks: List<Block>,
+        val deps: List<List<Any>>,
+        val drawnBlocks: Map<Block, DrawnBlock>
+    )
+
+    @Volatile private var entries: Map<Block, Entry> = emptyMap()
+    @Volatile private var harmonized: Harmonized? = null
+
+    fun draw(styling: Styling, blocks: List<Block>): Map<Block, DrawnBlock> {
+        val letterStylesByName = HashMap<String, LetterStyle>()
+        for (style in styling.letterStyles)
+            letterStylesByName.putIfAbsent(style.name, style)
+
+        val prevEntries = entries
+        val prevHarmonized = harmonized
+        val depsPerBlock = blocks.associateWith { block -> collectDeps(styling, letterStylesByName, block) }
+        val harmonizedBlocks = blocks.filter { block ->
+            block.style.bodyMatchesAcrossBlocks() || block.style.headOrTailMatchesAcrossBlocks()
+        }
+        val harmonizedDeps = harmonizedBlocks.map(depsPerBlock::getValue)
+        val reuseHarmonized = prevHarmonized != null && prevHarmonized.contentStyles === styling.contentStyles &&
+                sameObjects(prevHarmonized.blocks, harmonizedBlocks) &&
+                prevHarmonized.deps.size == harmonizedDeps.size &&
+                prevHarmonized.deps.indices.all { i -> sameObjects(prevHarmonized.deps[i], harmonizedDeps[i]) }
+
+        val drawnBlocks = HashMap<Block, DrawnBlock>(2 * blocks.size)
+        val toDraw = mutableListOf<Block>()
+        if (reuseHarmonized)
+            drawnBlocks.putAll(prevHarmonized!!.drawnBlocks)
+        else
+            toDraw.addAll(harmonizedBlocks)
+        val harmonizedSet = Collections.newSetFromMap(IdentityHashMap<Block, Boolean>())
+        harmonizedSet.addAll(harmonizedBlocks)
+        for (block in blocks) {
+            if (block in harmonizedSet)
+                continue
+            val entry = prevEntries[block]
+            if (entry != null && sameObjects(entry.deps, depsPerBlock.getValue(block)))
+                drawnBlocks[block] = entry.drawnBlock
+            else
+                toDraw.add(block)
+        }
+        // The blocks that need to be drawn don't harmonize with any of the taken over ones, so they can be drawn alone.
+        if (toDraw.isNotEmpty())
+            drawnBlocks.putAll(drawBlocks(styling, drawBodies(styling, toDraw), toDraw))
+
+        entries = blocks.filter { it !in harmonizedSet }
+            .associateWith { block -> Entry(depsPerBlock.getValue(block), drawnBlocks.getValue(block)) }
+        val harmonizedDrawnBlocks = harmonizedBlocks.associateWith(drawnBlocks::getValue)
+        harmonized = Harmonized(styling.contentStyles, harmonizedBlocks, harmonizedDeps, harmonizedDrawnBlocks)
+        return drawnBlocks
+    }
+
+    private fun collectDeps(styling: Styling, letterStylesByName: Map<String, LetterStyle>, block: Block): List<Any> {
+        val deps = mutableListOf<Any>(styling.global)
+        val seen = Collections.newSetFromMap(IdentityHashMap<LetterStyle, Boolean>())
+        fun add(letterStyle: LetterStyle?) {
+            // Follow the inheritance chain, but bound its length to not get stuck in cycles.
+            var cur = letterStyle
+            for (i in 0..styling.letterStyles.size) {
+                if (cur == null || !seen.add(cur))
+                    break
+                deps.add(cur)
+                cur = if (!cur.inheritLayersFromStyle.isActive) null else
+                    letterStylesByName[cur.inheritLayersFromStyle.value]
+            }
+        }
+        val style = block.style
+        for (name in arrayOf(style.bodyLetterStyleName, style.headLetterStyleName, style.tailLetterStyleName))
+            add(letterStylesByName[name])
+        val optNames = arrayOf(
+            style.flowSeparatorLetterStyleName, style.headLeaderLetterStyleName, style.tailLeaderLetterStyleName
+        )
+        for (optName in optNames)
+            if (optName.isActive)
+                add(letterStylesByName[optName.value])
+        block.head?.forEach { str -> str.forEach { (_, sty) -> add(sty) } }
+        block.tail?.forEach { str -> str.forEach { (_, sty) -> add(sty) } }
+        for (bodyElem in block.body)
+            when (bodyElem) {
+                is BodyElement.Nil -> add(bodyElem.sty)
+                is BodyElement.Str -> bodyElem.lines.forEach { str -> str.forEach { (_, sty) -> add(sty) } }
+                is BodyElement.Pic, is BodyElement.Tap, BodyElement.Mis -> {}
+            }
+        return deps
+    }
+
+    private fun sameObjects(a: List<Any>, b: List<Any>): Boolean =
+        a.size == b.size && a.indices.all { i -> a[i] === b[i] }
+
+}
+
+
 private fun layoutStages(
     resolution: Resolution,
     drawnStages: Map<Stage, DrawnStage>,
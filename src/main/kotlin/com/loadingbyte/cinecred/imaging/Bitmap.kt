@@ -4,12 +4,16 @@ import com.loadingbyte.cinecred.common.CLEANER
 import com.loadingbyte.cinecred.common.Resolution
 import com.loadingbyte.cinecred.common.ceilDiv
 import com.loadingbyte.cinecred.imaging.Bitmap.Spec
+import com.loadingbyte.cinecred.imaging.RenderMetrics.Gauge.FRAME_POOL_OUTSTANDING_BYTES
+import com.loadingbyte.cinecred.imaging.RenderMetrics.Gauge.FRAME_POOL_POOLED_BYTES
 import jdk.incubator.vector.FloatVector
 import org.bytedeco.ffmpeg.avutil.AVFrame
 import org.bytedeco.ffmpeg.avutil.AVFrame.AV_NUM_DATA_POINTERS
 import org.bytedeco.ffmpeg.global.avutil.*
 import org.bytedeco.javacpp.BytePointer
 import java.lang.Byte.toUnsignedInt
+import java.lang.Float.float16ToFloat
+import java.lang.Float.floatToFloat16
 import java.lang.Short.toUnsignedInt
 import java.lang.foreign.Arena
 import java.lang.foreign.MemorySegment
@@ -17,6 +21,7 @@ import java.lang.foreign.ValueLayout
 import java.lang.foreign.ValueLayout.*
 import java.nio.ByteOrder
 import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicLong
 import java.util.concurrent.atomic.AtomicReferenceArray
 import kotlin.math.max
 
@@ -30,6 +35,9 @@ import kotlin.math.max
  * Bitmaps are memory-managed by the garbage collector. However, as the off-heap memory is potentially invisible to the
  * GC, it greatly underestimates the memory consumption of bitmaps and hence frees them very late. As such, it is highly
  * advised to manually free bitmaps by calling [close].
+ *
+ * Frames of bitmaps created via [allocate] and [allocateContiguous] are returned to a pool when they are closed, so
+ * that the next allocation with the same layout can reuse the buffer instead of going through the native allocator.
  */
 class Bitmap private constructor(
     val spec: Spec,
@@ -37,22 +45,27 @@ class Bitmap private constructor(
      * The underlying [AVFrame]. Only access it while in an [ifNotClosed] or [requireNotClosed] block. And if possible,
      * please use [memorySegment] and [linesize] instead.
      */
-    val frame: AVFrame
+    val frame: AVFrame,
+    poolKey: FramePool.Key? = null
 ) : AutoCloseable {
 
     private val arena = Arena.ofShared()
     private val closureListeners = CopyOnWriteArrayList<Runnable>()
-    private val cleanable = CLEANER.register(this, CleanerAction(frame, arena, closureListeners))
+    private val cleanable = CLEANER.register(this, CleanerAction(frame, arena, closureListeners, poolKey))
 
     // Use a static class to absolutely ensure that no unwanted references leak into this object.
     private class CleanerAction(
-        private val frame: AVFrame, private val arena: Arena, private val listeners: List<Runnable>
+        private val frame: AVFrame,
+        private val arena: Arena,
+        private val listeners: List<Runnable>,
+        private val poolKey: FramePool.Key?
     ) : Runnable {
         override fun run() {
             listeners.forEach(Runnable::run)
             // Close the arena first, so that access to memory segments is prohibited before we free the memory.
             arena.close()
-            av_frame_free(frame)
+            if (poolKey == null || !FramePool.offer(poolKey, frame))
+                av_frame_free(frame)
         }
     }
 
@@ -253,9 +266,15 @@ class Bitmap private constructor(
     /** Clamps the color values of float bitmaps to [0, ceiling]. Assumes that alpha values are already in [0, 1]. */
     fun clampFloatColors(ceiling: Float? = 1f, promiseOpaque: Boolean = false) {
         val pixelFormat = spec.representation.pixelFormat
-        check(pixelFormat.isFloat && pixelFormat.depth == 32) { "Can only clamp float32 bitmaps." }
+        check(pixelFormat.isFloat && (pixelFormat.depth == 32 || pixelFormat.depth == 16)) {
+            "Can only clamp float32 and float16 bitmaps."
+        }
         check(isAligned) { "Can only clamp aligned bitmaps." }
         require(ceiling == null || ceiling >= 1f) { "Cannot clamp to a ceiling < 1." }
+        if (pixelFormat.depth == 16) {
+            clampHalfFloatColors(ceiling, promiseOpaque)
+            return
+        }
         val (w, h) = spec.resolution
         val bo = pixelFormat.byteOrder
         val ls = linesize(0)
@@ -315,6 +334,38 @@ class Bitmap private constructor(
         }
     }
 
+    /**
+     * The Vector API doesn't offer half-float conversions, so we resort to scalar code. As half-float bitmaps are only
+     * used when trading precision for memory, this is acceptable.
+     */
+    private fun clampHalfFloatColors(ceiling: Float?, promiseOpaque: Boolean) {
+        val pixelFormat = spec.representation.pixelFormat
+        val (w, h) = spec.resolution
+        val layout = JAVA_SHORT_UNALIGNED.withOrder(pixelFormat.byteOrder)
+        val colorComps = pixelFormat.components.subList(0, 3)
+        val colorSegs = Array(3) { memorySegment(colorComps[it].plane) }
+        val alphaComp = if (ceiling == null || !pixelFormat.hasAlpha || promiseOpaque) null else
+            pixelFormat.components[3]
+        val alphaSeg = alphaComp?.let { memorySegment(it.plane) }
+        val ls = linesize(0).toLong()
+        for (y in 0L..<h.toLong())
+            for (x in 0L..<w.toLong()) {
+                val limit = when {
+                    ceiling == null -> Float.MAX_VALUE
+                    alphaComp == null -> ceiling
+                    else -> float16ToFloat(alphaSeg!!.get(layout, y * ls + x * alphaComp.step + alphaComp.offset)) *
+                            ceiling
+                }
+                for (c in 0..<3) {
+                    val comp = colorComps[c]
+                    val idx = y * ls + x * comp.step + comp.offset
+                    val v = float16ToFloat(colorSegs[c].get(layout, idx))
+                    if (!(v >= 0f && v <= limit))
+                        colorSegs[c].set(layout, idx, floatToFloat16(if (v > limit) limit else 0f))
+                }
+            }
+    }
+
     fun blit(src: Bitmap) {
         val srcSpecRes = src.spec.resolution
         blit(src, 0, 0, srcSpecRes.widthPx, srcSpecRes.heightPx, 0, 0, 1)
@@ -517,24 +568,39 @@ class Bitmap private constructor(
          * Allocates a new bitmap with an [aligned][isAligned] buffer following the given spec. Be aware that the
          * content of the bitmap is undefined; if you need it to be zeroed, use [zero].
          */
-        fun allocate(spec: Spec): Bitmap {
-            return allocateWithoutBufAndSetup(spec) { frame ->
-                // Allocate the buffer.
-                av_frame_get_buffer(frame, BYTE_ALIGNMENT)
-                    .ffmpegThrowIfErrnum("Could not allocate frame buffer")
-            }
-        }
+        fun allocate(spec: Spec): Bitmap =
+            allocatePooled(spec, BYTE_ALIGNMENT)
 
         /**
          * Allocates a bitmap with a contiguous buffer, i.e., without padding, following the given spec. Be aware that
          * the content of the bitmap is undefined; if you need it to be zeroed, use [zero].
          */
-        fun allocateContiguous(spec: Spec): Bitmap {
-            return allocateWithoutBufAndSetup(spec) { frame ->
+        fun allocateContiguous(spec: Spec): Bitmap =
+            allocatePooled(spec, 1)
+
+        private fun allocatePooled(spec: Spec, align: Int): Bitmap {
+            val res = spec.resolution
+            val poolKey = FramePool.Key(spec.representation.pixelFormat.code, res.widthPx, res.heightPx, align)
+            val pooledFrame = FramePool.poll(poolKey)
+            if (pooledFrame != null) {
+                // The frame might have been used with a different scan or color space, so overwrite everything.
+                pooledFrame.pts(AV_NOPTS_VALUE)
+                applySpecToFrame(spec, pooledFrame)
+                return Bitmap(spec, pooledFrame, poolKey)
+            }
+            val frame = av_frame_alloc()
+                .ffmpegThrowIfNull("Could not allocate frame struct")
+            try {
+                applySpecToFrame(spec, frame)
                 // Allocate the buffer.
-                av_frame_get_buffer(frame, 1)
+                av_frame_get_buffer(frame, align)
                     .ffmpegThrowIfErrnum("Could not allocate frame buffer")
+            } catch (t: Throwable) {
+                av_frame_free(frame)
+                throw t
             }
+            FramePool.checkOut(FramePool.bytesOf(frame))
+            return Bitmap(spec, frame, poolKey)
         }
 
         private inline fun allocateWithoutBufAndSetup(spec: Spec, setup: (AVFrame) -> Unit): Bitmap {
@@ -579,6 +645,9 @@ class Bitmap private constructor(
                 if (spec.scan != Scan.PROGRESSIVE) {
                     interlaced_frame(1)
                     top_field_first(if (spec.scan == Scan.INTERLACED_TOP_FIELD_FIRST) 1 else 0)
+                } else {
+                    interlaced_frame(0)
+                    top_field_first(0)
                 }
             }
         }
@@ -599,6 +668,89 @@ class Bitmap private constructor(
     }
 
 
+    /**
+     * Keeps the frames of closed bitmaps around, keyed by their buffer layout. The pool is bounded by the total number
+     * of bytes it holds; when a returned frame doesn't fit anymore, the least recently returned frames are freed. Hits
+     * and misses are reported to the [RenderMetrics], and so are the bytes held by the pool and by the live bitmaps
+     * whose frames will be offered to it, as the sum of both is the memory footprint the pool is responsible for.
+     */
+    private object FramePool {
+
+        data class Key(val pixelFormatCode: Int, val width: Int, val height: Int, val align: Int)
+
+        private class Entry(val key: Key, val frame: AVFrame, val bytes: Long)
+
+        private const val MAX_POOLED_BYTES = 512L * 1024 * 1024
+        // More frames of one layout are rarely in flight at the same time, even during parallel materialization.
+        private const val MAX_FRAMES_PER_KEY = 16
+
+        private val entries = LinkedHashMap<Key, ArrayDeque<Entry>>()
+        private val returnOrder = ArrayDeque<Entry>()
+        private var pooledBytes = 0L
+        private val outstandingBytes = AtomicLong()
+
+        fun bytesOf(frame: AVFrame): Long {
+            var bytes = 0L
+            for (i in 0..<AV_NUM_DATA_POINTERS)
+                bytes += (frame.buf(i) ?: break).size()
+            return bytes
+        }
+
+        /** Must be called when a newly allocated frame is handed to a bitmap that will later [offer] it. */
+        fun checkOut(bytes: Long) {
+            RenderMetrics.recordGauge(FRAME_POOL_OUTSTANDING_BYTES, outstandingBytes.addAndGet(bytes))
+        }
+
+        fun poll(key: Key): AVFrame? {
+            val entry = synchronized(this) {
+                entries[key]?.removeLastOrNull()?.also { entry ->
+                    returnOrder.remove(entry)
+                    pooledBytes -= entry.bytes
+                    RenderMetrics.recordGauge(FRAME_POOL_POOLED_BYTES, pooledBytes)
+                }
+            }
+            RenderMetrics.recordCacheAccess(RenderMetrics.Cache.FRAME_POOL, entry != null)
+            if (entry != null)
+                checkOut(entry.bytes)
+            return entry?.frame
+        }
+
+        /** Returns false if the frame was not taken into the pool, in which case the caller must free it. */
+        fun offer(key: Key, frame: AVFrame): Boolean {
+            val bytes = bytesOf(frame)
+            RenderMetrics.recordGauge(FRAME_POOL_OUTSTANDING_BYTES, outstandingBytes.addAndGet(-bytes))
+            // Only take the frame if nobody else references its buffers, and if FFmpeg didn't attach anything to it.
+            for (i in 0..<AV_NUM_DATA_POINTERS)
+                if (av_buffer_is_writable(frame.buf(i) ?: break) == 0)
+                    return false
+            if (bytes == 0L || bytes > MAX_POOLED_BYTES || frame.nb_side_data() != 0 || frame.hw_frames_ctx() != null)
+                return false
+            val evicted = mutableListOf<AVFrame>()
+            synchronized(this) {
+                val queue = entries.getOrPut(key, ::ArrayDeque)
+                if (queue.size >= MAX_FRAMES_PER_KEY)
+                    return false
+                while (pooledBytes + bytes > MAX_POOLED_BYTES) {
+                    val old = returnOrder.removeFirst()
+                    entries.getValue(old.key).remove(old)
+                    pooledBytes -= old.bytes
+                    evicted += old.frame
+                }
+                val entry = Entry(key, frame, bytes)
+                queue.addLast(entry)
+                returnOrder.addLast(entry)
+                pooledBytes += bytes
+                RenderMetrics.recordGauge(FRAME_POOL_POOLED_BYTES, pooledBytes)
+            }
+            // Free the evicted frames outside the lock.
+            for (evictedFrame in evicted)
+                av_frame_free(evictedFrame)
+            return true
+        }
+
+    }
+
+
     data class Spec(
         val resolution: Resolution,
         val representation: Representation,
@@ -37,6 +37,8 @@ import java.lang.foreign.MemorySegment.NULL
 import java.lang.foreign.ValueLayout.*
 import java.lang.invoke.VarHandle
 import java.nio.ByteOrder
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
 import kotlin.math.max
 import kotlin.math.min
 import jdk.incubator.vector.ByteVector.SPECIES_PREFERRED as B
@@ -54,6 +56,10 @@ import jdk.incubator.vector.ShortVector.fromMemorySegment as vec
  * @param promiseOpaque Assumes that the source alpha channel is 1 everywhere. This admits certain optimizations.
  * @param approxTransfer Use faster, but less precise transfer characteristics conversion.
  * @param nearestNeighbor Use very fast nearest neighbor scaling.
+ * @param threads If larger than 1, the bitmaps are split into that many horizontal bands, which are converted
+ *     concurrently by separate pipelines. This is only done when every line of the output solely depends on the same
+ *     line of the input, that is, when there is no scaling, no interlacing, and no vertical chroma subsampling.
+ *     Otherwise, the parameter is ignored.
  */
 class BitmapConverter(
     private val srcSpec: Bitmap.Spec,
@@ -62,7 +68,8 @@ class BitmapConverter(
     private val dstAligned: Boolean = true,
     promiseOpaque: Boolean = false,
     approxTransfer: Boolean = false,
-    nearestNeighbor: Boolean = false
+    nearestNeighbor: Boolean = false,
+    threads: Int = 1
 ) : AutoCloseable {
 
     private val stages = mutableListOf<Stage>()
@@ -79,6 +86,9 @@ class BitmapConverter(
     private val closureProtector = ClosureProtector()
     private val effSpecs: List<Bitmap.Spec>
     private val intermediates = mutableListOf<Bitmap>()
+    private val bands: List<Band>?
+
+    private class Band(val y: Int, val height: Int, val converter: BitmapConverter)
 
     init {
         require(
@@ -91,7 +101,40 @@ class BitmapConverter(
                     (srcC == Bitmap.Content.ONLY_TOP_FIELD || srcC == Bitmap.Content.ONLY_BOT_FIELD) ==
                     (dstC == Bitmap.Content.ONLY_TOP_FIELD || dstC == Bitmap.Content.ONLY_BOT_FIELD)
         ) { "Cannot convert between a single field and two interleaved fields." }
+        require(threads >= 1)
+
+        val height = srcSpec.resolution.heightPx
+        val numBands = min(threads, height / MIN_BAND_HEIGHT)
+        if (numBands > 1 && srcSpec.resolution == dstSpec.resolution &&
+            srcC == Bitmap.Content.PROGRESSIVE_FRAME && dstC == Bitmap.Content.PROGRESSIVE_FRAME &&
+            srcSpec.representation.pixelFormat.vChromaSub == 0 && dstSpec.representation.pixelFormat.vChromaSub == 0
+        ) {
+            // Each band gets its own pipeline, including its own intermediate bitmaps. As the band views start at
+            // lines of the original bitmaps, they inherit their alignment.
+            val bandHeight = ceilDiv(height, numBands)
+            val bands = mutableListOf<Band>()
+            this.bands = bands
+            for (y in 0..<height step bandHeight) {
+                val h = min(bandHeight, height - y)
+                val bandSrcSpec = srcSpec.copy(resolution = Resolution(srcSpec.resolution.widthPx, h))
+                val bandDstSpec = dstSpec.copy(resolution = Resolution(dstSpec.resolution.widthPx, h))
+                val converter = BitmapConverter(
+                    bandSrcSpec, bandDstSpec, srcAligned, dstAligned, promiseOpaque, approxTransfer, nearestNeighbor
+                )
+                bands += Band(y, h, converter)
+            }
+            effSpecs = emptyList()
+        } else {
+            bands = null
+            effSpecs = buildPipeline(promiseOpaque, approxTransfer, nearestNeighbor)
+        }
+    }
 
+    private fun buildPipeline(
+        promiseOpaque: Boolean,
+        approxTransfer: Boolean,
+        nearestNeighbor: Boolean
+    ): List<Bitmap.Spec> {
         // Find a pipeline of stages that converts bitmaps between the src and dst spec.
         val (stageTypes, effSpecs) = Pathfinder(srcSpec, dstSpec, srcAligned, dstAligned, nearestNeighbor).run()
 
@@ -109,8 +152,6 @@ class BitmapConverter(
             effSpecs += dstSpec
         }
 
-        this.effSpecs = effSpecs
-
         // Add stages one by one so if creating one throws an exception,
         // all the previously created ones will be closed by the cleaner.
         for ((i, stageType) in stageTypes.withIndex())
@@ -152,19 +193,22 @@ class BitmapConverter(
             } else
                 intermediates += Bitmap.allocate(effSpecs[i++])
         }
+
+        return effSpecs
     }
 
     private fun isInplace(stageType: StageType, srcSpec: Bitmap.Spec, dstSpec: Bitmap.Spec): Boolean =
         stageType == ADD_ALPHA_CHANNEL || stageType == UN_PREMUL_OR_DROP_ALPHA_CHANNEL ||
                 stageType == SKCMS &&
-                srcSpec.representation.pixelFormat.code == AV_PIX_FMT_RGBAF32 &&
-                dstSpec.representation.pixelFormat.code == AV_PIX_FMT_RGBAF32
+                srcSpec.representation.pixelFormat.code.let { it == AV_PIX_FMT_RGBAF32 || it == AV_PIX_FMT_RGBAF16 } &&
+                dstSpec.representation.pixelFormat.code == srcSpec.representation.pixelFormat.code
 
     /** Releases the underlying native memory early. After having called this, calls to [convert] methods will throw. */
     override fun close() {
         closureProtector.close()
         cleanable.clean()
         intermediates.forEach(Bitmap::close)
+        bands?.forEach { it.converter.close() }
     }
 
     fun convert(src: Bitmap, dst: Bitmap) {
@@ -173,9 +217,17 @@ class BitmapConverter(
         require(dst.spec == dstSpec) { "Actual output bitmap's spec doesn't match spec expected by converter." }
         require(!srcAligned || src.isAligned) { "Input bitmap is not aligned even though that was claimed." }
         require(!dstAligned || dst.isAligned) { "Output bitmap is not aligned even though that was claimed." }
+        RenderMetrics.measure(RenderMetrics.Stage.CONVERT, bytes = RenderMetrics.bytesOf(dst)) {
+            convertUnmeasured(src, dst)
+        }
+    }
+
+    private fun convertUnmeasured(src: Bitmap, dst: Bitmap) {
         closureProtector.requireNotClosed {
             src.requireNotClosed {
                 dst.requireNotClosed {
+                    if (bands != null)
+                        return@requireNotClosed convertBands(bands, src, dst)
                     for ((i, stage) in stages.withIndex())
                         withStageBitmap(i, src, dst) { stageSrc ->
                             withStageBitmap(i + 1, src, dst) { stageDst ->
@@ -187,6 +239,37 @@ class BitmapConverter(
         }
     }
 
+    private fun convertBands(bands: List<Band>, src: Bitmap, dst: Bitmap) {
+        val width = srcSpec.resolution.widthPx
+        fun convertBand(band: Band) {
+            src.view(0, band.y, width, band.height, 1).use { srcBand ->
+                dst.view(0, band.y, width, band.height, 1).use { dstBand ->
+                    // The bands are already measured as part of the whole conversion.
+                    band.converter.convertUnmeasured(srcBand, dstBand)
+                }
+            }
+        }
+
+        // Convert the first band on the calling thread, and wait for all others even if one of them fails, as they
+        // access the bitmaps.
+        val futures = bands.subList(1, bands.size).map { band -> BAND_THREAD_POOL.submit { convertBand(band) } }
+        var exc: Throwable? = null
+        try {
+            convertBand(bands[0])
+        } catch (t: Throwable) {
+            exc = t
+        }
+        for (future in futures)
+            try {
+                future.get()
+            } catch (e: ExecutionException) {
+                val cause = e.cause ?: e
+                if (exc == null) exc = cause else exc.addSuppressed(cause)
+            }
+        if (exc != null)
+            throw exc
+    }
+
     private inline fun withStageBitmap(idx: Int, src: Bitmap, dst: Bitmap, block: (Bitmap) -> Unit) {
         var bitmap: Bitmap
         var usingView = false
@@ -228,6 +311,14 @@ class BitmapConverter(
             ).use { it.convert(src, dst) }
         }
 
+        private const val MIN_BAND_HEIGHT = 64
+
+        // Even when many conversions run at the same time, there's no use in having more band threads than cores.
+        private val BAND_THREAD_POOL =
+            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()) { runnable ->
+                Thread(runnable, "BitmapConverterBand").apply { isDaemon = true }
+            }
+
         // Some useful constants shared across stage implementations:
         private val NBO = ByteOrder.nativeOrder()
         /** The number of bytes in a preferred vector of any type. */
@@ -906,6 +997,7 @@ class BitmapConverter(
                 AV_PIX_FMT_BGRA64BE -> skcms_PixelFormat_BGRA_16161616BE()
                 AV_PIX_FMT_RGBF32 -> skcms_PixelFormat_RGB_fff()
                 AV_PIX_FMT_RGBAF32 -> skcms_PixelFormat_RGBA_ffff()
+                AV_PIX_FMT_RGBAF16 -> skcms_PixelFormat_RGBA_hhhh()
                 else -> -1
             }
 
@@ -4,7 +4,11 @@ import com.loadingbyte.cinecred.common.FPS
 import com.loadingbyte.cinecred.common.Resolution
 import com.loadingbyte.cinecred.common.VERSION
 import com.loadingbyte.cinecred.common.ceilDiv
+import com.loadingbyte.cinecred.common.parallelMap
 import org.bytedeco.ffmpeg.global.avutil.*
+import java.awt.Image
+import java.awt.Point
+import java.awt.Rectangle
 import java.awt.Transparency
 import java.awt.color.ICC_ColorSpace
 import java.awt.image.*
@@ -18,7 +22,10 @@ import java.lang.foreign.MemorySegment
 import java.lang.foreign.ValueLayout.JAVA_SHORT
 import java.nio.ByteBuffer
 import java.nio.ByteOrder
+import java.nio.channels.Channels
+import java.nio.channels.FileChannel
 import java.nio.file.Path
+import java.nio.file.StandardOpenOption.*
 import java.util.*
 import java.util.zip.Deflater
 import java.util.zip.DeflaterOutputStream
@@ -34,6 +41,21 @@ import kotlin.math.roundToInt
 import java.awt.color.ColorSpace as AWTColorSpace
 
 
+/** The number of lines that are compressed together by one task when compressing in parallel. */
+private const val LINES_PER_TASK = 64
+
+
+/** Writes all [buffers] to the [channel], letting the OS gather as many of them as possible per call. */
+private fun gatherWrite(channel: FileChannel, buffers: Array<ByteBuffer>) {
+    var idx = 0
+    while (idx < buffers.size) {
+        channel.write(buffers, idx, buffers.size - idx)
+        while (idx < buffers.size && !buffers[idx].hasRemaining())
+            idx++
+    }
+}
+
+
 /** Note: Once constructed, a bitmap writer has no varying state and is thus fully thread-safe. */
 interface BitmapWriter {
 
@@ -44,6 +66,17 @@ interface BitmapWriter {
     /** @throws IOException */
     fun write(bitmap: Bitmap, file: Path)
 
+    /**
+     * Writes an image of the given [resolution] to the [file] without ever holding all of it in memory. Instead, the
+     * image is requested from [renderBand] in horizontal bands from top to bottom. Each band starts at the given y
+     * coordinate, has the given height, and must be returned as a bitmap in this writer's [representation], which the
+     * writer closes once it's done with it. All bands are [bandHeight] tall, except for the last one, which may be
+     * shorter. The band height must be a multiple of [BAND_HEIGHT_MULTIPLE].
+     *
+     * @throws IOException
+     */
+    fun writeBanded(resolution: Resolution, file: Path, bandHeight: Int, renderBand: (y: Int, height: Int) -> Bitmap)
+
     /** @throws IOException */
     fun convertAndWrite(
         bitmap: Bitmap,
@@ -72,6 +105,12 @@ interface BitmapWriter {
     }
 
 
+    companion object {
+        /** Chunk-based formats require bands to consist of whole chunks, and EXR chunks can be up to 16 lines tall. */
+        const val BAND_HEIGHT_MULTIPLE = 16
+    }
+
+
     sealed class ImageIOBased(
         private val formatName: String,
         family: Bitmap.PixelFormat.Family,
@@ -131,11 +170,31 @@ interface BitmapWriter {
         }
 
         override fun write(bitmap: Bitmap, file: Path) {
-            val image = toImage(bitmap)
+            RenderMetrics.measure(RenderMetrics.Stage.BITMAP_WRITE, bytes = RenderMetrics.bytesOf(bitmap)) {
+                val image = toImage(bitmap)
+                FileImageOutputStream(file.toFile()).use { writeImage(image, it) }
+            }
+        }
+
+        override fun writeBanded(
+            resolution: Resolution, file: Path, bandHeight: Int, renderBand: (y: Int, height: Int) -> Bitmap
+        ) {
+            require(bandHeight > 0 && bandHeight % BAND_HEIGHT_MULTIPLE == 0)
+            // The ImageIO writers pull the image from top to bottom, so we offer them an image that renders its bands
+            // on demand. The bitmap of each band is converted to a raster and closed right away.
+            val image = BandedImage(resolution, bandHeight) { y, h ->
+                renderBand(y, h).use { band ->
+                    require(band.spec.resolution == Resolution(resolution.widthPx, h)) { "Band has wrong resolution." }
+                    toRaster(band, Point(0, y))
+                }
+            }
             FileImageOutputStream(file.toFile()).use { writeImage(image, it) }
         }
 
-        private fun toImage(bitmap: Bitmap): BufferedImage {
+        private fun toImage(bitmap: Bitmap): BufferedImage =
+            BufferedImage(awtCM, toRaster(bitmap, null), isAlphaPremultiplied, null)
+
+        private fun toRaster(bitmap: Bitmap, location: Point?): WritableRaster {
             val (res, rep) = bitmap.spec
             require(rep == representation) { "Representation mismatch: Expected $representation, got $rep." }
             val (w, h) = res
@@ -149,11 +208,77 @@ interface BitmapWriter {
                 false -> if (hasAlpha) intArrayOf(0, 1) else intArrayOf(0)
                 true -> if (hasAlpha) intArrayOf(0, 1, 2, 3) else intArrayOf(0, 1, 2)
             }
-            val raster = Raster.createInterleavedRaster(dataBuffer, w, h, scanlineStride, bOffs.size, bOffs, null)
-            return BufferedImage(awtCM, raster, isAlphaPremultiplied, null)
+            return Raster.createInterleavedRaster(dataBuffer, w, h, scanlineStride, bOffs.size, bOffs, location)
+        }
+
+        /**
+         * An image whose tiles are full-width bands, which are only rendered once they are requested. As writers
+         * request consecutive regions, and a region can straddle two bands, the two most recent bands are retained.
+         */
+        private inner class BandedImage(
+            private val resolution: Resolution,
+            private val bandHeight: Int,
+            private val renderBand: (y: Int, height: Int) -> WritableRaster
+        ) : RenderedImage {
+
+            private val numBands = ceilDiv(resolution.heightPx, bandHeight)
+            private var recentBands = arrayOfNulls<Pair<Int, WritableRaster>>(2)
+
+            override fun getTile(tileX: Int, tileY: Int): Raster {
+                require(tileX == 0 && tileY in 0..<numBands) { "Tile ($tileX, $tileY) is out of bounds." }
+                recentBands.firstOrNull { it?.first == tileY }?.let { return it.second }
+                val y = tileY * bandHeight
+                val raster = renderBand(y, min(bandHeight, resolution.heightPx - y))
+                recentBands = arrayOf(recentBands[1], Pair(tileY, raster))
+                return raster
+            }
+
+            override fun getData(rect: Rectangle): Raster {
+                val firstBand = rect.y / bandHeight
+                val lastBand = (rect.y + rect.height - 1) / bandHeight
+                if (firstBand == lastBand) {
+                    val band = getTile(0, firstBand)
+                    return band.createChild(rect.x, rect.y, rect.width, rect.height, rect.x, rect.y, null)
+                }
+                val raster = sampleModel.createCompatibleSampleModel(rect.width, rect.height)
+                    .let { Raster.createWritableRaster(it, Point(rect.x, rect.y)) }
+                for (bandIdx in firstBand..lastBand)
+                    raster.setRect(getTile(0, bandIdx))
+                return raster
+            }
+
+            override fun getData(): Raster = getData(Rectangle(0, 0, width, height))
+
+            override fun copyData(raster: WritableRaster?): WritableRaster {
+                val dst = raster ?: sampleModel.createCompatibleSampleModel(width, height)
+                    .let { Raster.createWritableRaster(it, null) }
+                dst.setRect(getData(dst.bounds))
+                return dst
+            }
+
+            override fun getSampleModel(): SampleModel =
+                awtCM.createCompatibleSampleModel(resolution.widthPx, bandHeight)
+
+            override fun getColorModel() = awtCM
+            override fun getWidth() = resolution.widthPx
+            override fun getHeight() = resolution.heightPx
+            override fun getMinX() = 0
+            override fun getMinY() = 0
+            override fun getNumXTiles() = 1
+            override fun getNumYTiles() = numBands
+            override fun getMinTileX() = 0
+            override fun getMinTileY() = 0
+            override fun getTileWidth() = resolution.widthPx
+            override fun getTileHeight() = bandHeight
+            override fun getTileGridXOffset() = 0
+            override fun getTileGridYOffset() = 0
+            override fun getSources(): Vector<RenderedImage>? = null
+            override fun getProperty(name: String?): Any = Image.UndefinedProperty
+            override fun getPropertyNames(): Array<String>? = null
+
         }
 
-        private fun writeImage(image: BufferedImage, ios: ImageOutputStream) {
+        private fun writeImage(image: RenderedImage, ios: ImageOutputStream) {
             // Note: We do not use ImageIO.write() for two reasons:
             //   - We need to support custom metadata and params.
             //   - ImageIO.write() eventually uses the com.sun class FileImageOutputStreamSpi,
@@ -169,7 +294,7 @@ interface BitmapWriter {
         }
 
         protected open fun configureParam(writer: ImageWriter): ImageWriteParam? = null
-        protected open fun configureMetadata(writer: ImageWriter, image: BufferedImage): IIOMetadata? = null
+        protected open fun configureMetadata(writer: ImageWriter, image: RenderedImage): IIOMetadata? = null
 
     }
 
@@ -261,7 +386,7 @@ interface BitmapWriter {
                 })
         }
 
-        override fun configureMetadata(writer: ImageWriter, image: BufferedImage): IIOMetadata =
+        override fun configureMetadata(writer: ImageWriter, image: RenderedImage): IIOMetadata =
             writer.getDefaultImageMetadata(ImageTypeSpecifier(image), null).apply {
                 setFromTree(nativeMetadataFormatName, mdRoot)
             }
@@ -337,8 +462,52 @@ interface BitmapWriter {
             ByteArrayOutputStream().also { write(bitmap, it) }.toByteArray()
 
         override fun write(bitmap: Bitmap, file: Path) {
-            // Don't use a buffered stream because our write() method only writes large chunks anyway.
-            file.outputStream().use { write(bitmap, it) }
+            RenderMetrics.measure(RenderMetrics.Stage.BITMAP_WRITE, bytes = RenderMetrics.bytesOf(bitmap)) {
+                if (compression == Compression.NONE && (depth == 8 || depth == 16))
+                    FileChannel.open(file, WRITE, CREATE, TRUNCATE_EXISTING).use { ch ->
+                        val (res, rep) = bitmap.spec
+                        require(rep == representation) {
+                            "Representation mismatch: Expected $representation, got $rep."
+                        }
+                        val (w, h) = res
+                        gatherWrite(ch, arrayOf(makeHeader(w, h, uncompressedDataBytes(w, h))))
+                        gatherLines(bitmap, ch)
+                    }
+                else {
+                    // Don't use a buffered stream because our write() method only writes large chunks anyway.
+                    file.outputStream().use { write(bitmap, it) }
+                }
+            }
+        }
+
+        override fun writeBanded(
+            resolution: Resolution, file: Path, bandHeight: Int, renderBand: (y: Int, height: Int) -> Bitmap
+        ) {
+            require(bandHeight > 0 && bandHeight % BAND_HEIGHT_MULTIPLE == 0)
+            val (w, h) = resolution
+            // Without compression, the size of the image data is known in advance, so fail before rendering any band.
+            if (compression == Compression.NONE)
+                checkDataBytes(uncompressedDataBytes(w, h))
+            FileChannel.open(file, WRITE, CREATE, TRUNCATE_EXISTING).use { ch ->
+                // Leave room for the header, which can only be written once the size of the image data is known.
+                ch.position(HEADER_SIZE.toLong())
+                val os = Channels.newOutputStream(ch)
+                for (y in 0..<h step bandHeight)
+                    renderBand(y, min(bandHeight, h - y)).use { band ->
+                        val (res, rep) = band.spec
+                        require(rep == representation) { "Representation mismatch: Expected $representation, got $rep." }
+                        require(res == Resolution(w, min(bandHeight, h - y))) { "Band has wrong resolution." }
+                        when (compression) {
+                            Compression.NONE ->
+                                if (depth == 8 || depth == 16) gatherLines(band, ch) else
+                                    writeUncompressedLines(band, os)
+                            Compression.RLE ->
+                                for (packed in runLengthEncodeLines(band))
+                                    os.write(packed.array(), 0, packed.position())
+                        }
+                    }
+                ch.write(makeHeader(w, h, ch.position() - HEADER_SIZE), 0L)
+            }
         }
 
         private fun write(bitmap: Bitmap, os: OutputStream) {
@@ -350,15 +519,53 @@ interface BitmapWriter {
             }
         }
 
+        private fun uncompressedDataBytes(w: Int, h: Int): Long = h.toLong() * strideInts(w) * 4
+
+        /** @throws IOException If the image data is too large for the 32-bit file size field of the header. */
+        private fun checkDataBytes(dataBytes: Long): Int {
+            if (dataBytes > Int.MAX_VALUE - HEADER_SIZE)
+                throw IOException("The image data of $dataBytes bytes is too large to be stored in a DPX file.")
+            return dataBytes.toInt()
+        }
+
+        private fun strideInts(w: Int) = when (depth) {
+            8 -> if (isGray) ceilDiv(w, 4) else if (hasAlpha) w else ceilDiv(w * 3, 4)
+            10 -> if (isGray) ceilDiv(w, 3) else w
+            12, 16 -> if (isGray) ceilDiv(w, 2) else if (hasAlpha) w * 2 else ceilDiv(w * 3, 2)
+            else -> throw IllegalStateException()
+        }
+
         private fun writeUncompressed(bitmap: Bitmap, os: OutputStream) {
             val (w, h) = bitmap.spec.resolution
-            val strideInts = when (depth) {
-                8 -> if (isGray) ceilDiv(w, 4) else if (hasAlpha) w else ceilDiv(w * 3, 4)
-                10 -> if (isGray) ceilDiv(w, 3) else w
-                12, 16 -> if (isGray) ceilDiv(w, 2) else if (hasAlpha) w * 2 else ceilDiv(w * 3, 2)
-                else -> throw IllegalStateException()
+            os.write(makeHeader(w, h, uncompressedDataBytes(w, h)).array())
+            writeUncompressedLines(bitmap, os)
+        }
+
+        /**
+         * Writes the lines of an 8-bit or 16-bit bitmap straight from its memory, without copying them to the heap
+         * first. Each line is padded with zeros to whole ints.
+         */
+        private fun gatherLines(bitmap: Bitmap, ch: FileChannel) {
+            val (w, h) = bitmap.spec.resolution
+            val seg = bitmap.memorySegment(0)
+            val ls = bitmap.linesize(0).toLong()
+            val lineBytes = w * representation.pixelFormat.stepOfPlane(0)
+            val padding = ByteBuffer.allocate(strideInts(w) * 4 - lineBytes)
+            for (y0 in 0..<h step LINES_PER_TASK) {
+                val y1 = min(y0 + LINES_PER_TASK, h)
+                val buffers = ArrayList<ByteBuffer>((y1 - y0) * 2)
+                for (y in y0..<y1) {
+                    buffers += seg.asSlice(y * ls, lineBytes.toLong()).asByteBuffer()
+                    if (padding.capacity() != 0)
+                        buffers += padding.duplicate()
+                }
+                gatherWrite(ch, buffers.toTypedArray())
             }
-            writeHeader(w, h, h * strideInts * 4, os)
+        }
+
+        private fun writeUncompressedLines(bitmap: Bitmap, os: OutputStream) {
+            val (w, h) = bitmap.spec.resolution
+            val strideInts = strideInts(w)
             if (depth == 8 || depth == 16)
                 os.write(bitmap.getB(strideInts * 4))
             else if (isGray) {
@@ -433,17 +640,35 @@ interface BitmapWriter {
 
         private fun writeRunLengthEncoded(bitmap: Bitmap, os: OutputStream) {
             val (w, h) = bitmap.spec.resolution
-            val c = if (isGray) 1 else if (hasAlpha) 4 else 3
-            val pixels = ShortArray(w * c)
-            val stream = ShortArray(w * c * 2 /* more than long enough to be on the safe side */)
-            val packed = ByteBuffer.allocate(h * stream.size * 2).order(ByteOrder.nativeOrder())
-            for (y in 0..<h) {
-                readLine(bitmap, y, pixels)
-                val streamLen = runLengthEncode(w, c, pixels, stream)
-                packLine(stream, streamLen, packed)
+            val packedGroups = runLengthEncodeLines(bitmap)
+            os.write(makeHeader(w, h, packedGroups.sumOf { it.position().toLong() }).array())
+            for (packed in packedGroups)
+                os.write(packed.array(), 0, packed.position())
+        }
+
+        private val channels get() = if (isGray) 1 else if (hasAlpha) 4 else 3
+        private fun streamCapacity(w: Int) = w * channels * 2 /* more than long enough to be on the safe side */
+        private fun packedCapacity(w: Int, h: Int) = h * streamCapacity(w) * 2
+
+        /**
+         * Encodes groups of lines in parallel and returns one buffer per group, with its content spanning from 0 to its
+         * position. As each packed line is padded to whole ints, the groups can just be concatenated.
+         */
+        private fun runLengthEncodeLines(bitmap: Bitmap): List<ByteBuffer> {
+            val (w, h) = bitmap.spec.resolution
+            val c = channels
+            return (0..<h step LINES_PER_TASK).toList().parallelMap { y0 ->
+                val y1 = min(y0 + LINES_PER_TASK, h)
+                val packed = ByteBuffer.allocate(packedCapacity(w, y1 - y0)).order(ByteOrder.nativeOrder())
+                val scratch = SCRATCH.get()
+                scratch.ensureSize(w * c, streamCapacity(w))
+                for (y in y0..<y1) {
+                    readLine(bitmap, y, scratch.pixels)
+                    val streamLen = runLengthEncode(w, c, scratch.pixels, scratch.stream)
+                    packLine(scratch.stream, streamLen, packed)
+                }
+                packed
             }
-            writeHeader(w, h, packed.position(), os)
-            os.write(packed.array(), 0, packed.position())
         }
 
         private fun readLine(bitmap: Bitmap, y: Int, pixels: ShortArray) {
@@ -544,7 +769,8 @@ interface BitmapWriter {
             packed.position(ceilDiv(packed.position(), 4) * 4)
         }
 
-        private fun writeHeader(w: Int, h: Int, dataBytes: Int, os: OutputStream) {
+        private fun makeHeader(w: Int, h: Int, dataBytes: Long): ByteBuffer {
+            val checkedDataBytes = checkDataBytes(dataBytes)
             val trc: Byte =
                 if (isGray) 2 else when (colorSpace!!.transfer) {
                     ColorSpace.Transfer.LINEAR -> 2
@@ -565,7 +791,7 @@ interface BitmapWriter {
             buf.putInt(0, ('S'.code shl 24) or ('D'.code shl 16) or ('P'.code shl 8) or 'X'.code)  // native endianness
             buf.putInt(4, HEADER_SIZE)  // offset to image data
             buf.put(8, "V1.0".toByteArray())  // DPX version
-            buf.putInt(16, HEADER_SIZE + dataBytes)  // file size
+            buf.putInt(16, HEADER_SIZE + checkedDataBytes)  // file size
             buf.putInt(20, 1)  // new image
             buf.putInt(24, HEADER_SIZE)  // generic header size
             buf.put(160, "Cinecred $VERSION".toByteArray())  // creator
@@ -588,11 +814,24 @@ interface BitmapWriter {
             buf.putInt(1628, 1)  // pixel aspect ratio horizontal
             buf.putInt(1632, 1)  // pixel aspect ratio vertical
 
-            os.write(buf.array())
+            return buf
+        }
+
+        /** Per-thread line buffers, which are reused across lines and across images. */
+        private class Scratch {
+            var pixels = ShortArray(0)
+            var stream = ShortArray(0)
+
+            fun ensureSize(pixelsSize: Int, streamSize: Int) {
+                // The pixels array must have the exact size, as readLine() fills it completely.
+                if (pixels.size != pixelsSize) pixels = ShortArray(pixelsSize)
+                if (stream.size < streamSize) stream = ShortArray(streamSize)
+            }
         }
 
         companion object {
             private const val HEADER_SIZE = 1664
+            private val SCRATCH = ThreadLocal.withInitial(::Scratch)
         }
 
     }
@@ -634,20 +873,75 @@ interface BitmapWriter {
             ByteArrayOutputStream().also { write(bitmap, it) }.toByteArray()
 
         override fun write(bitmap: Bitmap, file: Path) {
-            // Don't use a buffered stream because our write() method only writes large chunks anyway.
-            file.outputStream().use { write(bitmap, it) }
+            RenderMetrics.measure(RenderMetrics.Stage.BITMAP_WRITE, bytes = RenderMetrics.bytesOf(bitmap)) {
+                if (compression == Compression.NONE && depth == 32)
+                    FileChannel.open(file, WRITE, CREATE, TRUNCATE_EXISTING).use { ch -> writeUncompressed(bitmap, ch) }
+                else {
+                    // Don't use a buffered stream because our write() method only writes large chunks anyway.
+                    file.outputStream().use { write(bitmap, it) }
+                }
+            }
+        }
+
+        override fun writeBanded(
+            resolution: Resolution, file: Path, bandHeight: Int, renderBand: (y: Int, height: Int) -> Bitmap
+        ) {
+            require(bandHeight > 0 && bandHeight % BAND_HEIGHT_MULTIPLE == 0)
+            val (w, h) = resolution
+            FileChannel.open(file, WRITE, CREATE, TRUNCATE_EXISTING).use { ch ->
+                val os = Channels.newOutputStream(ch)
+                val headerBytes = writeHeader(w, h, os)
+                // Leave room for the chunk offset table, which can only be written once all chunks are known.
+                val chunkOffsetTable = ByteBuffer.allocate(ceilDiv(h, chunkH) * 8).order(ByteOrder.LITTLE_ENDIAN)
+                ch.position(headerBytes + chunkOffsetTable.capacity().toLong())
+                for (y in 0..<h step bandHeight)
+                    renderBand(y, min(bandHeight, h - y)).use { band ->
+                        val (res, rep) = band.spec
+                        require(rep == representation) { "Representation mismatch: Expected $representation, got $rep." }
+                        require(res == Resolution(w, min(bandHeight, h - y))) { "Band has wrong resolution." }
+                        if (compression == Compression.NONE && depth == 32) {
+                            val chunkBytes = 8 + rawLineBytes(w)
+                            val offset = ch.position()
+                            for (l in 0..<res.heightPx)
+                                chunkOffsetTable.putLong(offset + l * chunkBytes.toLong())
+                            gatherChunks(band, y, ch)
+                        } else
+                            encodeChunks(band, y) { chunk ->
+                                chunkOffsetTable.putLong(ch.position())
+                                os.write(chunk.array(), 0, chunk.position())
+                            }
+                    }
+                ch.write(chunkOffsetTable.flip(), headerBytes.toLong())
+            }
+        }
+
+        private fun writeUncompressed(bitmap: Bitmap, ch: FileChannel) {
+            val (res, rep) = bitmap.spec
+            require(rep == representation) { "Representation mismatch: Expected $representation, got $rep." }
+            val (w, h) = res
+
+            val headerBytes = writeHeader(w, h, Channels.newOutputStream(ch))
+
+            val chunkBytes = 8 + rawLineBytes(w)
+            val chunkOffsetTable = ByteBuffer.allocate(h * 8).order(ByteOrder.LITTLE_ENDIAN)
+            var offset = headerBytes + chunkOffsetTable.capacity().toLong()
+            repeat(h) {
+                chunkOffsetTable.putLong(offset)
+                offset += chunkBytes
+            }
+            gatherWrite(ch, arrayOf(chunkOffsetTable.flip()))
+            gatherChunks(bitmap, 0, ch)
         }
 
         private fun write(bitmap: Bitmap, os: OutputStream) {
             val (res, rep) = bitmap.spec
             require(rep == representation) { "Representation mismatch: Expected $representation, got $rep." }
             val (w, h) = res
-            val rawLineBytes = rep.pixelFormat.planes * w * (depth / 8)
 
             val headerBytes = writeHeader(w, h, os)
 
             if (compression == Compression.NONE) {
-                val chunkBytes = 8 + rawLineBytes
+                val chunkBytes = 8 + rawLineBytes(w)
                 val chunkOffsetTable = ByteBuffer.allocate(h * 8).order(ByteOrder.LITTLE_ENDIAN)
                 var offset = headerBytes + chunkOffsetTable.capacity().toLong()
                 repeat(h) {
@@ -655,71 +949,11 @@ interface BitmapWriter {
                     offset += chunkBytes
                 }
                 os.write(chunkOffsetTable.array())
-                val chunk = ByteBuffer.allocate(chunkBytes).order(ByteOrder.LITTLE_ENDIAN)
-                for (y in 0..<h) {
-                    chunk.clear()
-                    chunk.putInt(y)
-                    chunk.putInt(rawLineBytes)
-                    copyLine(bitmap, y, chunk)
-                    os.write(chunk.array())
-                }
+                encodeChunks(bitmap, 0) { chunk -> os.write(chunk.array(), 0, chunk.position()) }
             } else {
                 val chunks = mutableListOf<ByteBuffer>()
-                val chunkH = when (compression) {
-                    Compression.NONE -> throw IllegalStateException()
-                    Compression.RLE, Compression.ZIPS -> 1
-                    Compression.ZIP -> 16
-                }
-                val numChunks = ceilDiv(h, chunkH)
-                val rawBytes = chunkH * rawLineBytes
-                val raw1 = ByteBuffer.allocate(rawBytes).order(ByteOrder.LITTLE_ENDIAN)
-                val raw2 = ByteArray(rawBytes)
-                for (c in 0..<numChunks) {
-                    val curChunkY = c * chunkH
-                    val curChunkH = min(chunkH, h - curChunkY)
-                    val curRawBytes = curChunkH * rawLineBytes
-                    // Copy
-                    raw1.clear()
-                    for (l in 0..<curChunkH)
-                        copyLine(bitmap, curChunkY + l, raw1)
-                    // Reorder
-                    raw1.rewind()
-                    var r21 = 0
-                    var r22 = curRawBytes / 2
-                    repeat(curRawBytes / 2) {
-                        raw2[r21++] = raw1.get()
-                        raw2[r22++] = raw1.get()
-                    }
-                    // Predictor
-                    var prev = raw2[0].toInt()
-                    for (i in 1..<curRawBytes) {
-                        val curr = raw2[i].toInt()
-                        val diff = curr - prev + 384
-                        prev = curr
-                        raw2[i] = diff.toByte()
-                    }
-                    // Compressor
-                    val chunk = ByteBuffer.allocate(8 + curRawBytes - 1).order(ByteOrder.LITTLE_ENDIAN).position(8)
-                    val fits = when (compression) {
-                        Compression.NONE -> throw IllegalStateException()
-                        Compression.RLE -> runLengthEncode(raw2, curRawBytes, chunk)
-                        Compression.ZIPS, Compression.ZIP -> {
-                            val d = Deflater()
-                            d.setInput(raw2, 0, curRawBytes)
-                            d.finish()
-                            d.deflate(chunk)
-                            d.end()
-                            d.finished()
-                        }
-                    }
-                    if (!fits)
-                        chunk.position(8).put(raw1.limit(curRawBytes))
-                    // Chunk header
-                    chunk.putInt(0, curChunkY)
-                    chunk.putInt(4, chunk.position() - 8)
-                    chunks += chunk
-                }
-                val chunkOffsetTable = ByteBuffer.allocate(numChunks * 8).order(ByteOrder.LITTLE_ENDIAN)
+                encodeChunks(bitmap, 0) { chunk -> chunks += chunk }
+                val chunkOffsetTable = ByteBuffer.allocate(chunks.size * 8).order(ByteOrder.LITTLE_ENDIAN)
                 var offset = headerBytes + chunkOffsetTable.capacity().toLong()
                 for (chunk in chunks) {
                     chunkOffsetTable.putLong(offset)
@@ -731,9 +965,108 @@ interface BitmapWriter {
             }
         }
 
+        private val chunkH = when (compression) {
+            Compression.NONE, Compression.RLE, Compression.ZIPS -> 1
+            Compression.ZIP -> 16
+        }
+
+        private fun rawLineBytes(w: Int) = representation.pixelFormat.planes * w * (depth / 8)
+
+        /**
+         * Encodes the [bitmap] into chunks, where the bitmap's first line is line [yOffset] of the whole image. Each
+         * chunk is passed to [emit] with its content spanning from 0 to its position. When writing uncompressed, the
+         * same buffer is reused for all chunks, so [emit] must not retain it.
+         */
+        private inline fun encodeChunks(bitmap: Bitmap, yOffset: Int, emit: (ByteBuffer) -> Unit) {
+            val (w, h) = bitmap.spec.resolution
+            val rawLineBytes = rawLineBytes(w)
+
+            if (compression == Compression.NONE) {
+                val chunkBytes = 8 + rawLineBytes
+                val chunk = ByteBuffer.allocate(chunkBytes).order(ByteOrder.LITTLE_ENDIAN)
+                for (y in 0..<h) {
+                    chunk.clear()
+                    chunk.putInt(yOffset + y)
+                    chunk.putInt(rawLineBytes)
+                    copyLine(bitmap, y, chunk)
+                    emit(chunk)
+                }
+            } else {
+                // Compression is by far the most expensive part, so we compress groups of chunks in parallel and only
+                // then emit them in order.
+                val numChunks = ceilDiv(h, chunkH)
+                val chunksPerTask = ceilDiv(LINES_PER_TASK, chunkH)
+                val taskChunks = (0..<numChunks step chunksPerTask).map { c -> c..<min(c + chunksPerTask, numChunks) }
+                for (chunks in taskChunks.parallelMap { cs -> cs.map { c -> compressChunk(bitmap, c, yOffset) } })
+                    for (chunk in chunks)
+                        emit(chunk)
+            }
+        }
+
+        private fun compressChunk(bitmap: Bitmap, chunkIdx: Int, yOffset: Int): ByteBuffer {
+            val (w, h) = bitmap.spec.resolution
+            val rawLineBytes = rawLineBytes(w)
+            val curChunkY = chunkIdx * chunkH
+            val curChunkH = min(chunkH, h - curChunkY)
+            val curRawBytes = curChunkH * rawLineBytes
+            val scratch = SCRATCH.get()
+            scratch.ensureCapacity(chunkH * rawLineBytes)
+            val raw1 = scratch.raw1
+            val raw2 = scratch.raw2
+            // Copy
+            raw1.clear()
+            for (l in 0..<curChunkH)
+                copyLine(bitmap, curChunkY + l, raw1)
+            // Reorder
+            raw1.rewind()
+            var r21 = 0
+            var r22 = curRawBytes / 2
+            repeat(curRawBytes / 2) {
+                raw2[r21++] = raw1.get()
+                raw2[r22++] = raw1.get()
+            }
+            // Predictor
+            var prev = raw2[0].toInt()
+            for (i in 1..<curRawBytes) {
+                val curr = raw2[i].toInt()
+                val diff = curr - prev + 384
+                prev = curr
+                raw2[i] = diff.toByte()
+            }
+            // Compressor
+            return encodeChunk(compression, raw1.flip(), raw2, curRawBytes, yOffset + curChunkY, scratch.deflater)
+        }
+
+        /**
+         * Writes uncompressed 32-bit chunks, one per line, straight from the [bitmap]'s memory, without copying them to
+         * the heap first. The bitmap's first line is line [yOffset] of the whole image.
+         */
+        private fun gatherChunks(bitmap: Bitmap, yOffset: Int, ch: FileChannel) {
+            val (w, h) = bitmap.spec.resolution
+            val rawLineBytes = rawLineBytes(w)
+            val chunkHeaders = ByteBuffer.allocate(LINES_PER_TASK * 8).order(ByteOrder.LITTLE_ENDIAN)
+            for (y0 in 0..<h step LINES_PER_TASK) {
+                val y1 = min(y0 + LINES_PER_TASK, h)
+                val buffers = ArrayList<ByteBuffer>((y1 - y0) * (1 + planeOrder.size))
+                for (y in y0..<y1) {
+                    val i = (y - y0) * 8
+                    chunkHeaders.putInt(i, yOffset + y)
+                    chunkHeaders.putInt(i + 4, rawLineBytes)
+                    buffers += chunkHeaders.slice(i, 8)
+                    for (plane in planeOrder)
+                        buffers += bitmap.memorySegment(plane)
+                            .asSlice(y * bitmap.linesize(plane).toLong(), w * 4L).asByteBuffer()
+                }
+                gatherWrite(ch, buffers.toTypedArray())
+            }
+        }
+
+        private val planeOrder = if (isGray) intArrayOf(0) else if (hasAlpha) intArrayOf(3, 1, 0, 2) else
+            intArrayOf(1, 0, 2)
+
         private fun copyLine(src: Bitmap, y: Int, dst: ByteBuffer) {
             val w = src.spec.resolution.widthPx
-            for (plane in if (isGray) intArrayOf(0) else if (hasAlpha) intArrayOf(3, 1, 0, 2) else intArrayOf(1, 0, 2))
+            for (plane in planeOrder)
                 if (depth == 32)
                     dst.put(src.memorySegment(plane).asSlice(y * src.linesize(plane).toLong(), w * 4L).asByteBuffer())
                 else {
@@ -746,40 +1079,6 @@ interface BitmapWriter {
                 }
         }
 
-        private fun runLengthEncode(raw: ByteArray, rawBytes: Int, stream: ByteBuffer): Boolean {
-            var i = 0
-            var o = stream.position()
-            val out = stream.array()
-            var run = 1
-            var copy = 0
-            while (i < rawBytes) {
-                while (i + run < rawBytes && raw[i] == raw[i + run] && run < 128)
-                    run++
-                if (run >= 3) {
-                    if (o + 2 >= out.size)
-                        return false
-                    out[o++] = (run - 1).toByte()
-                    out[o++] = raw[i]
-                    i += run
-                } else {
-                    if (i + run < rawBytes)
-                        copy += run
-                    while (i + copy < rawBytes && copy < 127 && raw[i + copy] != raw[i + copy - 1])
-                        copy++
-                    if (o + 1 + copy >= out.size)
-                        return false
-                    out[o++] = (-copy).toByte()
-                    System.arraycopy(raw, i, out, o, copy)
-                    i += copy
-                    o += copy
-                    copy = 0
-                }
-                run = 1
-            }
-            stream.position(o)
-            return true
-        }
-
         private fun writeHeader(w: Int, h: Int, os: OutputStream): Int {
             val buf = ByteBuffer.allocate(2048).order(ByteOrder.LITTLE_ENDIAN)
 
@@ -865,6 +1164,93 @@ interface BitmapWriter {
             return buf.position()
         }
 
+        /** Per-thread buffers and deflater, which are reused across chunks and across images. */
+        private class Scratch {
+            var raw1: ByteBuffer = ByteBuffer.allocate(0)
+            var raw2 = ByteArray(0)
+            val deflater = Deflater()
+
+            fun ensureCapacity(rawBytes: Int) {
+                if (raw2.size < rawBytes) {
+                    raw1 = ByteBuffer.allocate(rawBytes).order(ByteOrder.LITTLE_ENDIAN)
+                    raw2 = ByteArray(rawBytes)
+                }
+            }
+        }
+
+        companion object {
+
+            private val SCRATCH = ThreadLocal.withInitial(::Scratch)
+
+            /**
+             * Creates a chunk starting at line [y] from [rawBytes] bytes, which have already been reordered and run
+             * through the predictor into [predicted]. If the compressed data isn't smaller than the [raw] data, the
+             * chunk stores the raw data instead, which the reader recognizes by its size.
+             */
+            internal fun encodeChunk(
+                compression: Compression, raw: ByteBuffer, predicted: ByteArray, rawBytes: Int, y: Int,
+                deflater: Deflater
+            ): ByteBuffer {
+                // Let the compressor only use one byte less than the raw data, so that it gives up on anything larger.
+                val chunk = ByteBuffer.allocate(8 + rawBytes).order(ByteOrder.LITTLE_ENDIAN).position(8)
+                chunk.limit(8 + rawBytes - 1)
+                val fits = when (compression) {
+                    Compression.NONE -> throw IllegalStateException()
+                    Compression.RLE -> runLengthEncode(predicted, rawBytes, chunk)
+                    Compression.ZIPS, Compression.ZIP -> {
+                        deflater.reset()
+                        deflater.setInput(predicted, 0, rawBytes)
+                        deflater.finish()
+                        deflater.deflate(chunk)
+                        deflater.finished()
+                    }
+                }
+                chunk.limit(chunk.capacity())
+                if (!fits)
+                    chunk.position(8).put(raw.slice(raw.position(), rawBytes))
+                // Chunk header
+                chunk.putInt(0, y)
+                chunk.putInt(4, chunk.position() - 8)
+                return chunk
+            }
+
+            private fun runLengthEncode(raw: ByteArray, rawBytes: Int, stream: ByteBuffer): Boolean {
+                var i = 0
+                var o = stream.position()
+                val out = stream.array()
+                val lim = stream.limit()
+                var run = 1
+                var copy = 0
+                while (i < rawBytes) {
+                    while (i + run < rawBytes && raw[i] == raw[i + run] && run < 128)
+                        run++
+                    if (run >= 3) {
+                        if (o + 2 >= lim)
+                            return false
+                        out[o++] = (run - 1).toByte()
+                        out[o++] = raw[i]
+                        i += run
+                    } else {
+                        if (i + run < rawBytes)
+                            copy += run
+                        while (i + copy < rawBytes && copy < 127 && raw[i + copy] != raw[i + copy - 1])
+                            copy++
+                        if (o + 1 + copy >= lim)
+                            return false
+                        out[o++] = (-copy).toByte()
+                        System.arraycopy(raw, i, out, o, copy)
+                        i += copy
+                        o += copy
+                        copy = 0
+                    }
+                    run = 1
+                }
+                stream.position(o)
+                return true
+            }
+
+        }
+
     }
 
 }
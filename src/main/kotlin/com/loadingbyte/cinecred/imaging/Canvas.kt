@@ -9,6 +9,7 @@ import com.loadingbyte.cinecred.natives.skiacapi.skiacapi_h.*
 import org.apache.pdfbox.pdmodel.PDDocument
 import org.apache.pdfbox.rendering.RenderDestination
 import org.bytedeco.ffmpeg.global.avutil.AV_PIX_FMT_GRAY16LE
+import org.bytedeco.ffmpeg.global.avutil.AV_PIX_FMT_RGBAF16
 import org.bytedeco.ffmpeg.global.avutil.AV_PIX_FMT_RGBAF32
 import java.awt.BasicStroke
 import java.awt.Rectangle
@@ -17,6 +18,7 @@ import java.awt.geom.AffineTransform
 import java.awt.geom.PathIterator
 import java.awt.geom.Point2D
 import java.awt.geom.Rectangle2D
+import java.lang.Float.floatToFloat16
 import java.lang.foreign.Arena
 import java.lang.foreign.MemorySegment
 import java.lang.foreign.MemorySegment.NULL
@@ -31,7 +33,7 @@ import kotlin.math.roundToInt
 
 
 /**
- * A Java wrapper around a Skia canvas that permits drawing to a float32 RGBA [Bitmap], SVG, or PDF.
+ * A Java wrapper around a Skia canvas that permits drawing to a float32 or float16 RGBA [Bitmap], SVG, or PDF.
  *
  * Canvases are memory-managed by the garbage collector. However, it is highly advised to manually free them when they
  * are no longer needed by calling [close].
@@ -100,6 +102,9 @@ class Canvas private constructor(
     private val streamHandle = streamHandle?.reinterpret(streamArena, ::SkDynamicMemoryWStream_delete)
     private val cleanable = CLEANER.register(this, CleanerAction(handleArena, streamArena))
 
+    /** If this canvas draws to a float16 bitmap, sub-canvases and prepared bitmaps also use float16. */
+    private val halfFloat = bitmap?.spec?.representation?.pixelFormat?.code == AV_PIX_FMT_RGBAF16
+
     // Use a static class to absolutely ensure that no unwanted references leak into this object.
     private class CleanerAction(private vararg val arenas: Arena) : Runnable {
         override fun run() {
@@ -182,7 +187,7 @@ class Canvas private constructor(
                 // Otherwise, we need to allocate a completely new canvas, let the client draw onto that,
                 // and finally composite the result back onto this canvas.
                 // Then allocate the sub-bitmap and sub-canvas and let the client draw to it.
-                val subRep = compatibleRepresentation(colorSpace)
+                val subRep = compatibleRepresentation(colorSpace, halfFloat)
                 // Notice that this sub-ceiling is only a very rough approximation of the actual shape of the main
                 // canvas's color space embedded inside the sub color space. But it's good enough to avoid noticeable
                 // hue-shift artifacts etc. when later drawing the sub-bitmap onto the main canvas.
@@ -209,12 +214,19 @@ class Canvas private constructor(
             val (w, h) = bitmap.spec.resolution
             val bmpSeg = bitmap.memorySegment(0)
             val ls = bitmap.linesize(0)
+            // Assemble a single row in the bitmap's pixel format and then copy it into every line.
+            val pxBytes = if (halfFloat) 8L else 16L
             Arena.ofConfined().use { arena ->
-                val rowSeg = arena.allocateArray(JAVA_FLOAT, w * 4L)
-                for (x in 0..<w)
-                    MemorySegment.copy(color, 0, rowSeg, JAVA_FLOAT, x * 16L, 4)
+                val rowSeg = arena.allocate(w * pxBytes)
+                if (halfFloat) {
+                    val halfColor = ShortArray(4) { floatToFloat16(color[it]) }
+                    for (x in 0..<w)
+                        MemorySegment.copy(halfColor, 0, rowSeg, JAVA_SHORT, x * pxBytes, 4)
+                } else
+                    for (x in 0..<w)
+                        MemorySegment.copy(color, 0, rowSeg, JAVA_FLOAT, x * pxBytes, 4)
                 for (y in 0..<h)
-                    MemorySegment.copy(rowSeg, 0L, bmpSeg, y * ls.toLong(), w * 16L)
+                    MemorySegment.copy(rowSeg, 0L, bmpSeg, y * ls.toLong(), w * pxBytes)
             }
         }
     }
@@ -229,7 +241,20 @@ class Canvas private constructor(
         transform: AffineTransform? = null,
         clip: List<Shape> = emptyList()
     ) {
-        fillOrStrokeShape(shape, null, shader, alpha, matte, blurSigma, blendMode, transform, clip)
+        fillOrStrokeShape(shape, null, null, shader, alpha, matte, blurSigma, blendMode, transform, clip)
+    }
+
+    fun fillShape(
+        shape: PreparedShape,
+        shader: Shader,
+        alpha: Double = 1.0,
+        matte: Matte? = null,
+        blurSigma: Double = 0.0,
+        blendMode: BlendMode = BlendMode.SRC_OVER,
+        transform: AffineTransform? = null,
+        clip: List<Shape> = emptyList()
+    ) {
+        fillOrStrokeShape(null, shape, null, shader, alpha, matte, blurSigma, blendMode, transform, clip)
     }
 
     fun strokeShape(
@@ -243,7 +268,7 @@ class Canvas private constructor(
         transform: AffineTransform? = null,
         clip: List<Shape> = emptyList()
     ) {
-        fillOrStrokeShape(shape, stroke, shader, alpha, matte, blurSigma, blendMode, transform, clip)
+        fillOrStrokeShape(shape, null, stroke, shader, alpha, matte, blurSigma, blendMode, transform, clip)
     }
 
     fun fillStencil(
@@ -284,10 +309,10 @@ class Canvas private constructor(
     }
 
     /**
-     * Draws an RGBAF32 bitmap with full range, the same color space as the canvas, and no values outside the range
-     * [0, ceiling] (a condition known as `promiseClamped`) at some integer offset without scaling. This method skips
-     * a lot of the machinery of the other bitmap-drawing methods and is thus mainly useful when making a large amount
-     * of draw calls.
+     * Draws an RGBAF32 or RGBAF16 bitmap with full range, the same color space as the canvas, and no values outside
+     * the range [0, ceiling] (a condition known as `promiseClamped`) at some integer offset without scaling. This
+     * method skips a lot of the machinery of the other bitmap-drawing methods and is thus mainly useful when making a
+     * large amount of draw calls.
      */
     fun drawImageFast(
         image: Bitmap,
@@ -300,7 +325,7 @@ class Canvas private constructor(
         if (alpha <= 0.0) return
         val rep = image.spec.representation
         require(
-            rep.pixelFormat.code == AV_PIX_FMT_RGBAF32 && rep.range == Bitmap.Range.FULL && rep.colorSpace == colorSpace
+            isFloatColorRep(rep) && rep.range == Bitmap.Range.FULL && rep.colorSpace == colorSpace
         ) { "Fast drawing only supports canvas-compatible images." }
         applyTransformAndClip(AffineTransform.getTranslateInstance(x.toDouble(), y.toDouble()), clip)
         if (alpha == 1.0)
@@ -352,7 +377,9 @@ class Canvas private constructor(
         transform: AffineTransform? = null,
         cached: PreparedBitmap? = null
     ): PreparedBitmap =
-        prepareBitmap(bitmap, promiseOpaque, promiseClamped, transform ?: IDENTITY, colorSpace, ceiling, cached)
+        prepareBitmap(
+            bitmap, promiseOpaque, promiseClamped, transform ?: IDENTITY, colorSpace, ceiling, cached, halfFloat
+        )
 
     fun prepareSVGAsBitmap(
         svg: SourceSVG,
@@ -360,7 +387,8 @@ class Canvas private constructor(
         cached: PreparedBitmap? = null
     ): PreparedBitmap =
         prepareVectorGraphicAsBitmap(
-            svg.width, svg.height, { c, t -> c.drawSVG(svg, t) }, transform ?: IDENTITY, colorSpace, ceiling, cached
+            svg.width, svg.height, { c, t -> c.drawSVG(svg, t) }, transform ?: IDENTITY, colorSpace, ceiling, cached,
+            halfFloat
         )
 
     fun preparePDFAsBitmap(
@@ -370,12 +398,15 @@ class Canvas private constructor(
     ): PreparedBitmap {
         val size = PDFDrawer.sizeOfRotatedCropBox(pdf.getPage(0))
         return prepareVectorGraphicAsBitmap(
-            size.width, size.height, { c, t -> c.drawPDF(pdf, t) }, transform ?: IDENTITY, colorSpace, ceiling, cached
+            size.width, size.height, { c, t -> c.drawPDF(pdf, t) }, transform ?: IDENTITY, colorSpace, ceiling, cached,
+            halfFloat
         )
     }
 
+    /** Exactly one of [shape] and [preparedShape] must be non-null. */
     private fun fillOrStrokeShape(
-        shape: Shape,
+        shape: Shape?,
+        preparedShape: PreparedShape?,
         stroke: BasicStroke?,
         shader: Shader,
         alpha: Double,
@@ -412,7 +443,10 @@ class Canvas private constructor(
             }
             applyToPaint(paint, shader, alpha, transform, transform, colorSpace, ceiling, needsClosing)
             applyToPaint(paint, matte, blurSigma, blendMode, transform, transform, needsClosing)
-            SkCanvas_drawPath(canvasHandle, shapeToPath(shape, arena), paint)
+            if (preparedShape != null)
+                SkCanvas_drawSkPath(canvasHandle, preparedShape.handle, paint)
+            else
+                SkCanvas_drawPath(canvasHandle, shapeToPath(shape!!, arena), paint)
             SkPaint_delete(paint)
             needsClosing.forEach(Bitmap::close)
         }
@@ -436,10 +470,11 @@ class Canvas private constructor(
         var canvasTransform = transform
         var filterMode = SkFilterMode_Nearest()
         if (nearestNeighbor)
-            prepared = prepareBitmap(bitmap, promiseOpaque, promiseClamped, IDENTITY, colorSpace, ceiling, null)
+            prepared =
+                prepareBitmap(bitmap, promiseOpaque, promiseClamped, IDENTITY, colorSpace, ceiling, null, halfFloat)
         else {
             prepared = prepareBitmap(
-                bitmap, promiseOpaque, promiseClamped, transform ?: IDENTITY, colorSpace, ceiling, null
+                bitmap, promiseOpaque, promiseClamped, transform ?: IDENTITY, colorSpace, ceiling, null, halfFloat
             )
             canvasTransform = prepared.transform
             // If the preparation failed to apply the transform, fall back to Skia's linear interpolation.
@@ -507,18 +542,33 @@ class Canvas private constructor(
 
     companion object {
 
-        fun compatibleRepresentation(colorSpace: ColorSpace): Bitmap.Representation =
-            Bitmap.Representation(Bitmap.PixelFormat.of(AV_PIX_FMT_RGBAF32), colorSpace, Bitmap.Alpha.PREMULTIPLIED)
+        /**
+         * Whether SDR working canvases should opt into float16 bitmaps, which halves their memory and bandwidth
+         * requirements at the cost of precision. It can be enabled with the system property "cinecred.halfFloatCanvas".
+         */
+        val PREFER_HALF_FLOAT = System.getProperty("cinecred.halfFloatCanvas").toBoolean()
+
+        /**
+         * @param halfFloat Whether to use RGBAF16 instead of RGBAF32. Its precision suffices for SDR content in the
+         *     blending color space, but HDR content should always use the full float representation.
+         */
+        fun compatibleRepresentation(colorSpace: ColorSpace, halfFloat: Boolean = false): Bitmap.Representation =
+            Bitmap.Representation(
+                Bitmap.PixelFormat.of(if (halfFloat) AV_PIX_FMT_RGBAF16 else AV_PIX_FMT_RGBAF32),
+                colorSpace, Bitmap.Alpha.PREMULTIPLIED
+            )
 
         fun forBitmap(bitmap: Bitmap, ceiling: Float? = 1f): Canvas {
             val rep = bitmap.spec.representation
-            require(rep.pixelFormat.code == AV_PIX_FMT_RGBAF32)
+            require(isFloatColorRep(rep))
             require(rep.range == Bitmap.Range.FULL)
             requireNotNull(rep.colorSpace)
             require(rep.alpha == Bitmap.Alpha.PREMULTIPLIED)
             val (w, h) = bitmap.spec.resolution
+            val colorType = if (rep.pixelFormat.code == AV_PIX_FMT_RGBAF16) SkColorType_RGBA_F16() else
+                SkColorType_RGBA_F32()
             val canvasHandle = SkCanvas_MakeRasterDirect(
-                w, h, SkColorType_RGBA_F32(), SkAlphaType_Premul(),
+                w, h, colorType, SkAlphaType_Premul(),
                 rep.colorSpace.skiaHandle,
                 bitmap.memorySegment(0),
                 bitmap.linesize(0).toLong()
@@ -615,11 +665,15 @@ class Canvas private constructor(
         private fun isAlphaRep(rep: Bitmap.Representation) =
             rep.pixelFormat.run { family == Bitmap.PixelFormat.Family.GRAY && !hasAlpha }
 
+        private fun isFloatColorRep(rep: Bitmap.Representation) =
+            rep.pixelFormat.code == AV_PIX_FMT_RGBAF32 || rep.pixelFormat.code == AV_PIX_FMT_RGBAF16
+
         private data class ColorAndAlphaType(val colorType: Byte, val alphaType: Byte)
 
         private fun colorAndAlphaTypeFor(pixelFormat: Bitmap.PixelFormat, alpha: Bitmap.Alpha, promiseOpaque: Boolean) =
             when (pixelFormat.code) {
                 AV_PIX_FMT_RGBAF32 -> ColorAndAlphaType(SkColorType_RGBA_F32(), alphaTypeFor(alpha, promiseOpaque))
+                AV_PIX_FMT_RGBAF16 -> ColorAndAlphaType(SkColorType_RGBA_F16(), alphaTypeFor(alpha, promiseOpaque))
                 AV_PIX_FMT_GRAY16LE -> ColorAndAlphaType(SkColorType_A16_unorm(), SkAlphaType_Premul())
                 else -> throw IllegalArgumentException("Pixel format $pixelFormat is incompatible with Skia.")
             }
@@ -747,17 +801,21 @@ class Canvas private constructor(
 
         private fun prepareBitmap(
             bitmap: Bitmap, promiseOpaque: Boolean, promiseClamped: Boolean,
-            transform: AffineTransform, canvasCS: ColorSpace?, canvasCeiling: Float?, cached: PreparedBitmap?
+            transform: AffineTransform, canvasCS: ColorSpace?, canvasCeiling: Float?, cached: PreparedBitmap?,
+            halfFloat: Boolean = false
         ): PreparedBitmap {
             // Find whether the representation of the passed bitmap is directly supported by Skia.
             val (res, inRep) = bitmap.spec
             val compatiblePixelFormat = when {
-                isColorRep(inRep) -> Bitmap.PixelFormat.of(AV_PIX_FMT_RGBAF32)
+                isColorRep(inRep) -> Bitmap.PixelFormat.of(if (halfFloat) AV_PIX_FMT_RGBAF16 else AV_PIX_FMT_RGBAF32)
                 isAlphaRep(inRep) -> Bitmap.PixelFormat.of(AV_PIX_FMT_GRAY16LE)
                 else -> throw IllegalArgumentException("Representation is neither color nor alpha: $inRep")
             }
             val isMask = compatiblePixelFormat.code == AV_PIX_FMT_GRAY16LE
-            val isInRepCompatible = inRep.pixelFormat == compatiblePixelFormat && inRep.range == Bitmap.Range.FULL &&
+            // Skia draws float bitmaps of either precision, so there's no need to convert between them.
+            val isInRepPixelFormatCompatible = if (isMask) inRep.pixelFormat == compatiblePixelFormat else
+                isFloatColorRep(inRep)
+            val isInRepCompatible = isInRepPixelFormatCompatible && inRep.range == Bitmap.Range.FULL &&
                     inRep.alpha != Bitmap.Alpha.STRAIGHT && (isMask || (inRep.colorSpace == canvasCS && promiseClamped))
 
             // If there is no transform and Skia understands the bitmap, just return it.
@@ -870,7 +928,8 @@ class Canvas private constructor(
 
         private fun prepareVectorGraphicAsBitmap(
             width: Double, height: Double, drawTo: (Canvas, AffineTransform) -> Unit,
-            transform: AffineTransform, canvasCS: ColorSpace, canvasCeiling: Float?, cached: PreparedBitmap?
+            transform: AffineTransform, canvasCS: ColorSpace, canvasCeiling: Float?, cached: PreparedBitmap?,
+            halfFloat: Boolean
         ): PreparedBitmap {
             val bitmap: Bitmap
             val b = Rectangle2D.Double(0.0, 0.0, width, height).transformedBy(transform).bounds
@@ -879,7 +938,8 @@ class Canvas private constructor(
             )
                 bitmap = cached.bitmap.view()
             else {
-                bitmap = Bitmap.allocate(Bitmap.Spec(Resolution(b.width, b.height), compatibleRepresentation(canvasCS)))
+                val rep = compatibleRepresentation(canvasCS, halfFloat)
+                bitmap = Bitmap.allocate(Bitmap.Spec(Resolution(b.width, b.height), rep))
                 val shiftedTransform = AffineTransform.getTranslateInstance(-b.x.toDouble(), -b.y.toDouble())
                     .apply { concatenate(transform) }
                 forBitmap(bitmap.zero(), canvasCeiling).use { canvas -> drawTo(canvas, shiftedTransform) }
@@ -990,6 +1050,33 @@ class Canvas private constructor(
     )
 
 
+    /**
+     * A [Shape] that has been converted to a native Skia path once, so that it can be drawn over and over again without
+     * repeating the conversion. A prepared shape may be drawn by multiple canvases and threads at the same time.
+     *
+     * Like canvases, prepared shapes are memory-managed by the garbage collector, but can be freed early by calling
+     * [close].
+     */
+    class PreparedShape(shape: Shape) : AutoCloseable {
+
+        private val handleArena = Arena.ofShared()
+        private val cleanable = CLEANER.register(this, CleanerAction(handleArena))
+        val handle: MemorySegment
+
+        init {
+            // The native side also precomputes the path's lazily cached properties, so concurrent drawing is safe.
+            handle = Arena.ofConfined().use { arena -> SkPath_Make(shapeToPath(shape, arena)) }
+                .also { if (it == NULL) throw NullPointerException("Failed to allocate Skia path.") }
+                .reinterpret(handleArena, ::SkPath_delete)
+        }
+
+        override fun close() {
+            cleanable.clean()
+        }
+
+    }
+
+
     /** @throws IllegalArgumentException If the SVG cannot be parsed or is invalid in some respect. */
     class SourceSVG(xml: String) : AutoCloseable {
 
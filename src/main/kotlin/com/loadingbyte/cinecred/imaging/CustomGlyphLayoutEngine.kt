@@ -33,14 +33,76 @@ class CustomGlyphLayoutEngine private constructor(
         val script = key.getScript()
         val config = configSource.get(tr.start, tr.limit)
 
-        val hbFace = getHBFace(font)
-
         val kern = typoFlags and 0x00000001 != 0
         val liga = typoFlags and 0x00000002 != 0
         val rtl = typoFlags and 0x80000000.toInt() != 0
         val lang = config.locale.toLanguageTag()
         val s = config.hScaling
 
+        // Credits typically repeat the same strings in the same styles over and over again, so we remember the results
+        // of the comparatively expensive shaping. Notice that the key only covers those parameters that influence the
+        // shaping; the remaining ones (like tracking) are applied below when transferring the result.
+        val shapingKey = ShapingKey(
+            script, ptSize, kern, liga, rtl, lang, config.features.map { Pair(it.tag, it.value) },
+            // HarfBuzz looks at the surrounding text for context, so the key has to include all of it.
+            String(tr.text), tr.start, tr.limit
+        )
+        val cachedShaped = synchronized(shapingCache) { shapingCache[font]?.get(shapingKey) }
+        RenderMetrics.recordCacheAccess(RenderMetrics.Cache.SHAPING_CACHE, hit = cachedShaped != null)
+        val shaped = cachedShaped
+            ?: shape(font, script, ptSize, kern, liga, rtl, lang, config.features, tr).also { result ->
+                synchronized(shapingCache) {
+                    shapingCache.computeIfAbsent(font) {
+                        object : LinkedHashMap<ShapingKey, ShapingResult>(16, 0.75f, true) {
+                            override fun removeEldestEntry(eldest: Map.Entry<ShapingKey, ShapingResult>) =
+                                size > SHAPING_CACHE_SIZE
+                        }
+                    }[shapingKey] = result
+                }
+            }
+        val glyphCount = shaped.glyphCodes.size
+
+        // For easier access, get the array into which we will store the shaping result.
+        val glyphs = gvData._glyphs
+        val positions = gvData._positions
+        val indices = gvData._indices
+
+        // Expand those arrays if necessary.
+        val delta = (gvData._count + glyphCount) - glyphs.size
+        if (delta > 0)
+            gvData.grow(delta)
+
+        // Transfer the shaping result into those arrays.
+        var x = startPt.x + config.bearingLeftPx
+        var y = startPt.y
+        for (getIdx in 0..<glyphCount) {
+            val setIdx = gvData._count++
+            glyphs[setIdx] = shaped.glyphCodes[getIdx] or gmask
+            indices[setIdx] = baseIndex + shaped.clusters[getIdx]
+            if (setIdx != 0 && indices[setIdx] != indices[setIdx - 1])
+                x += config.trackingPx
+            positions[setIdx * 2] = x + s * shaped.xOffsets[getIdx] / FLOAT_TO_HB_FIXED
+            positions[setIdx * 2 + 1] = y - shaped.yOffsets[getIdx] / FLOAT_TO_HB_FIXED
+            x += s * shaped.xAdvances[getIdx] / FLOAT_TO_HB_FIXED
+            y += shaped.yAdvances[getIdx] / FLOAT_TO_HB_FIXED
+        }
+
+        // Now, x respectively y hold the start point plus the advance of the string. Move the start point there
+        // in preparation for the next layout step, and also store it in the positions array since the calling code
+        // expects that.
+        x += config.bearingRightPx
+        startPt.x = x
+        startPt.y = y
+        positions[gvData._count * 2] = x
+        positions[gvData._count * 2 + 1] = y
+    }
+
+    private fun shape(
+        font: Font2D, script: Int, ptSize: Float, kern: Boolean, liga: Boolean, rtl: Boolean, lang: String,
+        features: List<FormattedString.Font.Feature>, tr: TextRecord
+    ): ShapingResult {
+        val hbFace = getHBFace(font)
+
         // Note: Whenever we allocate memory here, we do not have to check for allocation errors in the form of a NULL
         // pointer since (a) Java throws an OutOfMemoryError whenever some allocation we directly request fails and (b)
         // HarfBuzz returns empty singletons instead of NULL pointers whenever it can't allocate memory.
@@ -61,13 +123,13 @@ class CustomGlyphLayoutEngine private constructor(
             hb_buffer_add_utf16(hbBuffer, chars, tr.text.size, tr.start, tr.limit - tr.start)
 
             // Create an HB feature array and fill it.
-            val numFeatures = 1 + LIGATURES_FONT_FEATS.size + config.features.size
+            val numFeatures = 1 + LIGATURES_FONT_FEATS.size + features.size
             val hbFeatures = hb_feature_t.allocateArray(numFeatures.toLong(), arena)
             var featureIdx = 0L
             configureFeature(hbFeatures, featureIdx++, KERNING_FONT_FEAT, if (kern) 1 else 0)
             for (tag in LIGATURES_FONT_FEATS)
                 configureFeature(hbFeatures, featureIdx++, tag, if (liga) 1 else 0)
-            for (feat in config.features)
+            for (feat in features)
                 configureFeature(hbFeatures, featureIdx++, feat.tag, feat.value)
 
             // Run the HB shaping algorithm.
@@ -77,47 +139,45 @@ class CustomGlyphLayoutEngine private constructor(
             val glyphCount = hb_buffer_get_length(hbBuffer)
             val glyphInfo = hb_buffer_get_glyph_infos(hbBuffer, NULL)
             val glyphPos = hb_buffer_get_glyph_positions(hbBuffer, NULL)
-
-            // For easier access, get the array into which we will store the shaping result.
-            val glyphs = gvData._glyphs
-            val positions = gvData._positions
-            val indices = gvData._indices
-
-            // Expand those arrays if necessary.
-            val delta = (gvData._count + glyphCount) - glyphs.size
-            if (delta > 0)
-                gvData.grow(delta)
-
-            // Transfer the shaping result into those arrays.
-            var x = startPt.x + config.bearingLeftPx
-            var y = startPt.y
-            for (getIdx in 0L..<glyphCount.toLong()) {
-                val setIdx = gvData._count++
-                glyphs[setIdx] = hb_glyph_info_t.`codepoint$get`(glyphInfo, getIdx) or gmask
-                indices[setIdx] = baseIndex + hb_glyph_info_t.`cluster$get`(glyphInfo, getIdx) - tr.start
-                if (setIdx != 0 && indices[setIdx] != indices[setIdx - 1])
-                    x += config.trackingPx
-                positions[setIdx * 2] = x + s * hb_glyph_position_t.`x_offset$get`(glyphPos, getIdx) / FLOAT_TO_HB_FIXED
-                positions[setIdx * 2 + 1] = y - hb_glyph_position_t.`y_offset$get`(glyphPos, getIdx) / FLOAT_TO_HB_FIXED
-                x += s * hb_glyph_position_t.`x_advance$get`(glyphPos, getIdx) / FLOAT_TO_HB_FIXED
-                y += hb_glyph_position_t.`y_advance$get`(glyphPos, getIdx) / FLOAT_TO_HB_FIXED
-            }
-
-            // Now, x respectively y hold the start point plus the advance of the string. Move the start point there
-            // in preparation for the next layout step, and also store it in the positions array since the calling code
-            // expects that.
-            x += config.bearingRightPx
-            startPt.x = x
-            startPt.y = y
-            positions[gvData._count * 2] = x
-            positions[gvData._count * 2 + 1] = y
+            val result = ShapingResult(
+                glyphCodes = IntArray(glyphCount) { hb_glyph_info_t.`codepoint$get`(glyphInfo, it.toLong()) },
+                clusters = IntArray(glyphCount) { hb_glyph_info_t.`cluster$get`(glyphInfo, it.toLong()) - tr.start },
+                xOffsets = IntArray(glyphCount) { hb_glyph_position_t.`x_offset$get`(glyphPos, it.toLong()) },
+                yOffsets = IntArray(glyphCount) { hb_glyph_position_t.`y_offset$get`(glyphPos, it.toLong()) },
+                xAdvances = IntArray(glyphCount) { hb_glyph_position_t.`x_advance$get`(glyphPos, it.toLong()) },
+                yAdvances = IntArray(glyphCount) { hb_glyph_position_t.`y_advance$get`(glyphPos, it.toLong()) }
+            )
 
             // Free the manually allocated memory.
             hb_font_destroy(hbFont)
             hb_buffer_destroy(hbBuffer)
+            return result
         }
     }
 
+    private data class ShapingKey(
+        val script: Int,
+        val ptSize: Float,
+        val kern: Boolean,
+        val liga: Boolean,
+        val rtl: Boolean,
+        val lang: String,
+        val features: List<Pair<String, Int>>,
+        val text: String,
+        val start: Int,
+        val limit: Int
+    )
+
+    // All positions are in HarfBuzz's fixed-point format, and clusters are relative to the start of the text record.
+    private class ShapingResult(
+        val glyphCodes: IntArray,
+        val clusters: IntArray,
+        val xOffsets: IntArray,
+        val yOffsets: IntArray,
+        val xAdvances: IntArray,
+        val yAdvances: IntArray
+    )
+
 
     companion object {
 
@@ -147,6 +207,14 @@ class CustomGlyphLayoutEngine private constructor(
         }
 
 
+        private const val SHAPING_CACHE_SIZE = 2_000
+
+        // A bounded LRU cache per font. Just like with the HarfBuzz faces, fonts are only weakly referenced, so that
+        // the shaping results don't keep the fonts of closed projects alive. As layouting happens in multiple threads,
+        // all accesses must synchronize on the outer map.
+        private val shapingCache = WeakHashMap<Font2D, LinkedHashMap<ShapingKey, ShapingResult>>()
+
+
         private val hbFaces = WeakHashMap<Font2D, MemorySegment>()
 
         private fun getHBFace(font: Font2D) =
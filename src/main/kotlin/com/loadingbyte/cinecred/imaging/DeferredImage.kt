@@ -48,6 +48,7 @@ import java.nio.file.Path
 import java.text.DecimalFormat
 import java.text.DecimalFormatSymbols
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
 import javax.xml.XMLConstants.XML_NS_URI
 import kotlin.math.*
 
@@ -55,6 +56,9 @@ import kotlin.math.*
 class DeferredImage(var width: Double = 0.0, var height: Y = 0.0.toY()) {
 
     private val instructions = HashMap<Layer, MutableList<Instruction>>()
+    // Built lazily when a large layer is materialized with culling. As materialization may happen from multiple
+    // threads at the same time (e.g., when pre-rendering video chunks), this map has to be concurrent.
+    private val yIndices = ConcurrentHashMap<Layer, YIndex>()
 
     private fun addInstruction(layer: Layer, insn: Instruction) {
         instructions.computeIfAbsent(layer) { ArrayList() }.add(insn)
@@ -127,13 +131,15 @@ class DeferredImage(var width: Double = 0.0, var height: Y = 0.0.toY()) {
      * content is aligned with the canvas' pixel grid to prevent interpolation and retain as much quality as possible.
      */
     fun materialize(canvas: Canvas, cache: CanvasMaterializationCache?, layers: List<Layer>) {
-        require(canvas.bitmap != null) { "To materialize to an SVG or PDF, use the specialized methods." }
+        val bitmap = requireNotNull(canvas.bitmap) { "To materialize to an SVG or PDF, use the specialized methods." }
         val backend = CanvasBackend(canvas, cache as CanvasMaterializationCacheImpl?)
         // If only a portion of the deferred image is materialized, cull the rest to improve performance.
         // Notice that because the culling rect is aligned with the pixel grid, we correctly include all content
         // that at least partially lies inside one of the surface's pixels.
         val culling = Rectangle2D.Double(0.0, 0.0, canvas.width, canvas.height)
-        materializeDeferredImage(backend, 0.0, 0.0, 1.0, 1.0, culling, this, layers)
+        RenderMetrics.measure(RenderMetrics.Stage.MATERIALIZE, bytes = RenderMetrics.bytesOf(bitmap)) {
+            materializeDeferredImage(backend, 0.0, 0.0, 1.0, 1.0, culling, this, layers)
+        }
     }
 
     /** Draws the content of this deferred image onto an SVG element. */
@@ -178,15 +184,34 @@ class DeferredImage(var width: Double = 0.0, var height: Y = 0.0.toY()) {
             if (x + w < cx || y + h < cy || x > cx + culling.width || y > cy + culling.height)
                 return
         }
-        for (layer in layers)
-            for (insn in image.instructions.getOrDefault(layer, emptyList()))
-                materializeInstruction(backend, x, y, universeScaling, elasticScaling, culling, insn)
+        for (layer in layers) {
+            val insns = image.instructions[layer] ?: continue
+            if (culling == null || insns.size < MIN_Y_INDEXED_INSTRUCTIONS)
+                for (insn in insns)
+                    materializeInstruction(backend, x, y, universeScaling, elasticScaling, culling, image, insn)
+            else {
+                // For large layers, only visit those instructions which vertically intersect the culling rectangle.
+                // The index is queried in the image's own coordinate system, with a safeguard margin of a few pixels
+                // that mirrors the one used for blurred shapes. The precise culling is still done per instruction.
+                val yIndex = image.yIndices[layer]
+                    ?.takeIf { it.elasticScaling == elasticScaling && it.numInstructions == insns.size }
+                    ?: YIndex(insns, elasticScaling).also { image.yIndices[layer] = it }
+                val margin = 4.0 / universeScaling
+                val y0 = (culling.y - y) / universeScaling - margin
+                val y1 = (culling.y + culling.height - y) / universeScaling + margin
+                yIndex.forEachCandidate(y0, y1) { insnIdx ->
+                    materializeInstruction(
+                        backend, x, y, universeScaling, elasticScaling, culling, image, insns[insnIdx]
+                    )
+                }
+            }
+        }
     }
 
     private fun materializeInstruction(
         backend: MaterializationBackend,
         x: Double, y: Double, universeScaling: Double, elasticScaling: Double, culling: Rectangle2D?,
-        insn: Instruction
+        image: DeferredImage, insn: Instruction
     ) {
         when (insn) {
             is Instruction.DrawDeferredImageLayer -> materializeDeferredImage(
@@ -196,22 +221,23 @@ class DeferredImage(var width: Double = 0.0, var height: Y = 0.0.toY()) {
             )
             is Instruction.DrawShape -> materializeShape(
                 backend, x + universeScaling * insn.x, y + universeScaling * insn.y.resolve(elasticScaling),
-                universeScaling, culling, insn.shape, insn.coat, insn.fill, false, universeScaling * insn.blurRadius
+                universeScaling, culling, insn.shape, insn.coat, insn.fill, false, universeScaling * insn.blurRadius,
+                insn
             )
             is Instruction.DrawLine -> materializeShape(
                 backend, x, y, universeScaling, culling,
                 Line2D.Double(insn.x1, insn.y1.resolve(elasticScaling), insn.x2, insn.y2.resolve(elasticScaling)),
-                Coat.Plain(insn.color), fill = false, insn.dash, blurRadius = 0.0
+                Coat.Plain(insn.color), fill = false, insn.dash, blurRadius = 0.0, insn = null
             )
             is Instruction.DrawRect -> materializeShape(
                 backend, x, y, universeScaling, culling,
                 Rectangle2D.Double(
                     insn.x, insn.y.resolve(elasticScaling), insn.width, insn.height.resolve(elasticScaling)
-                ), Coat.Plain(insn.color), insn.fill, dash = false, blurRadius = 0.0
+                ), Coat.Plain(insn.color), insn.fill, dash = false, blurRadius = 0.0, insn = null
             )
             is Instruction.DrawText -> materializeText(
                 backend, x + universeScaling * insn.x, y + universeScaling * insn.yBaseline.resolve(elasticScaling),
-                universeScaling, culling, insn.text, insn.coat
+                universeScaling, culling, insn
             )
             is Instruction.DrawEmbeddedPicture -> materializeEmbeddedPicture(
                 backend, x + universeScaling * insn.x, y + universeScaling * insn.y.resolve(elasticScaling),
@@ -227,7 +253,7 @@ class DeferredImage(var width: Double = 0.0, var height: Y = 0.0.toY()) {
     private fun materializeShape(
         backend: MaterializationBackend,
         x: Double, y: Double, scaling: Double, culling: Rectangle2D?,
-        shape: Shape, coat: Coat, fill: Boolean, dash: Boolean, blurRadius: Double
+        shape: Shape, coat: Coat, fill: Boolean, dash: Boolean, blurRadius: Double, insn: Instruction.DrawShape?
     ) {
         // It would be a bit complicated to exactly determine which pixels are affected after the blur, so instead, we
         // just add a safeguard buffer to better be sure that not a single blurred pixel is accidentally culled.
@@ -240,17 +266,26 @@ class DeferredImage(var width: Double = 0.0, var height: Y = 0.0.toY()) {
                 (culling.height + 2 * safeBlurRadius) / scaling
             )
         ) return
+        val tx = AffineTransform().apply { translate(x, y); scale(scaling) }
+        // Unblurred fills on a canvas draw the shape with a canvas transform, so that the instruction's native path can
+        // be prepared once and then reused. Blurs must still be drawn untransformed because their radius is already
+        // given in canvas space.
+        if (backend is CanvasBackend && insn != null && fill && blurRadius == 0.0) {
+            backend.fillShape(insn, shape, tx, coat)
+            return
+        }
         // We first transform the shape and then draw it without scaling the canvas.
         // This simplifies code in the SVG and PDF backends, and is also required for snapping hairlines to pixels.
-        val tx = AffineTransform().apply { translate(x, y); scale(scaling) }
         backend.materializeShape(shape.transformedBy(tx), coat.transform(tx), fill, dash, blurRadius)
     }
 
     private fun materializeText(
         backend: MaterializationBackend,
         x: Double, yBaseline: Double, scaling: Double, culling: Rectangle2D?,
-        text: Text, coat: Coat
+        insn: Instruction.DrawText
     ) {
+        val text = insn.text
+        val coat = insn.coat
         if (culling != null &&
             !culling.intersects(
                 x,
@@ -259,7 +294,10 @@ class DeferredImage(var width: Double = 0.0, var height: Y = 0.0.toY()) {
                 (text.heightAboveBaseline + text.heightBelowBaseline) * scaling
             )
         ) return
-        backend.materializeText(x, yBaseline, scaling, text, coat)
+        if (backend is CanvasBackend)
+            backend.materializeText(x, yBaseline, scaling, text, coat, insn)
+        else
+            backend.materializeText(x, yBaseline, scaling, text, coat)
     }
 
     private fun materializeEmbeddedPicture(
@@ -286,6 +324,9 @@ class DeferredImage(var width: Double = 0.0, var height: Y = 0.0.toY()) {
 
     companion object {
 
+        // Layers with fewer instructions are materialized without consulting a YIndex.
+        private const val MIN_Y_INDEXED_INSTRUCTIONS = 64
+
         // These common layers are typically used. Additional layers may be defined by users of this class.
         val STATIC = object : Layer {}
         val TAPES = object : Layer {}
@@ -378,7 +419,11 @@ class DeferredImage(var width: Double = 0.0, var height: Y = 0.0.toY()) {
     }
 
 
-    sealed interface CanvasMaterializationCache {
+    /**
+     * Closing the cache immediately frees the native resources it holds. This must only happen once no materialization
+     * uses the cache anymore. Unclosed caches are left to the garbage collector.
+     */
+    sealed interface CanvasMaterializationCache : AutoCloseable {
         companion object {
             operator fun invoke(): CanvasMaterializationCache = CanvasMaterializationCacheImpl()
         }
@@ -386,12 +431,127 @@ class DeferredImage(var width: Double = 0.0, var height: Y = 0.0.toY()) {
 
     private class CanvasMaterializationCacheImpl : CanvasMaterializationCache {
         private val prepPics = Collections.synchronizedMap(WeakHashMap<Picture, SoftReference<Canvas.PreparedBitmap>>())
+        // Native paths of the filled shapes and text outlines, prepared once when their instruction is first drawn and
+        // then reused by all subsequent materializations. Instructions don't override equals(), so they are compared by
+        // identity, and as they are only weakly referenced, the paths of dropped images are eventually freed as well.
+        private val prepShapes = Collections.synchronizedMap(WeakHashMap<Instruction, Canvas.PreparedShape>())
         // It is vital that this method removes the prepared bitmap and doesn't just retrieve it, because if thread A
         // has it while thread B replaces it with put...(), the bitmap could be closed while thread A is still using it.
-        fun popPreparedPicture(picture: Picture): Canvas.PreparedBitmap? = prepPics.remove(picture)?.get()
+        fun popPreparedPicture(picture: Picture): Canvas.PreparedBitmap? =
+            prepPics.remove(picture)?.get().also { prep ->
+                RenderMetrics.recordCacheAccess(RenderMetrics.Cache.MATERIALIZATION_CACHE, hit = prep != null)
+            }
         fun putPreparedPicture(picture: Picture, prepared: Canvas.PreparedBitmap) {
             prepPics.put(picture, SoftReference(prepared))?.get()?.bitmap?.close()
         }
+        fun getPreparedShape(insn: Instruction, shape: Shape): Canvas.PreparedShape {
+            prepShapes[insn]?.let { return it }
+            // Convert the shape outside the lock, and if another thread was faster, use its path instead.
+            val prepared = Canvas.PreparedShape(shape)
+            val existing = prepShapes.putIfAbsent(insn, prepared) ?: return prepared
+            prepared.close()
+            return existing
+        }
+        override fun close() {
+            synchronized(prepShapes) {
+                prepShapes.values.forEach(Canvas.PreparedShape::close)
+                prepShapes.clear()
+            }
+            synchronized(prepPics) {
+                prepPics.values.forEach { it.get()?.bitmap?.close() }
+                prepPics.clear()
+            }
+        }
+    }
+
+
+    /**
+     * Buckets the instructions of one layer by their vertical extent, which is only valid for the given elastic scaling.
+     * This allows to materialize a small strip of a very tall image (like a frame of a scroll) without walking through
+     * all of its instructions.
+     */
+    private class YIndex(insns: List<Instruction>, val elasticScaling: Double) {
+
+        val numInstructions = insns.size
+        private val minY: Double
+        private val bucketHeight: Double
+        private val buckets: Array<IntArray>
+        // Instructions whose vertical extent can't be determined are always visited.
+        private val unbounded: IntArray
+
+        init {
+            val tops = DoubleArray(numInstructions)
+            val bots = DoubleArray(numInstructions)
+            for ((idx, insn) in insns.withIndex()) {
+                val (top, bot) = extent(insn)
+                tops[idx] = min(top, bot)
+                bots[idx] = max(top, bot)
+            }
+            val bounded = (0..<numInstructions).filter { tops[it].isFinite() && bots[it].isFinite() }
+            unbounded = (0..<numInstructions).filter { !tops[it].isFinite() || !bots[it].isFinite() }.toIntArray()
+            minY = bounded.minOfOrNull { tops[it] } ?: 0.0
+            val maxY = bounded.maxOfOrNull { bots[it] } ?: 0.0
+            val numBuckets = (numInstructions / 8).coerceIn(1, 4096)
+            bucketHeight = ((maxY - minY) / numBuckets).coerceAtLeast(1.0)
+            val bucketSizes = IntArray(numBuckets)
+            for (idx in bounded)
+                for (b in bucketOf(tops[idx], numBuckets)..bucketOf(bots[idx], numBuckets))
+                    bucketSizes[b]++
+            buckets = Array(numBuckets) { b -> IntArray(bucketSizes[b]) }
+            bucketSizes.fill(0)
+            for (idx in bounded)
+                for (b in bucketOf(tops[idx], numBuckets)..bucketOf(bots[idx], numBuckets))
+                    buckets[b][bucketSizes[b]++] = idx
+        }
+
+        private fun bucketOf(y: Double, numBuckets: Int) = ((y - minY) / bucketHeight).toInt().coerceIn(0, numBuckets - 1)
+
+        private fun extent(insn: Instruction): Pair<Double, Double> = when (insn) {
+            is Instruction.DrawDeferredImageLayer -> {
+                val top = insn.y.resolve(elasticScaling)
+                val h = insn.universeScaling * insn.image.height.resolve(elasticScaling * insn.elasticScaling)
+                Pair(top, top + h)
+            }
+            is Instruction.DrawShape -> {
+                val top = insn.y.resolve(elasticScaling)
+                val bounds = insn.shape.bounds2D
+                Pair(top + bounds.minY - insn.blurRadius, top + bounds.maxY + insn.blurRadius)
+            }
+            is Instruction.DrawLine -> Pair(insn.y1.resolve(elasticScaling), insn.y2.resolve(elasticScaling))
+            is Instruction.DrawRect -> {
+                val top = insn.y.resolve(elasticScaling)
+                Pair(top, top + insn.height.resolve(elasticScaling))
+            }
+            is Instruction.DrawText -> {
+                val baseline = insn.yBaseline.resolve(elasticScaling)
+                Pair(baseline - insn.text.heightAboveBaseline, baseline + insn.text.heightBelowBaseline)
+            }
+            is Instruction.DrawEmbeddedPicture -> {
+                val top = insn.y.resolve(elasticScaling)
+                Pair(top, top + insn.embeddedPic.height)
+            }
+            is Instruction.DrawEmbeddedTape -> {
+                val top = insn.y.resolve(elasticScaling)
+                Pair(top, top + insn.embeddedTape.resolution.heightPx)
+            }
+        }
+
+        /** Calls [action] with the indices of all instructions that might intersect [y0, y1], in ascending order. */
+        fun forEachCandidate(y0: Double, y1: Double, action: (Int) -> Unit) {
+            val candidates = BitSet(numInstructions)
+            for (idx in unbounded)
+                candidates.set(idx)
+            if (y1 >= minY && y0 <= minY + bucketHeight * buckets.size)
+                for (b in bucketOf(y0, buckets.size)..bucketOf(y1, buckets.size))
+                    for (idx in buckets[b])
+                        candidates.set(idx)
+            var idx = candidates.nextSetBit(0)
+            while (idx >= 0) {
+                action(idx)
+                idx = candidates.nextSetBit(idx + 1)
+            }
+        }
+
     }
 
 
@@ -510,9 +670,27 @@ class DeferredImage(var width: Double = 0.0, var height: Y = 0.0.toY()) {
             }
         }
 
+        /**
+         * Fills the [shape] of the [insn] with the [transform]. If there is a cache, it keeps a native path of the
+         * shape for the [insn], so that later materializations of the same instruction can reuse it. Otherwise, the
+         * shape is just converted for this one draw call, which is cheaper than preparing a standalone path.
+         */
+        fun fillShape(insn: Instruction?, shape: Shape, transform: AffineTransform, coat: Coat) {
+            if (cache != null && insn != null)
+                canvas.fillShape(cache.getPreparedShape(insn, shape), coat.toShader(), transform = transform)
+            else
+                canvas.fillShape(shape, coat.toShader(), transform = transform)
+        }
+
         private fun snap(coordinate: Double) = ceil(coordinate) - 0.5
 
         override fun materializeText(x: Double, yBaseline: Double, scaling: Double, text: Text, coat: Coat) {
+            materializeText(x, yBaseline, scaling, text, coat, insn = null)
+        }
+
+        fun materializeText(
+            x: Double, yBaseline: Double, scaling: Double, text: Text, coat: Coat, insn: Instruction.DrawText?
+        ) {
             // We render the text by first converting the string to a path via FormattedString and then
             // filling that path. This has the following vital advantages:
             //   - We can render using Skia while still using AWT's excellent text layout capabilities.
@@ -534,7 +712,7 @@ class DeferredImage(var width: Double = 0.0, var height: Y = 0.0.toY()) {
                 translate(x, yBaseline)
                 scale(scaling)
             }
-            canvas.fillShape(text.transformedOutline, coat.toShader(), transform = transform)
+            fillShape(insn, text.transformedOutline, transform, coat)
         }
 
         override fun materializeEmbeddedPicture(
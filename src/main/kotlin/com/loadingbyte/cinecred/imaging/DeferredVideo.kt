@@ -8,7 +8,7 @@ import java.awt.Rectangle
 import java.awt.geom.AffineTransform
 import java.lang.ref.SoftReference
 import java.util.*
-import java.util.concurrent.Semaphore
+import java.util.concurrent.*
 import java.util.concurrent.atomic.AtomicReference
 import kotlin.collections.sumOf
 import kotlin.io.path.name
@@ -116,6 +116,13 @@ class DeferredVideo private constructor(
         numFrames = -1
     }
 
+    /**
+     * Estimates the memory that the page cache of one backend of this video occupies at most, where each cached render
+     * takes [bytesPerPixel] bytes per pixel.
+     */
+    fun estimatePageCacheBytes(bytesPerPixel: Long): Long =
+        PageCache.estimateWorkingSetBytes(this, bytesPerPixel)
+
     fun collectTapeSpans(layers: List<DeferredImage.Layer>): List<TapeSpan> {
         val tapeTracker = TapeTracker<Unit>(this, layers)
         return buildList {
@@ -250,7 +257,15 @@ class DeferredVideo private constructor(
     )
 
 
-    /** This class is not thread-safe. */
+    /**
+     * This class is not thread-safe.
+     *
+     * @param parallelism If larger than 1, upcoming frames are materialized ahead of time by that many worker threads,
+     *     while [materializeFrame] still hands them out in order. Only the overlaying of tapes, which requires reading
+     *     them sequentially, then remains on the calling thread. Only supported when not in random access mode.
+     * @param converterThreads When frames are not materialized ahead of time, the conversion from the canvas to the
+     *     user representation can instead be sped up by splitting it across that many threads.
+     */
     class BitmapBackend(
         video: DeferredVideo,
         private val staticLayers: List<DeferredImage.Layer>,
@@ -258,15 +273,23 @@ class DeferredVideo private constructor(
         private val grounding: Color4f?,
         private val userSpec: Bitmap.Spec,
         private val canvasCeiling: Float? = 1f,
-        private val cache: DeferredImage.CanvasMaterializationCache? = null,
-        private val randomAccessDraftMode: Boolean = false
+        cache: DeferredImage.CanvasMaterializationCache? = null,
+        private val randomAccessDraftMode: Boolean = false,
+        private val parallelism: Int = 1,
+        converterThreads: Int = 1
     ) : AutoCloseable {
 
         init {
             require(video.resolution == userSpec.resolution)
             require(userSpec.content.let { it != Bitmap.Content.ONLY_TOP_FIELD && it != Bitmap.Content.ONLY_BOT_FIELD })
+            require(parallelism >= 1)
+            require(parallelism == 1 || !randomAccessDraftMode) { "Parallelism is not supported in random access mode." }
         }
 
+        // Without a cache from the outside, the prepared native resources only have to live as long as this backend.
+        private val ownsCache = cache == null
+        private val cache = cache ?: DeferredImage.CanvasMaterializationCache()
+
         private val numFrames = video.numFrames
         private val progressiveVideo = run {
             val interlaced = userSpec.scan != Bitmap.Scan.PROGRESSIVE
@@ -274,8 +297,10 @@ class DeferredVideo private constructor(
                 video.copy(fpsScaling = if (interlaced) 2 else 1, roundShifts = true)
         }
         private val userPixelFormat get() = userSpec.representation.pixelFormat
+        // Float16 suffices for SDR content, but HDR content keeps the full float representation.
         private val canvasRepresentation = Canvas.compatibleRepresentation(
-            ColorSpace.of(userSpec.representation.colorSpace!!.primaries, ColorSpace.Transfer.BLENDING)
+            ColorSpace.of(userSpec.representation.colorSpace!!.primaries, ColorSpace.Transfer.BLENDING),
+            halfFloat = Canvas.PREFER_HALF_FLOAT && canvasCeiling != null
         )
 
         private val workWidth = closestWorkResolution(userSpec.resolution.widthPx, userPixelFormat.hChromaSub)
@@ -286,16 +311,20 @@ class DeferredVideo private constructor(
         private val canvasWorkSpec = Bitmap.Spec(workResolution, canvasRepresentation)
 
         private val canvas2user = BitmapConverter(
-            canvasWorkSpec, userWorkSpec, promiseOpaque = grounding != null, approxTransfer = randomAccessDraftMode
+            canvasWorkSpec, userWorkSpec, promiseOpaque = grounding != null, approxTransfer = randomAccessDraftMode,
+            threads = if (parallelism == 1) converterThreads else 1
         )
 
         override fun close() {
+            closeFramePipeline()
             canvas2user.close()
             blankCanvasBitmap.close()
             blankUserBitmap.close()
             pageCache.close()
             for (userData in tapeTracker.collectUserData())
                 userData.close()
+            if (ownsCache)
+                cache.close()
         }
 
         fun preloadFrame(frameIdx: Int) {
@@ -314,10 +343,9 @@ class DeferredVideo private constructor(
             if (frameIdx !in 0..<numFrames)
                 return null
 
-            val (bitmap, writable, shift) = when (userSpec.scan) {
-                Bitmap.Scan.PROGRESSIVE -> obtainDynamicProgressiveFrame(frameIdx)
-                else -> obtainDynamicInterlacedFrame(frameIdx)
-            }
+            val staticFrame = if (frameExecutor == null) obtainStaticFrame(frameIdx, canvas2user) else
+                takeStaticFrameFromPipeline(frameIdx)
+            val (bitmap, writable, shift) = overlayTapes(frameIdx, staticFrame)
             val (width, height) = userSpec.resolution
             return if (writable && width == workWidth && height == workHeight) bitmap else
                 bitmap.view(0, shift, width, height, 1).also { if (writable) bitmap.close() }
@@ -325,6 +353,113 @@ class DeferredVideo private constructor(
 
         private data class Frame(val bitmap: Bitmap, val writable: Boolean, val shift: Int)
 
+        /* ***********************************************
+           ********** PARALLEL MATERIALIZATION **********
+           *********************************************** */
+
+        private class PipelinedFrame(val frameIdx: Int, val future: Future<StaticFrame>)
+
+        private val frameExecutor = if (parallelism == 1) null else
+            Executors.newFixedThreadPool(parallelism) { Thread(it, "FrameMaterializer").apply { isDaemon = true } }
+        private val framePipeline = ArrayDeque<PipelinedFrame>()
+        // Workers each borrow their own converter from this pool, as converters are stateful.
+        private val spareCanvas2Users = ConcurrentLinkedQueue<BitmapConverter>()
+
+        private fun takeStaticFrameFromPipeline(frameIdx: Int): StaticFrame {
+            // Discard frames that have been materialized ahead of time, but which the caller has skipped.
+            while (framePipeline.isNotEmpty() && framePipeline.first().frameIdx < frameIdx)
+                discardPipelinedFrame(framePipeline.removeFirst())
+            // All earlier frames have now been handed out (and views of cached renders keep their memory alive), so the
+            // page cache can now safely free the chunks before the current frame. This can't be done by the page cache
+            // itself upon a query since workers query frames out of order.
+            pageCache.freeBefore(if (userSpec.scan == Bitmap.Scan.PROGRESSIVE) frameIdx else frameIdx * 2)
+            // Keep the pipeline filled.
+            var nextFrameIdx = framePipeline.lastOrNull()?.let { it.frameIdx + 1 } ?: frameIdx
+            while (framePipeline.size < parallelism * 2 && nextFrameIdx < numFrames) {
+                val pipelinedFrameIdx = nextFrameIdx++
+                framePipeline.addLast(PipelinedFrame(pipelinedFrameIdx, frameExecutor!!.submit(Callable {
+                    val converter = spareCanvas2Users.poll() ?: BitmapConverter(
+                        canvasWorkSpec, userWorkSpec, promiseOpaque = grounding != null, approxTransfer = false
+                    )
+                    try {
+                        obtainStaticFrame(pipelinedFrameIdx, converter)
+                    } finally {
+                        spareCanvas2Users.add(converter)
+                    }
+                })))
+            }
+            // If the same frame is requested twice in a row, it's no longer in the pipeline, so materialize it directly.
+            if (framePipeline.first().frameIdx != frameIdx)
+                return obtainStaticFrame(frameIdx, canvas2user)
+            return try {
+                framePipeline.removeFirst().future.get()
+            } catch (e: ExecutionException) {
+                throw e.cause ?: e
+            }
+        }
+
+        private fun discardPipelinedFrame(pipelinedFrame: PipelinedFrame) {
+            val staticFrame = try {
+                pipelinedFrame.future.get()
+            } catch (_: ExecutionException) {
+                return
+            } catch (_: CancellationException) {
+                return
+            }
+            if (staticFrame.frame.writable)
+                staticFrame.frame.bitmap.close()
+        }
+
+        private fun closeFramePipeline() {
+            val executor = frameExecutor ?: return
+            executor.shutdownNow()
+            executor.awaitTermination(1, TimeUnit.MINUTES)
+            while (framePipeline.isNotEmpty())
+                discardPipelinedFrame(framePipeline.removeFirst())
+            while (true)
+                (spareCanvas2Users.poll() ?: break).close()
+        }
+
+        /* *****************************************************
+           ********** COMBINE STATIC FRAMES AND TAPES **********
+           ***************************************************** */
+
+        /**
+         * A frame without tapes, but with the information which tapes need to be overlaid onto it afterward.
+         * For progressive frames, only [fstTapeResponses] are used, and the parities are meaningless.
+         */
+        private class StaticFrame(
+            val frame: Frame,
+            val compInCanvasRep: Boolean,
+            val fstTapeResponses: List<TapeTracker.Response<TapeUserData>>,
+            val sndTapeResponses: List<TapeTracker.Response<TapeUserData>>,
+            val fstSrcParity: Int,
+            val fstDstParity: Int
+        )
+
+        /** This method can be called from multiple threads at the same time, as long as each passes its own converter. */
+        private fun obtainStaticFrame(frameIdx: Int, converter: BitmapConverter): StaticFrame =
+            when (userSpec.scan) {
+                Bitmap.Scan.PROGRESSIVE -> {
+                    val tapeResponses = tapeTracker.query(frameIdx)
+                    val compInCanvasRep = shouldCompInCanvasRep(tapeResponses)
+                    val static = obtainStaticProgressiveFrame(frameIdx, compInCanvasRep, converter)
+                    StaticFrame(static, compInCanvasRep, tapeResponses, emptyList(), 0, 0)
+                }
+                else -> {
+                    val fstTapeResponses = tapeTracker.query(frameIdx * 2)
+                    val sndTapeResponses = tapeTracker.query(frameIdx * 2 + 1)
+                    val compInCanvasRep =
+                        shouldCompInCanvasRep(fstTapeResponses) || shouldCompInCanvasRep(sndTapeResponses)
+                    val (composite, fstSrcParity, fstDstParity) =
+                        obtainStaticInterlacedFrame(frameIdx, compInCanvasRep, converter)
+                    StaticFrame(
+                        Frame(composite, writable = true, shift = 0), compInCanvasRep,
+                        fstTapeResponses, sndTapeResponses, fstSrcParity, fstDstParity
+                    )
+                }
+            }
+
         /* ******************************************************
            ********** OBTAIN STATIC PROGRESSIVE FRAMES **********
            ****************************************************** */
@@ -394,8 +529,11 @@ class DeferredVideo private constructor(
             }
         }
 
-        private fun obtainStaticProgressiveFrame(progressiveFrameIdx: Int, useCanvasRep: Boolean): Frame {
-            val responses = pageCache.query(progressiveFrameIdx)
+        private fun obtainStaticProgressiveFrame(
+            progressiveFrameIdx: Int, useCanvasRep: Boolean, converter: BitmapConverter
+        ): Frame {
+            // When materializing in parallel, frames are queried out of order, so only free chunks upon explicit request.
+            val responses = pageCache.query(progressiveFrameIdx, free = frameExecutor == null)
             val r = responses.singleOrNull()
             return when {
                 responses.isEmpty() -> {
@@ -418,7 +556,7 @@ class DeferredVideo private constructor(
                     val canvasBitmap = Bitmap.allocate(canvasWorkSpec)
                     Canvas.forBitmap(canvasBitmap, canvasCeiling).use { canvas ->
                         if (grounding == null) canvasBitmap.zero() else canvas.fill(Canvas.Shader.Solid(grounding))
-                        for (resp in pageCache.query(progressiveFrameIdx))
+                        for (resp in responses)
                             when (resp) {
                                 is PageCache.Response.Image ->
                                     canvas.compositeLayer(alpha = resp.alpha) {
@@ -430,7 +568,7 @@ class DeferredVideo private constructor(
                                     )
                             }
                     }
-                    val bitmap = if (useCanvasRep) canvasBitmap else canvas2userAndClose(canvasBitmap)
+                    val bitmap = if (useCanvasRep) canvasBitmap else canvas2userAndClose(canvasBitmap, converter)
                     Frame(bitmap, writable = true, shift = 0)
                 }
             }
@@ -448,15 +586,17 @@ class DeferredVideo private constructor(
 
         private data class InterlacedFrame(val bitmap: Bitmap, val fstSrcParity: Int, val fstDstParity: Int)
 
-        private fun obtainStaticInterlacedFrame(frameIdx: Int, useCanvasRep: Boolean): InterlacedFrame {
+        private fun obtainStaticInterlacedFrame(
+            frameIdx: Int, useCanvasRep: Boolean, converter: BitmapConverter
+        ): InterlacedFrame {
             val fstSrcParity = if (userSpec.scan == Bitmap.Scan.INTERLACED_TOP_FIELD_FIRST) 0 else 1
             val sndSrcParity = 1 - fstSrcParity
             val fstDstParity = if (userSpec.content == Bitmap.Content.INTERLEAVED_FIELDS) fstSrcParity else sndSrcParity
             val sndDstParity = 1 - fstDstParity
             // It is important to query the earlier frame first, because as sequentialAccess is true, the cache is
             // free to discard it as soon as a later frame is queried.
-            val (fst, fstWritable, fstShift) = obtainStaticProgressiveFrame(frameIdx * 2, useCanvasRep)
-            val (snd, sndWritable, sndShift) = obtainStaticProgressiveFrame(frameIdx * 2 + 1, useCanvasRep)
+            val (fst, fstWritable, fstShift) = obtainStaticProgressiveFrame(frameIdx * 2, useCanvasRep, converter)
+            val (snd, sndWritable, sndShift) = obtainStaticProgressiveFrame(frameIdx * 2 + 1, useCanvasRep, converter)
             val interleaved = Bitmap.allocate(if (useCanvasRep) canvasWorkSpec else userWorkSpec)
             interleaved.blit(fst, 0, fstShift + fstSrcParity, workWidth, workHeight - 1, 0, fstDstParity, 2)
             interleaved.blit(snd, 0, sndShift + sndSrcParity, workWidth, workHeight - 1, 0, sndDstParity, 2)
@@ -471,36 +611,29 @@ class DeferredVideo private constructor(
 
         private val tapeTracker = TapeTracker<TapeUserData>(progressiveVideo, tapeLayers)
 
-        private fun obtainDynamicProgressiveFrame(frameIdx: Int): Frame {
-            val tapeResponses = tapeTracker.query(frameIdx)
-            val compInCanvasRep = shouldCompInCanvasRep(tapeResponses)
-            val static = obtainStaticProgressiveFrame(frameIdx, compInCanvasRep)
-            if (tapeResponses.isEmpty())
-                return static
-            val composite = if (static.writable) static.bitmap else
+        private fun overlayTapes(frameIdx: Int, staticFrame: StaticFrame): Frame {
+            val fstTapeResponses = staticFrame.fstTapeResponses
+            val sndTapeResponses = staticFrame.sndTapeResponses
+            if (fstTapeResponses.isEmpty() && sndTapeResponses.isEmpty())
+                return staticFrame.frame
+            val compInCanvasRep = staticFrame.compInCanvasRep
+            val (static, writable, shift) = staticFrame.frame
+            val composite = if (writable) static else
                 Bitmap.allocate(if (compInCanvasRep) canvasWorkSpec else userWorkSpec)
-                    .apply { blit(static.bitmap, 0, static.shift, workWidth, workHeight, 0, 0, 1) }
-            for (resp in tapeResponses) {
-                val userData = takeTapeUserData(resp)
-                userData.frameOverlayer!!.overlay(composite, userData.read(resp.timecode), resp.x, resp.y, resp.alpha)
-                dropTapeUserData(resp, frameIdx)
+                    .apply { blit(static, 0, shift, workWidth, workHeight, 0, 0, 1) }
+            if (userSpec.scan == Bitmap.Scan.PROGRESSIVE)
+                for (resp in fstTapeResponses) {
+                    val userData = takeTapeUserData(resp)
+                    userData.frameOverlayer!!.overlay(composite, userData.read(resp.timecode), resp.x, resp.y, resp.alpha)
+                    dropTapeUserData(resp, frameIdx)
+                }
+            else {
+                val fstSrcParity = staticFrame.fstSrcParity
+                val fstDstParity = staticFrame.fstDstParity
+                overlayInterlacedTapes(composite, frameIdx * 2, fstTapeResponses, fstSrcParity, fstDstParity)
+                overlayInterlacedTapes(composite, frameIdx * 2 + 1, sndTapeResponses, 1 - fstSrcParity, 1 - fstDstParity)
             }
-            val userComposite = if (!compInCanvasRep) composite else canvas2userAndClose(composite)
-            return Frame(userComposite, writable = true, shift = 0)
-        }
-
-        private fun obtainDynamicInterlacedFrame(frameIdx: Int): Frame {
-            val fstTapeResponses = tapeTracker.query(frameIdx * 2)
-            val sndTapeResponses = tapeTracker.query(frameIdx * 2 + 1)
-            val compInCanvasRep = shouldCompInCanvasRep(fstTapeResponses) || shouldCompInCanvasRep(sndTapeResponses)
-            val (composite, fstSrcParity, fstDstParity) = obtainStaticInterlacedFrame(frameIdx, compInCanvasRep)
-            if (fstTapeResponses.isEmpty() && sndTapeResponses.isEmpty())
-                return Frame(composite, writable = true, shift = 0)
-            val sndSrcParity = 1 - fstSrcParity
-            val sndDstParity = 1 - fstDstParity
-            overlayInterlacedTapes(composite, frameIdx * 2, fstTapeResponses, fstSrcParity, fstDstParity)
-            overlayInterlacedTapes(composite, frameIdx * 2 + 1, sndTapeResponses, sndSrcParity, sndDstParity)
-            val userComposite = if (!compInCanvasRep) composite else canvas2userAndClose(composite)
+            val userComposite = if (!compInCanvasRep) composite else canvas2userAndClose(composite, canvas2user)
             return Frame(userComposite, writable = true, shift = 0)
         }
 
@@ -610,12 +743,19 @@ class DeferredVideo private constructor(
             private lateinit var source: Source
             private lateinit var readSpec: Bitmap.Spec
             private lateinit var reader: Tape.SequentialReader
+            private lateinit var proxyReader: Tape.ProxyReader
             private lateinit var previewTape: Tape
 
             init {
                 setupSafely({
                     val embeddedTape = resp.embeddedTape
-                    if (usePreview)
+                    val proxyReader = if (usePreview) embeddedTape.tape.openProxyReader() else null
+                    if (proxyReader != null) {
+                        // The proxy is much closer to the actual tape than the low-res preview, so prefer it.
+                        this.proxyReader = proxyReader
+                        readSpec = proxyReader.spec
+                        source = Source.PROXY
+                    } else if (usePreview)
                         try {
                             previewTape = embeddedTape.tape
                             readSpec = embeddedTape.tape.getPreviewFrame(resp.timecode /* random tc */)!!.bitmap.spec
@@ -653,6 +793,8 @@ class DeferredVideo private constructor(
             val botFieldOverlayer: Overlayer?
 
             init {
+                // Frames decoded from a proxy are, just like the actual tape frames, not necessarily aligned.
+                val alignedOverlays = usePreview && source != Source.PROXY
                 val embeddedTapeFrameRes = resp.embeddedTape.resolution
                 val embeddedTapeFieldRes = Resolution(embeddedTapeFrameRes.widthPx, embeddedTapeFrameRes.heightPx / 2)
 
@@ -662,7 +804,8 @@ class DeferredVideo private constructor(
                     val compositedOverlayRes = if (readFramesAreProgressive) embeddedTapeFrameRes else
                     // If the tape is interlaced, make it have even height in the final output.
                         Resolution(embeddedTapeFrameRes.widthPx, embeddedTapeFrameRes.heightPx / 2 * 2)
-                    frameOverlayer = Overlayer(canvasRep, canvasCeiling, compositedOverlayRes, usePreview)
+                    frameOverlayer =
+                        Overlayer(canvasRep, canvasCeiling, compositedOverlayRes, usePreview, alignedOverlays)
                     topFieldOverlayer = null
                     botFieldOverlayer = null
                 } else {
@@ -670,13 +813,20 @@ class DeferredVideo private constructor(
                         "The interlaced tape '${resp.embeddedTape.tape.fileOrDir.name}' must have even height."
                     }
                     frameOverlayer = null
-                    topFieldOverlayer = Overlayer(canvasRep, canvasCeiling, embeddedTapeFieldRes, usePreview)
-                    botFieldOverlayer = Overlayer(canvasRep, canvasCeiling, embeddedTapeFieldRes, usePreview)
+                    topFieldOverlayer =
+                        Overlayer(canvasRep, canvasCeiling, embeddedTapeFieldRes, usePreview, alignedOverlays)
+                    botFieldOverlayer =
+                        Overlayer(canvasRep, canvasCeiling, embeddedTapeFieldRes, usePreview, alignedOverlays)
                 }
             }
 
             fun read(timecode: Timecode): Bitmap = when (source) {
                 Source.READER -> reader.read(timecode).bitmap
+                Source.PROXY -> try {
+                    proxyReader.read(timecode)
+                } catch (_: Exception) {
+                    missingMediaBitmap
+                }
                 Source.PREVIEW -> try {
                     previewTape.getPreviewFrame(timecode)!!.bitmap
                 } catch (_: Exception) {
@@ -693,6 +843,8 @@ class DeferredVideo private constructor(
             fun close() {
                 if (source == Source.READER)
                     reader.close()
+                else if (source == Source.PROXY)
+                    proxyReader.close()
                 frameOverlayer?.close()
                 topFieldOverlayer?.close()
                 botFieldOverlayer?.close()
@@ -700,7 +852,7 @@ class DeferredVideo private constructor(
                 botField?.close()
             }
 
-            private enum class Source { READER, PREVIEW, UNAVAILABLE }
+            private enum class Source { READER, PROXY, PREVIEW, UNAVAILABLE }
 
         }
 
@@ -708,7 +860,8 @@ class DeferredVideo private constructor(
             private val canvasRep: Bitmap.Representation,
             private val canvasCeiling: Float?,
             private val compositedOverlayRes: Resolution,
-            private val usingPreview: Boolean
+            private val usingPreview: Boolean,
+            private val alignedOverlays: Boolean
         ) {
 
             private var raw2user: BitmapConverter? = null
@@ -746,7 +899,7 @@ class DeferredVideo private constructor(
                 val userOverlaySpec = userSpec.copy(resolution = compositedOverlayRes)
                 raw2user = BitmapConverter(
                     rawOverlaySpec, userOverlaySpec,
-                    srcAligned = usingPreview, approxTransfer = usingPreview, nearestNeighbor = usingPreview
+                    srcAligned = alignedOverlays, approxTransfer = usingPreview, nearestNeighbor = usingPreview
                 )
                 userOverlayBitmap = Bitmap.allocate(userOverlaySpec)
             }
@@ -780,9 +933,9 @@ class DeferredVideo private constructor(
             return size + n - (size and (n - 1))
         }
 
-        private fun canvas2userAndClose(src: Bitmap): Bitmap {
+        private fun canvas2userAndClose(src: Bitmap, converter: BitmapConverter): Bitmap {
             val dst = Bitmap.allocate(userWorkSpec)
-            canvas2user.convert(src, dst)
+            converter.convert(src, dst)
             src.close()
             return dst
         }
@@ -821,48 +974,24 @@ class DeferredVideo private constructor(
             // We make the chunks larger than the spacing between two chunks so that a chunk can be scrolled for some
             // time and then immediately the next chunk can be swapped in, without the need to stitch the two chunks.
             // We further add 1 to the height to make room for the micro shift (which is between 0 and 1) at the bottom.
-            val maxChunkHeight = max(video.height + MIN_CHUNK_BUFFER, MAX_CHUNK_PIXELS / video.width)
+            val maxChunkHeight = maxChunkHeight(video)
             chunkSpacing = maxChunkHeight - (video.height + 1)
 
             // Declare chunks for all instructions.
             for ((insnIdx, insn) in video.instructions.withIndex()) {
-                class CountedMicroShift(val microShift: Double, var count: Int)
-
-                // Find the min and max shifts in the current instruction. Also collect all distinct micro shifts:
-                // a micro shift is the deviation from an integer shift, and hence lies between 0 and 1.
+                // Find the min and max shifts in the current instruction.
                 var minShift = 0.0
                 var maxShift = 0.0
-                val countedMicroShifts = if (video.roundShifts) null else mutableListOf<CountedMicroShift>()
                 for (shift in insn.shifts) {
                     minShift = min(minShift, shift)
                     maxShift = max(maxShift, shift)
-                    if (countedMicroShifts != null) {
-                        val microShift = shift - floor(shift)
-                        // Check whether this micro shift is already present in our collection.
-                        val cms = countedMicroShifts.find { abs(it.microShift - microShift) < EPS }
-                        // If it is, increase its multiplicity. Otherwise, add the new micro shift to the collection.
-                        if (cms != null) cms.count++ else countedMicroShifts.add(CountedMicroShift(microShift, 1))
-                    }
                 }
 
                 // This is the smallest vertical area that covers the requests of all instructions.
                 val minY = floor(minShift).toInt()
                 val maxY = ceil(maxShift).toInt() + video.height
 
-                val microShifts = when {
-                    // If all shifts are integers, the only micro shift that occurs is 0.
-                    countedMicroShifts == null ->
-                        doubleArrayOf(0.0)
-                    // If we don't exceed the maximum number of allowed micro shifts, use all of them.
-                    countedMicroShifts.size <= MAX_MICRO_SHIFTS ->
-                        DoubleArray(countedMicroShifts.size) { countedMicroShifts[it].microShift }
-                    // Otherwise, use only the most frequently occurring micro shifts. For the others, we later resort
-                    // to directly drawing deferred images, which is of course slower.
-                    else -> {
-                        countedMicroShifts.sortByDescending { it.count }
-                        DoubleArray(MAX_MICRO_SHIFTS) { countedMicroShifts[it].microShift }
-                    }
-                }
+                val microShifts = microShifts(video, insn)
 
                 // Declare chunks to cover exactly the area between min/maxY (but not any more space), and remember the
                 // first and last chunk indices for the current page.
@@ -886,22 +1015,47 @@ class DeferredVideo private constructor(
                 chunk.microShiftedRenders.getAndSet(null)?.get()?.forEach { it.close() }
         }
 
-        fun query(frameIdx: Int): List<Response<R>> = buildList {
+        /**
+         * @param free In sequential mode, whether cached data that lies before the queried frame may be freed. If this
+         *     is false, the caller should instead call [freeBefore] once it is safe to do so.
+         */
+        fun query(frameIdx: Int, free: Boolean = true): List<Response<R>> = buildList {
             var first = true
             for ((insnIdx, insn) in video.instructions.withIndex())
                 if (frameIdx in insn.firstFrameIdx..insn.lastFrameIdx)
-                    add(queryForInstruction(frameIdx, insnIdx, insn, first.also { first = false }))
+                    add(queryForInstruction(frameIdx, insnIdx, insn, free && first.also { first = false }))
         }
 
-        private fun queryForInstruction(frameIdx: Int, insnIdx: Int, insn: Instruction, first: Boolean): Response<R> {
-            val relFrameIdx = frameIdx - insn.firstFrameIdx
-            val shift = insn.shifts[relFrameIdx]
-            val alpha = insn.alphas[relFrameIdx]
+        /** In sequential mode, frees all cached data that will no longer be needed for the given and later frames. */
+        fun freeBefore(frameIdx: Int) {
+            check(sequentialAccess) { "Can only free cached data in sequential mode." }
+            for ((insnIdx, insn) in video.instructions.withIndex())
+                if (frameIdx in insn.firstFrameIdx..insn.lastFrameIdx) {
+                    freeChunksBefore(findChunkIdx(insnIdx, insn.shifts[frameIdx - insn.firstFrameIdx]))
+                    return
+                }
+        }
 
+        private fun findChunkIdx(insnIdx: Int, shift: Double): Int {
             val firstChunkIdx = firstChunkIndices[insnIdx]
             val lastChunkIdx = lastChunkIndices[insnIdx]
-            val chunkIdx = (firstChunkIdx + ((floor(shift).toInt() - chunks[firstChunkIdx].shift) / chunkSpacing))
+            return (firstChunkIdx + ((floor(shift).toInt() - chunks[firstChunkIdx].shift) / chunkSpacing))
                 .coerceIn(firstChunkIdx, lastChunkIdx)  // Should not be necessary, but better be safe.
+        }
+
+        private fun freeChunksBefore(chunkIdx: Int) {
+            for (i in chunkIdx - 1 downTo 0) {
+                val renders = chunks[i].microShiftedRenders.getAndSet(null)
+                // Stop when we encounter a chunk that was once loaded but has since been explicitly nulled before.
+                if (renders != null) renders.get()?.forEach { it.close() } else break
+            }
+        }
+
+        private fun queryForInstruction(frameIdx: Int, insnIdx: Int, insn: Instruction, free: Boolean): Response<R> {
+            val relFrameIdx = frameIdx - insn.firstFrameIdx
+            val shift = insn.shifts[relFrameIdx]
+            val alpha = insn.alphas[relFrameIdx]
+            val chunkIdx = findChunkIdx(insnIdx, shift)
 
             // In sequential mode, lower frame indices will no longer be queried. Also, recall that instructions are
             // ordered by firstFrameIdx. Hence, if this is the first instruction that encompasses the current frame
@@ -910,13 +1064,10 @@ class DeferredVideo private constructor(
             // Because the chunks are in the same order as the instructions, it is similarly safe to free the previous
             // chunks' cached renders. In addition to freeing chunks of the previous instructions, this also frees
             // completed chunks of this instruction.
-            // As a final note, we cannot do all of this if "first" is false because instructions may overlap.
-            if (sequentialAccess && first)
-                for (i in chunkIdx - 1 downTo 0) {
-                    val renders = chunks[i].microShiftedRenders.getAndSet(null)
-                    // Stop when we encounter a chunk that was once loaded but has since been explicitly nulled before.
-                    if (renders != null) renders.get()?.forEach { it.close() } else break
-                }
+            // As a final note, we cannot do all of this if this is not the first instruction because instructions may
+            // overlap.
+            if (sequentialAccess && free)
+                freeChunksBefore(chunkIdx)
 
             // In preloading mode, queue preloading of the surrounding chunks in a background thread.
             if (preloading) {
@@ -930,6 +1081,7 @@ class DeferredVideo private constructor(
             // rendering if another thread is already doing that right now.
             chunk.semaphore.acquire()
             var microShiftedRenders = chunk.microShiftedRenders.get()?.get()
+            RenderMetrics.recordCacheAccess(RenderMetrics.Cache.PAGE_CACHE, hit = microShiftedRenders != null)
             if (microShiftedRenders != null) chunk.semaphore.release() else microShiftedRenders = loadChunk(chunk)
             // Determine the micro shift for the given shift and select the corresponding cached render that can be
             // passed to the consumer with only integer shifting.
@@ -960,7 +1112,11 @@ class DeferredVideo private constructor(
         // method returns.
         private fun loadChunk(chunk: Chunk<R>): List<R> {
             try {
-                val microShiftedRenders = createRenders(chunk.image, chunk.shift, chunk.microShifts, chunk.height)
+                // Estimate the size assuming four float components per pixel, just like working canvases.
+                val bytes = 16L * video.width * chunk.height * chunk.microShifts.size
+                val microShiftedRenders = RenderMetrics.measure(RenderMetrics.Stage.PAGE_CACHE_RENDER, bytes = bytes) {
+                    createRenders(chunk.image, chunk.shift, chunk.microShifts, chunk.height)
+                }
                 chunk.microShiftedRenders.set(SoftReference(microShiftedRenders))
                 return microShiftedRenders
             } finally {
@@ -970,10 +1126,52 @@ class DeferredVideo private constructor(
 
 
         companion object {
+
             private const val EPS = 0.001
             private const val MIN_CHUNK_BUFFER = 200
             private const val MAX_CHUNK_PIXELS = 20_000_000
             private const val MAX_MICRO_SHIFTS = 16
+
+            private fun maxChunkHeight(video: DeferredVideo): Int =
+                max(video.height + MIN_CHUNK_BUFFER, MAX_CHUNK_PIXELS / video.width)
+
+            /**
+             * Collects the distinct micro shifts of the instruction: a micro shift is the deviation from an integer
+             * shift, and hence lies between 0 and 1.
+             */
+            private fun microShifts(video: DeferredVideo, insn: Instruction): DoubleArray {
+                // If all shifts are integers, the only micro shift that occurs is 0.
+                if (video.roundShifts)
+                    return doubleArrayOf(0.0)
+
+                class CountedMicroShift(val microShift: Double, var count: Int)
+
+                val countedMicroShifts = mutableListOf<CountedMicroShift>()
+                for (shift in insn.shifts) {
+                    val microShift = shift - floor(shift)
+                    // Check whether this micro shift is already present in our collection.
+                    val cms = countedMicroShifts.find { abs(it.microShift - microShift) < EPS }
+                    // If it is, increase its multiplicity. Otherwise, add the new micro shift to the collection.
+                    if (cms != null) cms.count++ else countedMicroShifts.add(CountedMicroShift(microShift, 1))
+                }
+                // If we don't exceed the maximum number of allowed micro shifts, use all of them.
+                if (countedMicroShifts.size <= MAX_MICRO_SHIFTS)
+                    return DoubleArray(countedMicroShifts.size) { countedMicroShifts[it].microShift }
+                // Otherwise, use only the most frequently occurring micro shifts. For the others, we later resort
+                // to directly drawing deferred images, which is of course slower.
+                countedMicroShifts.sortByDescending { it.count }
+                return DoubleArray(MAX_MICRO_SHIFTS) { countedMicroShifts[it].microShift }
+            }
+
+            /**
+             * Estimates the memory occupied by the renders a page cache of the [video] holds at the same time, namely
+             * those of the queried chunk and the preloaded next one, each with one render per micro shift.
+             */
+            fun estimateWorkingSetBytes(video: DeferredVideo, bytesPerPixel: Long): Long {
+                val numMicroShifts = video.instructions.maxOfOrNull { insn -> microShifts(video, insn).size } ?: 0
+                return 2L * maxChunkHeight(video) * video.width * numMicroShifts * bytesPerPixel
+            }
+
         }
 
 
@@ -448,12 +448,29 @@ class FormattedString private constructor(
         val width: Double,
         val font: Font
     ) {
-        val outline: Shape = gv.getOutline(font.hOffsetPx.toFloat(), font.vOffsetPx.toFloat())
-        val baseXOutline: Shape by lazy { gv.getOutline((font.hOffsetPx + baseX).toFloat(), font.vOffsetPx.toFloat()) }
+        val outline: Shape by lazy { getOutline(font.hOffsetPx, font.vOffsetPx) }
+        val baseXOutline: Shape by lazy { getOutline(font.hOffsetPx + baseX, font.vOffsetPx) }
         val glyphCodes: IntArray get() = gv.getGlyphCodes(0, gv.numGlyphs, null)
         fun getGlyphOffsetX(glyphIdx: Int) = glyphPos[2 * glyphIdx].toDouble()
         private val glyphPos by lazy { gv.getGlyphPositions(0, gv.numGlyphs + 1, null) }
         val glyphBounds: Rectangle2D get() = gv.visualBounds
+
+        // Credits repeat the same glyphs over and over again, so instead of having the glyph vector create each glyph's
+        // outline anew, assemble the segment's outline from cached glyph outlines.
+        private fun getOutline(x: Double, y: Double): Shape {
+            val gvFont = gv.font
+            if (gvFont.isTransformed || (0..<gv.numGlyphs).any { gv.getGlyphTransform(it) != null })
+                return gv.getOutline(x.toFloat(), y.toFloat())
+            val codes = glyphCodes
+            val outline = Path2D.Float()
+            val tx = AffineTransform()
+            for (glyphIdx in codes.indices) {
+                tx.setToTranslation(x + glyphPos[2 * glyphIdx], y + glyphPos[2 * glyphIdx + 1])
+                val glyphOutline = getGlyphOutline(gvFont, codes[glyphIdx], gvFont.size2D.toDouble())
+                outline.append(glyphOutline.getPathIterator(tx), false)
+            }
+            return outline
+        }
     }
 
     private sealed interface Form {
@@ -564,9 +581,8 @@ class FormattedString private constructor(
             override val fontName: String get() = baseAWTFont.psName
             override val fontFile get() = baseAWTFont.getFontFile()
             override val indexInCollection get() = baseAWTFont.getIndexInCollection()
-            override fun getGlyphOutline(glyphCode: Int, fontSize: Double): Shape =
-                baseAWTFont.deriveFont(mapOf(TextAttribute.SIZE to fontSize))
-                    .createGlyphVector(REF_FRC, intArrayOf(glyphCode)).getGlyphOutline(0)
+            override fun getGlyphOutline(glyphCode: Int, fontSize: Double) =
+                FormattedString.getGlyphOutline(baseAWTFont, glyphCode, fontSize)
         }
 
     }
@@ -945,4 +961,40 @@ class FormattedString private constructor(
 
     }
 
+
+
+    companion object {
+
+        private const val GLYPH_OUTLINE_CACHE_SIZE = 4_000
+
+        private data class GlyphOutlineKey(val glyphCode: Int, val fontSize: Double)
+
+        // A bounded LRU cache per font, whose outlines are shared between all users, so they must never be mutated.
+        // Fonts are only weakly referenced, so that the cache doesn't keep the fonts of closed projects alive. All
+        // accesses must synchronize on the outer map.
+        private val glyphOutlineCache = WeakHashMap<java.awt.Font, LinkedHashMap<GlyphOutlineKey, Shape>>()
+
+        /** Returns the outline of the glyph positioned at the origin when the [font] is set to the given [fontSize]. */
+        private fun getGlyphOutline(font: java.awt.Font, glyphCode: Int, fontSize: Double): Shape {
+            val key = GlyphOutlineKey(glyphCode, fontSize)
+            val cached = synchronized(glyphOutlineCache) { glyphOutlineCache[font]?.get(key) }
+            RenderMetrics.recordCacheAccess(RenderMetrics.Cache.GLYPH_OUTLINE_CACHE, hit = cached != null)
+            if (cached != null)
+                return cached
+            val sizedFont = if (font.size2D.toDouble() == fontSize) font else
+                font.deriveFont(mapOf(TextAttribute.SIZE to fontSize))
+            val outline = sizedFont.createGlyphVector(REF_FRC, intArrayOf(glyphCode)).getGlyphOutline(0)
+            synchronized(glyphOutlineCache) {
+                glyphOutlineCache.computeIfAbsent(font) {
+                    object : LinkedHashMap<GlyphOutlineKey, Shape>(16, 0.75f, true) {
+                        override fun removeEldestEntry(eldest: Map.Entry<GlyphOutlineKey, Shape>) =
+                            size > GLYPH_OUTLINE_CACHE_SIZE
+                    }
+                }[key] = outline
+            }
+            return outline
+        }
+
+    }
+
 }
@@ -341,82 +341,139 @@ sealed interface Picture : Closeable {
     }
 
 
+    /**
+     * As a PDFBox document must not be accessed by multiple threads at the same time, this class keeps a small pool of
+     * independently loaded instances of the same document. Additional instances are only loaded when multiple threads
+     * actually render the picture concurrently, so pictures that are only ever used by one thread don't pay for them.
+     */
     class PDF private constructor(
-        private val doc: PDDocument,
+        doc: PDDocument,
+        private val reload: () -> PDDocument,
         override val width: Double,
         override val height: Double
     ) : Vector() {
 
         private val lock = ReentrantLock()
+        private val docReleased = lock.newCondition()
+        private val idleDocs = ArrayDeque<PDDocument>().apply { add(doc) }
+        private var numDocs = 1
+        private var maxDocs = MAX_DOCS
+        private var closed = false
 
         // If the project that opened the picture has been closed and with it the picture (which is possible because
         // materialization happens in a background thread), just silently skip the operation.
         override fun drawTo(canvas: Canvas, transform: AffineTransform?) {
-            lock.withLock { if (!doc.document.isClosed) canvas.drawPDF(doc, transform) }
+            withDoc { doc -> canvas.drawPDF(doc, transform) }
         }
 
         override fun prepareAsBitmap(
             canvas: Canvas, transform: AffineTransform?, cached: Canvas.PreparedBitmap?
-        ) = lock.withLock { if (!doc.document.isClosed) canvas.preparePDFAsBitmap(doc, transform, cached) else null }
-
-        fun import(importer: LayerUtility): PDFormXObject = lock.withLock {
-            if (!doc.document.isClosed) {
-                val page = doc.getPage(0)
-                val form = importer.importPageAsForm(doc, page)
-                // The matrix set by LayerUtility does wrong scaling if the page is rotated, so we'll set it ourselves.
-                form.setMatrix(PDFDrawer.compensateForCropBoxAndRotation(andFlip = false, page))
-                // Our implementation of Canvas.drawPDF() composites the picture against a transparent backdrop, and
-                // then draws the result to the canvas in one go. To replicate this behavior in exported PDFs, we treat
-                // imported PDFs as isolated transparency groups.
-                if (form.group == null)
-                    form.cosObject.setItem(COSName.GROUP, PDTransparencyGroupAttributes().apply {
-                        cosObject.setItem(COSName.TYPE, COSName.GROUP)
-                    })
-                // The I (isolated) entry is not needed on page groups, but must be explicitly set on nested groups.
-                form.group.cosObject.setBoolean(COSName.I, true)
-                // If the page doesn't define a page group color space, but it does define an RGB output intent, section
-                // 11.4.7 of the PDF specification says that the output intent's color space is used for blending. To
-                // preserve that blending color space after the page has been embedded into another PDF, we set it as
-                // the form's transparency group color space. Notice that this group color space is inherited to nested
-                // groups, just like the output intent.
-                // In addition, output intents redefine the Device* color spaces (tested in Acrobat). As a transparency
-                // group color space doesn't do that (also tested in Acrobat), we need to supply the output intent color
-                // spaces as Default* color spaces. Technically, this needs to be applied to all nested transparency
-                // groups as well except those sub-hierarchies used as softmasks, but that's complicated to implement
-                // (because we'd need to traverse the nested transparency groups ourselves and also clone their
-                // resources dicts manually, since LayerUtility only clones the root page's resources dict), so for now,
-                // we only add Default* color spaces for the root page.
-                val devCS = PDFDrawer.getDeviceColorSpaces(doc, page)
-                val pdCSGray = devCS.deviceGray?.let { makePDICCBased(doc, 1, it.bytes) }
-                val pdCSRGB = devCS.deviceRGB?.let { makePDICCBased(doc, 3, it.bytes) }
-                val pdCSCMYK = devCS.deviceCMYK?.let { makePDICCBased(doc, 4, it.bytes) }
-                val resources = form.resources
-                if (pdCSGray != null && !resources.hasColorSpace(COSName.DEFAULT_GRAY))
-                    resources.put(COSName.DEFAULT_GRAY, pdCSGray)
-                if (pdCSRGB != null && !resources.hasColorSpace(COSName.DEFAULT_RGB))
-                    resources.put(COSName.DEFAULT_RGB, pdCSRGB)
-                if (pdCSCMYK != null && !resources.hasColorSpace(COSName.DEFAULT_CMYK))
-                    resources.put(COSName.DEFAULT_CMYK, pdCSCMYK)
-                if (pdCSRGB != null && !form.group.cosObject.containsKey(COSName.CS))
-                    form.group.cosObject.setItem(COSName.CS, pdCSRGB)
-                form
-            } else
-                PDFormXObject(importer.document)
+        ) = withDoc { doc -> canvas.preparePDFAsBitmap(doc, transform, cached) }
+
+        fun import(importer: LayerUtility): PDFormXObject = withDoc { doc ->
+            val page = doc.getPage(0)
+            val form = importer.importPageAsForm(doc, page)
+            // The matrix set by LayerUtility does wrong scaling if the page is rotated, so we'll set it ourselves.
+            form.setMatrix(PDFDrawer.compensateForCropBoxAndRotation(andFlip = false, page))
+            // Our implementation of Canvas.drawPDF() composites the picture against a transparent backdrop, and
+            // then draws the result to the canvas in one go. To replicate this behavior in exported PDFs, we treat
+            // imported PDFs as isolated transparency groups.
+            if (form.group == null)
+                form.cosObject.setItem(COSName.GROUP, PDTransparencyGroupAttributes().apply {
+                    cosObject.setItem(COSName.TYPE, COSName.GROUP)
+                })
+            // The I (isolated) entry is not needed on page groups, but must be explicitly set on nested groups.
+            form.group.cosObject.setBoolean(COSName.I, true)
+            // If the page doesn't define a page group color space, but it does define an RGB output intent, section
+            // 11.4.7 of the PDF specification says that the output intent's color space is used for blending. To
+            // preserve that blending color space after the page has been embedded into another PDF, we set it as
+            // the form's transparency group color space. Notice that this group color space is inherited to nested
+            // groups, just like the output intent.
+            // In addition, output intents redefine the Device* color spaces (tested in Acrobat). As a transparency
+            // group color space doesn't do that (also tested in Acrobat), we need to supply the output intent color
+            // spaces as Default* color spaces. Technically, this needs to be applied to all nested transparency
+            // groups as well except those sub-hierarchies used as softmasks, but that's complicated to implement
+            // (because we'd need to traverse the nested transparency groups ourselves and also clone their
+            // resources dicts manually, since LayerUtility only clones the root page's resources dict), so for now,
+            // we only add Default* color spaces for the root page.
+            val devCS = PDFDrawer.getDeviceColorSpaces(doc, page)
+            val pdCSGray = devCS.deviceGray?.let { makePDICCBased(doc, 1, it.bytes) }
+            val pdCSRGB = devCS.deviceRGB?.let { makePDICCBased(doc, 3, it.bytes) }
+            val pdCSCMYK = devCS.deviceCMYK?.let { makePDICCBased(doc, 4, it.bytes) }
+            val resources = form.resources
+            if (pdCSGray != null && !resources.hasColorSpace(COSName.DEFAULT_GRAY))
+                resources.put(COSName.DEFAULT_GRAY, pdCSGray)
+            if (pdCSRGB != null && !resources.hasColorSpace(COSName.DEFAULT_RGB))
+                resources.put(COSName.DEFAULT_RGB, pdCSRGB)
+            if (pdCSCMYK != null && !resources.hasColorSpace(COSName.DEFAULT_CMYK))
+                resources.put(COSName.DEFAULT_CMYK, pdCSCMYK)
+            if (pdCSRGB != null && !form.group.cosObject.containsKey(COSName.CS))
+                form.group.cosObject.setItem(COSName.CS, pdCSRGB)
+            form
+        } ?: PDFormXObject(importer.document)
+
+        /** Returns null without calling the [block] if this picture has already been closed. */
+        private inline fun <R> withDoc(block: (PDDocument) -> R): R? {
+            val doc = acquireDoc() ?: return null
+            try {
+                return block(doc)
+            } finally {
+                lock.withLock {
+                    if (closed)
+                        doc.close()
+                    else {
+                        idleDocs.addLast(doc)
+                        docReleased.signal()
+                    }
+                }
+            }
+        }
+
+        private fun acquireDoc(): PDDocument? {
+            lock.withLock {
+                while (!closed && idleDocs.isEmpty() && numDocs >= maxDocs)
+                    docReleased.await()
+                if (closed)
+                    return null
+                idleDocs.pollLast()?.let { return it }
+                numDocs++
+            }
+            // Load the additional instance outside the lock, so that the other instances remain usable meanwhile.
+            return try {
+                reload()
+            } catch (e: IOException) {
+                // If the source has become unreadable in the meantime, make do with the instances we already have.
+                LOGGER.warn("Cannot load an additional instance of a PDF picture, so it will be rendered serially.", e)
+                lock.withLock {
+                    numDocs--
+                    maxDocs = numDocs
+                }
+                acquireDoc()
+            }
         }
 
         override fun close() {
-            lock.withLock(doc::close)
+            lock.withLock {
+                closed = true
+                // Instances which are currently in use are closed as soon as they are released.
+                for (doc in idleDocs)
+                    doc.close()
+                idleDocs.clear()
+                docReleased.signalAll()
+            }
         }
 
         companion object {
 
+            private val MAX_DOCS = Runtime.getRuntime().availableProcessors().coerceIn(1, 4)
+
             /** @throws IOException */
-            fun load(bytes: ByteArray): PDF = wrap(Loader.loadPDF(bytes))
+            fun load(bytes: ByteArray): PDF = wrap(Loader.loadPDF(bytes)) { Loader.loadPDF(bytes) }
 
             /** @throws IOException */
-            fun load(file: Path): PDF = wrap(Loader.loadPDF(file.toFile()))
+            fun load(file: Path): PDF = wrap(Loader.loadPDF(file.toFile())) { Loader.loadPDF(file.toFile()) }
 
-            private fun wrap(doc: PDDocument): PDF {
+            private fun wrap(doc: PDDocument, reload: () -> PDDocument): PDF {
                 if (doc.numberOfPages == 0) {
                     doc.close()
                     throw IOException("PDF has 0 pages.")
@@ -426,7 +483,7 @@ sealed interface Picture : Closeable {
                     doc.close()
                     throw IOException("PDF's crop box is vanishingly small.")
                 }
-                return PDF(doc, size.width, size.height)
+                return PDF(doc, reload, size.width, size.height)
             }
 
         }
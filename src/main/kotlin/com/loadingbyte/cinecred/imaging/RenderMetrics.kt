@@ -0,0 +1,185 @@
+package com.loadingbyte.cinecred.imaging
+
+import jdk.jfr.*
+import java.util.*
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.LongAdder
+import kotlin.math.max
+
+
+/**
+ * Instruments the expensive stages of the rendering pipeline, so that slow exports can be profiled without attaching a
+ * profiler. Each stage invocation is recorded both as a JFR event, which ends up in any flight recording (for example,
+ * one started via "-XX:StartFlightRecording"), and in process-wide counters. Cache accesses are recorded likewise.
+ * Quantities that go up and down, like the memory held by a pool, are recorded as gauges, which remember their peak.
+ *
+ * The counters are never reset; instead, consumers take a [Snapshot] before and after some work and look at the
+ * difference. As the counters are shared by the whole process, such a difference also includes the work of everything
+ * that ran concurrently. Gauges can't be differenced, so a snapshot reports their current value and process-wide peak.
+ */
+object RenderMetrics {
+
+    enum class Stage(val label: String) {
+        MATERIALIZE("DeferredImage.materialize"),
+        PAGE_CACHE_RENDER("PageCache.createRenders"),
+        CONVERT("BitmapConverter.convert"),
+        TAPE_DECODE("Tape.SequentialReader"),
+        VIDEO_WRITE("VideoWriter.write"),
+        BITMAP_WRITE("BitmapWriter.write");
+
+        internal val calls = LongAdder()
+        internal val nanos = LongAdder()
+        internal val bytes = LongAdder()
+    }
+
+    enum class Cache(val label: String) {
+        PAGE_CACHE("PageCache"),
+        MATERIALIZATION_CACHE("CanvasMaterializationCache"),
+        SHAPING_CACHE("ShapingCache"),
+        GLYPH_OUTLINE_CACHE("GlyphOutlineCache"),
+        FRAME_POOL("Bitmap.FramePool");
+
+        internal val hits = LongAdder()
+        internal val misses = LongAdder()
+    }
+
+    enum class Gauge(val label: String) {
+        FRAME_POOL_POOLED_BYTES("Bitmap.FramePool pooled"),
+        FRAME_POOL_OUTSTANDING_BYTES("Bitmap.FramePool outstanding");
+
+        internal val current = AtomicLong()
+        internal val peak = AtomicLong()
+    }
+
+    /** Marks the start of a stage invocation, which is recorded once [end] is called. */
+    class Measurement internal constructor(private val stage: Stage) {
+
+        private val event = StageEvent().apply { begin() }
+        private val startNanos = System.nanoTime()
+
+        /**
+         * @param frameIdx The index of the processed frame, or -1 if the stage doesn't work on a specific frame.
+         * @param bytes The size of the processed data.
+         */
+        fun end(frameIdx: Int = -1, bytes: Long = 0L) {
+            stage.calls.increment()
+            stage.nanos.add(System.nanoTime() - startNanos)
+            stage.bytes.add(bytes)
+            event.end()
+            if (event.shouldCommit()) {
+                event.stage = stage.label
+                event.frameIdx = frameIdx
+                event.bytes = bytes
+                event.commit()
+            }
+        }
+
+    }
+
+    fun begin(stage: Stage): Measurement = Measurement(stage)
+
+    inline fun <R> measure(stage: Stage, frameIdx: Int = -1, bytes: Long = 0L, block: () -> R): R {
+        val measurement = begin(stage)
+        try {
+            return block()
+        } finally {
+            measurement.end(frameIdx, bytes)
+        }
+    }
+
+    fun recordCacheAccess(cache: Cache, hit: Boolean) {
+        (if (hit) cache.hits else cache.misses).increment()
+        val event = CacheAccessEvent()
+        if (event.shouldCommit()) {
+            event.cache = cache.label
+            event.hit = hit
+            event.commit()
+        }
+    }
+
+    /** Sets the [gauge], which must be measured in bytes, to its new [bytes] value. */
+    fun recordGauge(gauge: Gauge, bytes: Long) {
+        gauge.current.set(bytes)
+        gauge.peak.accumulateAndGet(bytes, ::max)
+    }
+
+    /** Returns the number of bytes occupied by all planes of the [bitmap]. */
+    fun bytesOf(bitmap: Bitmap): Long {
+        var bytes = 0L
+        for (plane in 0..<bitmap.spec.representation.pixelFormat.planes)
+            bytes += bitmap.memorySegment(plane).byteSize()
+        return bytes
+    }
+
+
+    class Snapshot internal constructor() {
+
+        private val stageCalls = LongArray(STAGES.size) { STAGES[it].calls.sum() }
+        private val stageNanos = LongArray(STAGES.size) { STAGES[it].nanos.sum() }
+        private val stageBytes = LongArray(STAGES.size) { STAGES[it].bytes.sum() }
+        private val cacheHits = LongArray(CACHES.size) { CACHES[it].hits.sum() }
+        private val cacheMisses = LongArray(CACHES.size) { CACHES[it].misses.sum() }
+        private val gaugeCurrents = LongArray(GAUGES.size) { GAUGES[it].current.get() }
+        private val gaugePeaks = LongArray(GAUGES.size) { GAUGES[it].peak.get() }
+
+        /** Describes what happened between the [earlier] snapshot and this one, omitting stages that weren't used. */
+        fun summarizeSince(earlier: Snapshot): String {
+            val parts = mutableListOf<String>()
+            for ((i, stage) in STAGES.withIndex()) {
+                val calls = stageCalls[i] - earlier.stageCalls[i]
+                if (calls == 0L)
+                    continue
+                val seconds = (stageNanos[i] - earlier.stageNanos[i]) / 1e9
+                val mib = (stageBytes[i] - earlier.stageBytes[i]) / (1 shl 20).toDouble()
+                parts += String.format(Locale.ROOT, "%s: %d calls, %.2f s, %.1f MiB", stage.label, calls, seconds, mib)
+            }
+            for ((i, cache) in CACHES.withIndex()) {
+                val hits = cacheHits[i] - earlier.cacheHits[i]
+                val misses = cacheMisses[i] - earlier.cacheMisses[i]
+                if (hits != 0L || misses != 0L)
+                    parts += "${cache.label}: $hits hits, $misses misses"
+            }
+            for ((i, gauge) in GAUGES.withIndex())
+                if (gaugePeaks[i] != 0L) {
+                    val curMiB = gaugeCurrents[i] / (1 shl 20).toDouble()
+                    val peakMiB = gaugePeaks[i] / (1 shl 20).toDouble()
+                    parts += String.format(Locale.ROOT, "%s: %.1f MiB now, %.1f MiB peak", gauge.label, curMiB, peakMiB)
+                }
+            return if (parts.isEmpty()) "no instrumented stages" else parts.joinToString("; ")
+        }
+
+    }
+
+    fun snapshot(): Snapshot = Snapshot()
+
+    private val STAGES = Stage.entries
+    private val CACHES = Cache.entries
+    private val GAUGES = Gauge.entries
+
+
+    @Name("com.loadingbyte.cinecred.RenderStage")
+    @Label("Render Stage")
+    @Category("Cinecred")
+    @StackTrace(false)
+    private class StageEvent : Event() {
+        @field:Label("Stage")
+        @JvmField var stage: String? = null
+        @field:Label("Frame Index")
+        @JvmField var frameIdx: Int = -1
+        @field:Label("Bytes")
+        @field:DataAmount
+        @JvmField var bytes: Long = 0L
+    }
+
+    @Name("com.loadingbyte.cinecred.CacheAccess")
+    @Label("Cache Access")
+    @Category("Cinecred")
+    @StackTrace(false)
+    private class CacheAccessEvent : Event() {
+        @field:Label("Cache")
+        @JvmField var cache: String? = null
+        @field:Label("Hit")
+        @JvmField var hit: Boolean = false
+    }
+
+}
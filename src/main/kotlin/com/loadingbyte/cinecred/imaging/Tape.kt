@@ -1,13 +1,23 @@
 package com.loadingbyte.cinecred.imaging
 
 import com.loadingbyte.cinecred.common.*
+import org.bytedeco.ffmpeg.global.avcodec.AV_PROFILE_PRORES_4444
+import org.bytedeco.ffmpeg.global.avcodec.AV_PROFILE_PRORES_PROXY
+import org.bytedeco.ffmpeg.global.avutil.*
 import java.awt.font.TextLayout
 import java.awt.geom.AffineTransform
 import java.io.IOException
 import java.lang.ref.SoftReference
+import java.nio.file.Files
 import java.nio.file.Path
+import java.nio.file.StandardCopyOption.ATOMIC_MOVE
+import java.nio.file.StandardCopyOption.REPLACE_EXISTING
+import java.nio.file.attribute.FileTime
 import java.util.*
+import java.util.concurrent.ArrayBlockingQueue
 import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
 import java.util.concurrent.locks.ReentrantLock
 import javax.swing.UIManager
 import kotlin.concurrent.withLock
@@ -98,14 +108,16 @@ class Tape private constructor(
 
     init {
         if (fileSeq)
-            fileSeqPreviewCache = PreviewCache(fileOrDir.name, 500, 50) { startFrames ->
+            fileSeqPreviewCache = PreviewCache(fileOrDir.name, 500, 50, store = null) { startFrames ->
                 val reader = VideoReader(fileOrPattern, Timecode.Frames(startFrames))
                 object : AbstractPreviewCacheLoader<Picture.Raster?>(reader) {
                     override fun loadNextItem() = reader.read()?.let(::toPreviewPicture)
                 }
             }
         else
-            containerPreviewCache = PreviewCache(fileOrDir.name, 10, 1) { startSeconds ->
+            containerPreviewCache = PreviewCache(
+                fileOrDir.name, 10, 1, TapePreviewStore.forFile(fileOrPattern)?.let { ContainerPreviewStore(it) }
+            ) { startSeconds ->
                 val reader = VideoReader(fileOrPattern, Timecode.Clock(startSeconds.toLong(), 1L))
                 object : AbstractPreviewCacheLoader<List<RasterPictureAndClock>>(reader) {
                     var curSeconds = startSeconds - 1
@@ -131,6 +143,41 @@ class Tape private constructor(
 
     private class RasterPictureAndClock(val picture: Picture.Raster, val clock: Timecode.Clock)
 
+    /** Stores the preview frames of container tapes on disk as compact 8-bit bitmaps. */
+    private inner class ContainerPreviewStore(
+        private val store: TapePreviewStore
+    ) : PreviewCache.Store<List<RasterPictureAndClock>> {
+
+        private val storedRep by lazy {
+            val hasAlpha = spec.representation.pixelFormat.hasAlpha
+            Bitmap.Representation(
+                Bitmap.PixelFormat.of(if (hasAlpha) AV_PIX_FMT_RGBA else AV_PIX_FMT_RGB24),
+                ColorSpace.of(spec.representation.colorSpace!!.primaries, ColorSpace.Transfer.SRGB),
+                if (hasAlpha) Bitmap.Alpha.STRAIGHT else Bitmap.Alpha.OPAQUE
+            )
+        }
+
+        override fun load(point: Int): List<RasterPictureAndClock>? =
+            store.load(point, storedRep)?.map { frame ->
+                frame.bitmap.use { RasterPictureAndClock(Picture.Raster(it), frame.clock) }
+            }
+
+        override fun save(point: Int, item: List<RasterPictureAndClock>) {
+            val frames = mutableListOf<TapePreviewStore.Frame>()
+            try {
+                for (pac in item) {
+                    val bitmap = Bitmap.allocate(pac.picture.bitmap.spec.copy(representation = storedRep))
+                    frames += TapePreviewStore.Frame(bitmap, pac.clock)
+                    BitmapConverter.convert(pac.picture.bitmap, bitmap)
+                }
+                store.save(point, frames)
+            } finally {
+                frames.forEach { it.bitmap.close() }
+            }
+        }
+
+    }
+
     private abstract class AbstractPreviewCacheLoader<I>(val reader: VideoReader) : PreviewCache.Loader<I> {
 
         private val pictureSpec: Bitmap.Spec
@@ -234,14 +281,187 @@ class Tape private constructor(
     fun toClockTimecode(timecode: Timecode.ExactFramesInSecond): Timecode.Clock? =
         containerPreviewCache!!.getItem(timecode.seconds).get().getOrNull(timecode.frames)?.clock
 
+    /* ***************************
+       ********** PROXY **********
+       *************************** */
+
+    private val proxyLock = ReentrantLock()
+    private var proxyFuture: Future<*>? = null
+    private var proxyClosed = false
+    @Volatile
+    private var proxyFile: Path? = null
+
+    /**
+     * If proxies are enabled and this is a container tape, starts to transcode the tape in the background into an
+     * intra-only reduced-resolution proxy file, unless such a file already exists from an earlier session. Once it's
+     * done, [openProxyReader] provides access to it. Calling this method multiple times has no effect.
+     *
+     * As each transcode already decodes with multiple threads, the proxies of all tapes are generated one at a time.
+     */
+    fun generateProxy() {
+        if (!PROXIES_ENABLED || fileSeq)
+            return
+        proxyLock.withLock {
+            if (proxyClosed || proxyFuture != null)
+                return
+            proxyFuture = PROXY_EXECUTOR.submit(throwableAwareTask {
+                try {
+                    transcodeProxy()
+                } catch (_: InterruptedException) {
+                    // The tape has been closed.
+                } catch (e: Exception) {
+                    LOGGER.error("Proxy of tape '{}' cannot be generated.", fileOrDir.name, e)
+                }
+            })
+        }
+    }
+
+    private fun transcodeProxy() {
+        // Notice that accessing the metadata throws if it cannot be read, in which case we abort.
+        val tapeSpec = spec
+        val fps = fps
+        // Variable frame rate tapes don't map to the constant frame rate of a proxy. Also, we only consider
+        // progressive color footage, which is by far the most common case.
+        if (fps == null || tapeSpec.scan != Bitmap.Scan.PROGRESSIVE || tapeSpec.representation.colorSpace == null)
+            return
+        val file = PROXY_DIR.resolve(TapePreviewStore.cacheKey(fileOrPattern) + ".mov")
+        if (file.exists()) {
+            markProxyUsed(file)
+            proxyFile = file
+            return
+        }
+
+        val (tapeW, tapeH) = tapeSpec.resolution
+        val proxyH = min(tapeH, PROXY_MAX_HEIGHT) and 1.inv()
+        val proxyW = (roundingDiv(tapeW * proxyH, tapeH) and 1.inv()).coerceAtLeast(2)
+        // As in the ProRes render format, prores_aw is faster, but only prores_ks produces compatible 4444 alpha.
+        val alpha = tapeSpec.representation.pixelFormat.hasAlpha
+        val proxySpec = Bitmap.Spec(
+            Resolution(proxyW, proxyH),
+            Bitmap.Representation(
+                Bitmap.PixelFormat.of(if (alpha) AV_PIX_FMT_YUVA444P10 else AV_PIX_FMT_YUV422P10),
+                Bitmap.Range.LIMITED, tapeSpec.representation.colorSpace, Bitmap.YUVCoefficients.BT709_NCL,
+                if (alpha) AVCHROMA_LOC_UNSPECIFIED else AVCHROMA_LOC_LEFT,
+                if (alpha) Bitmap.Alpha.STRAIGHT else Bitmap.Alpha.OPAQUE
+            )
+        )
+        val codecName = if (alpha) "prores_ks" else "prores_aw"
+        val codecProfile = if (alpha) AV_PROFILE_PRORES_4444 else AV_PROFILE_PRORES_PROXY
+
+        createDirectoriesSafely(PROXY_DIR)
+        val tmpFile = Files.createTempFile(PROXY_DIR, file.nameWithoutExtension + "-", ".tmp.mov")
+        try {
+            VideoReader(fileOrPattern, availableRange.start, multithreaded = true).use { reader ->
+                BitmapConverter(reader.spec, proxySpec, srcAligned = false).use { converter ->
+                    VideoWriter(tmpFile, proxySpec, fps, codecName, codecProfile, emptyMap(), emptyMap()).use { w ->
+                        Bitmap.allocate(proxySpec).use { proxyBitmap ->
+                            while (true) {
+                                if (Thread.interrupted())
+                                    throw InterruptedException()
+                                val frame = reader.read() ?: break
+                                frame.bitmap.use { converter.convert(it, proxyBitmap) }
+                                w.write(proxyBitmap)
+                            }
+                        }
+                    }
+                }
+            }
+            tmpFile.moveTo(file, ATOMIC_MOVE, REPLACE_EXISTING)
+            proxyFile = file
+        } finally {
+            tmpFile.deleteIfExists()
+        }
+        evictProxies(keep = file)
+    }
+
+    /** Returns null if the proxy has not been generated (yet) or cannot be opened. */
+    fun openProxyReader(): ProxyReader? {
+        val file = proxyFile ?: return null
+        // The proxy might have been evicted in the meantime to make room for the proxies of other tapes.
+        if (!file.exists()) {
+            proxyFile = null
+            return null
+        }
+        markProxyUsed(file)
+        return try {
+            ProxyReader(file)
+        } catch (e: Exception) {
+            LOGGER.error("Proxy of tape '{}' cannot be read.", fileOrDir.name, e)
+            null
+        }
+    }
+
     override fun close() {
         fileSeqPreviewCache?.close()
         containerPreviewCache?.close()
+        proxyLock.withLock {
+            proxyClosed = true
+            proxyFuture?.cancel(true)
+        }
     }
 
 
     companion object {
 
+        /** The number of frames that a [SequentialReader] decodes ahead of the one that's currently being read. */
+        private const val DECODE_AHEAD_FRAMES = 4
+        private val END_OF_TAPE = Any()
+
+        private val PROXIES_ENABLED = System.getProperty("cinecred.tapeProxies").toBoolean()
+        private val PROXY_DIR = CONFIG_DIR.resolve("tapeproxies")
+        private val PROXY_MAX_BYTES =
+            (System.getProperty("cinecred.tapeProxyCacheSize")?.toLongOrNull() ?: 4096L).coerceAtLeast(0L) shl 20
+        private const val PROXY_MAX_HEIGHT = 540
+        /** When a [ProxyReader] must jump further ahead than this, it seeks instead of decoding its way there. */
+        private val PROXY_MAX_READ_AHEAD = Timecode.Clock(1L, 1L)
+
+        private val PROXY_EXECUTOR = Executors.newSingleThreadExecutor { runnable ->
+            Thread(runnable, "TapeProxyGenerator").apply { isDaemon = true }
+        }
+
+        private fun markProxyUsed(file: Path) {
+            try {
+                file.setLastModifiedTime(FileTime.fromMillis(System.currentTimeMillis()))
+            } catch (e: IOException) {
+                LOGGER.warn("Cannot mark tape proxy '{}' as recently used.", file, e)
+            }
+        }
+
+        /**
+         * Just like the [TapePreviewStore], deletes the least recently used proxies until all proxies together are
+         * comfortably below their size limit again, but never deletes the proxy that has just been generated. The size
+         * limit can be configured in megabytes with the system property "cinecred.tapeProxyCacheSize".
+         */
+        private fun evictProxies(keep: Path) {
+            val files = try {
+                PROXY_DIR.listDirectoryEntries("*.mov").filter { !it.name.endsWith(".tmp.mov") }.mapNotNull { file ->
+                    try {
+                        Triple(file, file.fileSize(), file.getLastModifiedTime().toMillis())
+                    } catch (_: IOException) {
+                        null
+                    }
+                }
+            } catch (e: IOException) {
+                LOGGER.warn("Cannot list tape proxies.", e)
+                return
+            }
+            var totalSize = files.sumOf { it.second }
+            if (totalSize <= PROXY_MAX_BYTES)
+                return
+            for ((file, size, _) in files.sortedBy { it.third }) {
+                if (totalSize <= PROXY_MAX_BYTES * 3 / 4)
+                    break
+                if (file == keep)
+                    continue
+                try {
+                    file.deleteIfExists()
+                    totalSize -= size
+                } catch (e: IOException) {
+                    LOGGER.warn("Cannot evict tape proxy '{}'.", file, e)
+                }
+            }
+        }
+
         private val CONTAINER_EXTS =
             VideoContainerFormat.READER.flatMapTo(TreeSet(String.CASE_INSENSITIVE_ORDER)) { it.extensions }
 
@@ -374,18 +594,84 @@ class Tape private constructor(
     /** A wrapper around [VideoReader] for obtaining frames at monotonically increasing arbitrary timecodes. */
     inner class SequentialReader(private val startTimecode: Timecode) : AutoCloseable {
 
-        private val videoReader = VideoReader(fileOrPattern, startTimecode)
+        private val videoReader = VideoReader(fileOrPattern, startTimecode, multithreaded = true)
+
+        // A separate thread decodes frames ahead of time and puts them into this bounded queue, so that they're
+        // typically ready by the time they're requested. The thread also puts the end marker or any exception there.
+        private val decoded = ArrayBlockingQueue<Any>(DECODE_AHEAD_FRAMES)
+        private val decoder = Thread(::decodeAhead, "TapeDecoder").apply { isDaemon = true; start() }
+        private var decoderFinished = false
 
         private var lastTimecode: Timecode? = null
         private var behind: VideoReader.Frame? = null
         private var ahead: VideoReader.Frame? = null
 
         override fun close() {
+            // The decoder thread must have stopped before we can safely close the video reader.
+            decoder.interrupt()
+            var interrupted = false
+            while (decoder.isAlive)
+                try {
+                    decoder.join()
+                } catch (_: InterruptedException) {
+                    interrupted = true
+                }
+            if (interrupted)
+                Thread.currentThread().interrupt()
             videoReader.close()
+            for (item in decoded)
+                if (item is VideoReader.Frame)
+                    item.bitmap.close()
+            decoded.clear()
             behind?.run { bitmap.close() }
             ahead?.run { bitmap.close() }
         }
 
+        private fun decodeAhead() {
+            try {
+                while (true) {
+                    val measurement = RenderMetrics.begin(RenderMetrics.Stage.TAPE_DECODE)
+                    val frame = videoReader.read()
+                    measurement.end(bytes = frame?.let { RenderMetrics.bytesOf(it.bitmap) } ?: 0L)
+                    if (frame == null) {
+                        decoded.put(END_OF_TAPE)
+                        return
+                    }
+                    try {
+                        decoded.put(frame)
+                    } catch (e: InterruptedException) {
+                        frame.bitmap.close()
+                        throw e
+                    }
+                }
+            } catch (_: InterruptedException) {
+                // The reader is being closed.
+            } catch (t: Throwable) {
+                try {
+                    decoded.put(t)
+                } catch (_: InterruptedException) {
+                    // The reader is being closed.
+                }
+            }
+        }
+
+        /** Takes the next decoded frame, or returns null if the video has come to an end. */
+        private fun readDecoded(): VideoReader.Frame? {
+            if (decoderFinished)
+                return null
+            return when (val item = decoded.take()) {
+                is VideoReader.Frame -> item
+                is Throwable -> {
+                    decoderFinished = true
+                    throw item
+                }
+                else -> {
+                    decoderFinished = true
+                    null
+                }
+            }
+        }
+
         /**
          * Bitmaps returned by this method must NEVER be [Bitmap.close]d by the caller. They will however automatically
          * be closed when the next frame is read or when the reader is closed. You can keep them around by making views.
@@ -397,7 +683,7 @@ class Tape private constructor(
             while (behind == null || ahead.let { it != null && it.timecode <= timecode }) {
                 behind?.run { bitmap.close() }
                 behind = ahead
-                ahead = videoReader.read()
+                ahead = readDecoded()
             }
             return behind!!
         }
@@ -415,6 +701,52 @@ class Tape private constructor(
     }
 
 
+    /**
+     * Obtains the frames of the tape's proxy at arbitrary timecodes of the original tape. As the proxy is intra-only,
+     * seeking is cheap, so unlike [SequentialReader], this reader also supports jumping backward.
+     */
+    inner class ProxyReader internal constructor(private val proxyFile: Path) : AutoCloseable {
+
+        private var videoReader = VideoReader(proxyFile, Timecode.Clock(0L, 1L))
+        val spec: Bitmap.Spec get() = videoReader.spec
+
+        private var lastTimecode: Timecode.Clock? = null
+        private var behind: VideoReader.Frame? = null
+        private var ahead: VideoReader.Frame? = null
+
+        override fun close() {
+            videoReader.close()
+            behind?.run { bitmap.close() }
+            ahead?.run { bitmap.close() }
+        }
+
+        /**
+         * Bitmaps returned by this method must NEVER be [Bitmap.close]d by the caller. They will however automatically
+         * be closed when the next frame is read or when the reader is closed. You can keep them around by making views.
+         */
+        fun read(timecode: Timecode): Bitmap {
+            val proxyTimecode = (timecode - availableRange.start) as Timecode.Clock
+            val last = lastTimecode
+            if (last != null && (proxyTimecode < last || proxyTimecode - last > PROXY_MAX_READ_AHEAD)) {
+                close()
+                behind = null
+                ahead = null
+                videoReader = VideoReader(proxyFile, proxyTimecode)
+            }
+            lastTimecode = proxyTimecode
+            while (behind == null || ahead.let { it != null && it.timecode <= proxyTimecode }) {
+                behind?.run { bitmap.close() }
+                behind = ahead
+                ahead = videoReader.read()
+                if (behind == null && ahead == null)
+                    throw IOException("Proxy of tape '${fileOrDir.name}' has no frame at $timecode.")
+            }
+            return behind!!.bitmap
+        }
+
+    }
+
+
     data class Embedded(
         /** Note: Accessing the metadata of this tape is guaranteed to not throw exceptions. */
         val tape: Tape,
@@ -461,6 +793,7 @@ class Tape private constructor(
         private val tapeName: String,
         private val ahead: Int,
         private val inertia: Int,
+        private val store: Store<I>?,
         private val createLoader: (start: Int) -> Loader<I>
     ) {
 
@@ -468,6 +801,13 @@ class Tape private constructor(
             fun loadNextItem(): I
         }
 
+        /** Persists items across sessions. The cache consults it before it creates a loader. */
+        interface Store<I> {
+            /** Returns null if the item is not stored. */
+            fun load(point: Int): I?
+            fun save(point: Int, item: I)
+        }
+
         class ClosedException : IllegalStateException("Tape preview cache has been closed.")
 
         private val lock = ReentrantLock()
@@ -503,9 +843,24 @@ class Tape private constructor(
             slices.add(slice)
             GLOBAL_THREAD_POOL.submit(throwableAwareTask {
                 try {
-                    createLoader(start).use { loader ->
-                        while (slice.claimNextPointForLoading())
-                            slice.publishLoadedItem(loader.loadNextItem())
+                    // Take items from the store until the first one is missing. As loaders can only load sequentially,
+                    // we then create a loader at that point and use it for all remaining items.
+                    var loader: Loader<I>? = null
+                    try {
+                        var point = start - 1
+                        while (slice.claimNextPointForLoading()) {
+                            point++
+                            var item = if (loader == null) store?.load(point) else null
+                            if (item == null) {
+                                if (loader == null)
+                                    loader = createLoader(point)
+                                item = loader.loadNextItem()
+                                store?.save(point, item)
+                            }
+                            slice.publishLoadedItem(item)
+                        }
+                    } finally {
+                        loader?.close()
                     }
                 } catch (e: Exception) {
                     LOGGER.error("Error while generating preview for tape '{}'; will close the cache.", tapeName, e)
@@ -0,0 +1,207 @@
+package com.loadingbyte.cinecred.imaging
+
+import com.loadingbyte.cinecred.common.CONFIG_DIR
+import com.loadingbyte.cinecred.common.LOGGER
+import com.loadingbyte.cinecred.common.Resolution
+import com.loadingbyte.cinecred.common.Timecode
+import java.io.IOException
+import java.lang.foreign.Arena
+import java.lang.foreign.MemorySegment
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.NoSuchFileException
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption.ATOMIC_MOVE
+import java.nio.file.StandardCopyOption.REPLACE_EXISTING
+import java.nio.file.StandardOpenOption.*
+import java.nio.file.attribute.FileTime
+import java.security.MessageDigest
+import java.util.*
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+import kotlin.io.path.*
+
+
+/**
+ * Persists the preview frames of a container tape across sessions, so that scrubbing doesn't need to decode the same
+ * media over and over again. Each tape gets its own directory, whose name is derived from the tape file's path, size,
+ * and modification time, so that a changed file automatically gets a fresh directory. Inside, the frames of each second
+ * are stored in one uncompressed file, which is memory-mapped when it's read. Once all stores together outgrow their
+ * size limit, the least recently used files are evicted.
+ *
+ * The size limit can be configured in megabytes with the system property "cinecred.tapePreviewCacheSize".
+ */
+class TapePreviewStore private constructor(private val tapeDir: Path) {
+
+    class Frame(val bitmap: Bitmap, val clock: Timecode.Clock)
+
+    /**
+     * Returns the stored frames of the given second, or null if they haven't been stored or can't be read. The bitmaps
+     * of the returned frames are in the given [representation] and must be closed by the caller.
+     */
+    fun load(seconds: Int, representation: Bitmap.Representation): List<Frame>? {
+        val file = tapeDir.resolve("$seconds.bin")
+        val frames = mutableListOf<Frame>()
+        try {
+            FileChannel.open(file, READ).use { ch ->
+                Arena.ofConfined().use { arena ->
+                    val seg = ch.map(FileChannel.MapMode.READ_ONLY, 0L, ch.size(), arena)
+                    val buf = seg.asByteBuffer().order(ByteOrder.LITTLE_ENDIAN)
+                    if (buf.getInt() != MAGIC)
+                        return null
+                    repeat(buf.getInt()) {
+                        val clock = Timecode.Clock(buf.getLong(), buf.getLong())
+                        val res = Resolution(buf.getInt(), buf.getInt())
+                        val bitmap = Bitmap.allocate(Bitmap.Spec(res, representation))
+                        frames += Frame(bitmap, clock)
+                        val lineBytes = res.widthPx.toLong() * representation.pixelFormat.stepOfPlane(0)
+                        val dst = bitmap.memorySegment(0)
+                        val ls = bitmap.linesize(0).toLong()
+                        for (y in 0..<res.heightPx) {
+                            MemorySegment.copy(seg, buf.position().toLong(), dst, y * ls, lineBytes)
+                            buf.position(buf.position() + lineBytes.toInt())
+                        }
+                    }
+                }
+            }
+            // Mark the file as recently used.
+            file.setLastModifiedTime(FileTime.fromMillis(System.currentTimeMillis()))
+            return frames
+        } catch (e: Exception) {
+            frames.forEach { it.bitmap.close() }
+            if (e !is NoSuchFileException)
+                LOGGER.warn("Cannot read stored tape preview '{}'.", file, e)
+            return null
+        }
+    }
+
+    /** Stores the frames of the given second. All bitmaps must be in a packed pixel format with a single plane. */
+    fun save(seconds: Int, frames: List<Frame>) {
+        val file = tapeDir.resolve("$seconds.bin")
+        try {
+            tapeDir.createDirectories()
+            // Write to a temporary file first so that concurrent readers never see a partial file.
+            val tmpFile = Files.createTempFile(tapeDir, "$seconds-", ".tmp")
+            try {
+                writeFrames(tmpFile, frames)
+                val size = tmpFile.fileSize()
+                tmpFile.moveTo(file, ATOMIC_MOVE, REPLACE_EXISTING)
+                addToTotalSize(size)
+            } finally {
+                tmpFile.deleteIfExists()
+            }
+        } catch (e: IOException) {
+            LOGGER.warn("Cannot store tape preview '{}'.", file, e)
+        }
+    }
+
+    private fun writeFrames(tmpFile: Path, frames: List<Frame>) {
+        FileChannel.open(tmpFile, WRITE, TRUNCATE_EXISTING).use { ch ->
+            val head = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putInt(MAGIC).putInt(frames.size)
+            ch.write(head.flip())
+            for (frame in frames) {
+                val (res, rep) = frame.bitmap.spec
+                val frameHead = ByteBuffer.allocate(24).order(ByteOrder.LITTLE_ENDIAN)
+                    .putLong(frame.clock.numerator).putLong(frame.clock.denominator)
+                    .putInt(res.widthPx).putInt(res.heightPx)
+                ch.write(frameHead.flip())
+                val lineBytes = res.widthPx.toLong() * rep.pixelFormat.stepOfPlane(0)
+                val seg = frame.bitmap.memorySegment(0)
+                val ls = frame.bitmap.linesize(0).toLong()
+                for (y in 0..<res.heightPx) {
+                    val line = seg.asSlice(y * ls, lineBytes).asByteBuffer()
+                    while (line.hasRemaining())
+                        ch.write(line)
+                }
+            }
+        }
+    }
+
+
+    companion object {
+
+        private const val MAGIC = 0x50544343  // "CCTP" in little-endian
+
+        private val ROOT_DIR = CONFIG_DIR.resolve("tapepreviews")
+        private val MAX_BYTES =
+            (System.getProperty("cinecred.tapePreviewCacheSize")?.toLongOrNull() ?: 1024L).coerceAtLeast(0L) shl 20
+
+        private val lock = ReentrantLock()
+        private var totalSize = -1L
+
+        /** Returns null if the store is disabled or the [file]'s attributes cannot be read. */
+        fun forFile(file: Path): TapePreviewStore? {
+            if (MAX_BYTES == 0L)
+                return null
+            return try {
+                TapePreviewStore(ROOT_DIR.resolve(cacheKey(file)))
+            } catch (e: IOException) {
+                LOGGER.warn("Cannot determine the preview store of tape '{}'.", file.name, e)
+                null
+            }
+        }
+
+        /**
+         * Derives a name from the [file]'s path, size, and modification time, which changes whenever the file changes.
+         *
+         * @throws IOException If the file's attributes cannot be read.
+         */
+        fun cacheKey(file: Path): String {
+            val mtime = file.getLastModifiedTime().toMillis()
+            val key = "${file.toAbsolutePath()}\u0000${file.fileSize()}\u0000$mtime"
+            val hash = MessageDigest.getInstance("SHA-256").digest(key.toByteArray())
+            return HexFormat.of().formatHex(hash, 0, 16)
+        }
+
+        private fun addToTotalSize(size: Long) {
+            lock.withLock {
+                if (totalSize < 0L)
+                    totalSize = storedFiles().sumOf { it.second.size }
+                else
+                    totalSize += size
+                if (totalSize > MAX_BYTES)
+                    evict()
+            }
+        }
+
+        /** Deletes the least recently used files until the store is comfortably below its size limit again. */
+        private fun evict() {
+            val files = storedFiles().sortedBy { it.second.lastModified }
+            for ((file, attrs) in files) {
+                if (totalSize <= MAX_BYTES * 3 / 4)
+                    break
+                try {
+                    file.deleteIfExists()
+                    totalSize -= attrs.size
+                    file.parent.takeIf { dir -> dir.listDirectoryEntries().isEmpty() }?.deleteIfExists()
+                } catch (e: IOException) {
+                    LOGGER.warn("Cannot evict stored tape preview '{}'.", file, e)
+                }
+            }
+        }
+
+        private class FileAttrs(val size: Long, val lastModified: Long)
+
+        private fun storedFiles(): List<Pair<Path, FileAttrs>> {
+            if (!ROOT_DIR.isDirectory())
+                return emptyList()
+            return try {
+                ROOT_DIR.listDirectoryEntries().filter { it.isDirectory() }.flatMap { it.listDirectoryEntries("*.bin") }
+                    .mapNotNull { file ->
+                        try {
+                            Pair(file, FileAttrs(file.fileSize(), file.getLastModifiedTime().toMillis()))
+                        } catch (_: IOException) {
+                            null
+                        }
+                    }
+            } catch (e: IOException) {
+                LOGGER.warn("Cannot list stored tape previews.", e)
+                emptyList()
+            }
+        }
+
+    }
+
+}
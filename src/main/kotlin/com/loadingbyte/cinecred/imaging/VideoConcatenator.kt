@@ -0,0 +1,156 @@
+package com.loadingbyte.cinecred.imaging
+
+import com.loadingbyte.cinecred.common.VERSION
+import org.bytedeco.ffmpeg.avformat.AVFormatContext
+import org.bytedeco.ffmpeg.avformat.AVIOContext
+import org.bytedeco.ffmpeg.avformat.AVStream
+import org.bytedeco.ffmpeg.avutil.AVDictionary
+import org.bytedeco.ffmpeg.global.avcodec.*
+import org.bytedeco.ffmpeg.global.avformat.*
+import org.bytedeco.ffmpeg.global.avutil.*
+import java.nio.file.Path
+import kotlin.io.path.name
+import kotlin.io.path.pathString
+import kotlin.math.max
+
+
+/**
+ * Losslessly concatenates video files which have been written by [VideoWriter]s with identical settings by copying
+ * their packets into a single container, without decoding or re-encoding anything. As the packets are simply laid
+ * out one after another, this only yields a correct result for intra-only codecs like ProRes, DNxHR, or CineForm.
+ * The code inside this class is adapted from here: https://ffmpeg.org/doxygen/trunk/remux_8c-example.html
+ */
+class VideoConcatenator(
+    private val file: Path,
+    private val muxerOptions: Map<String, String>
+) : AutoCloseable {
+
+    private var oc: AVFormatContext? = null
+    private var st: AVStream? = null
+
+    // Pts (in the output stream's timebase) at which the next appended video will start.
+    private var ptsOffset = 0L
+
+    init {
+        setupSafely({
+            // Allocate the format context.
+            val oc = AVFormatContext(null)
+            this.oc = oc
+            avformat_alloc_output_context2(oc, null, null, file.pathString)
+                .ffmpegThrowIfErrnum("Could not deduce output muxer from file extension")
+            // Will be freed by avformat_free_context().
+            oc.metadata(AVDictionary(null).also { metaDict ->
+                av_dict_set(metaDict, "encoding_tool", "Cinecred $VERSION", 0)
+                av_dict_set(metaDict, "company_name", "Cinecred", 0)
+                av_dict_set(metaDict, "product_name", "Cinecred $VERSION", 0)
+            })
+        }, ::release)
+    }
+
+    /** Appends all video packets of the given file to the output. */
+    fun append(segmentFile: Path) {
+        val filename = segmentFile.name
+        val ic = AVFormatContext(null)
+        try {
+            avformat_open_input(ic, segmentFile.pathString, null, null as AVDictionary?)
+                .ffmpegThrowIfErrnum("Could not open input file '$filename'")
+            avformat_find_stream_info(ic, null as AVDictionary?)
+                .ffmpegThrowIfErrnum("Could not find stream information in '$filename'")
+            val ist = (0..<ic.nb_streams()).map { stIdx -> ic.streams(stIdx) }
+                .find { it.codecpar().codec_type() == AVMEDIA_TYPE_VIDEO }
+                .ffmpegThrowIfNull("Could not find a video stream in '$filename'")
+
+            // The output stream and file header can only be set up once we know the codec parameters.
+            if (st == null)
+                setupOutput(ist)
+            val ost = st!!
+
+            val pkt = av_packet_alloc()
+                .ffmpegThrowIfNull("Could not allocate packet")
+            try {
+                var nextPtsOffset = ptsOffset
+                while (true) {
+                    val ret = av_read_frame(ic, pkt)
+                    if (ret == AVERROR_EOF)
+                        break
+                    ret.ffmpegThrowIfErrnum("Error while reading an encoded packet from the stream of '$filename'")
+                    try {
+                        if (pkt.stream_index() != ist.index())
+                            continue
+                        // Rescale the packet timestamps from the input to the output stream timebase, and then move
+                        // them behind all previously appended videos.
+                        av_packet_rescale_ts(pkt, ist.time_base(), ost.time_base())
+                        pkt.pts(pkt.pts() + ptsOffset)
+                        pkt.dts(pkt.dts() + ptsOffset)
+                        nextPtsOffset = max(nextPtsOffset, pkt.pts() + max(pkt.duration(), 1L))
+                        pkt.stream_index(ost.index())
+                        pkt.pos(-1)
+                        av_interleaved_write_frame(oc, pkt)
+                            .ffmpegThrowIfErrnum("Error while writing an encoded packet to the stream")
+                    } finally {
+                        av_packet_unref(pkt)
+                    }
+                }
+                ptsOffset = nextPtsOffset
+            } finally {
+                av_packet_free(pkt)
+            }
+        } finally {
+            avformat_close_input(ic)
+        }
+    }
+
+    private fun setupOutput(ist: AVStream) {
+        val oc = this.oc!!
+
+        // Add the video stream and copy the codec parameters over from the first input.
+        val st = avformat_new_stream(oc, null)
+            .ffmpegThrowIfNull("Could not allocate stream")
+        this.st = st
+        st.id(oc.nb_streams() - 1)
+        avcodec_parameters_copy(st.codecpar(), ist.codecpar())
+            .ffmpegThrowIfErrnum("Could not copy the codec parameters to the stream")
+        // Let the muxer choose the codec tag that fits its container.
+        st.codecpar().codec_tag(0)
+        st.time_base().apply { num(ist.time_base().num()); den(ist.time_base().den()) }
+        st.avg_frame_rate().apply { num(ist.avg_frame_rate().num()); den(ist.avg_frame_rate().den()) }
+
+        withOptionsDict(muxerOptions) { muxerOptionsDict ->
+            // Open the output file, if needed.
+            if (oc.oformat().flags() and AVFMT_NOFILE == 0) {
+                val pb = AVIOContext(null)
+                avio_open2(pb, file.pathString, AVIO_FLAG_WRITE, null, muxerOptionsDict)
+                    .ffmpegThrowIfErrnum("Could not open output file '${file.name}'")
+                oc.pb(pb)
+            }
+
+            // Write the stream header, if any.
+            avformat_write_header(oc, muxerOptionsDict)
+                .ffmpegThrowIfErrnum("Could not write stream header")
+        }
+    }
+
+    override fun close() {
+        try {
+            // Write the trailer, if any. If no video has been appended, the header hasn't been written either.
+            if (st != null)
+                av_write_trailer(oc)
+                    .ffmpegThrowIfErrnum("Could not write stream trailer and close output file")
+        } finally {
+            release()
+        }
+    }
+
+    private fun release() {
+        oc.letIfNonNull { oc ->
+            // Close the output file, if needed.
+            if (oc.oformat().flags() and AVFMT_NOFILE == 0)
+                oc.pb().letIfNonNull(::avio_closep)
+
+            avformat_free_context(oc)
+        }
+        oc = null
+        st = null
+    }
+
+}
@@ -33,7 +33,12 @@ class VideoReader(
      * When reading a container video file, this should be an instance of [Timecode.Clock] or null and is a hint where
      * in the video to start reading. Be aware that reading can start earlier than this timecode, but never later.
      */
-    startTimecode: Timecode?
+    startTimecode: Timecode?,
+    /**
+     * Lets FFmpeg decode with as many frame or slice threads as there are cores. This pays off when many consecutive
+     * frames are read, but only adds overhead when just a few frames are needed.
+     */
+    private val multithreaded: Boolean = false
 ) : AutoCloseable {
 
     class Frame(val bitmap: Bitmap, val timecode: Timecode)
@@ -104,6 +109,12 @@ class VideoReader(
         avcodec_parameters_to_context(dec, st.codecpar())
             .ffmpegThrowIfErrnum("Could not copy the stream parameters to the decoder for '$filename'")
 
+        // Let FFmpeg pick the thread count and use whichever of frame and slice threading the codec supports.
+        if (multithreaded) {
+            dec.thread_count(0)
+            dec.thread_type(FF_THREAD_FRAME or FF_THREAD_SLICE)
+        }
+
         // Open the decoder and allocate the necessary decode buffer.
         avcodec_open2(dec, codec, null as AVDictionary?)
             .ffmpegThrowIfErrnum("Could not open decoder for '$filename'")
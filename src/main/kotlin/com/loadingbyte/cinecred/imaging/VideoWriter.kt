@@ -173,7 +173,9 @@ class VideoWriter(
     /** Writes the next frame to the video. */
     fun write(bitmap: Bitmap) {
         require(bitmap.spec == spec)
-        bitmap.requireNotClosed { writeFrame(bitmap.frame) }
+        RenderMetrics.measure(RenderMetrics.Stage.VIDEO_WRITE, frameCounter.toInt(), RenderMetrics.bytesOf(bitmap)) {
+            bitmap.requireNotClosed { writeFrame(bitmap.frame) }
+        }
     }
 
     /** Encodes one video frame and sends it to the muxer. */
@@ -33,12 +33,18 @@ fun format(string: String, letterStyle: LetterStyle, styling: Styling): Formatte
 @Volatile private var textCtxCache: TextContext? = null
 
 private fun getTextCtx(styling: Styling): TextContext {
-    textCtxCache?.let { if (it.styling === styling) return it }
-    return TextContext(styling).also { textCtxCache = it }
+    val prevTextCtx = textCtxCache
+    if (prevTextCtx != null && prevTextCtx.styling === styling) return prevTextCtx
+    return TextContext(styling, prevTextCtx).also { textCtxCache = it }
 }
 
 
-private class TextContext(val styling: Styling) {
+/**
+ * When the styling is edited, typically only a single style changes, while all other style objects stay the same. To
+ * not redo all the expensive work (including the layout work cached inside the formatted strings) upon every edit,
+ * a new context takes over everything from the previous context that only depends on unchanged letter styles.
+ */
+private class TextContext(val styling: Styling, prev: TextContext?) {
 
     val locale: Locale
         get() = styling.global.locale
@@ -70,14 +76,107 @@ private class TextContext(val styling: Styling) {
                 generateFmtStrDesign(letterStyle.layers, getFmtStrFonts(letterStyle).std)
         }
 
+    // Re-read credits have new styled string objects, so formatted strings taken over from the previous context are
+    // looked up by content instead.
+    private val fmtStrTakenOver: Map<TakenOverKey, FormattedString>
+
+    init {
+        if (prev == null)
+            fmtStrTakenOver = emptyMap()
+        else {
+            val reusable = findReusableLetterStyles(prev.styling)
+            // Fonts and designs only depend on the letter style itself and the styles it inherits from.
+            synchronized(prev.fmtStrFontsCache) {
+                for ((style, fonts) in prev.fmtStrFontsCache)
+                    if (style in reusable)
+                        fmtStrFontsCache[style] = fonts
+            }
+            synchronized(prev.fmtStrDesignCache) {
+                for ((style, design) in prev.fmtStrDesignCache)
+                    if (style in reusable)
+                        fmtStrDesignCache[style] = design
+            }
+            // Formatted strings additionally depend on global settings.
+            val prevGlobal = prev.styling.global
+            val global = styling.global
+            if (prevGlobal.locale != global.locale || prevGlobal.uppercaseExceptions != global.uppercaseExceptions)
+                fmtStrTakenOver = emptyMap()
+            else {
+                fmtStrTakenOver = HashMap()
+                synchronized(prev.fmtStrIdCache) {
+                    for ((styledString, fmtStr) in prev.fmtStrIdCache)
+                        if (styledString.all { (_, style) -> style in reusable })
+                            fmtStrTakenOver[TakenOverKey(styledString)] = fmtStr
+                }
+                for ((string, byStyle) in prev.fmtStrEqCache)
+                    synchronized(byStyle) {
+                        for ((style, fmtStr) in byStyle)
+                            if (style in reusable)
+                                fmtStrEqCache.computeIfAbsent(string) { Collections.synchronizedMap(IdentityHashMap()) }
+                                    .put(style, fmtStr)
+                    }
+            }
+        }
+    }
+
+    /**
+     * Finds those letter styles which are the very same objects in the previous styling, and which don't inherit
+     * layers from a style that has changed.
+     */
+    private fun findReusableLetterStyles(prevStyling: Styling): Set<LetterStyle> {
+        val prevStyles = Collections.newSetFromMap(IdentityHashMap<LetterStyle, Boolean>())
+        prevStyles.addAll(prevStyling.letterStyles)
+        prevStyles.add(PLACEHOLDER_LETTER_STYLE)
+        val reusable = Collections.newSetFromMap(IdentityHashMap<LetterStyle, Boolean>())
+        reusable.add(PLACEHOLDER_LETTER_STYLE)
+        for (style in styling.letterStyles) {
+            // Follow the inheritance chain, but bound its length to not get stuck in cycles.
+            var cur = style
+            var ok = cur in prevStyles
+            for (i in 0..<styling.letterStyles.size) {
+                if (!ok || !cur.inheritLayersFromStyle.isActive)
+                    break
+                val refName = cur.inheritLayersFromStyle.value
+                val ref = styling.letterStyles.find { o -> o.name == refName }
+                ok = ref === prevStyling.letterStyles.find { o -> o.name == refName } && (ref == null || ref in prevStyles)
+                cur = ref ?: break
+            }
+            if (ok)
+                reusable.add(style)
+        }
+        return reusable
+    }
+
     fun getFmtStr(styledString: StyledString): FormattedString =
-        fmtStrIdCache.computeIfAbsent(styledString) { generateFmtStr(styledString, this) }
+        fmtStrIdCache.computeIfAbsent(styledString) {
+            fmtStrTakenOver[TakenOverKey(styledString)] ?: generateFmtStr(styledString, this)
+        }
 
     fun getFmtStr(string: String, letterStyle: LetterStyle): FormattedString =
         fmtStrEqCache
             .computeIfAbsent(string) { Collections.synchronizedMap(IdentityHashMap()) }
             .computeIfAbsent(letterStyle) { generateFmtStr(listOf(Pair(string, letterStyle)), this) }
 
+    /** Compares the strings by content and the letter styles by identity. */
+    private class TakenOverKey(private val styledString: StyledString) {
+        override fun equals(other: Any?): Boolean {
+            if (other !is TakenOverKey || styledString.size != other.styledString.size) return false
+            for (i in styledString.indices) {
+                val (str1, style1) = styledString[i]
+                val (str2, style2) = other.styledString[i]
+                if (style1 !== style2 || str1 != str2) return false
+            }
+            return true
+        }
+
+        override fun hashCode(): Int {
+            var result = 0
+            for ((str, style) in styledString)
+                result = 31 * (31 * result + str.hashCode()) + System.identityHashCode(style)
+            return result
+        }
+    }
+
     class Fonts(
         val std: FormattedString.Font,
         val fakeSmallCaps: FormattedString.Font?
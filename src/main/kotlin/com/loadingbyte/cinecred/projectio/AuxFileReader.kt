@@ -1,11 +1,16 @@
 package com.loadingbyte.cinecred.projectio
 
 import com.loadingbyte.cinecred.common.LOGGER
+import com.loadingbyte.cinecred.common.throwableAwareTask
 import com.loadingbyte.cinecred.imaging.Picture
 import com.loadingbyte.cinecred.imaging.Tape
 import java.awt.Font
 import java.io.IOException
 import java.nio.file.Path
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
 import kotlin.io.path.extension
 import kotlin.io.path.isRegularFile
 import kotlin.io.path.name
@@ -13,6 +18,16 @@ import kotlin.io.path.name
 
 private val FONT_FILE_EXTS = sortedSetOf(String.CASE_INSENSITIVE_ORDER, "ttf", "ttc", "otf", "otc")
 
+/**
+ * Reads auxiliary files and decodes pictures in the background. As this is a mix of disk IO and decoding, the pool has
+ * at least two threads even on single-core machines, but it is bounded so that opening a project with hundreds of
+ * auxiliary files doesn't spawn hundreds of threads.
+ */
+internal val AUX_FILE_POOL: ExecutorService =
+    Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors().coerceIn(2, 8)) { runnable ->
+        Thread(runnable, "AuxFileReader").apply { isDaemon = true }
+    }
+
 /** Doesn't throw, instead returns an empty list. */
 fun tryReadFonts(fontFile: Path): List<Font> {
     val ext = fontFile.extension
@@ -33,20 +48,44 @@ fun tryReadPictureLoader(pictureFile: Path): PictureLoader? =
     else
         null
 
-class PictureLoader(file: Path) {
-    private val lazy = lazy {
-        try {
-            Picture.load(file)
-        } catch (e: Exception) {
-            LOGGER.error("Skipping picture '{}' because it is corrupt or cannot be read.", file, e)
-            null
+class PictureLoader(private val file: Path) {
+
+    val filename: String = file.name
+
+    private val lock = ReentrantLock()
+    @Volatile
+    private var loaded = false
+    private var disposed = false
+    private var loadedPicture: Picture? = null
+
+    val picture: Picture?
+        get() = lock.withLock {
+            if (!loaded && !disposed) {
+                loadedPicture = try {
+                    Picture.load(file)
+                } catch (e: Exception) {
+                    LOGGER.error("Skipping picture '{}' because it is corrupt or cannot be read.", file, e)
+                    null
+                }
+                loaded = true
+            }
+            loadedPicture
         }
+
+    /** Decodes the picture in the background, so that the first access to [picture] no longer has to wait for it. */
+    fun preload() {
+        if (!loaded)
+            AUX_FILE_POOL.execute(throwableAwareTask { picture })
     }
-    val filename: String = file.name
-    val picture: Picture? get() = lazy.value
+
     fun dispose() {
-        if (lazy.isInitialized()) lazy.value?.close()
+        lock.withLock {
+            disposed = true
+            loadedPicture?.close()
+            loadedPicture = null
+        }
     }
+
 }
 
 
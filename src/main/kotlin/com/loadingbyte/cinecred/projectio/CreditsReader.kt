@@ -42,6 +42,166 @@ fun readCredits(
 }
 
 
+/**
+ * Carries [credits] and their [log], which have been read with the [prevStyling], over to the new [styling] without
+ * reading the spreadsheet again. Each referenced style is swapped for the style at the same position in the new
+ * styling, and all parts of the credits that don't reference a swapped style are kept as they are, so that later
+ * stages can recognize them as unchanged. This is only possible when the new styling doesn't change anything that
+ * reading depends on; otherwise, null is returned, and the spreadsheet must be read anew.
+ */
+fun rebindCredits(
+    credits: Credits,
+    log: List<ParserMsg>,
+    prevStyling: Styling,
+    styling: Styling
+): Pair<Credits, List<ParserMsg>>? {
+    if (prevStyling === styling)
+        return Pair(credits, log)
+    if (ReadingAspects(prevStyling) != ReadingAspects(styling))
+        return null
+
+    val swaps = IdentityHashMap<Style, Style>()
+    fun addSwaps(prevStyles: List<Style>, styles: List<Style>) {
+        for (idx in styles.indices)
+            if (prevStyles[idx] !== styles[idx])
+                swaps[prevStyles[idx]] = styles[idx]
+    }
+    addSwaps(prevStyling.pageStyles, styling.pageStyles)
+    addSwaps(prevStyling.contentStyles, styling.contentStyles)
+    addSwaps(prevStyling.letterStyles, styling.letterStyles)
+
+    val newLog = log.map { msg ->
+        val msd = msg.migrationDataSource ?: return@map msg
+        val newStyle = swaps[msd.style] ?: return@map msg
+        @Suppress("UNCHECKED_CAST")
+        msg.copy(migrationDataSource = MigrationDataSource(newStyle, msd.setting as StyleSetting<Style, *>))
+    }
+    return Pair(CreditsRebinder(swaps).rebind(credits), newLog)
+}
+
+
+/**
+ * Everything about a styling that [CreditsReader] looks at. Stylings which agree on it yield the same credits. For
+ * letter styles, this includes everything that decides which glyphs are needed, as the reader warns about missing ones.
+ */
+private data class ReadingAspects(
+    val resolutionWidthPx: Int,
+    val fps: FPS,
+    val timecodeFormat: TimecodeFormat,
+    val unitVGapPx: Double,
+    val locale: Locale,
+    val uppercaseExceptions: List<String>,
+    val pageStyles: List<List<Any>>,
+    val contentStyles: List<List<Any>>,
+    val letterStyles: List<List<Any>>
+) {
+    constructor(styling: Styling) : this(
+        styling.global.resolution.widthPx, styling.global.fps, styling.global.timecodeFormat,
+        styling.global.unitVGapPx, styling.global.locale, styling.global.uppercaseExceptions,
+        styling.pageStyles.map { s ->
+            listOf(
+                s.name, s.behavior, s.cardRuntimeFrames, s.scrollMeltWithPrev, s.scrollMeltWithNext,
+                s.scrollRuntimeFrames
+            )
+        },
+        styling.contentStyles.map { s -> listOf(s.name, s.hasHead, s.hasTail) },
+        styling.letterStyles.map { s ->
+            listOf(s.name, s.font, s.uppercase, s.useUppercaseExceptions, s.smallCaps, s.superscript, s.features)
+        }
+    )
+}
+
+
+/** Rebuilds only those credits elements which (transitively) reference a swapped style or a rebuilt element. */
+private class CreditsRebinder(private val swaps: Map<Style, Style>) {
+
+    private val stages = IdentityHashMap<Stage, Stage>()
+    private val spines = IdentityHashMap<Spine, Spine>()
+
+    fun rebind(credits: Credits): Credits {
+        val pages = credits.pages.mapOrSame(::rebindPage)
+        val runtimeGroups = credits.runtimeGroups.mapOrSame { group ->
+            val groupStages = group.stages.mapOrSame(stages::getValue)
+            if (groupStages === group.stages) group else RuntimeGroup(groupStages, group.runtimeFrames)
+        }
+        return if (pages === credits.pages && runtimeGroups === credits.runtimeGroups) credits else
+            Credits(credits.spreadsheetName, pages, runtimeGroups)
+    }
+
+    private fun rebindPage(page: Page): Page {
+        val pageStages = page.stages.mapOrSame { stage -> rebindStage(stage).also { stages[stage] = it } }
+        return if (pageStages === page.stages) page else Page(pageStages, page.gapAfterFrames)
+    }
+
+    private fun rebindStage(stage: Stage): Stage {
+        val style = swap(stage.style)
+        val compounds = stage.compounds.mapOrSame(::rebindCompound)
+        return if (style === stage.style && compounds === stage.compounds) stage else
+            Stage(style, stage.cardRuntimeFrames, compounds, stage.vGapAfterPx)
+    }
+
+    private fun rebindCompound(compound: Compound): Compound {
+        val compoundSpines = compound.spines.mapOrSame { spine -> rebindSpine(spine).also { spines[spine] = it } }
+        if (compoundSpines === compound.spines)
+            return compound
+        return when (compound) {
+            is Compound.Card -> Compound.Card(compound.vAnchor, compound.hOffsetPx, compound.vOffsetPx, compoundSpines)
+            is Compound.Scroll -> Compound.Scroll(compound.hOffsetPx, compoundSpines, compound.vGapAfterPx)
+        }
+    }
+
+    private fun rebindSpine(spine: Spine): Spine {
+        // A spine can only hook to a spine that comes before it, which has hence already been rebound.
+        val hookTo = spine.hookTo?.let(spines::getValue)
+        val blocks = spine.blocks.mapOrSame(::rebindBlock)
+        return if (hookTo === spine.hookTo && blocks === spine.blocks) spine else
+            Spine(hookTo, spine.hookVAnchor, spine.selfVAnchor, spine.hOffsetPx, spine.vOffsetPx, blocks)
+    }
+
+    private fun rebindBlock(block: Block): Block {
+        val style = swap(block.style)
+        val head = block.head?.mapOrSame(::rebindStyledString)
+        val body = block.body.mapOrSame(::rebindBodyElement)
+        val tail = block.tail?.mapOrSame(::rebindStyledString)
+        return if (style === block.style && head === block.head && body === block.body && tail === block.tail) block
+        else Block(
+            style, head, body, tail, block.vGapAfterPx,
+            block.matchHeadPartitionId, block.matchBodyPartitionId, block.matchTailPartitionId
+        )
+    }
+
+    private fun rebindBodyElement(bodyElem: BodyElement): BodyElement = when (bodyElem) {
+        is BodyElement.Nil -> {
+            val sty = swap(bodyElem.sty)
+            if (sty === bodyElem.sty) bodyElem else BodyElement.Nil(sty)
+        }
+        is BodyElement.Str -> {
+            val lines = bodyElem.lines.mapOrSame(::rebindStyledString)
+            if (lines === bodyElem.lines) bodyElem else BodyElement.Str(lines)
+        }
+        is BodyElement.Pic, is BodyElement.Tap, BodyElement.Mis -> bodyElem
+    }
+
+    private fun rebindStyledString(styledString: StyledString): StyledString =
+        if (styledString.none { (_, style) -> style in swaps }) styledString else
+            styledString.map { (str, style) -> Pair(str, swap(style)) }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun <S : Style> swap(style: S): S = (swaps[style] ?: style) as S
+
+    private inline fun <T> PersistentList<T>.mapOrSame(transform: (T) -> T): PersistentList<T> {
+        var result = this
+        for ((idx, elem) in withIndex()) {
+            val newElem = transform(elem)
+            if (newElem !== elem)
+                result = result.set(idx, newElem)
+        }
+        return result
+    }
+
+}
+
+
 private class CreditsReader(
     val table: Table,
     val styling: Styling,
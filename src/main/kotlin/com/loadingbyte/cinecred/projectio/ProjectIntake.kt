@@ -5,6 +5,7 @@ import com.loadingbyte.cinecred.common.Severity.ERROR
 import com.loadingbyte.cinecred.common.Severity.WARN
 import com.loadingbyte.cinecred.common.l10n
 import com.loadingbyte.cinecred.common.throwableAwareTask
+import com.loadingbyte.cinecred.common.throwableAwareValuedTask
 import com.loadingbyte.cinecred.common.walkSafely
 import com.loadingbyte.cinecred.delivery.RenderQueue
 import com.loadingbyte.cinecred.imaging.Tape
@@ -51,6 +52,7 @@ class ProjectIntake(private val projectDir: Path, private val callbacks: Callbac
     }
 
     private var currentCreditsFile: Path? = null
+    private var currentSpreadsheets: List<Spreadsheet> = emptyList()
     private var linkedCreditsWatcher: ServiceWatcher? = null
 
     private val auxFileEventBatch = AtomicReference(HashMap<Path, RecursiveFileWatcher.Event>())
@@ -66,11 +68,11 @@ class ProjectIntake(private val projectDir: Path, private val callbacks: Callbac
     private var tapesChanged = true
 
     init {
-        // Load the initially present auxiliary files (project fonts, pictures, tapes) in the current thread, which is
-        // required by the class's contract. After that, all actions will be performed in the executor thread, which is
-        // why the class doesn't need locking mechanisms.
-        for (projectFileOrDir in projectDir.walkSafely())
-            reloadAuxFileOrDir(projectFileOrDir)
+        // Load the initially present auxiliary files (project fonts, pictures, tapes) before the constructor returns,
+        // which is required by the class's contract. The files are read concurrently, but registered in the current
+        // thread. After that, all actions will be performed in the executor thread, which is why the class doesn't need
+        // locking mechanisms.
+        reloadAuxFilesOrDirs(projectDir.walkSafely())
         pushAuxiliaryFileChanges()
 
         // Load the initially present credits file in the executor thread.
@@ -93,11 +95,13 @@ class ProjectIntake(private val projectDir: Path, private val callbacks: Callbac
                 batch[parent] = if (parent.exists()) MODIFY else DELETE
                 // We then schedule a task that will later apply the batched changes in one go.
                 val newProcessor = executor.schedule(throwableAwareTask {
+                    val modified = mutableListOf<Path>()
                     for ((defFile, defEvent) in auxFileEventBatch.getAndSet(HashMap())) {
                         removeAuxFileOrDir(defFile)
                         if (defEvent == MODIFY)
-                            reloadAuxFileOrDir(defFile)
+                            modified.add(defFile)
                     }
+                    reloadAuxFilesOrDirs(modified)
                     pushAuxiliaryFileChanges()
                 }, 500, TimeUnit.MILLISECONDS)
                 // Cancel the previous task if it hasn't started yet
@@ -156,6 +160,7 @@ class ProjectIntake(private val projectDir: Path, private val callbacks: Callbac
                         linkedCreditsWatcher = service.watch(link, object : ServiceWatcher.Callbacks {
                             override fun content(spreadsheets: List<Spreadsheet>) {
                                 callbacks.pushCreditsSpreadsheets(spreadsheets, locatingLog)
+                                executor.submit(throwableAwareTask { preloadReferencedPictures(spreadsheets) })
                             }
 
                             override fun problem(problem: ServiceWatcher.Problem) {
@@ -173,6 +178,7 @@ class ProjectIntake(private val projectDir: Path, private val callbacks: Callbac
                     val fmt = SPREADSHEET_FORMATS.first { fmt -> fmt.fileExt.equals(fileExt, ignoreCase = true) }
                     val (spreadsheets, loadingLog) = fmt.read(activeFile, l10n("project.template.spreadsheetName"))
                     callbacks.pushCreditsSpreadsheets(spreadsheets, locatingLog + loadingLog)
+                    preloadReferencedPictures(spreadsheets)
                 }
             } catch (e: Exception) {
                 // General exceptions can occur if the credits file is ill-formatted.
@@ -188,36 +194,82 @@ class ProjectIntake(private val projectDir: Path, private val callbacks: Callbac
         currentCreditsFile = activeFile
     }
 
-    private fun reloadAuxFileOrDir(fileOrDir: Path) {
+    /**
+     * Preloads the pictures which are likely referenced by the given spreadsheets, so that they are already decoded
+     * when the credits are read. To stay cheap, this doesn't parse the spreadsheets, but merely looks for cells which
+     * mention a picture's filename.
+     */
+    private fun preloadReferencedPictures(spreadsheets: List<Spreadsheet>) {
+        currentSpreadsheets = spreadsheets
+        val unloaded = pictureLoaders.values.toMutableList()
+        if (unloaded.isEmpty())
+            return
+        for (spreadsheet in spreadsheets)
+            for (record in spreadsheet)
+                for (cell in record.cells) {
+                    if ('.' !in cell)
+                        continue
+                    unloaded.removeIf { pictureLoader ->
+                        val referenced = cell.contains(pictureLoader.filename, ignoreCase = true)
+                        if (referenced)
+                            pictureLoader.preload()
+                        referenced
+                    }
+                    if (unloaded.isEmpty())
+                        return
+                }
+    }
+
+    /** Reads the given files concurrently, and then registers them in the given order in the current thread. */
+    private fun reloadAuxFilesOrDirs(filesOrDirs: List<Path>) {
+        val futures = filesOrDirs.map { fileOrDir ->
+            AUX_FILE_POOL.submit(throwableAwareValuedTask { readAuxFileOrDir(fileOrDir) })
+        }
+        for ((fileOrDir, future) in filesOrDirs.zip(futures))
+            when (val auxFile = future.get()) {
+                is AuxFile.Fonts -> {
+                    projectFonts[fileOrDir] = auxFile.fonts
+                    projectFontsChanged = true
+                }
+                is AuxFile.Pic -> {
+                    pictureLoaders.put(fileOrDir, auxFile.pictureLoader)?.dispose()
+                    pictureLoadersChanged = true
+                }
+                is AuxFile.Tp -> {
+                    tapes.put(fileOrDir, auxFile.tape)?.close()
+                    auxFile.tape.generateProxy()
+                    tapesChanged = true
+                    // If this is an image sequence tape, disable all picture loaders inside the sequence folder.
+                    if (auxFile.tape.fileSeq)
+                        pictureLoadersChanged = true
+                }
+                null -> {}
+            }
+    }
+
+    private sealed interface AuxFile {
+        class Fonts(val fonts: List<Font>) : AuxFile
+        class Pic(val pictureLoader: PictureLoader) : AuxFile
+        class Tp(val tape: Tape) : AuxFile
+    }
+
+    /** This method is called from multiple threads at the same time, so it must not touch any state of this class. */
+    private fun readAuxFileOrDir(fileOrDir: Path): AuxFile? {
         // If the file has been generated by a render job, don't reload the project. Otherwise, generating image
         // sequences would be very expensive because we would constantly reload the project. Note that we do not
         // only consider the current render job, but all render jobs in the render job list. This ensures that even
         // the last file generated by a render job doesn't reload the project even when the render job has already
         // been marked as complete by the time the OS notifies us about the newly generated file.
         if (RenderQueue.isRenderedFile(fileOrDir))
-            return
+            return null
 
         val newFonts = tryReadFonts(fileOrDir)
-        if (newFonts.isNotEmpty()) {
-            projectFonts[fileOrDir] = newFonts
-            projectFontsChanged = true
-            return
-        }
-
-        tryReadPictureLoader(fileOrDir)?.let { pictureLoader ->
-            pictureLoaders.put(fileOrDir, pictureLoader)?.dispose()
-            pictureLoadersChanged = true
-            return
-        }
+        if (newFonts.isNotEmpty())
+            return AuxFile.Fonts(newFonts)
 
-        tryRecognizeTape(fileOrDir)?.let { tape ->
-            tapes.put(fileOrDir, tape)?.close()
-            tapesChanged = true
-            // If this is an image sequence tape, disable all picture loaders inside the sequence folder.
-            if (tape.fileSeq)
-                pictureLoadersChanged = true
-            return
-        }
+        tryReadPictureLoader(fileOrDir)?.let { return AuxFile.Pic(it) }
+        tryRecognizeTape(fileOrDir)?.let { return AuxFile.Tp(it) }
+        return null
     }
 
     private fun removeAuxFileOrDir(fileOrDir: Path) {
@@ -247,8 +299,11 @@ class ProjectIntake(private val projectDir: Path, private val callbacks: Callbac
         if (projectFontsChanged)
             callbacks.pushProjectFonts(projectFonts.values.flatten())
 
-        if (pictureLoadersChanged)
+        if (pictureLoadersChanged) {
             callbacks.pushPictureLoaders(pictureLoaders.values)
+            // New pictures might be referenced by the spreadsheets which have already been read.
+            preloadReferencedPictures(currentSpreadsheets)
+        }
 
         if (tapesChanged)
             callbacks.pushTapes(tapes.values)
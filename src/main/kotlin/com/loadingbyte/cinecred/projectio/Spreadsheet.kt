@@ -34,6 +34,11 @@ class Spreadsheet(val name: String, matrix: List<List<String>>) : Iterable<Sprea
 
     fun map(transform: (String) -> String): Spreadsheet = Spreadsheet(name, records.map { it.cells.map(transform) })
 
+    /** Whether the [other] spreadsheet has the same name and cells, even if it has been read anew. */
+    fun contentEquals(other: Spreadsheet): Boolean =
+        this === other || name == other.name && records.size == other.records.size &&
+                records.indices.all { idx -> records[idx].cells == other.records[idx].cells }
+
     override fun iterator(): Iterator<Record> = records.iterator()
 
     class Record(val recordNo: Int, val cells: List<String>) {
@@ -17,6 +17,7 @@ import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.PRIMARI
 import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.PRORES_PROFILE
 import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.RESOLUTION_SCALING_LOG2
 import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.SCAN
+import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.SEGMENTED
 import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.TIFF_COMPRESSION
 import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.TRANSFER
 import com.loadingbyte.cinecred.delivery.RenderFormat.Property.Companion.TRANSPARENCY
@@ -267,6 +268,13 @@ class DeliverConfigurationForm(private val ctrl: ProjectController) :
         )
     )
 
+    private var segmentedAvailable = false
+    private val segmentedWidget = addWidget(
+        l10n("ui.deliverConfig.segmented"),
+        CheckBoxWidget(),
+        isVisible = { segmentedAvailable }
+    )
+
     private val primariesWidget =
         ComboBoxWidget(ColorSpace.Primaries::class.java, emptyList(), widthSpec = WidthSpec.NARROW)
     private val transferWidget =
@@ -460,6 +468,7 @@ class DeliverConfigurationForm(private val ctrl: ProjectController) :
         pushFormatPropertyOptions(TRANSFER, transferWidget, config, formatChanged)
         pushFormatPropertyOptions(YUV, yuvWidget, config, formatChanged)
         hdrWidget.isVisible = HDR in config
+        segmentedAvailable = SEGMENTED in config
     }
 
     private fun <T : Any, W> pushFormatPropertyOptions(
@@ -597,6 +606,7 @@ class DeliverConfigurationForm(private val ctrl: ProjectController) :
         if (yuvWidget.items.isNotEmpty())
             lookup[YUV] = yuvWidget.value
         lookup[HDR] = hdrWidget.value
+        lookup[SEGMENTED] = segmentedWidget.value
         if (ignoreVolatile)
             lookup -= VOLATILE_PROPERTIES
         return lookup.findConfig(format)
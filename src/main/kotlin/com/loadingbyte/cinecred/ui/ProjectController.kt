@@ -2,6 +2,8 @@ package com.loadingbyte.cinecred.ui
 
 import com.loadingbyte.cinecred.common.Severity.ERROR
 import com.loadingbyte.cinecred.common.l10n
+import com.loadingbyte.cinecred.common.parallelMap
+import com.loadingbyte.cinecred.drawer.BlockDrawingMemo
 import com.loadingbyte.cinecred.drawer.DrawnCredits
 import com.loadingbyte.cinecred.drawer.DrawnProject
 import com.loadingbyte.cinecred.drawer.drawPages
@@ -56,6 +58,18 @@ class ProjectController(
     private val currentInput = AtomicReference(Input(emptyList(), emptyList(), null, null, null, null))
     private val processingJobSlot = JobSlot()
     private var processingLog = emptyList<ParserMsg>()
+    // Remembers the last reading result of each spreadsheet, so that it can be reused if only the styling changed, and
+    // also the drawn blocks of each spreadsheet, so that blocks unaffected by a styling edit needn't be drawn anew.
+    @Volatile private var readCreditsMemos = emptyList<ReadCreditsMemo>()
+
+    private class ReadCreditsMemo(
+        val spreadsheet: Spreadsheet,
+        val styling: Styling,
+        val pictureLoaders: Collection<PictureLoader>,
+        val tapes: Collection<Tape>,
+        val result: Pair<Credits, List<ParserMsg>>,
+        val blockMemo: BlockDrawingMemo
+    )
 
     // STEP 1:
     // Create and open the project UI.
@@ -152,11 +166,25 @@ class ProjectController(
             // Parse each credits spreadsheet.
             val credits = mutableListOf<Credits>()  // retains insertion order
             val log = mutableListOf<ParserMsg>()
-            for (spreadsheet in creditsSpreadsheets) {
-                val (curCredits, curLog) = readCredits(spreadsheet, styling, pictureLoaders, tapes)
+            val prevMemos = readCreditsMemos
+            val memos = creditsSpreadsheets.parallelMap { spreadsheet ->
+                // When this spreadsheet's content is unchanged, the previous result can be carried over to the new
+                // styling instead of reading the spreadsheet again, unless the styling change affects reading.
+                val prevMemo = prevMemos.find { m ->
+                    m.spreadsheet.contentEquals(spreadsheet) && m.pictureLoaders === pictureLoaders && m.tapes === tapes
+                }
+                val result = prevMemo?.let { m -> rebindCredits(m.result.first, m.result.second, m.styling, styling) }
+                    ?: readCredits(spreadsheet, styling, pictureLoaders, tapes)
+                // Freshly read credits consist of new blocks anyway, so only carry the drawn blocks over with them.
+                val blockMemo = prevMemo?.blockMemo ?: BlockDrawingMemo()
+                ReadCreditsMemo(spreadsheet, styling, pictureLoaders, tapes, result, blockMemo)
+            }
+            for (memo in memos) {
+                val (curCredits, curLog) = memo.result
                 credits += curCredits
                 log += curLog
             }
+            readCreditsMemos = memos
 
             val project = Project(styling, credits.toPersistentList())
 
@@ -173,19 +201,23 @@ class ProjectController(
                 SwingUtilities.invokeLater { stylingHistory.replaceInHistory(styling, it) }
             }
 
-            // Draw pages and video for each credits spreadsheet.
-            val drawnCredits = credits.map { curCredits ->
-                val drawnPages = drawPages(project, curCredits)
-
+            // Draw pages and video for each credits spreadsheet in parallel.
+            val drawnCreditsOrNull = credits.withIndex().toList().parallelMap { (idx, curCredits) ->
+                val drawnPages = drawPages(project, curCredits, memos[idx].blockMemo)
                 // Limit each page's height to prevent the program from crashing due to misconfiguration.
-                if (drawnPages.any { it.defImage.height.resolve() > 1_000_000.0 }) {
-                    val sName = curCredits.spreadsheetName
+                if (drawnPages.any { it.defImage.height.resolve() > 1_000_000.0 })
+                    return@parallelMap null
+                val video = drawVideo(project, drawnPages)
+                DrawnCredits(curCredits, drawnPages.toPersistentList(), video)
+            }
+            // Report the first credits with excessive page height, in spreadsheet order.
+            val drawnCredits = drawnCreditsOrNull.mapIndexed { idx, curDrawnCredits ->
+                if (curDrawnCredits == null) {
+                    val sName = credits[idx].spreadsheetName
                     val error = ParserMsg(sName, null, null, null, ERROR, l10n("ui.edit.excessivePageSizeError"))
                     return@submit doneProcessing(input, log + error, null)
                 }
-
-                val video = drawVideo(project, drawnPages)
-                DrawnCredits(curCredits, drawnPages.toPersistentList(), video)
+                curDrawnCredits
             }
 
             val drawnProject = DrawnProject(project, drawnCredits.toPersistentList())
@@ -19,7 +19,9 @@ import java.awt.GraphicsConfiguration
 import java.awt.Transparency
 import java.awt.image.BufferedImage
 import java.lang.invoke.MethodHandles
+import java.util.TreeMap
 import java.util.concurrent.CancellationException
+import java.util.concurrent.CopyOnWriteArrayList
 import java.util.concurrent.Executors
 import java.util.concurrent.Future
 import java.util.concurrent.TimeUnit
@@ -553,11 +555,14 @@ class PlaybackCtrl(private val projectCtrl: ProjectController) : PlaybackCtrlCom
     }
 
 
-    /** This class is thread-safe. */
+    /**
+     * This class is thread-safe. Each thread that concurrently materializes frames gets its own video backend, and all
+     * these backends share the same materialization cache.
+     */
     private class FrameSource<F : Any>(
-        materializationCache: DeferredImage.CanvasMaterializationCache,
-        video: DeferredVideo,
-        grounding: Color4f,
+        private val materializationCache: DeferredImage.CanvasMaterializationCache,
+        private val video: DeferredVideo,
+        private val grounding: Color4f,
         private val resolution: Resolution,
         representation: Bitmap.Representation,
         scan: Bitmap.Scan,
@@ -565,25 +570,40 @@ class PlaybackCtrl(private val projectCtrl: ProjectController) : PlaybackCtrlCom
         private val frameConverter: (Bitmap) -> F
     ) {
 
+        private val spec: Bitmap.Spec
         private val videoBackendLock = ReentrantLock()
-        private var videoBackend: DeferredVideo.BitmapBackend?
+        private val idleVideoBackends = ArrayDeque<DeferredVideo.BitmapBackend>()
+        private var closed = false
 
         init {
             val content = if (scan == Bitmap.Scan.PROGRESSIVE) Bitmap.Content.PROGRESSIVE_FRAME else
                 Bitmap.Content.INTERLEAVED_FIELDS
-            val spec = Bitmap.Spec(video.resolution, representation, scan, content)
-            videoBackend = DeferredVideo.BitmapBackend(
-                video, listOf(STATIC), listOf(TAPES), grounding, spec,
-                cache = materializationCache, randomAccessDraftMode = true
-            )
+            spec = Bitmap.Spec(video.resolution, representation, scan, content)
+            val videoBackend = createVideoBackend()
             // Simulate materializing the currently selected frame while the FrameBuffer is being constructed in a
             // background thread. As expensive operations are cached, the subsequent materialization of that frame in
             // another thread will be very fast.
-            videoBackend?.preloadFrame(preloadFrameIdx)
+            videoBackend.preloadFrame(preloadFrameIdx)
+            idleVideoBackends.add(videoBackend)
         }
 
+        private fun createVideoBackend() = DeferredVideo.BitmapBackend(
+            video, listOf(STATIC), listOf(TAPES), grounding, spec,
+            cache = materializationCache, randomAccessDraftMode = true,
+            converterThreads = (Runtime.getRuntime().availableProcessors() / 2).coerceIn(1, 4)
+        )
+
         fun materializeFrame(frameIdx: Int): F? {
-            val baseBitmap = videoBackendLock.withLock { videoBackend?.materializeFrame(frameIdx) } ?: return null
+            val videoBackend = videoBackendLock.withLock {
+                if (closed)
+                    return null
+                idleVideoBackends.removeLastOrNull()
+            } ?: createVideoBackend()
+            val baseBitmap = try {
+                videoBackend.materializeFrame(frameIdx)
+            } finally {
+                videoBackendLock.withLock { if (closed) videoBackend.close() else idleVideoBackends.add(videoBackend) }
+            } ?: return null
             if (baseBitmap.spec.resolution == resolution)
                 return frameConverter(baseBitmap)
             val paddedBitmap = Bitmap.allocate(Bitmap.Spec(resolution, baseBitmap.spec.representation)).zero()
@@ -595,15 +615,22 @@ class PlaybackCtrl(private val projectCtrl: ProjectController) : PlaybackCtrlCom
         }
 
         fun close() {
+            // Backends that are currently in use are closed as soon as they're returned.
             videoBackendLock.withLock {
-                videoBackend?.close()
-                videoBackend = null
+                closed = true
+                idleVideoBackends.forEach(DeferredVideo.BitmapBackend::close)
+                idleVideoBackends.clear()
             }
         }
 
     }
 
 
+    /**
+     * Several workers stock the queue concurrently. Each one claims a run of consecutive queue positions that all show
+     * the same frame, materializes that frame, and puts it into the queue. As workers finish at different times, the
+     * runs are only published to the playback side once all preceding positions have been published as well.
+     */
     private class FrameBuffer<F : Any>(
         @Volatile private var source: FrameSource<F>?,
         firstFrameIdx: Int,
@@ -612,62 +639,119 @@ class PlaybackCtrl(private val projectCtrl: ProjectController) : PlaybackCtrlCom
 
         private val queue = arrayOfNulls<Any>(QUEUE_SIZE)
         @Volatile private var frameIdxCalculator = FrameIndexCalculator(firstFrameIdx, frameStep, 0.0)
-        @Volatile private var stockQueueThread: Thread? = null
+        private val stockQueueThreads = CopyOnWriteArrayList<Thread>()
         @Volatile private var nextTakePos = 0
         @Volatile private var lastPutPos = -1
         @Volatile private var rewindStockerSignal = false
 
-        private val stockQueueTask = GLOBAL_THREAD_POOL.submit(throwableAwareTask(::stockQueueLoop))
+        // These variables coordinate the workers and are guarded by the stock lock.
+        private val stockLock = ReentrantLock()
+        private var generation = 0
+        private var nextClaimPos = 0
+        private val stockedRuns = TreeMap<Int, Int>()  // Maps the start to the end of runs that are not yet published.
+        private var reusableFrameIdx = -1
+        private var reusableFrame: F? = null
+
+        private val stockQueueTasks = List(STOCK_WORKERS) {
+            GLOBAL_THREAD_POOL.submit(throwableAwareTask(::stockQueueLoop))
+        }
+
+        private class Run(val generation: Int, val startPos: Int, val endPos: Int, val frameIdx: Int)
 
         private fun stockQueueLoop() {
-            stockQueueThread = Thread.currentThread()
-            var frameIdx = -1
-            var frame: F? = null
-            outer@ while (!Thread.interrupted()) {
-                val putPos = if (rewindStockerSignal) {
-                    // As requested, discard the progress and start stocking from the current playback position again.
-                    rewindStockerSignal = false
-                    lastPutPos = nextTakePos - 1
-                    nextTakePos
-                } else {
-                    // If rendering has fallen behind playback, skip the frames that are no longer needed.
-                    max(lastPutPos + 1, nextTakePos)
-                }
+            stockQueueThreads.add(Thread.currentThread())
+            while (!Thread.interrupted()) {
                 // If rendering has run too far ahead and the queue is full, wait for playback to consume one frame.
-                while (putPos - nextTakePos >= QUEUE_SIZE) {
+                val run = claimRun()
+                if (run == null) {
                     LockSupport.park(this)
-                    // When receiving a rewind signal while waiting, discard putPos and go back to the loop start.
-                    if (rewindStockerSignal)
-                        continue@outer
-                    if (Thread.interrupted())
-                        break@outer
+                    continue
                 }
                 try {
-                    val newFrameIdx = frameIdxCalculator.frameIdx(putPos)
-                    // If the same frame index was also used for the previous frame, just reuse the previous frame.
-                    if (frameIdx != newFrameIdx) {
-                        closeFrame(frame)
-                        frameIdx = newFrameIdx
-                        frame = source?.materializeFrame(newFrameIdx)
-                    }
-                    // If rendering took too long and playback has already moved beyond the new frame, discard it.
-                    if (putPos >= nextTakePos)
-                        closeFrame(swapInQueue(putPos, dupFrame(frame)))
-                    lastPutPos = putPos
+                    // If the frame of the previous run is shown again, just reuse it.
+                    val frame = reuseFrame(run) ?: source?.materializeFrame(run.frameIdx)
+                    publishRun(run, frame)
                 } catch (_: InterruptedException) {
                     // Catch this just in case something in materializeFrame() or closeFrame() triggers it.
                     break
                 }
             }
             // If the task has been interrupted, discard all queued frames.
-            closeFrame(frame)
             close()
         }
 
+        /** Returns null if the queue is full. */
+        private fun claimRun(): Run? = stockLock.withLock {
+            if (rewindStockerSignal) {
+                // As requested, discard the progress and start stocking from the current playback position again.
+                // Runs that are still being worked on belong to the old generation and will be discarded.
+                rewindStockerSignal = false
+                generation++
+                nextClaimPos = nextTakePos
+                lastPutPos = nextTakePos - 1
+                stockedRuns.clear()
+                closeFrame(reusableFrame)
+                reusableFrame = null
+                reusableFrameIdx = -1
+            }
+            // If rendering has fallen behind playback, skip the frames that are no longer needed.
+            val takePos = nextTakePos
+            val startPos = max(nextClaimPos, takePos)
+            if (startPos - takePos >= QUEUE_SIZE)
+                return null
+            val calc = frameIdxCalculator
+            val frameIdx = calc.frameIdx(startPos)
+            var endPos = startPos + 1
+            while (endPos - takePos < QUEUE_SIZE && calc.frameIdx(endPos) == frameIdx)
+                endPos++
+            nextClaimPos = endPos
+            Run(generation, startPos, endPos, frameIdx)
+        }
+
+        private fun reuseFrame(run: Run): F? = stockLock.withLock {
+            if (run.generation == generation && run.frameIdx == reusableFrameIdx) dupFrame(reusableFrame) else null
+        }
+
+        private fun publishRun(run: Run, frame: F?) {
+            stockLock.withLock {
+                if (run.generation != generation) {
+                    closeFrame(frame)
+                    return
+                }
+                // If rendering took too long and playback has already moved beyond some positions, skip those.
+                for (pos in max(run.startPos, nextTakePos)..<run.endPos)
+                    closeFrame(swapInQueue(pos, dupFrame(frame)))
+                if (frame != null) {
+                    closeFrame(reusableFrame)
+                    reusableFrame = frame
+                    reusableFrameIdx = run.frameIdx
+                }
+                // Publish all runs that are now contiguous. Gaps which playback has already moved past don't matter.
+                stockedRuns[run.startPos] = run.endPos
+                var frontier = lastPutPos + 1
+                while (true) {
+                    val (startPos, endPos) = stockedRuns.firstEntry() ?: break
+                    if (startPos > max(frontier, nextTakePos))
+                        break
+                    stockedRuns.pollFirstEntry()
+                    frontier = max(frontier, endPos)
+                }
+                lastPutPos = frontier - 1
+            }
+        }
+
         fun close() {
-            stockQueueTask.cancel(true)
-            for (i in queue.indices)
-                closeFrame(swapInQueue(i, null))
+            for (task in stockQueueTasks)
+                task.cancel(true)
+            stockLock.withLock {
+                // Make workers that are still materializing discard their frames.
+                generation++
+                for (i in queue.indices)
+                    closeFrame(swapInQueue(i, null))
+                closeFrame(reusableFrame)
+                reusableFrame = null
+                reusableFrameIdx = -1
+            }
         }
 
         fun changeSource(source: FrameSource<F>?) {
@@ -682,7 +766,12 @@ class PlaybackCtrl(private val projectCtrl: ProjectController) : PlaybackCtrlCom
 
         private fun rewindStocker() {
             rewindStockerSignal = true
-            LockSupport.unpark(stockQueueThread)
+            unparkStockers()
+        }
+
+        private fun unparkStockers() {
+            for (thread in stockQueueThreads)
+                LockSupport.unpark(thread)
         }
 
         /** This method returns extremely quickly, because it's used in the real-time playback loop. */
@@ -690,7 +779,7 @@ class PlaybackCtrl(private val projectCtrl: ProjectController) : PlaybackCtrlCom
             val takePos = nextTakePos
             val frame = if (takePos > lastPutPos) null else swapInQueue(takePos, null)
             nextTakePos++
-            LockSupport.unpark(stockQueueThread)
+            unparkStockers()
             return frame
         }
 
@@ -708,6 +797,7 @@ class PlaybackCtrl(private val projectCtrl: ProjectController) : PlaybackCtrlCom
 
         companion object {
             private const val QUEUE_SIZE = 16  // Must be a power of 2!
+            private val STOCK_WORKERS = (Runtime.getRuntime().availableProcessors() / 4).coerceIn(1, 4)
             private val AA = MethodHandles.arrayElementVarHandle(Array::class.java).withInvokeExactBehavior()
         }
 
@@ -446,7 +446,7 @@ class DeferredImagePanel(
         ): BufferedImage {
             val res = Resolution(w, h)
             val canvasCS = ColorSpace.of(ColorSpace.Primaries.BT709, ColorSpace.Transfer.BLENDING)
-            val canvasRep = Canvas.compatibleRepresentation(canvasCS)
+            val canvasRep = Canvas.compatibleRepresentation(canvasCS, halfFloat = Canvas.PREFER_HALF_FLOAT)
             Bitmap.allocate(Bitmap.Spec(res, canvasRep)).use { canvasBmp ->
                 Bitmap.allocate(Bitmap.Spec(res, bitmapJ2DBridge.nativeRepresentation)).use { nativeBmp ->
                     Canvas.forBitmap(canvasBmp).use { canvas ->
@@ -11,29 +11,47 @@ import com.loadingbyte.cinecred.common.isItalic2D as isItalic2DReflect
 
 
 val BUNDLED_FAMILIES: FontFamilies = FontFamilies(BUNDLED_FONTS)
-val SYSTEM_FAMILIES: FontFamilies = FontFamilies(SYSTEM_FONTS)
+val SYSTEM_FAMILIES: FontFamilies = FontFamilies.ofSystemFonts(SYSTEM_FONTS)
 
 
+/**
+ * The fonts of a family are referenced by name and only loaded once they're first requested, which matters for system
+ * fonts, whose names and styles are known from the font index before their files have been opened.
+ */
 class FontFamily(
     private val family: Map<Locale, String>,
-    private val subfamilies: Map<Font, Map<Locale, String>>,
-    private val sampleTexts: Map<Font, Map<Locale, String>>,
-    val fonts: List<Font>,
-    val canonicalFont: Font
+    private val subfamilies: Map<String, Map<Locale, String>>,
+    private val sampleTexts: Map<String, Map<Locale, String>>,
+    val fontNames: List<String>,
+    private val canonicalFontName: String,
+    private val loadFont: (String) -> Font?
 ) {
 
     private val familyCache = HashMap<Locale, String?>()
-    private val subfamilyCaches = IdentityHashMap<Font, MutableMap<Locale, String?>>()
-    private val sampleTextCaches = IdentityHashMap<Font, MutableMap<Locale, String?>>()
-    private val fontNameToFont = fonts.associateBy { it.getFontName(Locale.ROOT) }
+    private val subfamilyCaches = HashMap<String, MutableMap<Locale, String?>>()
+    private val sampleTextCaches = HashMap<String, MutableMap<Locale, String?>>()
+
+    val fonts: List<Font> by lazy { fontNames.mapNotNull(loadFont) }
+    // The fallback only kicks in if the family's font files have vanished since they were indexed.
+    val canonicalFont: Font by lazy {
+        loadFont(canonicalFontName) ?: fonts.firstOrNull() ?: Font(Font.DIALOG, Font.PLAIN, 1)
+    }
 
     fun getFamily(locale: Locale = Locale.ROOT): String = accessCache(family, familyCache, locale)!!
 
-    fun getSubfamilyOf(font: Font, locale: Locale = Locale.ROOT): String =
-        accessCache(subfamilies.getValue(font), subfamilyCaches.computeIfAbsent(font) { HashMap() }, locale)!!
+    fun getSubfamilyOf(font: Font, locale: Locale = Locale.ROOT): String {
+        val fontName = font.getFontName(Locale.ROOT)
+        return accessCache(
+            subfamilies.getValue(fontName), subfamilyCaches.computeIfAbsent(fontName) { HashMap() }, locale
+        )!!
+    }
 
-    fun getSampleTextOf(font: Font, locale: Locale = Locale.ROOT): String? =
-        accessCache(sampleTexts.getValue(font), sampleTextCaches.computeIfAbsent(font) { HashMap() }, locale)
+    fun getSampleTextOf(font: Font, locale: Locale = Locale.ROOT): String? {
+        val fontName = font.getFontName(Locale.ROOT)
+        return accessCache(
+            sampleTexts.getValue(fontName), sampleTextCaches.computeIfAbsent(fontName) { HashMap() }, locale
+        )
+    }
 
     private fun accessCache(localizations: Map<Locale, String>, cache: MutableMap<Locale, String?>, locale: Locale) =
         cache.computeIfAbsent(locale) {
@@ -46,41 +64,65 @@ class FontFamily(
             localizations[closestLocale]
         }
 
-    fun getFont(fontName: String): Font? = fontNameToFont[fontName]
+    fun getFont(fontName: String): Font? = if (fontName in subfamilies) loadFont(fontName) else null
 
 }
 
 
-class FontFamilies(fonts: Iterable<Font>) {
+class FontFamilies private constructor(val list: List<FontFamily>) {
+
+    constructor(fonts: Iterable<Font>) : this(sortFonts(fonts))
 
-    val list: List<FontFamily>
-    private val fontToFamily: Map<Font, FontFamily>
-    private val fontNameToFamily: Map<String, FontFamily>
+    private val fontNameToFamily: Map<String, FontFamily> =
+        HashMap<String, FontFamily>().apply { for (family in list) for (name in family.fontNames) put(name, family) }
 
-    fun getFamily(font: Font): FontFamily? = fontToFamily[font]
+    fun getFamily(font: Font): FontFamily? = fontNameToFamily[font.getFontName(Locale.ROOT)]
     fun getFamily(fontName: String): FontFamily? = fontNameToFamily[fontName]
 
-    init {
-        list = object : FontSorter<Font, FontFamily>() {
-            override fun Font.getWeight() = getWeightReflect()
-            override fun Font.getWidth() = getWidthReflect()
-            override fun Font.isItalic2D() = isItalic2DReflect()
-            override fun Font.getStrings() = getStringsReflect()
-            override fun makeFamily(
-                family: Map<Locale, String>,
-                subfamilies: Map<Font, Map<Locale, String>>,
-                sampleTexts: Map<Font, Map<Locale, String>>,
-                fonts: List<Font>,
-                canonicalFont: Font
-            ) = FontFamily(family, subfamilies, sampleTexts, fonts, canonicalFont)
-        }.sort(fonts)
-        fontToFamily = HashMap()
-        fontNameToFamily = HashMap()
-        for (family in list)
-            for (font in family.fonts) {
-                fontToFamily[font] = family
-                fontNameToFamily[font.getFontName(Locale.ROOT)] = family
-            }
+    companion object {
+
+        private fun sortFonts(fonts: Iterable<Font>): List<FontFamily> {
+            val nameToFont = fonts.associateBy { it.getFontName(Locale.ROOT) }
+            return object : FontSorter<Font, FontFamily>() {
+                override fun Font.getWeight() = getWeightReflect()
+                override fun Font.getWidth() = getWidthReflect()
+                override fun Font.isItalic2D() = isItalic2DReflect()
+                override fun Font.getStrings() = getStringsReflect()
+                override fun makeFamily(
+                    family: Map<Locale, String>,
+                    subfamilies: Map<Font, Map<Locale, String>>,
+                    sampleTexts: Map<Font, Map<Locale, String>>,
+                    fonts: List<Font>,
+                    canonicalFont: Font
+                ) = FontFamily(
+                    family, subfamilies.mapKeys { it.key.getFontName(Locale.ROOT) },
+                    sampleTexts.mapKeys { it.key.getFontName(Locale.ROOT) },
+                    fonts.map { it.getFontName(Locale.ROOT) }, canonicalFont.getFontName(Locale.ROOT), nameToFont::get
+                )
+            }.sort(fonts)
+        }
+
+        /** Sorts the system fonts purely based on their indexed information, so no font file needs to be opened. */
+        fun ofSystemFonts(fonts: List<SystemFont>): FontFamilies {
+            val nameToFont = fonts.associateBy(SystemFont::fontName)
+            return FontFamilies(object : FontSorter<SystemFont, FontFamily>() {
+                override fun SystemFont.getWeight() = weight
+                override fun SystemFont.getWidth() = width
+                override fun SystemFont.isItalic2D() = italic
+                override fun SystemFont.getStrings() = strings
+                override fun makeFamily(
+                    family: Map<Locale, String>,
+                    subfamilies: Map<SystemFont, Map<Locale, String>>,
+                    sampleTexts: Map<SystemFont, Map<Locale, String>>,
+                    fonts: List<SystemFont>,
+                    canonicalFont: SystemFont
+                ) = FontFamily(
+                    family, subfamilies.mapKeys { it.key.fontName }, sampleTexts.mapKeys { it.key.fontName },
+                    fonts.map(SystemFont::fontName), canonicalFont.fontName, { nameToFont[it]?.font }
+                )
+            }.sort(fonts))
+        }
+
     }
 
 }
@@ -19,6 +19,24 @@ static SkPath convertPath(Path* path) {
     );
 }
 
+SkPath* SkPath_Make(Path* path) {
+    SkPath* skPath = new SkPath(SkPath::Make(
+        reinterpret_cast<SkPoint*>(path->points), path->pointCount,
+        path->verbs, path->verbCount,
+        nullptr, 0,
+        path->isEvenOdd ? SkPathFillType::kEvenOdd : SkPathFillType::kWinding,
+        /* isVolatile = */ false
+    ));
+    // Compute the lazily cached properties right away, so that the path can later be drawn from multiple threads.
+    skPath->updateBoundsCache();
+    skPath->isConvex();
+    return skPath;
+}
+
+void SkPath_delete(SkPath* path) {
+    delete path;
+}
+
 SkCanvas* SkCanvas_MakeRasterDirect(IMAGE_PARAMETERS) {
     return SkCanvas::MakeRasterDirect(
         SkImageInfo::Make(w, h, static_cast<SkColorType>(colorType), static_cast<SkAlphaType>(alphaType), sk_ref_sp(colorSpace)),
@@ -75,6 +93,10 @@ void SkCanvas_drawPath(SkCanvas* canvas, Path* path, SkPaint* paint) {
     canvas->drawPath(convertPath(path), *paint);
 }
 
+void SkCanvas_drawSkPath(SkCanvas* canvas, SkPath* path, SkPaint* paint) {
+    canvas->drawPath(*path, *paint);
+}
+
 void SkCanvas_drawImage(SkCanvas* canvas, IMAGE_PARAMETERS, float x, float y, unsigned char filterMode, SkPaint* paint) {
     sk_sp<SkImage> image = SkImages::RasterFromPixmap(SkPixmap(
         SkImageInfo::Make(w, h, static_cast<SkColorType>(colorType), static_cast<SkAlphaType>(alphaType), sk_ref_sp(colorSpace)),
@@ -9,6 +9,7 @@
 #include "skiacapi.h"
 
 unsigned char SkColorType_RGBA_F32(void) { return static_cast<unsigned char>(SkColorType::kRGBA_F32_SkColorType); }
+unsigned char SkColorType_RGBA_F16(void) { return static_cast<unsigned char>(SkColorType::kRGBA_F16_SkColorType); }
 unsigned char SkColorType_A16_unorm(void) { return static_cast<unsigned char>(SkColorType::kA16_unorm_SkColorType); }
 
 unsigned char SkAlphaType_Opaque(void) { return static_cast<unsigned char>(SkAlphaType::kOpaque_SkAlphaType); }
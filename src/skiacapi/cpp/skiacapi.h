@@ -9,6 +9,7 @@ class SkData;
 class SkDocument;
 class SkDynamicMemoryWStream;
 class SkPaint;
+class SkPath;
 class SkRefCnt;
 class SkShader;
 class SkSVGDOM;
@@ -21,6 +22,7 @@ typedef void SkData;
 typedef void SkDocument;
 typedef void SkDynamicMemoryWStream;
 typedef void SkPaint;
+typedef void SkPath;
 typedef void SkRefCnt;
 typedef void SkShader;
 typedef void SkSVGDOM;
@@ -34,6 +36,7 @@ typedef void SkSVGDOM;
 // const.cpp
 
 CAPI unsigned char SkColorType_RGBA_F32(void);
+CAPI unsigned char SkColorType_RGBA_F16(void);
 CAPI unsigned char SkColorType_A16_unorm(void);
 
 CAPI unsigned char SkAlphaType_Opaque(void);
@@ -139,6 +142,9 @@ typedef struct Path {
     bool isEvenOdd;
 } Path;
 
+CAPI SkPath* SkPath_Make(Path* path);
+CAPI void SkPath_delete(SkPath* path);
+
 CAPI SkCanvas* SkCanvas_MakeRasterDirect(IMAGE_PARAMETERS);
 CAPI SkCanvas* SkSVGCanvas_Make(SkDynamicMemoryWStream* stream, float x, float y, float w, float h);
 CAPI void SkCanvas_delete(SkCanvas* canvas);
@@ -154,6 +160,7 @@ CAPI void SkCanvas_setMatrix(SkCanvas* canvas, MATRIX23_PARAMETERS);
 CAPI void SkCanvas_clipRect(SkCanvas* canvas, float x, float y, float w, float h, bool doAntiAlias);
 CAPI void SkCanvas_clipPath(SkCanvas* canvas, Path* path, bool doAntiAlias);
 CAPI void SkCanvas_drawPath(SkCanvas* canvas, Path* path, SkPaint* paint);
+CAPI void SkCanvas_drawSkPath(SkCanvas* canvas, SkPath* path, SkPaint* paint);
 CAPI void SkCanvas_drawImage(SkCanvas* canvas, IMAGE_PARAMETERS, float x, float y, unsigned char filterMode, SkPaint* paint);
 
 // paint.cpp
@@ -0,0 +1,40 @@
+package com.loadingbyte.cinecred.imaging
+
+import com.loadingbyte.cinecred.imaging.BitmapWriter.EXR.Compression
+import org.junit.jupiter.api.Assertions.assertArrayEquals
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.EnumSource
+import java.nio.ByteBuffer
+import java.util.zip.Deflater
+import kotlin.random.Random
+
+
+internal class EXRChunkTest {
+
+    private fun encode(compression: Compression, raw: ByteArray): ByteBuffer =
+        BitmapWriter.EXR.encodeChunk(compression, ByteBuffer.wrap(raw), raw.copyOf(), raw.size, 7, Deflater())
+
+    @ParameterizedTest
+    @EnumSource(Compression::class, names = ["RLE", "ZIPS", "ZIP"])
+    fun `incompressible chunk is stored raw`(compression: Compression) {
+        val raw = Random(42).nextBytes(3 * 4 * 1920)
+        val chunk = encode(compression, raw)
+        assertEquals(8 + raw.size, chunk.position())
+        assertEquals(7, chunk.getInt(0))
+        assertEquals(raw.size, chunk.getInt(4))
+        assertArrayEquals(raw, chunk.array().copyOfRange(8, 8 + raw.size))
+    }
+
+    @ParameterizedTest
+    @EnumSource(Compression::class, names = ["RLE", "ZIPS", "ZIP"])
+    fun `compressible chunk is stored compressed`(compression: Compression) {
+        val raw = ByteArray(3 * 4 * 1920)
+        val chunk = encode(compression, raw)
+        assertTrue(chunk.position() < 8 + raw.size)
+        assertEquals(7, chunk.getInt(0))
+        assertEquals(chunk.position() - 8, chunk.getInt(4))
+    }
+
+}